@@ -0,0 +1,75 @@
+package tictactoe.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.TicTacToeBoard;
+
+/**
+ * The fixed positions the benchmarks are run on.
+ * Every position is generated from a fixed seed, so the suite is the same from run to run and results can be compared across changes.
+ * @author Ray Heil
+ */
+public final class BenchmarkPositions
+{
+	private BenchmarkPositions()
+	{}
+
+	/**
+	 * Obtains the suite of positions, from 3x3/3 up to 8x8/5.
+	 * Each is an unfinished game with about a quarter of its cells filled and CROSS to move.
+	 * @return Returns the positions keyed by their names, such as {@code "5x5/4"}, smallest first.
+	 */
+	public static LinkedHashMap<String,ITicTacToeBoard> Suite()
+	{
+		LinkedHashMap<String,ITicTacToeBoard> suite = new LinkedHashMap<String,ITicTacToeBoard>();
+		int[][] sizes = {{3, 3, 3}, {4, 4, 3}, {5, 5, 4}, {6, 6, 4}, {7, 7, 5}, {8, 8, 5}};
+
+		for (int[] size : sizes)
+			suite.put(size[0] + "x" + size[1] + "/" + size[2], Position(size[0], size[1], size[2], size[0] * size[1] / 4));
+
+		return suite;
+	}
+
+	/**
+	 * Plays random moves that do not end the game until {@code stones} stones are on the board.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param win_len The winning length of the board.
+	 * @param stones The number of stones to place. This is rounded down to an even number so that CROSS is to move.
+	 * @return Returns the position.
+	 */
+	public static ITicTacToeBoard Position(int width, int height, int win_len, int stones)
+	{
+		Random rand = new Random(SEED + 31 * width + 17 * height + win_len);
+		TicTacToeBoard board = new TicTacToeBoard(width, height, win_len);
+		PieceType turn = PieceType.CROSS;
+
+		while (board.Count() < (stones & ~1))
+		{
+			Vector2i pos = new Vector2i(rand.nextInt(width), rand.nextInt(height));
+			if (board.IsCellOccupied(pos))
+				continue;
+
+			board.Set(turn, pos);
+
+			// A finished game is no use to anyone, so take back any move that ends it
+			if (board.IsFinished()) {
+				board.Undo();
+				continue;
+			}
+
+			turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+		}
+
+		return board;
+	}
+
+	/**
+	 * The seed every position is generated from.
+	 */
+	public static final long SEED = 20240501;
+}
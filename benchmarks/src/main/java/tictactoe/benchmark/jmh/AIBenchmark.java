@@ -0,0 +1,135 @@
+package tictactoe.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gamecore.LINQ.LINQ;
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.AI.Evaluation;
+import tictactoe.AI.TicTacToeAI;
+import tictactoe.benchmark.BenchmarkPositions;
+import tictactoe.model.BitBoard;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.Player;
+
+/**
+ * Times the steps of the AI's search on every position of {@link BenchmarkPositions#Suite()}, and a whole move from start to finish.
+ * The search works on a bitboard, so that is what the individual steps are timed on.
+ * @author Ray Heil
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AIBenchmark
+{
+	/**
+	 * Picks out the position and makes an AI for it.
+	 */
+	@Setup(Level.Trial)
+	public void SetUp()
+	{
+		Start = BenchmarkPositions.Suite().get(Position);
+		Board = new BitBoard(Start);
+
+		// Without a transposition table every call does the same work, rather than the first doing it all
+		AI = new ExposedAI(SEARCH_DIFFICULTY);
+		AI.SetTranspositionTableMegabytes(0);
+		AI.SetEvaluation(Evaluation.valueOf(Evaluator));
+		return;
+	}
+
+	@Benchmark
+	public int GetChildStates()
+	{return LINQ.Count(AI.GetChildStates(Board));}
+
+	@Benchmark
+	public double StaticEvalutation()
+	{return AI.StaticEvalutation(Board);}
+
+	@Benchmark
+	public double Minimax()
+	{return AI.Minimax(Board, MINIMAX_DEPTH);}
+
+	/**
+	 * Finds a move from start to finish with a fresh AI each time, so that no move benefits from what an earlier one left in the table.
+	 */
+	@Benchmark
+	public Vector2i GetNextMove()
+	{
+		TicTacToeAI fresh = new TicTacToeAI(Player.CROSS, SEARCH_DIFFICULTY);
+		fresh.SetTranspositionTableMegabytes(1);
+		fresh.SetEvaluation(Evaluation.valueOf(Evaluator));
+		return fresh.GetNextMove(Start);
+	}
+
+	/**
+	 * An AI that lets the benchmark call the pieces of its search directly.
+	 */
+	protected static class ExposedAI extends TicTacToeAI
+	{
+		public ExposedAI(int difficulty)
+		{super(tictactoe.model.Player.CROSS, difficulty);}
+
+		@Override
+		public double StaticEvalutation(ITicTacToeBoard state)
+		{return super.StaticEvalutation(state);}
+
+		/**
+		 * Searches {@code state} to a fixed depth with a full window, as the maximizing player.
+		 */
+		public double Minimax(ITicTacToeBoard state, int depth)
+		{return Minimax(state, depth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true);}
+	}
+
+	/**
+	 * The name of the position in the suite.
+	 */
+	@Param({"3x3/3", "4x4/3", "5x5/4", "6x6/4", "7x7/5", "8x8/5"})
+	public String Position;
+
+	/**
+	 * The name of the static evaluation the AI uses.
+	 */
+	@Param({"WINDOWS", "PATTERNS"})
+	public String Evaluator;
+
+	/**
+	 * The position as the suite has it, which {@code GetNextMove} is given.
+	 */
+	protected ITicTacToeBoard Start;
+
+	/**
+	 * The position as a bitboard, which the steps of the search are timed on.
+	 */
+	protected BitBoard Board;
+
+	/**
+	 * The AI whose search steps are timed.
+	 */
+	protected ExposedAI AI;
+
+	/**
+	 * The depth {@code Minimax} searches to.
+	 */
+	protected static final int MINIMAX_DEPTH = 3;
+
+	/**
+	 * The difficulty of the AIs timed from start to finish.
+	 */
+	protected static final int SEARCH_DIFFICULTY = 5;
+}
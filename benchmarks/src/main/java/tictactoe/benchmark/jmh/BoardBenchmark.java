@@ -0,0 +1,107 @@
+package tictactoe.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gamecore.LINQ.LINQ;
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.benchmark.BenchmarkPositions;
+import tictactoe.model.BitBoard;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.PieceType;
+
+/**
+ * Times the board operations the search spends its time in, on every position of {@link BenchmarkPositions#Suite()} and with both board implementations.
+ * @author Ray Heil
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark
+{
+	/**
+	 * Picks out the position and board implementation, and the cells the operations are done on.
+	 */
+	@Setup(Level.Trial)
+	public void SetUp()
+	{
+		ITicTacToeBoard position = BenchmarkPositions.Suite().get(Position);
+		Board = Kind.equals("BitBoard") ? new BitBoard(position) : position.Clone();
+
+		for (Vector2i pos : Board.IndexSet())
+			if (Board.IsCellEmpty(pos)) {
+				Empty = pos;
+				break;
+			}
+
+		Stone = Board.IndexSet(true).iterator().next();
+		return;
+	}
+
+	@Benchmark
+	public int SetUndo()
+	{
+		Board.Set(PieceType.CROSS, Empty);
+		Board.Undo();
+		return Board.Count();
+	}
+
+	@Benchmark
+	public int Clone()
+	{return Board.Clone().Count();}
+
+	@Benchmark
+	public Iterable<Vector2i> WinningSet()
+	{return Board.WinningSet(Stone);}
+
+	@Benchmark
+	public int LongestLine()
+	{return LINQ.Count(Board.LongestLine(Stone, DIAGONAL));}
+
+	/**
+	 * The name of the position in the suite.
+	 */
+	@Param({"3x3/3", "4x4/3", "5x5/4", "6x6/4", "7x7/5", "8x8/5"})
+	public String Position;
+
+	/**
+	 * The board implementation, either {@code TicTacToeBoard} or {@code BitBoard}.
+	 */
+	@Param({"TicTacToeBoard", "BitBoard"})
+	public String Kind;
+
+	/**
+	 * The board timed.
+	 */
+	protected ITicTacToeBoard Board;
+
+	/**
+	 * The first empty cell of the board, which {@code SetUndo} plays in.
+	 */
+	protected Vector2i Empty;
+
+	/**
+	 * The first stone on the board, which the lines are found through.
+	 */
+	protected Vector2i Stone;
+
+	/**
+	 * The direction {@code LongestLine} looks in.
+	 */
+	protected static final Vector2i DIAGONAL = new Vector2i(1, 1);
+}
@@ -0,0 +1,128 @@
+package tictactoe.benchmark.jmh;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.AI.ParallelMode;
+import tictactoe.AI.TicTacToeAI;
+import tictactoe.model.BitBoard;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.Player;
+
+/**
+ * Measures how each parallel search mode speeds up with the number of threads.
+ * Every configuration searches the same mid-opening position to the same fixed depth with a fresh AI (and so an empty transposition table), so the speedup of a thread count is its time over the time of one thread.
+ * @author Ray Heil
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSearchBenchmark
+{
+	/**
+	 * Builds the position and the pool the AIs search with.
+	 */
+	@Setup(Level.Trial)
+	public void SetUp()
+	{
+		String[] size = Position.split("[x/]");
+		Board = Position(Integer.parseInt(size[0]), Integer.parseInt(size[1]), Integer.parseInt(size[2]));
+
+		// The larger board branches far more, so it is searched less deeply to take about as long
+		Difficulty = Board.Size() <= 25 ? 8 : 6;
+		Pool = Threads == 1 ? null : new ForkJoinPool(Threads);
+		return;
+	}
+
+	/**
+	 * Shuts down the pool.
+	 */
+	@TearDown(Level.Trial)
+	public void TearDown()
+	{
+		if (Pool != null)
+			Pool.shutdown();
+
+		return;
+	}
+
+	/**
+	 * Finds a move from start to finish with a fresh AI each time, so that no move benefits from what an earlier one left in the table.
+	 */
+	@Benchmark
+	public Vector2i GetNextMove()
+	{
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, Difficulty);
+		ai.SetPool(Pool);
+		ai.SetParallelMode(ParallelMode.valueOf(Parallel));
+		return ai.GetNextMove(Board);
+	}
+
+	/**
+	 * Builds a mid-opening position with two stones for each player around the center, with CROSS to move.
+	 */
+	protected static ITicTacToeBoard Position(int width, int height, int win_len)
+	{
+		BitBoard board = new BitBoard(width, height, win_len);
+		int cx = width / 2;
+		int cy = height / 2;
+
+		board.Set(PieceType.CROSS, new Vector2i(cx, cy));
+		board.Set(PieceType.CIRCLE, new Vector2i(cx - 1, cy));
+		board.Set(PieceType.CROSS, new Vector2i(cx, cy - 1));
+		board.Set(PieceType.CIRCLE, new Vector2i(cx, cy + 1));
+		return board;
+	}
+
+	/**
+	 * The size and winning length of the board, such as {@code 5x5/4}.
+	 */
+	@Param({"5x5/4", "6x6/4"})
+	public String Position;
+
+	/**
+	 * The name of the parallel search mode.
+	 */
+	@Param({"ROOT_SPLIT", "LAZY_SMP"})
+	public String Parallel;
+
+	/**
+	 * The number of threads searching, where 1 searches without a pool.
+	 */
+	@Param({"1", "2", "4"})
+	public int Threads;
+
+	/**
+	 * The position searched.
+	 */
+	protected ITicTacToeBoard Board;
+
+	/**
+	 * The difficulty of the AIs, and so the depth they search to.
+	 */
+	protected int Difficulty;
+
+	/**
+	 * The pool the AIs search with, or null to search on one thread.
+	 */
+	protected ForkJoinPool Pool;
+}
@@ -0,0 +1,109 @@
+package tictactoe.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.AI.SearchAlgorithm;
+import tictactoe.AI.TicTacToeAI;
+import tictactoe.benchmark.BenchmarkPositions;
+import tictactoe.model.BitBoard;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.Player;
+
+/**
+ * Compares the search drivers side by side on every position of {@link BenchmarkPositions#Suite()}, all searched to the same depth, each on its own and with each kind of selective search.
+ * Each search is done by a fresh AI (and so with an empty transposition table) with the threat search off, so that every move comes from the search itself.
+ * Alongside the time, the number of nodes each search visits is reported as the secondary result {@code Nodes}.
+ * @author Ray Heil
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchAlgorithmBenchmark
+{
+	/**
+	 * Picks out the position.
+	 */
+	@Setup(Level.Trial)
+	public void SetUp()
+	{
+		Start = BenchmarkPositions.Suite().get(Position);
+		return;
+	}
+
+	/**
+	 * Finds a move from start to finish with a fresh AI, and records the number of nodes it visited.
+	 */
+	@Benchmark
+	public Vector2i GetNextMove(Counters counters)
+	{
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, DIFFICULTY);
+		ai.SetThreatSearch(false);
+		ai.SetSearchAlgorithm(SearchAlgorithm.valueOf(Algorithm));
+		ai.SetLateMoveReductions(Selective.equals("LMR") || Selective.equals("BOTH"));
+		ai.SetFutilityPruning(Selective.equals("FUTILITY") || Selective.equals("BOTH"));
+
+		Vector2i move = ai.GetNextMove(new BitBoard(Start));
+		counters.Nodes = ai.GetLastStatistics().Nodes();
+		return move;
+	}
+
+	/**
+	 * The secondary results reported alongside the time.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters
+	{
+		/**
+		 * The nodes visited by the last search.
+		 * Every search of a trial is the same, so this is set rather than added to, and it is the nodes of one search rather than of the whole iteration.
+		 */
+		public long Nodes;
+	}
+
+	/**
+	 * The name of the position in the suite.
+	 */
+	@Param({"3x3/3", "4x4/3", "5x5/4", "6x6/4", "7x7/5", "8x8/5"})
+	public String Position;
+
+	/**
+	 * The name of the search driver.
+	 */
+	@Param({"MINIMAX", "PVS", "MTDF"})
+	public String Algorithm;
+
+	/**
+	 * The selective search added to the driver: {@code NONE}, {@code LMR} (late move reductions), {@code FUTILITY} (futility pruning) or {@code BOTH}.
+	 */
+	@Param({"NONE", "LMR", "FUTILITY", "BOTH"})
+	public String Selective;
+
+	/**
+	 * The position as the suite has it.
+	 */
+	protected ITicTacToeBoard Start;
+
+	/**
+	 * The difficulty of the AIs, and so the depth they search to.
+	 */
+	protected static final int DIFFICULTY = 8;
+}
@@ -0,0 +1,180 @@
+package tictactoe.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tictactoe.benchmark.BenchmarkPositions;
+import tictactoe.model.BitBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.VectorWindowScanner;
+import tictactoe.model.WindowCounts;
+import tictactoe.model.WindowScanner;
+
+/**
+ * Compares the ways of scoring the windows of a position and of checking for a win on large boards: the scalar loop over every cell of every window, the {@link WindowScanner} working 64 windows at a time, the {@link VectorWindowScanner} working a vector of words at a time, and the counts the board keeps up to date.
+ * Each is timed on 15x15 and 19x19 boards with a winning length of five, at a few stages of the game.
+ * The fork is started with the Vector API, as the game is.
+ * @author Ray Heil
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class WindowScanBenchmark
+{
+	/**
+	 * Makes the position, its scanners, and a copy of it that checks for wins with its scanner.
+	 * @throws IllegalStateException Thrown if the ways of scoring it don't all agree.
+	 */
+	@Setup(Level.Trial)
+	public void SetUp()
+	{
+		Board = new BitBoard(BenchmarkPositions.Position(Size, Size, 5, Stones));
+		Scanned = new BitBoard(Board);
+		Scanned.SetScannedWins(true);
+		Swar = new WindowScanner(Board);
+		Vector = new VectorWindowScanner(Board);
+
+		long expected = Board.Windows().Score(PieceType.CROSS);
+
+		if (Scalar(Board) != expected || Swar.Score(PieceType.CROSS) != expected || Vector.Score(PieceType.CROSS) != expected)
+			throw new IllegalStateException("The window scores disagree on " + Size + "x" + Size + "/5 with " + Stones + " stones.");
+
+		for (int cell = 0; cell < Board.Size(); cell++)
+			if (Board.IsEmpty(cell)) {
+				Empty = cell;
+				break;
+			}
+
+		return;
+	}
+
+	@Benchmark
+	public long ScoreScalar()
+	{return Scalar(Board);}
+
+	@Benchmark
+	public long ScoreScanner()
+	{return Swar.Score(PieceType.CROSS);}
+
+	@Benchmark
+	public long ScoreVector()
+	{return Vector.Score(PieceType.CROSS);}
+
+	@Benchmark
+	public long ScoreIncremental()
+	{return Board.Windows().Score(PieceType.CROSS);}
+
+	/**
+	 * Plays and takes back a move, which checks for a win with the board's own line search.
+	 */
+	@Benchmark
+	public int WinCheckLines()
+	{
+		Board.Set(PieceType.CROSS, Empty);
+		Board.Undo();
+		return Board.Count();
+	}
+
+	/**
+	 * Plays and takes back a move, which checks for a win with the board's scanner, the vector one when the Vector API is there.
+	 */
+	@Benchmark
+	public int WinCheckScanner()
+	{
+		Scanned.Set(PieceType.CROSS, Empty);
+		Scanned.Undo();
+		return Scanned.Count();
+	}
+
+	@Benchmark
+	public boolean HasLineScanner()
+	{return Swar.HasLine(PieceType.CROSS);}
+
+	@Benchmark
+	public boolean HasLineVector()
+	{return Vector.HasLine(PieceType.CROSS);}
+
+	/**
+	 * Scores the windows of {@code board} for CROSS by visiting every cell of every window.
+	 */
+	public static long Scalar(BitBoard board)
+	{
+		WindowCounts windows = board.Windows();
+		long score = 0;
+
+		for (int w = 0; w < windows.Windows(); w++)
+		{
+			int crosses = 0;
+			int circles = 0;
+
+			for (int cell : windows.CellsOf(w))
+			{
+				PieceType piece = board.Get(cell);
+
+				if (piece == PieceType.CROSS)
+					crosses++;
+				else if (piece == PieceType.CIRCLE)
+					circles++;
+			}
+
+			if (circles == 0)
+				score += WindowCounts.Weight(crosses);
+			else if (crosses == 0)
+				score -= WindowCounts.Weight(circles);
+		}
+
+		return score;
+	}
+
+	/**
+	 * The width and height of the board.
+	 */
+	@Param({"15", "19"})
+	public int Size;
+
+	/**
+	 * The number of stones on the board.
+	 */
+	@Param({"10", "40", "80"})
+	public int Stones;
+
+	/**
+	 * The position timed.
+	 */
+	protected BitBoard Board;
+
+	/**
+	 * The same position, checking for wins with its scanner.
+	 */
+	protected BitBoard Scanned;
+
+	/**
+	 * A scanner of the position that works 64 windows at a time.
+	 */
+	protected WindowScanner Swar;
+
+	/**
+	 * A scanner of the position that works a vector of words at a time.
+	 */
+	protected WindowScanner Vector;
+
+	/**
+	 * The first empty cell of the board, which the win checks play in.
+	 */
+	protected int Empty;
+}
@@ -0,0 +1,243 @@
+package tictactoe.AI;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import gamecore.datastructures.tuples.Pair;
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.model.BitBoard;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.Player;
+
+/**
+ *
+ * An AI that solves positions exactly with depth-first proof-number search, and only plays a heuristic move when it can't.
+ *
+ * It first tries to prove that it can force a win. If it can't, it looks for a move after which the
+ * opponent can't force a win, which holds the draw. Either way the move it plays is backed by a proof.
+ * If the position is lost, or the node budget runs out first, it falls back to the minimax search it
+ * inherits, at its difficulty.
+ *
+ * @author Ray Heil
+ *
+ */
+public class DfpnAI extends TicTacToeAI
+{
+	/**
+	 * Creates a solver that falls back to minimax at difficulty 5.
+	 */
+	public DfpnAI(Player player)
+	{this(player, 5);}
+
+	/**
+	 * Creates a solver.
+	 * @param player The player to play for.
+	 * @param difficulty The difficulty of the minimax search used when the position can't be solved, 1-10.
+	 */
+	public DfpnAI(Player player, int difficulty)
+	{
+		super(player, difficulty);
+		NodeBudget = 2000000;
+		SolverMegabytes = 32;
+		Ours = null;
+		Theirs = null;
+		LastOutcome = Outcome.UNKNOWN;
+	}
+
+	/**
+	 * Works out the game-theoretic value of a position with this AI to move, within the node budget.
+	 * @param board The position.
+	 * @return Returns the value and a move that achieves it, or a null move if the position is lost or the value is {@code Outcome.UNKNOWN}.
+	 * @throws NullPointerException Thrown if {@code board} is null.
+	 * @throws IllegalStateException Thrown if {@code board} is finished.
+	 */
+	public Pair<Outcome,Vector2i> Solve(ITicTacToeBoard board)
+	{return Solve(board, new SearchContext(0, 0));}
+
+	/**
+	 * Obtains the value of the last position this AI was asked to move in, as far as the solver could tell.
+	 */
+	public Outcome GetLastOutcome()
+	{return LastOutcome;}
+
+	@Override
+	protected Vector2i Search(ITicTacToeBoard board, SearchContext context)
+	{
+		if (board.IsFinished())
+			throw new IllegalStateException("Board is finished and has no next move.");
+
+		try {
+			Pair<Outcome,Vector2i> solution = Solve(board, context);
+
+			if (solution.Item2 != null)
+				return solution.Item2;
+		}
+		catch (SearchTimeoutException e) {
+			// Out of time or cancelled; the fallback will still give a move, or notice the cancellation itself
+		}
+
+		return super.Search(board, context);
+	}
+
+	/**
+	 * Works out the game-theoretic value of a position with this AI to move.
+	 * This is synchronized since the solvers' tables are shared, and a cancelled search may still be unwinding when the next one starts.
+	 * @throws SearchTimeoutException Thrown if {@code context} says to stop.
+	 */
+	protected synchronized Pair<Outcome,Vector2i> Solve(ITicTacToeBoard board, SearchContext context)
+	{
+		if (board.IsFinished())
+			throw new IllegalStateException("Board is finished and has no next move.");
+
+		BitBoard bits = new BitBoard(board);
+		long budget = NodeBudget;
+		PrepareSolvers();
+
+		// Can we force a win?
+		int result = Ours.Prove(bits, budget, context);
+		budget -= Ours.Nodes();
+
+		if (result == ProofNumberSearch.PROVEN)
+			return Finish(Outcome.WIN, bits, Ours.ProvenMove());
+
+		if (result == ProofNumberSearch.UNKNOWN)
+			return Finish(Outcome.UNKNOWN, bits, -1);
+
+		// If not, find a move after which they can't either
+		for (int cell : AllMoves(bits))
+		{
+			bits.Set(GetPieceType(), cell);
+
+			try {
+				if (bits.IsFinished())
+					return Finish(Outcome.DRAW, bits, cell);
+
+				result = Theirs.Prove(bits, budget, context);
+				budget -= Theirs.Nodes();
+			}
+			finally {
+				bits.Undo();
+			}
+
+			if (result == ProofNumberSearch.DISPROVEN)
+				return Finish(Outcome.DRAW, bits, cell);
+
+			if (result == ProofNumberSearch.UNKNOWN)
+				return Finish(Outcome.UNKNOWN, bits, -1);
+		}
+
+		return Finish(Outcome.LOSS, bits, -1);
+	}
+
+	/**
+	 * Records the outcome of a solve and packages it up.
+	 */
+	protected Pair<Outcome,Vector2i> Finish(Outcome outcome, BitBoard board, int cell)
+	{
+		LastOutcome = outcome;
+		return new Pair<Outcome,Vector2i>(outcome, cell < 0 ? null : new Vector2i(board.X(cell), board.Y(cell)));
+	}
+
+	/**
+	 * Creates the solvers if they don't exist yet, splitting the memory cap between them.
+	 * Each solver has a fixed attacker, so what it learns stays good for the rest of the game.
+	 */
+	protected synchronized void PrepareSolvers()
+	{
+		if (Ours != null)
+			return;
+
+		long bytes = (long)SolverMegabytes << 19;
+		Ours = new ProofNumberSearch(GetPieceType(), bytes);
+		Theirs = new ProofNumberSearch(GetOpponentPieceType(), bytes);
+	}
+
+	/**
+	 * Obtains every empty cell, nearest the center first, since that is where drawing moves usually are.
+	 * Holding a draw is only proven once every move has been tried, so unlike the minimax search this never leaves out far away cells.
+	 * Only one of the cells that lead to positions symmetric to each other is included.
+	 */
+	protected int[] AllMoves(BitBoard board)
+	{
+		Integer[] sorted = new Integer[board.Size() - board.Count()];
+		int size = 0;
+
+		for (int cell = 0; cell < board.Size(); cell++)
+			if (board.IsEmpty(cell))
+				sorted[size++] = cell;
+
+		// Twice the distance from the center, so that even boards don't need fractions
+		Arrays.sort(sorted, Comparator.comparingInt(cell -> Math.max(Math.abs(2 * board.X(cell) - board.Width() + 1), Math.abs(2 * board.Y(cell) - board.Height() + 1))));
+
+		int[] moves = new int[size];
+		for (int i = 0; i < size; i++)
+			moves[i] = sorted[i];
+
+		return Arrays.copyOf(moves, board.Symmetries().Distinct(moves, size));
+	}
+
+	/**
+	 * Obtains the most positions the solver may expand per move before falling back to minimax.
+	 */
+	public long GetNodeBudget()
+	{return NodeBudget;}
+
+	/**
+	 * Set the most positions the solver may expand per move before falling back to minimax.
+	 * @throws IllegalArgumentException Thrown if {@code nodes} is not positive.
+	 */
+	public void SetNodeBudget(long nodes)
+	{
+		if (nodes <= 0)
+			throw new IllegalArgumentException("The node budget must be positive.");
+
+		NodeBudget = nodes;
+	}
+
+	/**
+	 * Obtains the memory cap of the solver's transposition tables in megabytes.
+	 */
+	public int GetSolverMegabytes()
+	{return SolverMegabytes;}
+
+	/**
+	 * Set the memory cap of the solver's transposition tables in megabytes.
+	 * The current tables (and everything in them) are discarded.
+	 * @throws IllegalArgumentException Thrown if {@code megabytes} is not positive.
+	 */
+	public synchronized void SetSolverMegabytes(int megabytes)
+	{
+		if (megabytes <= 0)
+			throw new IllegalArgumentException("The solver needs a positive amount of memory.");
+
+		SolverMegabytes = megabytes;
+		Ours = null;
+		Theirs = null;
+	}
+
+	/**
+	 * The most positions the solver may expand per move.
+	 */
+	protected long NodeBudget;
+
+	/**
+	 * The memory cap of both solver tables together in megabytes.
+	 */
+	protected int SolverMegabytes;
+
+	/**
+	 * Proves wins for this AI.
+	 */
+	protected ProofNumberSearch Ours;
+
+	/**
+	 * Proves wins for the opponent.
+	 */
+	protected ProofNumberSearch Theirs;
+
+	/**
+	 * The value of the last position this AI was asked to move in.
+	 */
+	protected Outcome LastOutcome;
+}
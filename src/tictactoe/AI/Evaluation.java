@@ -0,0 +1,28 @@
+package tictactoe.AI;
+
+/**
+ * The static evaluations TicTacToeAI can score positions with.
+ * @author Ray Heil
+ */
+public enum Evaluation
+{
+	/**
+	 * Every window of {@code WinningLength()} cells that only one player has stones in is worth {@code WindowCounts.Weight(n)} to them for their {@code n} stones.
+	 * This knows nothing about the shape of a line or the space around it, but costs nothing to read.
+	 */
+	WINDOWS,
+	
+	/**
+	 * Every window is looked up in a {@link tictactoe.model.PatternTable}, which tells solid runs from split ones and open ends from closed ones and weighs lines one stone from winning as the threats they are.
+	 * Boards keep the total up to date as moves are made, so it also costs nothing to read, but making a move touches a few more windows.
+	 * Winning lengths too long to have a table fall back to {@code WINDOWS}.
+	 */
+	PATTERNS,
+	
+	/**
+	 * Positions are scored by the AI's {@link tictactoe.model.NeuralNetwork}, trained by {@link NeuralTrainer} on games the AI played against itself.
+	 * Boards keep the network's first layer up to date as moves are made, so only its tiny head runs for each position, but that is still slower than either of the others.
+	 * An AI without a network, or with one for a different board shape, falls back to {@code WINDOWS}.
+	 */
+	NEURAL
+}
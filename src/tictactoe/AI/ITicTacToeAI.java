@@ -1,5 +1,7 @@
 package tictactoe.AI;
 
+import java.util.concurrent.CompletableFuture;
+
 import gamecore.datastructures.vectors.Vector2i;
 import tictactoe.model.ITicTacToeBoard;
 import tictactoe.model.Player;
@@ -19,6 +21,27 @@ public interface ITicTacToeAI
 	 */
 	public Vector2i GetNextMove(ITicTacToeBoard board);
 	
+	/**
+	 * Gets the AI's next move from the given board state, taking roughly at most {@code milliseconds} to decide.
+	 * The AI returns the best move it has fully worked out once its time is up, so a short budget may give a weaker move but never a late one.
+	 * @param board The current state of the game.
+	 * @param milliseconds The time budget for this move. This must be positive.
+	 * @return Returns the position the AI will claim next or null if it cannot make a move.
+	 * @throws NullPointerException Thrown if {@code board} is null.
+	 * @throws IllegalArgumentException Thrown if {@code milliseconds} is not positive.
+	 */
+	public Vector2i GetNextMove(ITicTacToeBoard board, long milliseconds);
+	
+	/**
+	 * Starts working out the AI's next move on another thread and returns immediately.
+	 * The AI works on a snapshot of {@code board} taken before this returns, so the caller may keep using (or changing) {@code board} while it thinks.
+	 * Cancelling the returned future stops the search promptly.
+	 * @param board The current state of the game.
+	 * @return Returns a future that completes with the position the AI will claim next.
+	 * @throws NullPointerException Thrown if {@code board} is null.
+	 */
+	public CompletableFuture<Vector2i> GetNextMoveAsync(ITicTacToeBoard board);
+	
 	/**
 	 * Determines which player the AI controls.
 	 */
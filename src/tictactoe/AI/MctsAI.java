@@ -0,0 +1,448 @@
+package tictactoe.AI;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import gamecore.datastructures.tuples.Pair;
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.model.BitBoard;
+import tictactoe.model.CandidateSet;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.Player;
+
+/**
+ *
+ * An AI that chooses moves by Monte Carlo tree search with the UCT rule.
+ *
+ * Each playout walks down the tree, always taking the child with the best balance of how well it has done
+ * and how little it has been tried, adds a level to the tree when it reaches a leaf that has been visited
+ * before, and finishes the game with random moves. The result is then counted in every node on the way
+ * back up. The move played is the one tried most.
+ *
+ * Random moves are only made near the stones already on the board (see {@code SetCandidateDistance}), and
+ * every playout is made and unmade on a board of its thread's own, so playouts allocate nothing.
+ *
+ * With a pool, every thread of the pool runs playouts on the same tree (tree parallelism). A playout counts
+ * its visit to a node on the way down and its result on the way back up, so until it finishes it looks like
+ * a loss to every other thread (a virtual loss), which steers them towards other parts of the tree.
+ *
+ * The tree is kept between moves. When asked to move again after its own move and the opponent's reply,
+ * the AI carries on from the node of that reply rather than starting again.
+ *
+ * The difficulty sets the default number of playouts, which doubles with each level. A time budget cuts
+ * the search short.
+ *
+ * @author Ray Heil
+ *
+ */
+public class MctsAI extends TicTacToeAI
+{
+	/**
+	 * Creates an AI of difficulty 5.
+	 */
+	public MctsAI(Player player)
+	{this(player, 5);}
+
+	/**
+	 * Creates an AI.
+	 * @param player The player to play for.
+	 * @param difficulty The difficulty, 1-10, which sets the number of playouts per move to {@code 250 * 2^(difficulty - 1)}.
+	 */
+	public MctsAI(Player player, int difficulty)
+	{
+		super(player, difficulty);
+		Playouts = 250L << (difficulty - 1);
+		Root = null;
+		RootBoard = null;
+		ReusedVisits = 0;
+	}
+
+	@Override
+	protected synchronized Vector2i Search(ITicTacToeBoard board, SearchContext context)
+	{
+		if (board.IsFinished())
+			throw new IllegalStateException("Board is finished and has no next move.");
+
+		BitBoard root_board = SearchBoard(board);
+
+		// Don't bother sampling when the threats say what to do
+		if (UseThreatSearch && board.WinningLength() >= 4) {
+			Pair<Vector2i,Boolean> threat = SearchThreats(new BitBoard(root_board));
+
+			if (threat != null && threat.Item2)
+				return threat.Item1;
+		}
+
+		Node root = FindSubtree(root_board);
+		if (root == null)
+			root = new Node(-1, Opposite(ToMove(root_board)));
+
+		// Expand the root up front so that there's a move to pick however soon the search stops
+		if (root.Children == null)
+			Expand(root, root_board);
+
+		Root = root;
+		RootBoard = root_board;
+		ReusedVisits = root.Visits;
+
+		AtomicLong remaining = new AtomicLong(Playouts);
+		int helpers = Pool == null ? 0 : Pool.getParallelism() - 1;
+		ArrayList<SearchContext> contexts = new ArrayList<SearchContext>(helpers);
+		ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(helpers);
+
+		for (int i = 1; i <= helpers; i++)
+		{
+			SearchContext helper = new SearchContext(context, i);
+			BitBoard copy = new BitBoard(root_board);
+			Node tree = root;
+			contexts.add(helper);
+			tasks.add(Pool.submit(() -> RunPlayouts(helper, tree, copy, remaining)));
+		}
+
+		try {
+			RunPlayouts(context, root, new BitBoard(root_board), remaining);
+		}
+		finally {
+			for (SearchContext helper : contexts)
+				helper.Stop();
+			for (ForkJoinTask<?> task : tasks)
+				task.quietlyJoin();
+		}
+
+		if (context.IsStopped())
+			throw new CancellationException("The search was stopped before it found a move.");
+
+		return ToVector(root_board, BestChild(root).Move);
+	}
+
+	/**
+	 * Runs playouts from {@code root} until the budget shared by every thread is spent or the thread is told to stop.
+	 * @param context The state of the thread.
+	 * @param root The root of the tree.
+	 * @param board The root position. It is played on and restored after every playout.
+	 * @param remaining The number of playouts left to every thread together.
+	 */
+	protected void RunPlayouts(SearchContext context, Node root, BitBoard board, AtomicLong remaining)
+	{
+		SplittableRandom rand = new SplittableRandom();
+		Node[] path = new Node[board.Size() + 1];
+
+		// A playout costs far more than a look at the clock, so the deadline is checked before every one
+		while (!context.ShouldStopNow() && remaining.getAndDecrement() > 0)
+			Playout(root, board, rand, path);
+	}
+
+	/**
+	 * Runs one playout: selection, expansion, a random rollout, and backpropagation.
+	 * @param root The root of the tree.
+	 * @param board The root position. It is played on and restored.
+	 * @param rand The thread's random numbers.
+	 * @param path Room for every node on the way down.
+	 */
+	protected void Playout(Node root, BitBoard board, SplittableRandom rand, Node[] path)
+	{
+		int depth = 0;
+		int played = 0;
+		Node node = root;
+		path[0] = root;
+		VISITS.incrementAndGet(root);
+
+		try {
+			// Walk down the tree, counting each visit now so that other threads see it as a loss until we finish
+			while (!board.IsFinished())
+			{
+				Node[] children = node.Children;
+
+				if (children == null) {
+					if (node.Visits < EXPAND_VISITS)
+						break;
+
+					children = Expand(node, board);
+				}
+
+				node = Select(node, children);
+				VISITS.incrementAndGet(node);
+				path[++depth] = node;
+				board.Set(node.Mover, node.Move);
+				played++;
+			}
+
+			// Then finish the game at random
+			PieceType piece = ToMove(board);
+
+			while (!board.IsFinished())
+			{
+				board.Set(piece, RandomMove(board, rand));
+				piece = Opposite(piece);
+				played++;
+			}
+
+			Player victor = board.Victor();
+
+			for (int i = 0; i <= depth; i++)
+			{
+				Node n = path[i];
+				int reward = victor == tictactoe.model.Player.NEITHER ? 1 : victor == (n.Mover == PieceType.CROSS ? tictactoe.model.Player.CROSS : tictactoe.model.Player.CIRCLE) ? 2 : 0;
+				REWARD.addAndGet(n, reward);
+			}
+		}
+		finally {
+			while (played-- > 0)
+				board.Undo();
+		}
+	}
+
+	/**
+	 * Adds a child to {@code node} for every move the search would consider, unless another thread got there first.
+	 * @return Returns the children.
+	 */
+	protected Node[] Expand(Node node, BitBoard board)
+	{
+		synchronized (node)
+		{
+			if (node.Children != null)
+				return node.Children;
+
+			PieceType mover = ToMove(board);
+			ArrayList<Node> children = new ArrayList<Node>();
+
+			for (Vector2i move : GetChildStates(board))
+				children.add(new Node(board.Cell(move.X, move.Y), mover));
+
+			node.Children = children.toArray(new Node[children.size()]);
+			return node.Children;
+		}
+	}
+
+	/**
+	 * Picks the child of {@code node} with the highest upper confidence bound.
+	 * Children nobody has tried come first.
+	 */
+	protected Node Select(Node node, Node[] children)
+	{
+		double log = Math.log(Math.max(1, node.Visits));
+		Node best = null;
+		double best_bound = Double.NEGATIVE_INFINITY;
+
+		for (Node child : children)
+		{
+			int visits = child.Visits;
+			if (visits == 0)
+				return child;
+
+			// Rewards are 2 for a win and 1 for a draw, so halve them to get a value between 0 and 1
+			double bound = child.Reward / (2.0 * visits) + EXPLORATION * Math.sqrt(log / visits);
+
+			if (bound > best_bound) {
+				best = child;
+				best_bound = bound;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Obtains the child of {@code node} that was visited the most.
+	 */
+	protected Node BestChild(Node node)
+	{
+		Node best = null;
+
+		for (Node child : node.Children)
+			if (best == null || child.Visits > best.Visits)
+				best = child;
+
+		return best;
+	}
+
+	/**
+	 * Picks a random move to finish a game with: a cell near a stone if the candidate distance allows, and any empty cell otherwise.
+	 */
+	protected int RandomMove(BitBoard board, SplittableRandom rand)
+	{
+		if (CandidateDistance > 0) {
+			CandidateSet candidates = board.Candidates(CandidateDistance);
+
+			if (candidates.Size() > 0)
+				return candidates.Get(rand.nextInt(candidates.Size()));
+		}
+
+		// Probe from a random cell for the next empty one
+		int start = rand.nextInt(board.Size());
+
+		for (int i = 0; i < board.Size(); i++)
+		{
+			int cell = (start + i) % board.Size();
+			if (board.IsEmpty(cell))
+				return cell;
+		}
+
+		throw new IllegalStateException("A board that isn't finished has no empty cells.");
+	}
+
+	/**
+	 * Finds the node of the tree kept from the last search that {@code board} is at, which is the case if it follows on from the last root by at most our move and the opponent's reply.
+	 * @return Returns the node, or null if the tree can't be used.
+	 */
+	protected Node FindSubtree(BitBoard board)
+	{
+		if (Root == null || RootBoard.Width() != board.Width() || RootBoard.Height() != board.Height() || RootBoard.WinningLength() != board.WinningLength())
+			return null;
+
+		int added = board.Count() - RootBoard.Count();
+		if (added < 0 || added > 2)
+			return null;
+
+		// Every stone that was there must still be there
+		for (int cell = 0; cell < board.Size(); cell++)
+			if (!RootBoard.IsEmpty(cell) && RootBoard.Get(cell) != board.Get(cell))
+				return null;
+
+		Node node = Root;
+		PieceType piece = ToMove(RootBoard);
+
+		for (int step = 0; step < added && node != null; step++, piece = Opposite(piece))
+		{
+			Node[] children = node.Children;
+			node = null;
+
+			if (children != null)
+				for (Node child : children)
+					if (RootBoard.IsEmpty(child.Move) && board.Get(child.Move) == piece) {
+						node = child;
+						break;
+					}
+		}
+
+		return node;
+	}
+
+	/**
+	 * Obtains the piece of the player to move, which is CROSS if the number of stones is even since CROSS moves first.
+	 */
+	protected static PieceType ToMove(BitBoard board)
+	{return board.Count() % 2 == 0 ? PieceType.CROSS : PieceType.CIRCLE;}
+
+	/**
+	 * Obtains the opponent of {@code piece}.
+	 */
+	protected static PieceType Opposite(PieceType piece)
+	{return piece == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;}
+
+	/**
+	 * Obtains the number of playouts per move.
+	 */
+	public long GetPlayouts()
+	{return Playouts;}
+
+	/**
+	 * Set the number of playouts per move, shared between every thread. A time budget may stop the search sooner.
+	 * @throws IllegalArgumentException Thrown if {@code playouts} is not positive.
+	 */
+	public void SetPlayouts(long playouts)
+	{
+		if (playouts <= 0)
+			throw new IllegalArgumentException("The number of playouts must be positive.");
+
+		Playouts = playouts;
+	}
+
+	/**
+	 * Obtains the number of playouts through the root of the last search that were carried over from the searches before it.
+	 */
+	public int GetReusedVisits()
+	{return ReusedVisits;}
+
+	/**
+	 * Obtains the number of playouts through the root of the last search, including those carried over.
+	 */
+	public int GetTreeVisits()
+	{return Root == null ? 0 : Root.Visits;}
+
+	/**
+	 * A position in the tree, reached by a move.
+	 */
+	protected static class Node
+	{
+		public Node(int move, PieceType mover)
+		{
+			Move = move;
+			Mover = mover;
+			Children = null;
+			Visits = 0;
+			Reward = 0;
+		}
+
+		/**
+		 * The int index of the move that reaches this position, or -1 at the root.
+		 */
+		public final int Move;
+
+		/**
+		 * The piece of the player who made {@code Move}. Rewards are counted for this player.
+		 */
+		public final PieceType Mover;
+
+		/**
+		 * The positions one move on, or null if this node hasn't been expanded.
+		 */
+		public volatile Node[] Children;
+
+		/**
+		 * The number of playouts that have passed through this position, including those still running.
+		 */
+		public volatile int Visits;
+
+		/**
+		 * The total reward of the finished playouts through this position for {@code Mover}: 2 per win and 1 per draw.
+		 */
+		public volatile long Reward;
+	}
+
+	/**
+	 * Updates {@code Node.Visits} atomically without an object per node.
+	 */
+	protected static final AtomicIntegerFieldUpdater<Node> VISITS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "Visits");
+
+	/**
+	 * Updates {@code Node.Reward} atomically without an object per node.
+	 */
+	protected static final AtomicLongFieldUpdater<Node> REWARD = AtomicLongFieldUpdater.newUpdater(Node.class, "Reward");
+
+	/**
+	 * The number of visits a leaf needs before it gets children.
+	 */
+	protected static final int EXPAND_VISITS = 2;
+
+	/**
+	 * How strongly the upper confidence bound favours children that have been tried little.
+	 */
+	protected static final double EXPLORATION = 1.0;
+
+	/**
+	 * The number of playouts per move.
+	 */
+	protected long Playouts;
+
+	/**
+	 * The root of the tree kept from the last search, or null.
+	 */
+	protected Node Root;
+
+	/**
+	 * The position at {@code Root}.
+	 */
+	protected BitBoard RootBoard;
+
+	/**
+	 * The number of playouts through the root carried over into the last search.
+	 */
+	protected int ReusedVisits;
+}
@@ -0,0 +1,136 @@
+package tictactoe.AI;
+
+import java.util.Arrays;
+
+import tictactoe.model.PieceType;
+
+/**
+ *
+ * What the search has learned about which moves tend to cause cutoffs, used to try them first.
+ *
+ * Killer moves are the last two moves that caused a cutoff at each ply. A move good enough to refute one
+ * position is often good enough to refute its siblings, which differ by a move somewhere else. The history
+ * table scores every cell for each player by how much work its cutoffs have saved, summed over the whole
+ * search, so it remembers good moves everywhere in the tree.
+ *
+ * Plies are numbered by the number of stones on the board, so they mean the same thing from one search to
+ * the next and killers carry over. Every thread of a search shares the same tables. Their updates can race,
+ * but losing one only makes the ordering a little worse, and reading a half-updated table is harmless.
+ *
+ * @author Ray Heil
+ *
+ */
+public class MoveOrdering
+{
+	/**
+	 * Creates empty tables for boards with {@code cells} cells.
+	 */
+	public MoveOrdering(int cells)
+	{
+		Cells = cells;
+		Killers = new int[2 * (cells + 1)];
+		History = new int[2 * cells];
+
+		Arrays.fill(Killers, -1);
+	}
+
+	/**
+	 * Scores a move for ordering. Higher scores are tried first.
+	 * @param piece The piece of the player making the move.
+	 * @param cell The int index of the move.
+	 * @param ply The number of stones on the board before the move.
+	 * @return Returns the score, which is below {@code Integer.MAX_VALUE} so that a transposition table move can always go first.
+	 */
+	public int Score(PieceType piece, int cell, int ply)
+	{
+		if (Killers[2 * ply] == cell)
+			return KILLER;
+		if (Killers[2 * ply + 1] == cell)
+			return KILLER - 1;
+
+		return History[Side(piece) + cell];
+	}
+
+	/**
+	 * Records that a move caused a cutoff.
+	 * @param piece The piece of the player making the move.
+	 * @param cell The int index of the move.
+	 * @param ply The number of stones on the board before the move.
+	 * @param depth The depth left to search below the position, which is how much work the cutoff saved.
+	 */
+	public void Cutoff(PieceType piece, int cell, int ply, int depth)
+	{
+		if (Killers[2 * ply] != cell) {
+			Killers[2 * ply + 1] = Killers[2 * ply];
+			Killers[2 * ply] = cell;
+		}
+
+		int i = Side(piece) + cell;
+		History[i] += depth * depth;
+
+		// Keep the history clear of the killer scores, keeping the proportions between cells
+		if (History[i] > HISTORY_LIMIT)
+			Age();
+
+		return;
+	}
+
+	/**
+	 * Halves every history score, so that what was learned long ago counts for less than what was learned recently.
+	 */
+	public void Age()
+	{
+		for (int i = 0; i < History.length; i++)
+			History[i] >>= 1;
+
+		return;
+	}
+
+	/**
+	 * Forgets everything.
+	 */
+	public void Clear()
+	{
+		Arrays.fill(Killers, -1);
+		Arrays.fill(History, 0);
+
+		return;
+	}
+
+	/**
+	 * Obtains the number of cells of the boards these tables are for.
+	 */
+	public int Cells()
+	{return Cells;}
+
+	/**
+	 * Obtains where the history of {@code piece} starts.
+	 */
+	protected int Side(PieceType piece)
+	{return piece == PieceType.CROSS ? 0 : Cells;}
+
+	/**
+	 * The score of the first killer move. The second scores one less.
+	 */
+	protected static final int KILLER = Integer.MAX_VALUE - 1;
+
+	/**
+	 * The highest a history score may reach before every score is halved.
+	 */
+	protected static final int HISTORY_LIMIT = 1 << 24;
+
+	/**
+	 * The number of cells of the boards these tables are for.
+	 */
+	protected final int Cells;
+
+	/**
+	 * The two killer moves of each ply, newest first, or -1.
+	 */
+	protected final int[] Killers;
+
+	/**
+	 * The history score of each cell, for CROSS and then for CIRCLE.
+	 */
+	protected final int[] History;
+}
@@ -0,0 +1,997 @@
+package tictactoe.AI;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import gamecore.datastructures.tuples.Pair;
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.model.BitBoard;
+import tictactoe.model.NeuralNetwork;
+import tictactoe.model.PieceType;
+import tictactoe.model.Player;
+import tictactoe.model.SymmetricHashes;
+import tictactoe.model.WindowCounts;
+
+/**
+ *
+ * Trains a {@link NeuralNetwork} on games the AI plays against itself.
+ *
+ * Each game starts with a few random moves from among the ones the search would consider first, so that
+ * the games don't all play out the same, and is then played out by two AIs searching at {@code difficulty}
+ * with the window evaluation. The network learns to predict, from a position alone, a blend of how the
+ * game ended (1 for a win for CROSS, -1 for a loss, and 0 for a draw) and what the search made of the
+ * position, so that it learns what the search sees as well as what happened: {@code tanh} of its score
+ * is fit to {@code RESULT_WEIGHT} of the result plus the rest of {@code tanh} of the search's score over
+ * a scale. The scale is the one that best predicts the results from the search's scores. The games are
+ * played in parallel since they don't depend on each other, and a tenth of them are held back to check
+ * that the network learns more than the games.
+ *
+ * The network is trained in floats and turned into int16 weights at the end, with each weight kept within
+ * the range its accumulator can hold. The layers that become ints are rounded the same way whenever they
+ * are used in training, so the network learns to work with the precision it will have. (A window weight
+ * is added once for every window, so otherwise its rounding error would be too, many times over.) Each time a position is trained on, it is turned or flipped by a
+ * random symmetry of the board, so every game counts for several. (The window features are the same
+ * whichever way the board is turned, so only the stones need turning.)
+ *
+ * Usage: {@code NeuralTrainer WIDTH HEIGHT LENGTH GAMES DIFFICULTY EPOCHS OUTPUT [THREADS]}
+ *
+ * @author Ray Heil
+ *
+ */
+public class NeuralTrainer
+{
+	/**
+	 * Creates a trainer.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param winningLength The winning length of the board.
+	 * @param games The number of games to play.
+	 * @param difficulty The difficulty the games are played at, 2-10.
+	 * @param epochs The number of times to train on every position.
+	 * @param seed The seed of the random openings and initial weights.
+	 * @param pool The pool to play games on.
+	 * @throws IllegalArgumentException Thrown if the board is not positive in size, {@code games} or {@code epochs} is not positive, or {@code difficulty} is out of range.
+	 * @throws NullPointerException Thrown if {@code pool} is null.
+	 */
+	public NeuralTrainer(int width, int height, int winningLength, int games, int difficulty, int epochs, long seed, ForkJoinPool pool)
+	{
+		if (width < 1 || height < 1 || winningLength < 1)
+			throw new IllegalArgumentException("Nonpositive arguments for width, height, or winningLength are illegal.");
+
+		if (games < 1 || epochs < 1)
+			throw new IllegalArgumentException("There must be at least one game and one epoch.");
+
+		if (difficulty < 2 || difficulty > 10)
+			throw new IllegalArgumentException("Games must be played at a difficulty from 2 to 10.");
+
+		if (pool == null)
+			throw new NullPointerException();
+
+		Width = width;
+		Height = height;
+		WinningLength = winningLength;
+		Games = games;
+		Difficulty = difficulty;
+		Epochs = epochs;
+		Seed = seed;
+		Pool = pool;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 7) {
+			System.err.println("Usage: NeuralTrainer WIDTH HEIGHT LENGTH GAMES DIFFICULTY EPOCHS OUTPUT [THREADS]");
+			System.exit(1);
+		}
+
+		int threads = args.length > 7 ? Integer.parseInt(args[7]) : Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		try {
+			long start = System.nanoTime();
+			NeuralTrainer trainer = new NeuralTrainer(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]), Integer.parseInt(args[5]), SEED, pool);
+			trainer.SetLog(System.out);
+			trainer.Train().Save(Path.of(args[6]));
+
+			System.out.println(String.format("Trained in %.1fs", (System.nanoTime() - start) / 1e9));
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		return;
+	}
+
+	/**
+	 * Plays the games and trains a network on them.
+	 * @return Returns the network.
+	 */
+	public NeuralNetwork Train()
+	{
+		ArrayList<Game> games = PlayGames();
+		ArrayList<Game> training = new ArrayList<Game>();
+		ArrayList<Game> validation = new ArrayList<Game>();
+
+		for (int i = 0; i < games.size(); i++)
+			(i % 10 == 9 ? validation : training).add(games.get(i));
+
+		double scale = Scale(training);
+		Weights weights = new Weights(Width * Height, WinningLength, new WindowCounts(Width, Height, WinningLength).Windows(), new Random(Seed));
+		Fit(weights, Positions(training, scale), Positions(validation, scale));
+		return weights.Quantize(Width, Height, WinningLength);
+	}
+
+	/**
+	 * Plays every game, in parallel.
+	 */
+	protected ArrayList<Game> PlayGames()
+	{
+		ArrayList<ForkJoinTask<Game>> tasks = new ArrayList<ForkJoinTask<Game>>(Games);
+
+		for (int i = 0; i < Games; i++)
+		{
+			long seed = Seed + i;
+			tasks.add(Pool.submit(() -> Play(new Random(seed))));
+		}
+
+		ArrayList<Game> games = new ArrayList<Game>(Games);
+		int[] results = new int[3];
+
+		for (ForkJoinTask<Game> task : tasks)
+		{
+			Game game = task.join();
+			games.add(game);
+			results[(int)game.Result + 1]++;
+
+			if (Log != null && games.size() % 100 == 0)
+				Log.println(String.format("Played %d games: CROSS won %d, CIRCLE won %d, %d drawn", games.size(), results[2], results[0], results[1]));
+		}
+
+		return games;
+	}
+
+	/**
+	 * Plays one game.
+	 * @param rand Where the random opening moves come from.
+	 */
+	protected Game Play(Random rand)
+	{
+		BitBoard board = new BitBoard(Width, Height, WinningLength);
+		TicTacToeAI cross = new TicTacToeAI(Player.CROSS, Difficulty);
+		TicTacToeAI circle = new TicTacToeAI(Player.CIRCLE, Difficulty);
+		cross.SetTranspositionTableMegabytes(TABLE_MEGABYTES);
+		circle.SetTranspositionTableMegabytes(TABLE_MEGABYTES);
+
+		Game game = new Game();
+		int opening = rand.nextInt(OPENING_PLIES + 1);
+
+		while (!board.IsFinished())
+		{
+			TicTacToeAI ai = board.Count() % 2 == 0 ? cross : circle;
+			Vector2i move;
+			double score = Double.NaN;
+
+			if (board.Count() < opening) {
+				ArrayList<Vector2i> moves = new ArrayList<Vector2i>();
+
+				for (Vector2i m : ai.GetChildStates(board))
+					if (moves.size() < OPENING_MOVES)
+						moves.add(m);
+
+				move = moves.get(rand.nextInt(moves.size()));
+			}
+			else {
+				Pair<Vector2i,Double> best = Search(ai, board);
+				move = best.Item1;
+				score = ai == cross ? best.Item2 : -best.Item2;
+			}
+
+			game.Moves.add(board.Cell(move.X, move.Y));
+			game.Scores.add(score);
+			board.Set(ai.GetPieceType(), move);
+		}
+
+		game.Result = board.Victor() == Player.CROSS ? 1 : board.Victor() == Player.CIRCLE ? -1 : 0;
+		return game;
+	}
+
+	/**
+	 * Searches a position as the AI would, except that the score is kept along with the move.
+	 * @param ai The AI to move.
+	 * @param board The position, with at least one empty cell and no winner.
+	 * @return Returns the best move and its score for {@code ai}, which is infinite if the threat search found a forced win.
+	 */
+	protected Pair<Vector2i,Double> Search(TicTacToeAI ai, BitBoard board)
+	{
+		Vector2i seed = null;
+		if (ai.GetThreatSearch() && board.WinningLength() >= 4) {
+			Pair<Vector2i,Boolean> threat = ai.SearchThreats(new BitBoard(board));
+
+			if (threat != null && threat.Item2)
+				return new Pair<Vector2i,Double>(threat.Item1, Double.POSITIVE_INFINITY);
+
+			seed = threat == null ? null : threat.Item1;
+		}
+
+		TranspositionTable table = ai.PrepareTable(board);
+		if (table != null)
+			table.NewSearch();
+
+		ai.PrepareOrdering(board);
+		return ai.IterativeDeepening(new SearchContext(0, 0), board, Math.min(Difficulty - 1, board.Size() - board.Count()), seed);
+	}
+
+	/**
+	 * Finds the scale of search scores that best predicts how games end, as {@code tanh} of the score over the scale.
+	 * The scales tried go up by a tenth at a time, and a won or lost score predicts the result exactly whatever the scale.
+	 */
+	protected double Scale(ArrayList<Game> games)
+	{
+		double best = 1;
+		double best_loss = Double.POSITIVE_INFINITY;
+
+		for (double scale = 1; scale < MAX_SCALE; scale *= 1.1)
+		{
+			double loss = 0;
+
+			for (Game game : games)
+				for (double score : game.Scores)
+					if (!Double.isNaN(score) && !Double.isInfinite(score)) {
+						double error = Math.tanh(score / scale) - game.Result;
+						loss += error * error;
+					}
+
+			if (loss < best_loss) {
+				best = scale;
+				best_loss = loss;
+			}
+		}
+
+		if (Log != null)
+			Log.println(String.format("Search scores are scaled by %.1f", best));
+
+		return best;
+	}
+
+	/**
+	 * Obtains every position of {@code games} that isn't over, each as its moves so far and what the network should make of it.
+	 * @param scale The scale of the search's scores.
+	 */
+	protected ArrayList<Position> Positions(ArrayList<Game> games, double scale)
+	{
+		ArrayList<Position> positions = new ArrayList<Position>();
+		WindowCounts windows = new WindowCounts(Width, Height, WinningLength);
+		int[][] ends = Ends(windows);
+		boolean[] taken = new boolean[Width * Height];
+
+		for (Game game : games)
+		{
+			windows.Clear();
+			Arrays.fill(taken, false);
+
+			for (int n = 0; n < game.Moves.size(); n++)
+			{
+				double score = game.Scores.get(n);
+				double target = game.Result;
+
+				// Random opening moves weren't searched, so all they have to go on is the result
+				if (!Double.isNaN(score))
+					target = RESULT_WEIGHT * game.Result + (1 - RESULT_WEIGHT) * (Double.isInfinite(score) ? Math.signum(score) : Math.tanh(score / scale));
+
+				positions.add(new Position(game, n, Histogram(windows, ends, taken), target));
+				windows.Add(game.Moves.get(n), n % 2 == 0 ? PieceType.CROSS : PieceType.CIRCLE);
+				taken[game.Moves.get(n)] = true;
+			}
+		}
+
+		return positions;
+	}
+
+	/**
+	 * Finds the cells just past each end of each window.
+	 * @return Returns the two cells of each window, or -1 for an end off the board.
+	 */
+	protected int[][] Ends(WindowCounts windows)
+	{
+		int[][] ends = new int[windows.Windows()][2];
+
+		for (int w = 0; w < ends.length; w++)
+		{
+			ends[w][0] = -1;
+			ends[w][1] = -1;
+
+			if (WinningLength < 2)
+				continue;
+
+			int[] line = windows.CellsOf(w);
+			int dx = line[1] % Width - line[0] % Width;
+			int dy = line[1] / Width - line[0] / Width;
+			int x = line[0] % Width - dx;
+			int y = line[0] / Width - dy;
+
+			if (x >= 0 && x < Width && y >= 0 && y < Height)
+				ends[w][0] = y * Width + x;
+
+			x = line[WinningLength - 1] % Width + dx;
+			y = line[WinningLength - 1] / Width + dy;
+
+			if (x >= 0 && x < Width && y >= 0 && y < Height)
+				ends[w][1] = y * Width + x;
+		}
+
+		return ends;
+	}
+
+	/**
+	 * Counts the windows holding each number of stones of only one player with each number of open ends, as the window features see them from CROSS's side.
+	 * @param ends The cells just past the ends of each window, as {@link #Ends(WindowCounts)} finds them.
+	 * @param taken Which cells hold a stone.
+	 * @return Returns the counts in the order of {@link NeuralNetwork#WindowFeature(int, int, boolean)}, CROSS's stones being the side's own.
+	 */
+	protected int[] Histogram(WindowCounts windows, int[][] ends, boolean[] taken)
+	{
+		int[] histogram = new int[6 * WinningLength];
+
+		for (int w = 0; w < windows.Windows(); w++)
+		{
+			int crosses = windows.Count(w, PieceType.CROSS);
+			int circles = windows.Count(w, PieceType.CIRCLE);
+
+			if (crosses > 0 == circles > 0)
+				continue;
+
+			int open = 0;
+
+			for (int end : ends[w])
+				if (end >= 0 && !taken[end])
+					open++;
+
+			histogram[2 * (3 * (crosses + circles - 1) + open) + (crosses > 0 ? 0 : 1)]++;
+		}
+
+		return histogram;
+	}
+
+	/**
+	 * Fits the weights to the training positions, one epoch at a time.
+	 * @param weights The weights to fit.
+	 * @param training The positions to fit them to.
+	 * @param validation The positions to check them against after each epoch.
+	 */
+	protected void Fit(Weights weights, ArrayList<Position> training, ArrayList<Position> validation)
+	{
+		Random rand = new Random(Seed);
+		SymmetricHashes symmetries = new SymmetricHashes(Width, Height);
+		Gradient gradient = new Gradient(weights);
+		int[] cells = new int[Width * Height];
+
+		for (int epoch = 0; epoch < Epochs; epoch++)
+		{
+			// Shuffle, then step after every batch
+			for (int i = training.size() - 1; i > 0; i--) {
+				int j = rand.nextInt(i + 1);
+				Position t = training.get(i);
+				training.set(i, training.get(j));
+				training.set(j, t);
+			}
+
+			double loss = 0;
+
+			for (int start = 0; start < training.size(); start += BATCH_SIZE)
+			{
+				int end = Math.min(training.size(), start + BATCH_SIZE);
+				gradient.Clear();
+
+				for (int i = start; i < end; i++)
+				{
+					Position position = training.get(i);
+					int t = rand.nextInt(symmetries.Transforms());
+
+					for (int n = 0; n < position.Stones; n++)
+						cells[n] = symmetries.Map(t, position.Game.Moves.get(n));
+
+					loss += gradient.Add(cells, position.Stones, position.Windows, position.Target);
+				}
+
+				weights.Step(gradient, end - start);
+			}
+
+			if (Log != null)
+				Log.println(String.format("Epoch %d: training loss %.4f, validation loss %.4f", epoch + 1, loss / Math.max(1, training.size()), Loss(weights, validation)));
+		}
+
+		return;
+	}
+
+	/**
+	 * Obtains the mean loss of {@code weights} over {@code positions}, as they are, without training on them.
+	 */
+	protected double Loss(Weights weights, ArrayList<Position> positions)
+	{
+		Gradient gradient = new Gradient(weights);
+		int[] cells = new int[Width * Height];
+		double loss = 0;
+
+		for (Position position : positions)
+		{
+			for (int n = 0; n < position.Stones; n++)
+				cells[n] = position.Game.Moves.get(n);
+
+			loss += gradient.Forward(cells, position.Stones, position.Windows, position.Target);
+		}
+
+		return positions.isEmpty() ? 0 : loss / positions.size();
+	}
+
+	/**
+	 * Set where progress is reported.
+	 * @param log The stream to report progress to, or null to say nothing.
+	 */
+	public void SetLog(PrintStream log)
+	{Log = log;}
+
+	/**
+	 * One game: its moves in order, CROSS first, what the search made of each position, and how it ended.
+	 */
+	protected static class Game
+	{
+		/**
+		 * The int index of every move, in the order they were made.
+		 */
+		public final ArrayList<Integer> Moves = new ArrayList<Integer>();
+
+		/**
+		 * The search's score for CROSS of the position before each move, or NaN if the move was random.
+		 */
+		public final ArrayList<Double> Scores = new ArrayList<Double>();
+
+		/**
+		 * 1 if CROSS won, -1 if CIRCLE won, and 0 for a draw.
+		 */
+		public double Result;
+	}
+
+	/**
+	 * A position partway through a game, as the first {@code Stones} moves of it, and what the network should make of it.
+	 */
+	protected static class Position
+	{
+		public Position(Game game, int stones, int[] windows, double target)
+		{
+			Game = game;
+			Stones = stones;
+			Windows = windows;
+			Target = target;
+		}
+
+		/**
+		 * The game the position is from.
+		 */
+		public final Game Game;
+
+		/**
+		 * The number of moves made so far.
+		 */
+		public final int Stones;
+
+		/**
+		 * The number of windows holding each number of stones of only one player, as {@link NeuralTrainer#Histogram(WindowCounts, int[][], boolean[])} counts them.
+		 */
+		public final int[] Windows;
+
+		/**
+		 * What {@code tanh} of the network's score should be.
+		 */
+		public final double Target;
+	}
+
+	/**
+	 * The weights of a network in floats, as they are trained, along with Adam's moving averages of their gradients.
+	 */
+	protected static class Weights
+	{
+		/**
+		 * Creates randomly initialised weights for boards of {@code cells} cells, {@code windows} windows, and a winning length of {@code length}.
+		 */
+		public Weights(int cells, int length, int windows, Random rand)
+		{
+			Cells = cells;
+			Features = new float[2 * cells * HIDDEN];
+			WindowFeatures = new float[6 * length * HIDDEN];
+			Biases = new float[HIDDEN];
+			HeadWeights = new float[HIDDEN * HEAD];
+			HeadBiases = new float[HEAD];
+			OutputWeights = new float[HEAD];
+			Tempo = new float[1];
+
+			// Start every sum and head output halfway up its clipped range, so that they all learn from the first step.
+			// The first layer starts at zero, so that a stone in a cell the games never reached is worth nothing rather than something random for the search to go after.
+			for (int j = 0; j < HIDDEN; j++)
+				Biases[j] = 0.5f;
+
+			for (int i = 0; i < HeadWeights.length; i++)
+				HeadWeights[i] = (float)(rand.nextGaussian() / Math.sqrt(HIDDEN));
+
+			for (int i = 0; i < HEAD; i++) {
+				HeadBiases[i] = 0.5f;
+				OutputWeights[i] = (float)(rand.nextGaussian() * 0.1);
+			}
+
+			Parameters = new float[][] {Features, WindowFeatures, Biases, HeadWeights, HeadBiases, OutputWeights, Tempo};
+			Means = new float[Parameters.length][];
+			Variances = new float[Parameters.length][];
+
+			for (int p = 0; p < Parameters.length; p++) {
+				Means[p] = new float[Parameters[p].length];
+				Variances[p] = new float[Parameters[p].length];
+			}
+
+			FeatureLimit = (float)(Short.MAX_VALUE / (cells + windows + 1)) / NeuralNetwork.QA;
+			Rounded = new float[5][];
+
+			for (int p = 0; p < Rounded.length; p++)
+				Rounded[p] = new float[Parameters[p].length];
+
+			Round();
+		}
+
+		/**
+		 * Takes one step of Adam down a gradient summed over {@code batch} positions.
+		 */
+		public void Step(Gradient gradient, int batch)
+		{
+			Steps++;
+			double correct_mean = 1 - Math.pow(ADAM_BETA1, Steps);
+			double correct_variance = 1 - Math.pow(ADAM_BETA2, Steps);
+
+			for (int p = 0; p < Parameters.length; p++)
+			{
+				float[] w = Parameters[p];
+				float[] g = gradient.Parameters[p];
+				float[] m = Means[p];
+				float[] v = Variances[p];
+
+				for (int i = 0; i < w.length; i++)
+				{
+					float d = g[i] / batch;
+					m[i] = ADAM_BETA1 * m[i] + (1 - ADAM_BETA1) * d;
+					v[i] = ADAM_BETA2 * v[i] + (1 - ADAM_BETA2) * d * d;
+					w[i] -= LEARNING_RATE * (m[i] / correct_mean) / (Math.sqrt(v[i] / correct_variance) + 1e-8);
+				}
+			}
+
+			// Decay the first layer towards zero, for the same reason it starts there, and keep it within what an int16 accumulator can hold once it is quantised
+			for (int i = 0; i < Features.length; i++)
+				Features[i] = Math.max(-FeatureLimit, Math.min(FeatureLimit, Features[i] * (1 - LEARNING_RATE * WEIGHT_DECAY)));
+
+			for (int i = 0; i < WindowFeatures.length; i++)
+				WindowFeatures[i] = Math.max(-FeatureLimit, Math.min(FeatureLimit, WindowFeatures[i]));
+
+			for (int j = 0; j < HIDDEN; j++)
+				Biases[j] = Math.max(-FeatureLimit, Math.min(FeatureLimit, Biases[j]));
+
+			Round();
+			return;
+		}
+
+		/**
+		 * Rounds the layers that become ints to the values they will have, as {@code Rounded}.
+		 */
+		public void Round()
+		{
+			float[] scales = {NeuralNetwork.QA, NeuralNetwork.QA, NeuralNetwork.QA, NeuralNetwork.QB, NeuralNetwork.QA * NeuralNetwork.QB};
+
+			for (int p = 0; p < Rounded.length; p++)
+				for (int i = 0; i < Rounded[p].length; i++)
+					Rounded[p][i] = Math.round(Parameters[p][i] * scales[p]) / scales[p];
+
+			return;
+		}
+
+		/**
+		 * Turns the weights into a network.
+		 */
+		public NeuralNetwork Quantize(int width, int height, int winningLength)
+		{
+			short[] features = new short[Features.length];
+			short[] windowFeatures = new short[WindowFeatures.length];
+			short[] biases = new short[HIDDEN];
+			short[] head = new short[HeadWeights.length];
+			int[] headBiases = new int[HEAD];
+
+			for (int i = 0; i < features.length; i++)
+				features[i] = (short)Math.round(Features[i] * NeuralNetwork.QA);
+
+			for (int i = 0; i < windowFeatures.length; i++)
+				windowFeatures[i] = (short)Math.round(WindowFeatures[i] * NeuralNetwork.QA);
+
+			for (int j = 0; j < HIDDEN; j++)
+				biases[j] = (short)Math.round(Biases[j] * NeuralNetwork.QA);
+
+			for (int i = 0; i < head.length; i++)
+				head[i] = (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(HeadWeights[i] * NeuralNetwork.QB)));
+
+			for (int i = 0; i < HEAD; i++)
+				headBiases[i] = Math.round(HeadBiases[i] * NeuralNetwork.QA * NeuralNetwork.QB);
+
+			return new NeuralNetwork(width, height, winningLength, features, windowFeatures, biases, head, headBiases, OutputWeights.clone(), Tempo[0]);
+		}
+
+		/**
+		 * The number of cells on the board.
+		 */
+		public final int Cells;
+
+		/**
+		 * The first layer's weights, {@code HIDDEN} for each feature, laid out as in {@link NeuralNetwork}.
+		 */
+		public final float[] Features;
+
+		/**
+		 * The first layer's window weights, {@code HIDDEN} for each feature, laid out as in {@link NeuralNetwork}.
+		 */
+		public final float[] WindowFeatures;
+
+		/**
+		 * The first layer's biases.
+		 */
+		public final float[] Biases;
+
+		/**
+		 * The head's first layer, {@code HEAD} weights for each accumulator sum.
+		 */
+		public final float[] HeadWeights;
+
+		/**
+		 * The head's first layer's biases.
+		 */
+		public final float[] HeadBiases;
+
+		/**
+		 * The weight of each of the head's outputs in the score.
+		 */
+		public final float[] OutputWeights;
+
+		/**
+		 * How much being the one to move is worth, as an array of one so that it can be stepped like the rest.
+		 */
+		public final float[] Tempo;
+
+		/**
+		 * Every array of weights, in the order above.
+		 */
+		public final float[][] Parameters;
+
+		/**
+		 * The first five arrays of {@code Parameters}, which become ints, rounded as they will be.
+		 */
+		public final float[][] Rounded;
+
+		/**
+		 * Adam's moving average of each weight's gradient.
+		 */
+		public final float[][] Means;
+
+		/**
+		 * Adam's moving average of each weight's squared gradient.
+		 */
+		public final float[][] Variances;
+
+		/**
+		 * The most a first layer weight may be.
+		 */
+		public final float FeatureLimit;
+
+		/**
+		 * The number of steps taken so far.
+		 */
+		public int Steps;
+	}
+
+	/**
+	 * The gradient of the loss with respect to every weight, summed over a batch, along with the scratch space to work it out.
+	 */
+	protected static class Gradient
+	{
+		public Gradient(Weights weights)
+		{
+			Weights = weights;
+			Parameters = new float[weights.Parameters.length][];
+
+			for (int p = 0; p < Parameters.length; p++)
+				Parameters[p] = new float[weights.Parameters[p].length];
+
+			Sums = new float[2][HIDDEN];
+			Outputs = new float[2][HEAD];
+		}
+
+		/**
+		 * Forgets every position added so far.
+		 */
+		public void Clear()
+		{
+			for (float[] g : Parameters)
+				Arrays.fill(g, 0);
+
+			return;
+		}
+
+		/**
+		 * Scores a position and obtains its loss, leaving what the backward pass needs behind.
+		 * @param cells The cells of the moves so far, in order, CROSS first.
+		 * @param stones The number of moves so far.
+		 * @param windows The number of windows holding each number of stones of only one player, as {@link NeuralTrainer#Histogram(WindowCounts, int[][], boolean[])} counts them.
+		 * @param result What {@code tanh} of the score should be.
+		 * @return Returns the squared difference between {@code tanh} of the score and {@code result}.
+		 */
+		public double Forward(int[] cells, int stones, int[] windows, double result)
+		{
+			float[] features = Weights.Rounded[0];
+			float[] window_features = Weights.Rounded[1];
+			double score = 0;
+
+			for (int side = 0; side < 2; side++)
+			{
+				float[] sums = Sums[side];
+				System.arraycopy(Weights.Rounded[2], 0, sums, 0, HIDDEN);
+
+				// Stone n is CROSS's if n is even, and is the side's own if it is that side's
+				for (int n = 0; n < stones; n++)
+				{
+					int offset = (2 * cells[n] + ((n & 1) == side ? 0 : 1)) * HIDDEN;
+
+					for (int j = 0; j < HIDDEN; j++)
+						sums[j] += features[offset + j];
+				}
+
+				// The histogram is from CROSS's side, so CIRCLE's side swaps each pair
+				for (int r = 0; r < windows.length; r++)
+				{
+					int count = windows[r ^ side];
+
+					if (count != 0)
+						for (int j = 0; j < HIDDEN; j++)
+							sums[j] += count * window_features[r * HIDDEN + j];
+				}
+
+				float value = 0;
+
+				for (int i = 0; i < HEAD; i++)
+				{
+					float output = Weights.Rounded[4][i];
+
+					for (int j = 0; j < HIDDEN; j++)
+						output += Clip(sums[j]) * Weights.Rounded[3][j * HEAD + i];
+
+					Outputs[side][i] = output;
+					value += Weights.OutputWeights[i] * Clip(output);
+				}
+
+				score += side == 0 ? value : -value;
+			}
+
+			score += stones % 2 == 0 ? Weights.Tempo[0] : -Weights.Tempo[0];
+			Prediction = Math.tanh(score);
+			return (Prediction - result) * (Prediction - result);
+		}
+
+		/**
+		 * Adds the gradient of a position's loss to the total.
+		 * @return Returns the loss, as {@link #Forward(int[], int, int[], double)} does.
+		 */
+		public double Add(int[] cells, int stones, int[] windows, double result)
+		{
+			double loss = Forward(cells, stones, windows, result);
+			float d_score = (float)(2 * (Prediction - result) * (1 - Prediction * Prediction));
+
+			float[] d_features = Parameters[0];
+			float[] d_window_features = Parameters[1];
+			float[] d_biases = Parameters[2];
+			float[] d_head = Parameters[3];
+			float[] d_head_biases = Parameters[4];
+			float[] d_outputs = Parameters[5];
+			float[] d_tempo = Parameters[6];
+			float[] d_sums = new float[HIDDEN];
+
+			d_tempo[0] += stones % 2 == 0 ? d_score : -d_score;
+
+			for (int side = 0; side < 2; side++)
+			{
+				float d_value = side == 0 ? d_score : -d_score;
+				float[] sums = Sums[side];
+				Arrays.fill(d_sums, 0);
+
+				for (int i = 0; i < HEAD; i++)
+				{
+					float output = Outputs[side][i];
+					d_outputs[i] += d_value * Clip(output);
+
+					// The clip passes nothing back where it is flat
+					if (output <= 0 || output >= 1)
+						continue;
+
+					float d_output = d_value * Weights.OutputWeights[i];
+					d_head_biases[i] += d_output;
+
+					for (int j = 0; j < HIDDEN; j++) {
+						d_head[j * HEAD + i] += d_output * Clip(sums[j]);
+						d_sums[j] += d_output * Weights.Rounded[3][j * HEAD + i];
+					}
+				}
+
+				for (int j = 0; j < HIDDEN; j++)
+					if (sums[j] <= 0 || sums[j] >= 1)
+						d_sums[j] = 0;
+
+				for (int j = 0; j < HIDDEN; j++)
+					d_biases[j] += d_sums[j];
+
+				for (int n = 0; n < stones; n++)
+				{
+					int offset = (2 * cells[n] + ((n & 1) == side ? 0 : 1)) * HIDDEN;
+
+					for (int j = 0; j < HIDDEN; j++)
+						d_features[offset + j] += d_sums[j];
+				}
+
+				for (int r = 0; r < windows.length; r++)
+				{
+					int count = windows[r ^ side];
+
+					if (count != 0)
+						for (int j = 0; j < HIDDEN; j++)
+							d_window_features[r * HIDDEN + j] += count * d_sums[j];
+				}
+			}
+
+			return loss;
+		}
+
+		/**
+		 * Clips {@code x} to {@code [0, 1]}, as the network does.
+		 */
+		protected static float Clip(float x)
+		{return Math.max(0, Math.min(1, x));}
+
+		/**
+		 * The weights the gradient is of.
+		 */
+		public final Weights Weights;
+
+		/**
+		 * The gradient of every weight, laid out as {@code Weights.Parameters}.
+		 */
+		public final float[][] Parameters;
+
+		/**
+		 * Each side's accumulator sums in the last forward pass, before clipping.
+		 */
+		protected final float[][] Sums;
+
+		/**
+		 * Each side's head outputs in the last forward pass, before clipping.
+		 */
+		protected final float[][] Outputs;
+
+		/**
+		 * {@code tanh} of the score in the last forward pass.
+		 */
+		protected double Prediction;
+	}
+
+	/**
+	 * The number of sums in each side's accumulator.
+	 */
+	public static final int HIDDEN = 32;
+
+	/**
+	 * The number of outputs of the head's int16 layer.
+	 */
+	public static final int HEAD = 8;
+
+	/**
+	 * The seed the command line trainer uses.
+	 */
+	public static final long SEED = 20240601;
+
+	/**
+	 * The most random moves a game starts with.
+	 */
+	protected static final int OPENING_PLIES = 4;
+
+	/**
+	 * Random opening moves are chosen from this many of the moves the search would try first.
+	 */
+	protected static final int OPENING_MOVES = 8;
+
+	/**
+	 * The size of each AI's transposition table in megabytes, kept small since there are two for every game being played.
+	 */
+	protected static final int TABLE_MEGABYTES = 4;
+
+	/**
+	 * How much of what the network learns from comes from how the game ended, the rest coming from the search.
+	 */
+	protected static final double RESULT_WEIGHT = 0.5;
+
+	/**
+	 * The largest scale of search scores tried.
+	 */
+	protected static final double MAX_SCALE = 1e6;
+
+	/**
+	 * The number of positions in each batch.
+	 */
+	protected static final int BATCH_SIZE = 256;
+
+	/**
+	 * How far Adam steps.
+	 */
+	protected static final float LEARNING_RATE = 0.001f;
+
+	/**
+	 * How strongly the first layer is pulled towards zero at each step, relative to the learning rate.
+	 */
+	protected static final float WEIGHT_DECAY = 0.1f;
+
+	/**
+	 * How quickly Adam's average gradient forgets.
+	 */
+	protected static final float ADAM_BETA1 = 0.9f;
+
+	/**
+	 * How quickly Adam's average squared gradient forgets.
+	 */
+	protected static final float ADAM_BETA2 = 0.999f;
+
+	/**
+	 * The width of the board.
+	 */
+	protected int Width;
+
+	/**
+	 * The height of the board.
+	 */
+	protected int Height;
+
+	/**
+	 * The winning length of the board.
+	 */
+	protected int WinningLength;
+
+	/**
+	 * The number of games to play.
+	 */
+	protected int Games;
+
+	/**
+	 * The difficulty the games are played at.
+	 */
+	protected int Difficulty;
+
+	/**
+	 * The number of times to train on every position.
+	 */
+	protected int Epochs;
+
+	/**
+	 * The seed of the random openings and initial weights.
+	 */
+	protected long Seed;
+
+	/**
+	 * The pool games are played on.
+	 */
+	protected ForkJoinPool Pool;
+
+	/**
+	 * Where progress is reported, or null to say nothing.
+	 */
+	protected PrintStream Log = null;
+}
@@ -0,0 +1,233 @@
+package tictactoe.AI;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.model.BitBoard;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.SymmetricHashes;
+
+/**
+ *
+ * The best moves of opening positions, worked out ahead of time by {@code OpeningBookBuilder}.
+ *
+ * A book covers boards of one shape. Each entry is filed under the canonical hash of its position, so one
+ * entry serves every position symmetric to it, and its move is stored in the canonical orientation and
+ * turned back to match the board when it is looked up.
+ *
+ * The file is a header followed by the entries sorted by key. It is mapped into memory rather than read,
+ * so opening a book costs nothing however large it is, and the operating system only pages in the parts a
+ * binary search touches. Lookups only read the mapping, so any number of threads may share a book.
+ *
+ * @author Ray Heil
+ *
+ */
+public class OpeningBook
+{
+	/**
+	 * Creates a book over a mapped file.
+	 */
+	protected OpeningBook(MappedByteBuffer buffer, int width, int height, int winningLength, int entries)
+	{
+		Buffer = buffer;
+		Width = width;
+		Height = height;
+		WinningLength = winningLength;
+		Entries = entries;
+	}
+
+	/**
+	 * Maps a book written by {@code OpeningBookBuilder}.
+	 * @param path The file to map.
+	 * @return Returns the book.
+	 * @throws IOException Thrown if the file cannot be mapped or is not an opening book.
+	 */
+	public static OpeningBook Open(Path path) throws IOException
+	{
+		MappedByteBuffer buffer;
+
+		// The mapping stays valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		buffer.order(ByteOrder.BIG_ENDIAN);
+
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new IOException(path + " is not an opening book.");
+
+		int entries = buffer.getInt(20);
+		if (entries < 0 || buffer.capacity() != HEADER_BYTES + (long)entries * ENTRY_BYTES)
+			throw new IOException(path + " is truncated.");
+
+		return new OpeningBook(buffer, buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), entries);
+	}
+
+	/**
+	 * Determines if this book is for boards the shape of {@code board}.
+	 */
+	public boolean Covers(ITicTacToeBoard board)
+	{return board.Width() == Width && board.Height() == Height && board.WinningLength() == WinningLength;}
+
+	/**
+	 * Looks up the best move of a position.
+	 * @param board The position.
+	 * @return Returns the move, or null if the position is not in the book.
+	 */
+	public Vector2i Lookup(ITicTacToeBoard board)
+	{
+		if (!Covers(board))
+			return null;
+
+		BitBoard bits = board instanceof BitBoard ? (BitBoard)board : new BitBoard(board);
+		SymmetricHashes symmetries = bits.Symmetries();
+		int entry = Find(symmetries.Canonical());
+
+		if (entry < 0)
+			return null;
+
+		int cell = symmetries.Unmap(symmetries.CanonicalTransform(), Buffer.getShort(Offset(entry) + 8));
+
+		// A hash collision could name a filled cell, in which case the entry isn't really for this position
+		if (cell < 0 || cell >= bits.Size() || !bits.IsEmpty(cell))
+			return null;
+
+		return new Vector2i(bits.X(cell), bits.Y(cell));
+	}
+
+	/**
+	 * Looks up the score the search gave the best move of a position, for the player to move.
+	 * @param board The position.
+	 * @return Returns the score, or NaN if the position is not in the book.
+	 */
+	public double Score(ITicTacToeBoard board)
+	{
+		if (!Covers(board))
+			return Double.NaN;
+
+		BitBoard bits = board instanceof BitBoard ? (BitBoard)board : new BitBoard(board);
+		int entry = Find(bits.CanonicalHash());
+		return entry < 0 ? Double.NaN : Buffer.getFloat(Offset(entry) + 12);
+	}
+
+	/**
+	 * Looks up the depth the best move of a position was searched to.
+	 * @param board The position.
+	 * @return Returns the depth in plies, or 0 if the position is not in the book.
+	 */
+	public int Depth(ITicTacToeBoard board)
+	{
+		if (!Covers(board))
+			return 0;
+
+		BitBoard bits = board instanceof BitBoard ? (BitBoard)board : new BitBoard(board);
+		int entry = Find(bits.CanonicalHash());
+		return entry < 0 ? 0 : Buffer.getShort(Offset(entry) + 10);
+	}
+
+	/**
+	 * Obtains the number of positions in the book.
+	 */
+	public int Size()
+	{return Entries;}
+
+	/**
+	 * Obtains the width of the boards this book covers.
+	 */
+	public int Width()
+	{return Width;}
+
+	/**
+	 * Obtains the height of the boards this book covers.
+	 */
+	public int Height()
+	{return Height;}
+
+	/**
+	 * Obtains the winning length of the boards this book covers.
+	 */
+	public int WinningLength()
+	{return WinningLength;}
+
+	/**
+	 * Binary searches the entries for {@code key}.
+	 * @return Returns the number of the entry, or -1 if there is none.
+	 */
+	protected int Find(long key)
+	{
+		int low = 0;
+		int high = Entries - 1;
+
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			long found = Buffer.getLong(Offset(mid));
+
+			if (found < key)
+				low = mid + 1;
+			else if (found > key)
+				high = mid - 1;
+			else
+				return mid;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Obtains where entry {@code entry} starts in the file.
+	 */
+	protected static int Offset(int entry)
+	{return HEADER_BYTES + entry * ENTRY_BYTES;}
+
+	/**
+	 * The first int of every opening book file ("MNKB").
+	 */
+	protected static final int MAGIC = 0x4D4E4B42;
+
+	/**
+	 * The version of the file format.
+	 */
+	protected static final int VERSION = 1;
+
+	/**
+	 * The size of the header: the magic number, the version, the width, height, and winning length, and the number of entries, all ints.
+	 */
+	protected static final int HEADER_BYTES = 24;
+
+	/**
+	 * The size of each entry: the key as a long, the move in the canonical orientation and the depth searched as shorts, and the score as a float.
+	 */
+	protected static final int ENTRY_BYTES = 16;
+
+	/**
+	 * The mapped file.
+	 */
+	protected final MappedByteBuffer Buffer;
+
+	/**
+	 * The width of the boards covered.
+	 */
+	protected final int Width;
+
+	/**
+	 * The height of the boards covered.
+	 */
+	protected final int Height;
+
+	/**
+	 * The winning length of the boards covered.
+	 */
+	protected final int WinningLength;
+
+	/**
+	 * The number of entries.
+	 */
+	protected final int Entries;
+}
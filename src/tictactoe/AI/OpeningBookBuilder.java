@@ -0,0 +1,292 @@
+package tictactoe.AI;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import gamecore.datastructures.tuples.Pair;
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.model.BitBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.Player;
+import tictactoe.model.SymmetricHashes;
+
+/**
+ *
+ * Builds an opening book by searching every opening position deeply, ahead of time.
+ *
+ * The positions covered are every one reachable in fewer than {@code plies} moves from the empty board by
+ * moves the search itself would consider, with only one of each set of symmetric positions kept. Each is
+ * searched by iterative deepening to the depth of {@code difficulty}, or until its time runs out, and the
+ * positions are searched in parallel since they don't depend on each other.
+ *
+ * Usage: {@code OpeningBookBuilder WIDTH HEIGHT LENGTH PLIES DIFFICULTY MILLISECONDS OUTPUT [THREADS]}
+ *
+ * @author Ray Heil
+ *
+ */
+public class OpeningBookBuilder
+{
+	/**
+	 * Creates a builder.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param winningLength The winning length of the board.
+	 * @param plies The book covers positions with fewer than this many stones.
+	 * @param difficulty The difficulty to search each position at, 2-10.
+	 * @param milliseconds The most time to spend on each position, or 0 to always search to the full depth of {@code difficulty}.
+	 * @param pool The pool to search positions on.
+	 * @throws IllegalArgumentException Thrown if the board is not positive in size, {@code plies} or {@code milliseconds} is negative, or {@code difficulty} is out of range.
+	 * @throws NullPointerException Thrown if {@code pool} is null.
+	 */
+	public OpeningBookBuilder(int width, int height, int winningLength, int plies, int difficulty, long milliseconds, ForkJoinPool pool)
+	{
+		if (width < 1 || height < 1 || winningLength < 1)
+			throw new IllegalArgumentException("Nonpositive arguments for width, height, or winningLength are illegal.");
+
+		if (plies < 0 || milliseconds < 0)
+			throw new IllegalArgumentException("The plies and time per position cannot be negative.");
+
+		if (difficulty < 2 || difficulty > 10)
+			throw new IllegalArgumentException("An opening book must be searched at a difficulty from 2 to 10.");
+
+		if (pool == null)
+			throw new NullPointerException();
+
+		Width = width;
+		Height = height;
+		WinningLength = winningLength;
+		Plies = plies;
+		Difficulty = difficulty;
+		Milliseconds = milliseconds;
+		Pool = pool;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 7) {
+			System.err.println("Usage: OpeningBookBuilder WIDTH HEIGHT LENGTH PLIES DIFFICULTY MILLISECONDS OUTPUT [THREADS]");
+			System.exit(1);
+		}
+
+		int threads = args.length > 7 ? Integer.parseInt(args[7]) : Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		try {
+			long start = System.nanoTime();
+			OpeningBookBuilder builder = new OpeningBookBuilder(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]), Long.parseLong(args[5]), pool);
+			int entries = builder.Build(Path.of(args[6]));
+
+			System.out.println(String.format("Wrote %d positions in %.1fs", entries, (System.nanoTime() - start) / 1e9));
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		return;
+	}
+
+	/**
+	 * Searches every opening position and writes the book.
+	 * @param path The file to write. It is replaced if it exists.
+	 * @return Returns the number of positions in the book.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public int Build(Path path) throws IOException
+	{
+		ArrayList<Entry> entries = new ArrayList<Entry>();
+		ArrayList<BitBoard> positions = new ArrayList<BitBoard>();
+		positions.add(new BitBoard(Width, Height, WinningLength));
+
+		for (int ply = 0; ply < Plies && !positions.isEmpty(); ply++)
+		{
+			ArrayList<ForkJoinTask<Entry>> tasks = new ArrayList<ForkJoinTask<Entry>>(positions.size());
+
+			for (BitBoard position : positions)
+				tasks.add(Pool.submit(() -> Analyse(position)));
+
+			for (ForkJoinTask<Entry> task : tasks)
+				entries.add(task.join());
+
+			if (ply + 1 < Plies)
+				positions = Expand(positions);
+		}
+
+		return Write(path, entries);
+	}
+
+	/**
+	 * Searches one position.
+	 * @param board The position, with at least one empty cell and no winner.
+	 * @return Returns its entry.
+	 */
+	protected Entry Analyse(BitBoard board)
+	{
+		TicTacToeAI ai = new TicTacToeAI(board.Count() % 2 == 0 ? Player.CROSS : Player.CIRCLE, Difficulty);
+		ai.PrepareTable(board);
+		ai.PrepareOrdering(board);
+
+		int max_depth = Math.min(Difficulty - 1, board.Size() - board.Count());
+		SearchContext context = new SearchContext(0, 0);
+		long deadline = Milliseconds == 0 ? 0 : System.nanoTime() + Milliseconds * 1000000;
+		Pair<Vector2i,Double> best = null;
+		int reached = 0;
+
+		// Iterative deepening as the AI does it, except that we keep track of how deep we got
+		for (int depth = 1; depth <= max_depth; depth++)
+		{
+			context.Deadline = depth == 1 ? 0 : deadline;
+
+			try {
+				best = ai.SearchRoot(context, board, depth, best == null ? null : best.Item1);
+				reached = depth;
+			}
+			catch (TicTacToeAI.SearchTimeoutException e) {
+				break;
+			}
+
+			if (Double.isInfinite(best.Item2))
+				break;
+		}
+
+		SymmetricHashes symmetries = board.Symmetries();
+		int cell = board.Cell(best.Item1.X, best.Item1.Y);
+		return new Entry(board.CanonicalHash(), symmetries.Map(symmetries.CanonicalTransform(), cell), reached, best.Item2);
+	}
+
+	/**
+	 * Obtains every position one move on from {@code positions} that the search would consider, leaving out games that are over and keeping only one of each set of symmetric positions.
+	 */
+	protected ArrayList<BitBoard> Expand(ArrayList<BitBoard> positions)
+	{
+		TicTacToeAI moves = new TicTacToeAI(Player.CROSS, Difficulty);
+		ArrayList<BitBoard> children = new ArrayList<BitBoard>();
+		HashSet<Long> seen = new HashSet<Long>();
+
+		for (BitBoard position : positions)
+		{
+			PieceType piece = position.Count() % 2 == 0 ? PieceType.CROSS : PieceType.CIRCLE;
+
+			for (Vector2i move : moves.DistinctMoves(position, moves.GetChildStates(position)))
+			{
+				BitBoard child = new BitBoard(position);
+				child.Set(piece, move);
+
+				if (!child.IsFinished() && seen.add(child.CanonicalHash()))
+					children.add(child);
+			}
+		}
+
+		return children;
+	}
+
+	/**
+	 * Writes the entries as a book, sorted by key. Only the first of any entries with the same key is kept.
+	 * @return Returns the number of entries written.
+	 */
+	protected int Write(Path path, ArrayList<Entry> entries) throws IOException
+	{
+		entries.sort(Comparator.comparingLong(e -> e.Key));
+
+		ArrayList<Entry> unique = new ArrayList<Entry>(entries.size());
+		for (Entry entry : entries)
+			if (unique.isEmpty() || unique.get(unique.size() - 1).Key != entry.Key)
+				unique.add(entry);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+		{
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(OpeningBook.VERSION);
+			out.writeInt(Width);
+			out.writeInt(Height);
+			out.writeInt(WinningLength);
+			out.writeInt(unique.size());
+
+			for (Entry entry : unique)
+			{
+				out.writeLong(entry.Key);
+				out.writeShort(entry.Move);
+				out.writeShort(entry.Depth);
+				out.writeFloat((float)entry.Score);
+			}
+		}
+
+		return unique.size();
+	}
+
+	/**
+	 * The result of searching one position.
+	 */
+	protected static class Entry
+	{
+		public Entry(long key, int move, int depth, double score)
+		{
+			Key = key;
+			Move = move;
+			Depth = depth;
+			Score = score;
+		}
+
+		/**
+		 * The canonical hash of the position.
+		 */
+		public final long Key;
+
+		/**
+		 * The best move, in the canonical orientation.
+		 */
+		public final int Move;
+
+		/**
+		 * The deepest iteration that finished.
+		 */
+		public final int Depth;
+
+		/**
+		 * The score of the best move for the player to move.
+		 */
+		public final double Score;
+	}
+
+	/**
+	 * The width of the board.
+	 */
+	protected int Width;
+
+	/**
+	 * The height of the board.
+	 */
+	protected int Height;
+
+	/**
+	 * The winning length of the board.
+	 */
+	protected int WinningLength;
+
+	/**
+	 * The book covers positions with fewer than this many stones.
+	 */
+	protected int Plies;
+
+	/**
+	 * The difficulty each position is searched at.
+	 */
+	protected int Difficulty;
+
+	/**
+	 * The most time to spend on each position in milliseconds, or 0 for no limit.
+	 */
+	protected long Milliseconds;
+
+	/**
+	 * The pool positions are searched on.
+	 */
+	protected ForkJoinPool Pool;
+}
@@ -0,0 +1,28 @@
+package tictactoe.AI;
+
+/**
+ * The game-theoretic value of a position for the player to move, assuming best play from both sides.
+ * @author Ray Heil
+ */
+public enum Outcome
+{
+	/**
+	 * The player to move can force a win.
+	 */
+	WIN,
+
+	/**
+	 * Neither player can force a win.
+	 */
+	DRAW,
+
+	/**
+	 * The opponent can force a win.
+	 */
+	LOSS,
+
+	/**
+	 * The value could not be worked out within the budget.
+	 */
+	UNKNOWN
+}
@@ -0,0 +1,18 @@
+package tictactoe.AI;
+
+/**
+ * The ways TicTacToeAI can spread a search across the threads of its pool.
+ * @author Ray Heil
+ */
+public enum ParallelMode
+{
+	/**
+	 * The moves at the root are divided between the threads, which share a bound so they can prune each other's moves.
+	 */
+	ROOT_SPLIT,
+	
+	/**
+	 * Every thread runs the whole iterative deepening search with a slightly different move order, and they help each other only through the shared transposition table.
+	 */
+	LAZY_SMP
+}
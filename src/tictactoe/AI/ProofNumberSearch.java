@@ -0,0 +1,572 @@
+package tictactoe.AI;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import tictactoe.model.BitBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.Player;
+import tictactoe.model.SymmetricHashes;
+import tictactoe.model.WindowCounts;
+
+/**
+ *
+ * Depth-first proof-number search (df-pn), which proves or disproves that one player can force a win.
+ *
+ * Every position has a proof number, the fewest positions that still need to be solved to prove the
+ * attacker wins from it, and a disproof number, the fewest that need to be solved to prove they don't.
+ * The search always expands the position that is cheapest to settle next, using thresholds to decide when
+ * to go back up the tree instead of keeping a whole tree in memory. Everything it learns is kept in a
+ * transposition table of fixed size.
+ *
+ * A disproof means the attacker cannot win against best play, so the defender can force at least a draw.
+ *
+ * The attacker is fixed for the life of the search, so the table stays valid from one call to the next.
+ * Positions are filed under their canonical hash, so positions symmetric to each other share what is learned
+ * about them, and only one of the moves from a position that lead to symmetric positions is ever searched.
+ *
+ * @author Ray Heil
+ *
+ */
+public class ProofNumberSearch
+{
+	/**
+	 * Creates a search.
+	 * @param attacker The player trying to force a win.
+	 * @param bytes The memory cap of the transposition table.
+	 * @throws IllegalArgumentException Thrown if {@code bytes} is not positive.
+	 */
+	public ProofNumberSearch(PieceType attacker, long bytes)
+	{
+		if (bytes <= 0)
+			throw new IllegalArgumentException("A proof-number search needs a positive amount of memory.");
+
+		long entries = Long.highestOneBit(Math.max(2, bytes / BYTES_PER_ENTRY));
+		entries = Math.min(entries, 1 << 30);
+
+		Attacker = attacker;
+		Defender = attacker == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+		Winner = attacker == PieceType.CROSS ? Player.CROSS : Player.CIRCLE;
+		Mask = (int)entries - 1;
+		Keys = new long[(int)entries];
+		Proofs = new int[(int)entries];
+		Disproofs = new int[(int)entries];
+		Work = new int[(int)entries];
+		Width = 0;
+		Height = 0;
+		Length = 0;
+		Nodes = 0;
+	}
+
+	/**
+	 * Works out whether the attacker can force a win from {@code board} with the attacker to move.
+	 * @param board The position. It is played on and restored.
+	 * @param node_budget The most positions to expand before giving up.
+	 * @param context The state of the searching thread, which can stop the search, or null.
+	 * @return Returns {@code PROVEN}, {@code DISPROVEN}, or {@code UNKNOWN} if the budget ran out first.
+	 * @throws SearchTimeoutException Thrown if {@code context} says to stop.
+	 */
+	public int Prove(BitBoard board, long node_budget, SearchContext context)
+	{
+		// Positions on boards of different shapes can share keys (the winning length isn't hashed at all), so they can't share a table
+		if (board.Width() != Width || board.Height() != Height || board.WinningLength() != Length) {
+			Arrays.fill(Work, 0);
+			Width = board.Width();
+			Height = board.Height();
+			Length = board.WinningLength();
+		}
+
+		Board = board;
+		Threats = new ThreatSearch(board, Attacker, 0);
+		Windows = board.Windows();
+		Marks = new int[board.Size()];
+		Stamp = 0;
+		Context = context;
+		Budget = node_budget;
+		Nodes = 0;
+		ProvenMove = -1;
+
+		try {
+			Mid(true, INF, INF);
+		}
+		catch (BudgetExceededException e) {
+			return UNKNOWN;
+		}
+
+		long entry = Lookup(board.CanonicalHash());
+		if (Proof(entry) != 0)
+			return DISPROVEN;
+
+		ProvenMove = FindProvenMove();
+		return ProvenMove >= 0 ? PROVEN : UNKNOWN;
+	}
+
+	/**
+	 * Obtains the attacker's winning move from the last successful {@code Prove}, or -1.
+	 */
+	public int ProvenMove()
+	{return ProvenMove;}
+
+	/**
+	 * Obtains the number of positions expanded by the last {@code Prove}.
+	 */
+	public long Nodes()
+	{return Nodes;}
+
+	/**
+	 * Obtains the player trying to force a win.
+	 */
+	public PieceType Attacker()
+	{return Attacker;}
+
+	/**
+	 * Expands the current position until its proof number reaches {@code thpn} or its disproof number reaches {@code thdn}.
+	 * @param or True if the attacker is to move, so that proving any child proves this position.
+	 */
+	protected void Mid(boolean or, int thpn, int thdn)
+	{
+		if (++Nodes > Budget)
+			throw new BudgetExceededException();
+
+		if (Context != null && Context.ShouldStop())
+			throw new TicTacToeAI.SearchTimeoutException();
+
+		long hash = Board.CanonicalHash();
+		SymmetricHashes symmetries = Board.Symmetries();
+		long start = Nodes;
+		int[] children = Expand(or);
+
+		if (children == null) {
+			Store(hash, TerminalProof, TerminalDisproof, 1);
+			return;
+		}
+
+		PieceType mover = or ? Attacker : Defender;
+
+		while (true)
+		{
+			// For OR nodes one proven child is enough and every child must be disproven; AND nodes are the other way around
+			long pn = or ? INF : 0;
+			long dn = or ? 0 : INF;
+			int best = -1;
+			int bestProof = INF;
+			int bestDisproof = INF;
+			long second = INF;
+
+			for (int child : children)
+			{
+				long entry = Lookup(symmetries.CanonicalAfter(child, mover));
+				int cpn = Proof(entry);
+				int cdn = Disproof(entry);
+				int key = or ? cpn : cdn;
+
+				if (or) {
+					pn = Math.min(pn, cpn);
+					dn += cdn;
+				}
+				else {
+					pn += cpn;
+					dn = Math.min(dn, cdn);
+				}
+
+				if (best < 0 || key < (or ? bestProof : bestDisproof)) {
+					second = best < 0 ? INF : (or ? bestProof : bestDisproof);
+					best = child;
+					bestProof = cpn;
+					bestDisproof = cdn;
+				}
+				else if (key < second)
+					second = key;
+			}
+
+			pn = Math.min(pn, INF);
+			dn = Math.min(dn, INF);
+
+			if (pn >= thpn || dn >= thdn) {
+				Store(hash, (int)pn, (int)dn, Nodes - start);
+				return;
+			}
+
+			// Give the child enough rope to become a little worse than its best sibling, or to settle this position
+			// The slack (the 1 + epsilon trick) stops the search from bouncing between two close siblings and losing its work to the table
+			long cthpn = or ? Math.min(thpn, second + second / SLACK + 1) : thpn - pn + bestProof;
+			long cthdn = or ? thdn - dn + bestDisproof : Math.min(thdn, second + second / SLACK + 1);
+
+			Board.Set(mover, best);
+
+			try {
+				Mid(!or, (int)Math.min(cthpn, INF), (int)Math.min(cthdn, INF));
+			}
+			finally {
+				Board.Undo();
+			}
+		}
+	}
+
+	/**
+	 * Obtains the moves worth considering from the current position, or null if the position is settled without looking any deeper.
+	 * A settled position has its numbers left in {@code TerminalProof} and {@code TerminalDisproof}.
+	 * Only moves that stop an immediate loss are considered when there is one to stop.
+	 */
+	protected int[] Expand(boolean or)
+	{
+		if (Board.IsFinished()) {
+			Settle(Board.Victor() == Winner);
+			return null;
+		}
+
+		// One pass over the windows finds the lines either player is a stone away from completing, and every cell still worth playing
+		// A stone never hurts the player who plays it, so a cell in no window either player can still complete is no better than passing and never worth playing
+		int[] moves = new int[Board.Size() - Board.Count()];
+		int size = 0;
+		int loss = -1;
+		boolean lost = false;
+		boolean alive = false;
+		Stamp++;
+
+		for (int w = 0; w < Windows.Windows(); w++)
+		{
+			int ours = Windows.Count(w, Attacker);
+			int theirs = Windows.Count(w, Defender);
+
+			if (ours != 0 && theirs != 0)
+				continue;
+
+			alive |= theirs == 0;
+
+			for (int cell : Windows.CellsOf(w))
+			{
+				if (!Board.IsEmpty(cell))
+					continue;
+
+				// Whoever is to move wins at once if they can, and otherwise loses if there's more than one line to block
+				if ((or ? ours : theirs) == Length - 1) {
+					Settle(or);
+					return null;
+				}
+
+				if ((or ? theirs : ours) == Length - 1) {
+					lost |= loss >= 0 && loss != cell;
+					loss = cell;
+				}
+
+				if (Marks[cell] != Stamp) {
+					Marks[cell] = Stamp;
+					moves[size++] = cell;
+				}
+			}
+		}
+
+		if (lost) {
+			Settle(!or);
+			return null;
+		}
+
+		// With no window left to complete the attacker can't win
+		if (!alive) {
+			Settle(false);
+			return null;
+		}
+
+		// Only the block is worth considering when there's a loss to stop
+		if (loss >= 0)
+			return new int[] {loss};
+
+		// Moves that lead to positions symmetric to each other are worth the same, so only one of each is counted
+		return Order(moves, Board.Symmetries().Distinct(moves, size));
+	}
+
+	/**
+	 * Sorts the first {@code size} cells of {@code moves} strongest first, which is the order ties between unexplored children are broken in.
+	 * A cell is strong if it extends lines that either player can still complete, the longer the better.
+	 */
+	protected int[] Order(int[] moves, int size)
+	{
+		long[] keyed = new long[size];
+
+		for (int i = 0; i < size; i++)
+		{
+			long strength = 0;
+
+			for (int w : Windows.WindowsThrough(moves[i]))
+			{
+				int ours = Windows.Count(w, Attacker);
+				int theirs = Windows.Count(w, Defender);
+
+				if (theirs == 0)
+					strength += WindowCounts.Weight(ours + 1);
+
+				if (ours == 0)
+					strength += WindowCounts.Weight(theirs + 1);
+			}
+
+			// Strongest first, so negate the strength; the cell rides along in the low bits
+			keyed[i] = (-Math.min(strength, Integer.MAX_VALUE) << 32) | moves[i];
+		}
+
+		Arrays.sort(keyed);
+
+		for (int i = 0; i < size; i++)
+			moves[i] = (int)keyed[i];
+
+		return Arrays.copyOf(moves, size);
+	}
+
+	/**
+	 * Settles the current position as proven if {@code proven} is true and disproven otherwise.
+	 */
+	protected void Settle(boolean proven)
+	{
+		TerminalProof = proven ? 0 : INF;
+		TerminalDisproof = proven ? INF : 0;
+	}
+
+	/**
+	 * Finds the attacker's move to a proven child of the current position, once the current position is proven.
+	 * The table may have lost the child's entry to a collision, in which case each child is proven again in turn.
+	 * @return Returns the move, or -1 if none could be proven within the budget.
+	 */
+	protected int FindProvenMove()
+	{
+		ArrayList<Integer> unknown = new ArrayList<Integer>();
+		int[] moves = Expand(true);
+
+		// A position settled without expanding it is won on the spot
+		if (moves == null)
+			return Threats.Wins(Attacker).length > 0 ? Threats.Wins(Attacker)[0] : -1;
+
+		for (int move : moves)
+		{
+			if (Proof(Lookup(Board.Symmetries().CanonicalAfter(move, Attacker))) == 0)
+				return move;
+
+			unknown.add(move);
+		}
+
+		for (int move : unknown)
+		{
+			Board.Set(Attacker, move);
+
+			try {
+				Mid(false, INF, INF);
+				if (Proof(Lookup(Board.CanonicalHash())) == 0)
+					return move;
+			}
+			catch (BudgetExceededException e) {
+				return -1;
+			}
+			finally {
+				Board.Undo();
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Looks up a position, packing its proof number into the high half of the result and its disproof number into the low half.
+	 * Positions that are not in the table have both numbers 1.
+	 */
+	protected long Lookup(long key)
+	{
+		int i = Bucket(key);
+
+		if (Keys[i] != key || Work[i] == 0)
+			if (Keys[++i] != key || Work[i] == 0)
+				return UNEXPLORED;
+
+		return ((long)Proofs[i] << 32) | Disproofs[i];
+	}
+
+	/**
+	 * Records the proof and disproof numbers of a position.
+	 * Each position may go in either entry of its bucket. If neither already holds it, it replaces whichever took less work to find out, so that expensive results survive.
+	 * @param work The number of positions expanded to find the numbers.
+	 */
+	protected void Store(long key, int pn, int dn, long work)
+	{
+		int i = Bucket(key);
+
+		if (Keys[i] != key && (Keys[i + 1] == key || Work[i + 1] < Work[i]))
+			i++;
+
+		Keys[i] = key;
+		Proofs[i] = pn;
+		Disproofs[i] = dn;
+		Work[i] = (int)Math.min(Math.max(work, 1), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Obtains the first entry of the bucket {@code key} belongs in.
+	 */
+	protected int Bucket(long key)
+	{return (int)(key ^ (key >>> 32)) & Mask & ~1;}
+
+	/**
+	 * Unpacks the proof number of a {@code Lookup}.
+	 */
+	protected static int Proof(long entry)
+	{return (int)(entry >>> 32);}
+
+	/**
+	 * Unpacks the disproof number of a {@code Lookup}.
+	 */
+	protected static int Disproof(long entry)
+	{return (int)entry;}
+
+	/**
+	 * Thrown to unwind the search once its node budget runs out.
+	 */
+	protected static class BudgetExceededException extends RuntimeException
+	{
+		public BudgetExceededException()
+		{super(null, null, false, false);}
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * The attacker can force a win.
+	 */
+	public static final int PROVEN = 1;
+
+	/**
+	 * The attacker cannot force a win.
+	 */
+	public static final int DISPROVEN = -1;
+
+	/**
+	 * The budget ran out before the search found out.
+	 */
+	public static final int UNKNOWN = 0;
+
+	/**
+	 * Proof and disproof numbers are capped at this, which stands for infinity.
+	 */
+	protected static final int INF = 1 << 28;
+
+	/**
+	 * The search stays with a child until it is worse than its best sibling by more than one plus this fraction (as a divisor) of the sibling's number.
+	 */
+	protected static final int SLACK = 2;
+
+	/**
+	 * The memory taken by one entry (a key and three ints).
+	 */
+	protected static final int BYTES_PER_ENTRY = 20;
+
+	/**
+	 * The packed numbers of a position nobody has looked at yet.
+	 */
+	protected static final long UNEXPLORED = (1L << 32) | 1;
+
+	/**
+	 * The player trying to force a win.
+	 */
+	protected PieceType Attacker;
+
+	/**
+	 * The attacker's opponent.
+	 */
+	protected PieceType Defender;
+
+	/**
+	 * The attacker as a victor.
+	 */
+	protected Player Winner;
+
+	/**
+	 * The board being searched.
+	 */
+	protected BitBoard Board;
+
+	/**
+	 * Used to find immediate wins.
+	 */
+	protected ThreatSearch Threats;
+
+	/**
+	 * The window counts of {@code Board}.
+	 */
+	protected WindowCounts Windows;
+
+	/**
+	 * The stamp each cell was last collected with, so that cells in several windows are only collected once.
+	 */
+	protected int[] Marks;
+
+	/**
+	 * The stamp of the current collection.
+	 */
+	protected int Stamp;
+
+	/**
+	 * The state of the searching thread, or null.
+	 */
+	protected SearchContext Context;
+
+	/**
+	 * The most positions the current search may expand.
+	 */
+	protected long Budget;
+
+	/**
+	 * The number of positions expanded by the current search.
+	 */
+	protected long Nodes;
+
+	/**
+	 * The attacker's winning move found by the last search, or -1.
+	 */
+	protected int ProvenMove;
+
+	/**
+	 * The numbers of the last position {@code Expand} settled.
+	 */
+	protected int TerminalProof;
+
+	/**
+	 * The numbers of the last position {@code Expand} settled.
+	 */
+	protected int TerminalDisproof;
+
+	/**
+	 * One less than the number of table entries, which is a power of two. Entries come in buckets of two.
+	 */
+	protected int Mask;
+
+	/**
+	 * The width of the boards the table holds positions of.
+	 */
+	protected int Width;
+
+	/**
+	 * The height of the boards the table holds positions of.
+	 */
+	protected int Height;
+
+	/**
+	 * The winning length of the boards the table holds positions of.
+	 */
+	protected int Length;
+
+	/**
+	 * The key of the position in each table entry.
+	 */
+	protected long[] Keys;
+
+	/**
+	 * The proof number of the position in each table entry.
+	 */
+	protected int[] Proofs;
+
+	/**
+	 * The disproof number of the position in each table entry.
+	 */
+	protected int[] Disproofs;
+
+	/**
+	 * The number of positions expanded to work out each table entry, or 0 if the entry is empty.
+	 */
+	protected int[] Work;
+}
@@ -0,0 +1,25 @@
+package tictactoe.AI;
+
+/**
+ * The searches TicTacToeAI can find its move with.
+ * @author Ray Heil
+ */
+public enum SearchAlgorithm
+{
+	/**
+	 * Alpha-beta minimax from our point of view, with every child searched over the full window and scores as doubles, infinite for won and lost positions.
+	 */
+	MINIMAX,
+	
+	/**
+	 * Principal variation search: the first child is searched over the full window and the rest over null windows, only searching again when one turns out better.
+	 * Scores are bounded ints that prefer quicker wins, and each iteration starts from a narrow aspiration window around the last one's score.
+	 */
+	PVS,
+	
+	/**
+	 * MTD(f): each iteration is a series of zero window searches that close in on the score from a guess, leaning on the transposition table to make the repeated searches cheap.
+	 * Scores are the same bounded ints as PVS uses.
+	 */
+	MTDF
+}
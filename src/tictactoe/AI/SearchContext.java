@@ -0,0 +1,272 @@
+package tictactoe.AI;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 
+ * The state one thread needs while it searches: when to stop, and how it differs from the other threads searching the same position.
+ * Every thread taking part in a search has its own context, so nothing in here needs to be synchronized except the stop signal.
+ * That also makes the statistics kept here free to count, since no two threads ever write the same counter.
+ * 
+ * @author Ray Heil
+ *
+ */
+public class SearchContext
+{
+	/**
+	 * Creates a context for a thread.
+	 * @param deadline The {@code System.nanoTime()} at which to stop searching, or 0 for no deadline.
+	 * @param variation 0 for the thread whose result is used, or a distinct positive number for each helper thread, which it uses to vary its move order.
+	 */
+	public SearchContext(long deadline, int variation)
+	{
+		Deadline = deadline;
+		Variation = variation;
+		Parent = null;
+		Stopped = false;
+		Nodes = 0;
+		Helpers = new ArrayList<SearchContext>();
+		Iterations = new ArrayList<long[]>();
+		Start = System.nanoTime();
+		IterationNodes = 0;
+		MoveBuffers = new int[0][];
+		KeyBuffers = new int[0][];
+	}
+	
+	/**
+	 * Creates a context for a thread helping with the search of another.
+	 * The new context has the same deadline as {@code parent} and stops whenever {@code parent} is told to stop.
+	 * @param parent The context of the thread being helped.
+	 * @param variation 0 if this thread's result is used, or a distinct positive number for each helper thread, which it uses to vary its move order.
+	 */
+	public SearchContext(SearchContext parent, int variation)
+	{
+		Deadline = parent.Deadline;
+		Variation = variation;
+		Parent = parent;
+		Stopped = false;
+		Nodes = 0;
+		Helpers = new ArrayList<SearchContext>();
+		Iterations = new ArrayList<long[]>();
+		Start = System.nanoTime();
+		IterationNodes = 0;
+		MoveBuffers = new int[0][];
+		KeyBuffers = new int[0][];
+		
+		// Helpers are made on whichever thread is handing out work, so more than one may register at once
+		synchronized (parent.Helpers)
+		{parent.Helpers.add(this);}
+	}
+	
+	/**
+	 * Counts a node and determines if the search should give up.
+	 * Looking at the clock is not free, so it is only done every so often.
+	 * @return Returns true if the deadline has passed or this thread has been told to stop.
+	 */
+	public boolean ShouldStop()
+	{
+		if ((++Nodes & CHECK_INTERVAL) != 0)
+			return false;
+		
+		return IsStopped() || (Deadline != 0 && System.nanoTime() > Deadline);
+	}
+	
+	/**
+	 * Counts a node and determines if the search should give up, looking at the clock every time.
+	 * This is for searches whose nodes cost far more than a look at the clock, such as the playouts of Monte Carlo tree search, which would overrun short deadlines many times over if they were only checked every so often.
+	 * @return Returns true if the deadline has passed or this thread has been told to stop.
+	 */
+	public boolean ShouldStopNow()
+	{
+		Nodes++;
+		return IsStopped() || (Deadline != 0 && System.nanoTime() > Deadline);
+	}
+	
+	/**
+	 * Tells the thread using this context (and every thread helping it) to stop at its next check.
+	 */
+	public void Stop()
+	{Stopped = true;}
+	
+	/**
+	 * Determines if this context or any context it is helping has been told to stop.
+	 */
+	public boolean IsStopped()
+	{return Stopped || (Parent != null && Parent.IsStopped());}
+	
+	/**
+	 * Obtains the number of nodes this thread has counted.
+	 */
+	public long Nodes()
+	{return Nodes;}
+	
+	/**
+	 * Obtains this thread's buffer for the moves of the position with {@code ply} stones, so that generating moves allocates nothing once the buffer exists.
+	 * Each ply has its own, so a buffer is not written over by the search below it.
+	 * @param ply The number of stones on the board.
+	 * @param cells The number of cells of the board, which the buffer has room for.
+	 */
+	public int[] Moves(int ply, int cells)
+	{
+		MoveBuffers = Buffers(MoveBuffers, ply, cells);
+		return MoveBuffers[ply];
+	}
+	
+	/**
+	 * Obtains this thread's buffer for the ordering keys of the moves of the position with {@code ply} stones, as {@code Moves} does.
+	 */
+	public int[] MoveKeys(int ply, int cells)
+	{
+		KeyBuffers = Buffers(KeyBuffers, ply, cells);
+		return KeyBuffers[ply];
+	}
+	
+	/**
+	 * Makes sure {@code buffers} has a buffer for {@code ply} with room for {@code cells}, growing it or making it first if need be.
+	 * @return Returns {@code buffers}, or the larger array that replaces it.
+	 */
+	protected static int[][] Buffers(int[][] buffers, int ply, int cells)
+	{
+		if (buffers.length <= ply)
+			buffers = Arrays.copyOf(buffers, Math.max(ply + 1, 2 * buffers.length));
+		
+		if (buffers[ply] == null || buffers[ply].length < cells)
+			buffers[ply] = new int[cells];
+		
+		return buffers;
+	}
+	
+	/**
+	 * Records that iterative deepening is starting, so that the time of the first iteration doesn't include whatever was done before it.
+	 */
+	public void BeginIterations()
+	{Start = System.nanoTime();}
+	
+	/**
+	 * Records that an iteration of iterative deepening has finished, along with how long it took and how many nodes it visited (counting helpers).
+	 * @param depth The depth of the iteration.
+	 */
+	public void EndIteration(int depth)
+	{
+		long[] totals = new long[COUNTERS];
+		Total(totals);
+		
+		long now = System.nanoTime();
+		long nodes = totals[0] + totals[1];
+		
+		Iterations.add(new long[] {depth, now - Start, nodes - IterationNodes});
+		Start = now;
+		IterationNodes = nodes;
+	}
+	
+	/**
+	 * Adds the counters of this context and every helper it has (and theirs) to {@code totals}: nodes searched further, leaves, cutoffs, first move cutoffs, table probes, and table hits.
+	 * The helpers must have finished, or their counts may be out of date.
+	 */
+	protected void Total(long[] totals)
+	{
+		totals[0] += Nodes;
+		totals[1] += Leaves;
+		totals[2] += Cutoffs;
+		totals[3] += FirstCutoffs;
+		totals[4] += Probes;
+		totals[5] += Hits;
+		
+		synchronized (Helpers)
+		{
+			for (SearchContext helper : Helpers)
+				helper.Total(totals);
+		}
+	}
+	
+	/**
+	 * The {@code System.nanoTime()} at which to stop searching, or 0 for no deadline.
+	 */
+	public long Deadline;
+	
+	/**
+	 * 0 for the thread whose result is used, or a distinct positive number for each helper thread.
+	 */
+	public final int Variation;
+	
+	/**
+	 * The context of the thread this one is helping, or null.
+	 */
+	protected final SearchContext Parent;
+	
+	/**
+	 * Set by another thread to end this thread's search early.
+	 */
+	protected volatile boolean Stopped;
+	
+	/**
+	 * The number of nodes counted.
+	 */
+	protected long Nodes;
+	
+	/**
+	 * The number of positions evaluated rather than searched further.
+	 */
+	protected long Leaves;
+	
+	/**
+	 * The number of positions whose moves were cut short.
+	 */
+	protected long Cutoffs;
+	
+	/**
+	 * The number of positions whose moves were cut short by the first move.
+	 */
+	protected long FirstCutoffs;
+	
+	/**
+	 * The number of looks in the transposition table.
+	 */
+	protected long Probes;
+	
+	/**
+	 * The number of looks in the transposition table that found the position.
+	 */
+	protected long Hits;
+	
+	/**
+	 * The move buffer of each ply.
+	 */
+	protected int[][] MoveBuffers;
+	
+	/**
+	 * The key buffer of each ply.
+	 */
+	protected int[][] KeyBuffers;
+	
+	/**
+	 * The contexts of the threads helping this one.
+	 */
+	protected final ArrayList<SearchContext> Helpers;
+	
+	/**
+	 * The depth, time in nanoseconds, and node count of each iteration finished, in order.
+	 */
+	protected final ArrayList<long[]> Iterations;
+	
+	/**
+	 * The {@code System.nanoTime()} at which the iterations began or the last one finished.
+	 */
+	protected long Start;
+	
+	/**
+	 * The total node count when the last iteration finished.
+	 */
+	protected long IterationNodes;
+	
+	/**
+	 * The number of counters {@code Total} adds up.
+	 */
+	protected static final int COUNTERS = 6;
+	
+	/**
+	 * One less than the number of nodes between looks at the clock. This must be one less than a power of two.
+	 */
+	protected static final int CHECK_INTERVAL = 1023;
+}
@@ -0,0 +1,218 @@
+package tictactoe.AI;
+
+import java.util.ArrayList;
+
+import gamecore.datastructures.vectors.Vector2i;
+
+/**
+ *
+ * What one search did to find its move: how many positions it looked at and how fast, how well its move
+ * ordering worked, how often the transposition table helped, and where the time went.
+ *
+ * The counts cover every thread that took part. A move that came from a tablebase, an opening book, or the
+ * threat search has no iterations and few nodes or none.
+ *
+ * @author Ray Heil
+ *
+ */
+public class SearchStatistics
+{
+	/**
+	 * Gathers the statistics of a finished search.
+	 * @param context The context the search was started with. Its helpers are counted too.
+	 * @param move The move the search chose.
+	 * @param nanoseconds How long the search took.
+	 */
+	public SearchStatistics(SearchContext context, Vector2i move, long nanoseconds)
+	{
+		Move = move;
+		Nanoseconds = nanoseconds;
+		Iterations = new ArrayList<long[]>(context.Iterations);
+
+		long[] totals = new long[SearchContext.COUNTERS];
+		context.Total(totals);
+
+		Interior = totals[0];
+		Leaves = totals[1];
+		Cutoffs = totals[2];
+		FirstCutoffs = totals[3];
+		Probes = totals[4];
+		Hits = totals[5];
+	}
+
+	/**
+	 * Obtains the move the search chose.
+	 */
+	public Vector2i Move()
+	{return Move;}
+
+	/**
+	 * Obtains how long the search took in nanoseconds.
+	 */
+	public long Nanoseconds()
+	{return Nanoseconds;}
+
+	/**
+	 * Obtains the number of positions visited, both those searched further and those evaluated.
+	 */
+	public long Nodes()
+	{return Interior + Leaves;}
+
+	/**
+	 * Obtains the number of positions evaluated, because the search went no deeper or the game was over.
+	 */
+	public long Leaves()
+	{return Leaves;}
+
+	/**
+	 * Obtains the number of positions visited per second.
+	 */
+	public double NodesPerSecond()
+	{return Nanoseconds == 0 ? 0 : Nodes() * 1e9 / Nanoseconds;}
+
+	/**
+	 * Obtains the number of positions whose search was cut short because a move was already too good for the opponent to allow.
+	 */
+	public long Cutoffs()
+	{return Cutoffs;}
+
+	/**
+	 * Obtains the fraction of positions searched further that were cut short.
+	 */
+	public double CutoffRate()
+	{return Interior == 0 ? 0 : (double)Cutoffs / Interior;}
+
+	/**
+	 * Obtains the fraction of cutoffs made by the first move tried, which is how good the move ordering is. 1 is perfect.
+	 */
+	public double FirstMoveCutoffRate()
+	{return Cutoffs == 0 ? 0 : (double)FirstCutoffs / Cutoffs;}
+
+	/**
+	 * Obtains the effective branching factor: how many times more nodes the deepest iteration took than the one before it.
+	 * With only one iteration this is the number of nodes to the power of one over the depth instead, and with none it is 0.
+	 */
+	public double BranchingFactor()
+	{
+		int n = Iterations.size();
+
+		if (n == 0)
+			return 0;
+
+		long[] last = Iterations.get(n - 1);
+
+		if (n == 1 || Iterations.get(n - 2)[2] == 0)
+			return Math.pow(last[2], 1.0 / last[0]);
+
+		return (double)last[2] / Iterations.get(n - 2)[2];
+	}
+
+	/**
+	 * Obtains the number of times the transposition table was looked in.
+	 */
+	public long TableProbes()
+	{return Probes;}
+
+	/**
+	 * Obtains the number of times the transposition table had the position.
+	 */
+	public long TableHits()
+	{return Hits;}
+
+	/**
+	 * Obtains the fraction of looks in the transposition table that found the position.
+	 */
+	public double TableHitRate()
+	{return Probes == 0 ? 0 : (double)Hits / Probes;}
+
+	/**
+	 * Obtains the depth of the deepest iteration that finished, or 0 if there were none.
+	 */
+	public int Depth()
+	{return Iterations.isEmpty() ? 0 : (int)Iterations.get(Iterations.size() - 1)[0];}
+
+	/**
+	 * Obtains the number of iterations that finished.
+	 */
+	public int IterationCount()
+	{return Iterations.size();}
+
+	/**
+	 * Obtains the depth of the {@code i}th iteration that finished.
+	 */
+	public int IterationDepth(int i)
+	{return (int)Iterations.get(i)[0];}
+
+	/**
+	 * Obtains how long the {@code i}th iteration that finished took in nanoseconds.
+	 */
+	public long IterationNanoseconds(int i)
+	{return Iterations.get(i)[1];}
+
+	/**
+	 * Obtains the number of nodes the {@code i}th iteration that finished visited.
+	 */
+	public long IterationNodes(int i)
+	{return Iterations.get(i)[2];}
+
+	/**
+	 * Sums up the statistics in one line, for logs.
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder line = new StringBuilder();
+		line.append(String.format("move %s depth %d in %.1fms: %d nodes (%d leaves) at %.0f nodes/s, cutoffs %.1f%% (%.1f%% first move), branching %.2f, table hits %.1f%% of %d",
+				Move, Depth(), Nanoseconds / 1e6, Nodes(), Leaves, NodesPerSecond(), 100 * CutoffRate(), 100 * FirstMoveCutoffRate(), BranchingFactor(), 100 * TableHitRate(), Probes));
+
+		for (int i = 0; i < Iterations.size(); i++)
+			line.append(String.format(i == 0 ? ", depths %d:%.1fms" : " %d:%.1fms", IterationDepth(i), IterationNanoseconds(i) / 1e6));
+
+		return line.toString();
+	}
+
+	/**
+	 * The move chosen.
+	 */
+	protected final Vector2i Move;
+
+	/**
+	 * How long the search took in nanoseconds.
+	 */
+	protected final long Nanoseconds;
+
+	/**
+	 * The depth, time in nanoseconds, and node count of each iteration that finished, in order.
+	 */
+	protected final ArrayList<long[]> Iterations;
+
+	/**
+	 * The number of positions searched further.
+	 */
+	protected final long Interior;
+
+	/**
+	 * The number of positions evaluated.
+	 */
+	protected final long Leaves;
+
+	/**
+	 * The number of cutoffs.
+	 */
+	protected final long Cutoffs;
+
+	/**
+	 * The number of cutoffs made by the first move tried.
+	 */
+	protected final long FirstCutoffs;
+
+	/**
+	 * The number of looks in the transposition table.
+	 */
+	protected final long Probes;
+
+	/**
+	 * The number of looks in the transposition table that found the position.
+	 */
+	protected final long Hits;
+}
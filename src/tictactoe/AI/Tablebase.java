@@ -0,0 +1,483 @@
+package tictactoe.AI;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import gamecore.datastructures.vectors.Vector2i;
+import tictactoe.model.BitBoard;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.WindowCounts;
+
+/**
+ *
+ * The value of every position on a board of one shape, with CROSS moving first, worked out ahead of time.
+ *
+ * Every position is given an index. Positions are grouped by the number of stones on the board, and within
+ * a group by which cells are filled and then by which of the filled cells hold crosses, each ranked in the
+ * combinatorial number system. Since CROSS moves first, a position with {@code n} stones has
+ * {@code (n + 1) / 2} crosses, so every legal position has exactly one index and nothing else does.
+ *
+ * The value of a position, from the point of view of the player to move, takes 2 bits. With 4 values to a
+ * byte a 4x4 board takes about 2.5MB and a 4x5 board about 185MB. Tablebases are built by
+ * {@code TablebaseGenerator} and can be saved to and loaded from a file.
+ *
+ * Stones are only ever added, so no position can come around again. Any move to a position that is lost for
+ * the opponent therefore keeps the win until it is cashed in, so the value alone is enough to play perfectly.
+ *
+ * @author Ray Heil
+ *
+ */
+public class Tablebase
+{
+	/**
+	 * Creates a tablebase with every value unknown.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param winningLength The winning length of the board.
+	 * @throws IllegalArgumentException Thrown if the board is not positive in size or has too many positions to fit.
+	 */
+	protected Tablebase(int width, int height, int winningLength)
+	{
+		if (width < 1 || height < 1 || winningLength < 1)
+			throw new IllegalArgumentException("Nonpositive arguments for width, height, or winningLength are illegal.");
+
+		int cells = width * height;
+		if (cells > MAX_CELLS)
+			throw new IllegalArgumentException("A " + width + "x" + height + " board is too large for a tablebase.");
+
+		Width = width;
+		Height = height;
+		WinningLength = winningLength;
+		Cells = cells;
+		Binomials = new long[cells + 1][cells + 1];
+
+		for (int n = 0; n <= cells; n++) {
+			Binomials[n][0] = 1;
+
+			for (int k = 1; k <= n; k++)
+				Binomials[n][k] = Binomials[n - 1][k - 1] + Binomials[n - 1][k];
+		}
+
+		// Each group starts where the one with a stone fewer ends
+		Offsets = new long[cells + 2];
+		for (int n = 0; n <= cells; n++)
+			Offsets[n + 1] = Offsets[n] + Binomials[cells][n] * Binomials[n][(n + 1) / 2];
+
+		if (Offsets[cells + 1] > MAX_POSITIONS)
+			throw new IllegalArgumentException("A " + width + "x" + height + " board has too many positions for a tablebase.");
+
+		Data = new long[(int)((Offsets[cells + 1] + PER_WORD - 1) / PER_WORD)];
+
+		WindowCounts windows = new WindowCounts(width, height, winningLength);
+		Lines = new long[windows.Windows()];
+
+		for (int w = 0; w < Lines.length; w++)
+			for (int cell : windows.CellsOf(w))
+				Lines[w] |= 1L << cell;
+
+		// Twice the distance from the center, so that even boards don't need fractions
+		Integer[] order = new Integer[cells];
+		for (int cell = 0; cell < cells; cell++)
+			order[cell] = cell;
+
+		Arrays.sort(order, Comparator.comparingInt(cell -> Math.max(Math.abs(2 * (cell % width) - width + 1), Math.abs(2 * (cell / width) - height + 1))));
+		Order = new int[cells];
+
+		for (int i = 0; i < cells; i++)
+			Order[i] = order[i];
+	}
+
+	/**
+	 * Loads a tablebase saved by {@code Save}.
+	 * @param path The file to read.
+	 * @return Returns the tablebase.
+	 * @throws IOException Thrown if the file cannot be read or is not a tablebase.
+	 */
+	public static Tablebase Load(Path path) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+		{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException(path + " is not a tablebase.");
+
+			Tablebase tablebase;
+
+			try {
+				tablebase = new Tablebase(in.readInt(), in.readInt(), in.readInt());
+			}
+			catch (IllegalArgumentException e) {
+				throw new IOException(path + " is not a tablebase.", e);
+			}
+
+			// The index is stored so that a file can be checked (or read by something else) without redoing the arithmetic
+			int groups = in.readInt();
+			if (groups != tablebase.Offsets.length)
+				throw new IOException(path + " has a damaged index.");
+
+			for (int n = 0; n < groups; n++)
+				if (in.readLong() != tablebase.Offsets[n])
+					throw new IOException(path + " has a damaged index.");
+
+			for (int i = 0; i < tablebase.Data.length; i++)
+				tablebase.Data[i] = in.readLong();
+
+			return tablebase;
+		}
+	}
+
+	/**
+	 * Saves this tablebase. The file holds a header, the index of the first position with each number of stones, and then the values, 32 to a long.
+	 * @param path The file to write. It is replaced if it exists.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public void Save(Path path) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(Width);
+			out.writeInt(Height);
+			out.writeInt(WinningLength);
+			out.writeInt(Offsets.length);
+
+			for (long offset : Offsets)
+				out.writeLong(offset);
+
+			for (long word : Data)
+				out.writeLong(word);
+		}
+	}
+
+	/**
+	 * Determines if this tablebase is for boards the shape of {@code board}.
+	 */
+	public boolean Covers(ITicTacToeBoard board)
+	{return board.Width() == Width && board.Height() == Height && board.WinningLength() == WinningLength;}
+
+	/**
+	 * Looks up the value of a position for the player to move.
+	 * @param board The position.
+	 * @return Returns the value, or {@code Outcome.UNKNOWN} if the tablebase does not cover the board or the position could not come up with CROSS moving first.
+	 */
+	public Outcome Probe(ITicTacToeBoard board)
+	{
+		long[] stones = Stones(board);
+		return stones == null ? Outcome.UNKNOWN : ToOutcome(Value(Index(stones[0], stones[1])));
+	}
+
+	/**
+	 * Finds a perfect move for the player to move: a win if there is one, and otherwise a draw.
+	 * A win on the spot is taken first. In a lost position the move blocks an immediate loss where it can, so that the opponent still has to find the win.
+	 * @param board The position.
+	 * @return Returns the move, or null if the tablebase does not cover the board, the position could not come up, or the game is over.
+	 */
+	public Vector2i BestMove(ITicTacToeBoard board)
+	{
+		long[] stones = Stones(board);
+		if (stones == null || board.IsFinished())
+			return null;
+
+		long occupied = stones[0];
+		long crosses = stones[1];
+		boolean cross = Long.bitCount(occupied) % 2 == 0;
+		int best = -1;
+		int bestRank = Integer.MAX_VALUE;
+
+		for (int cell : Order)
+		{
+			long bit = 1L << cell;
+			if ((occupied & bit) != 0)
+				continue;
+
+			long child_crosses = cross ? crosses | bit : crosses;
+			long mine = cross ? child_crosses : (occupied | bit) & ~child_crosses;
+			long theirs = (occupied | bit) & ~mine;
+
+			if (HasLine(mine))
+				return new Vector2i(cell % Width, cell / Width);
+
+			// The child's value is for the opponent, so their loss is our win
+			int value = Value(Index(occupied | bit, child_crosses));
+			int rank = value == LOSS ? 0 : value == DRAW ? 1 : Threatens(theirs, mine) ? 3 : 2;
+
+			if (rank < bestRank) {
+				best = cell;
+				bestRank = rank;
+			}
+		}
+
+		return best < 0 ? null : new Vector2i(best % Width, best / Width);
+	}
+
+	/**
+	 * Obtains the width of the boards this tablebase covers.
+	 */
+	public int Width()
+	{return Width;}
+
+	/**
+	 * Obtains the height of the boards this tablebase covers.
+	 */
+	public int Height()
+	{return Height;}
+
+	/**
+	 * Obtains the winning length of the boards this tablebase covers.
+	 */
+	public int WinningLength()
+	{return WinningLength;}
+
+	/**
+	 * Obtains the number of positions in this tablebase.
+	 */
+	public long Positions()
+	{return Offsets[Cells + 1];}
+
+	/**
+	 * Obtains the cells filled on {@code board} and the cells holding crosses as bitmasks, or null if this tablebase has no index for the position.
+	 */
+	protected long[] Stones(ITicTacToeBoard board)
+	{
+		if (!Covers(board))
+			return null;
+
+		BitBoard bits = board instanceof BitBoard ? (BitBoard)board : new BitBoard(board);
+		long occupied = 0;
+		long crosses = 0;
+
+		for (int cell = 0; cell < Cells; cell++)
+			if (!bits.IsEmpty(cell)) {
+				occupied |= 1L << cell;
+
+				if (bits.Get(cell) == PieceType.CROSS)
+					crosses |= 1L << cell;
+			}
+
+		if (Long.bitCount(crosses) != (Long.bitCount(occupied) + 1) / 2)
+			return null;
+
+		return new long[] {occupied, crosses};
+	}
+
+	/**
+	 * Obtains the index of the position with the cells of {@code occupied} filled and the cells of {@code crosses} holding crosses.
+	 * {@code crosses} must hold {@code (n + 1) / 2} of the {@code n} filled cells.
+	 */
+	protected long Index(long occupied, long crosses)
+	{
+		int n = Long.bitCount(occupied);
+		long filled = 0;
+		long which = 0;
+		int i = 0;
+		int j = 0;
+
+		// Rank the filled cells among all sets of n cells, and the crosses among all ways to pick them from the filled cells
+		for (long rest = occupied; rest != 0; rest &= rest - 1, i++)
+		{
+			int cell = Long.numberOfTrailingZeros(rest);
+			filled += Binomials[cell][i + 1];
+
+			if ((crosses & (1L << cell)) != 0)
+				which += Binomials[i][++j];
+		}
+
+		return Offsets[n] + filled * Binomials[n][(n + 1) / 2] + which;
+	}
+
+	/**
+	 * Works out the position with index {@code index}, the reverse of {@code Index}.
+	 * @param n The number of stones in the position.
+	 * @return Returns the filled cells followed by the cells holding crosses.
+	 */
+	protected long[] Position(long index, int n)
+	{
+		long rank = index - Offsets[n];
+		int c = (n + 1) / 2;
+		long filled = rank / Binomials[n][c];
+		long which = rank % Binomials[n][c];
+		int[] cells = new int[n];
+		long occupied = 0;
+		long crosses = 0;
+
+		// Undo the ranking greedily from the largest element down
+		int top = Cells;
+		for (int i = n; i > 0; i--)
+		{
+			do top--; while (Binomials[top][i] > filled);
+			filled -= Binomials[top][i];
+			cells[i - 1] = top;
+			occupied |= 1L << top;
+		}
+
+		top = n;
+		for (int j = c; j > 0; j--)
+		{
+			do top--; while (Binomials[top][j] > which);
+			which -= Binomials[top][j];
+			crosses |= 1L << cells[top];
+		}
+
+		return new long[] {occupied, crosses};
+	}
+
+	/**
+	 * Obtains the value (one of {@code WIN}, {@code DRAW}, {@code LOSS}, or {@code UNKNOWN}) of the position with index {@code index}.
+	 */
+	protected int Value(long index)
+	{return (int)(Data[(int)(index / PER_WORD)] >>> ((index % PER_WORD) * BITS)) & 3;}
+
+	/**
+	 * Records the value of the position with index {@code index}, which must still be unknown.
+	 * Positions sharing a long must not be written at the same time.
+	 */
+	protected void SetValue(long index, int value)
+	{
+		Data[(int)(index / PER_WORD)] |= (long)value << ((index % PER_WORD) * BITS);
+	}
+
+	/**
+	 * Determines if the stones of {@code stones} complete a line.
+	 */
+	protected boolean HasLine(long stones)
+	{
+		for (long line : Lines)
+			if ((stones & line) == line)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Determines if the stones of {@code stones} are a stone away from completing a line that {@code other} has not blocked.
+	 */
+	protected boolean Threatens(long stones, long other)
+	{
+		for (long line : Lines)
+			if ((other & line) == 0 && Long.bitCount(stones & line) == WinningLength - 1)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Converts a stored value into an Outcome.
+	 */
+	protected static Outcome ToOutcome(int value)
+	{
+		switch (value)
+		{
+		case WIN:
+			return Outcome.WIN;
+		case DRAW:
+			return Outcome.DRAW;
+		case LOSS:
+			return Outcome.LOSS;
+		default:
+			return Outcome.UNKNOWN;
+		}
+	}
+
+	/**
+	 * The value of a position that has not been worked out.
+	 */
+	protected static final int UNKNOWN = 0;
+
+	/**
+	 * The value of a position the player to move can force a win from.
+	 */
+	protected static final int WIN = 1;
+
+	/**
+	 * The value of a position neither player can force a win from.
+	 */
+	protected static final int DRAW = 2;
+
+	/**
+	 * The value of a position the player not to move can force a win from.
+	 */
+	protected static final int LOSS = 3;
+
+	/**
+	 * The bits taken by each value.
+	 */
+	protected static final int BITS = 2;
+
+	/**
+	 * The number of values in each long.
+	 */
+	protected static final int PER_WORD = 64 / BITS;
+
+	/**
+	 * The most cells a board may have, so that its stones fit in a long.
+	 */
+	protected static final int MAX_CELLS = 63;
+
+	/**
+	 * The most positions a tablebase may hold, so that its values fit in one array.
+	 */
+	protected static final long MAX_POSITIONS = (long)Integer.MAX_VALUE * PER_WORD;
+
+	/**
+	 * The first int of every tablebase file ("MNKT").
+	 */
+	protected static final int MAGIC = 0x4D4E4B54;
+
+	/**
+	 * The version of the file format.
+	 */
+	protected static final int VERSION = 1;
+
+	/**
+	 * The width of the boards covered.
+	 */
+	protected final int Width;
+
+	/**
+	 * The height of the boards covered.
+	 */
+	protected final int Height;
+
+	/**
+	 * The winning length of the boards covered.
+	 */
+	protected final int WinningLength;
+
+	/**
+	 * The number of cells on the boards covered.
+	 */
+	protected final int Cells;
+
+	/**
+	 * Pascal's triangle up to the number of cells, so that {@code Binomials[n][k]} is n choose k.
+	 */
+	protected final long[][] Binomials;
+
+	/**
+	 * The index of the first position with each number of stones. The last entry is the number of positions.
+	 */
+	protected final long[] Offsets;
+
+	/**
+	 * The cells of every line that wins, as bitmasks.
+	 */
+	protected final long[] Lines;
+
+	/**
+	 * Every cell, nearest the center first, which is the order moves are preferred in.
+	 */
+	protected final int[] Order;
+
+	/**
+	 * The value of every position, {@code PER_WORD} to a long.
+	 */
+	protected final long[] Data;
+}
@@ -0,0 +1,178 @@
+package tictactoe.AI;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ *
+ * Builds a tablebase by retrograde analysis.
+ *
+ * Every move adds a stone, so the positions with {@code n} stones only ever lead to positions with
+ * {@code n + 1}. The full board is solved first, then the positions with one stone fewer from those, and so
+ * on back to the empty board, which means every position is looked at exactly once and every child is
+ * already solved by the time it is needed.
+ *
+ * The positions with the same number of stones don't depend on each other, so each group is split into
+ * chunks that are solved in parallel. Chunks never share a long of the table, so they never write over each
+ * other.
+ *
+ * Usage: {@code TablebaseGenerator WIDTH HEIGHT LENGTH OUTPUT [THREADS]}
+ *
+ * @author Ray Heil
+ *
+ */
+public class TablebaseGenerator
+{
+	/**
+	 * Creates a generator.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param winningLength The winning length of the board.
+	 * @param pool The pool to solve chunks on.
+	 * @throws NullPointerException Thrown if {@code pool} is null.
+	 */
+	public TablebaseGenerator(int width, int height, int winningLength, ForkJoinPool pool)
+	{
+		if (pool == null)
+			throw new NullPointerException();
+
+		Width = width;
+		Height = height;
+		WinningLength = winningLength;
+		Pool = pool;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 4) {
+			System.err.println("Usage: TablebaseGenerator WIDTH HEIGHT LENGTH OUTPUT [THREADS]");
+			System.exit(1);
+		}
+
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		try {
+			long start = System.nanoTime();
+			Tablebase tablebase = new TablebaseGenerator(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), pool).Generate();
+			tablebase.Save(Path.of(args[3]));
+
+			System.out.println(String.format("Solved %d positions in %.1fs, the empty board is a %s", tablebase.Positions(), (System.nanoTime() - start) / 1e9, Tablebase.ToOutcome(tablebase.Value(0))));
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		return;
+	}
+
+	/**
+	 * Solves every position.
+	 * @return Returns the finished tablebase.
+	 * @throws IllegalArgumentException Thrown if the board is not positive in size or has too many positions for a tablebase.
+	 */
+	public Tablebase Generate()
+	{
+		Tablebase tablebase = new Tablebase(Width, Height, WinningLength);
+
+		for (int n = tablebase.Cells; n >= 0; n--)
+		{
+			long start = tablebase.Offsets[n];
+			long end = tablebase.Offsets[n + 1];
+			ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			int stones = n;
+
+			// Chunks end on multiples of CHUNK (which is a multiple of the values per long) so that no two share a long
+			for (long from = start; from < end; )
+			{
+				long to = Math.min(end, (from / CHUNK + 1) * CHUNK);
+				long first = from;
+				tasks.add(Pool.submit(() -> Solve(tablebase, stones, first, to)));
+				from = to;
+			}
+
+			for (ForkJoinTask<?> task : tasks)
+				task.join();
+		}
+
+		return tablebase;
+	}
+
+	/**
+	 * Solves the positions with indices {@code from} up to {@code to}, which all have {@code n} stones.
+	 * Every position with {@code n + 1} stones must already be solved.
+	 */
+	protected void Solve(Tablebase tablebase, int n, long from, long to)
+	{
+		boolean cross = n % 2 == 0;
+
+		for (long index = from; index < to; index++)
+		{
+			long[] position = tablebase.Position(index, n);
+			long occupied = position[0];
+			long crosses = position[1];
+			long mover = cross ? crosses : occupied & ~crosses;
+			long other = occupied & ~mover;
+
+			// Whoever moved last might have just won. The player to move can't have a line unless the position can't come up, but it gets a value all the same
+			if (tablebase.HasLine(other)) {
+				tablebase.SetValue(index, Tablebase.LOSS);
+				continue;
+			}
+
+			if (tablebase.HasLine(mover)) {
+				tablebase.SetValue(index, Tablebase.WIN);
+				continue;
+			}
+
+			int value = Tablebase.LOSS;
+
+			if (n == tablebase.Cells)
+				value = Tablebase.DRAW;
+
+			// The child's value is for the opponent, so one loss of theirs is a win for us
+			for (long empty = ~occupied & ((1L << tablebase.Cells) - 1); empty != 0 && value != Tablebase.WIN; empty &= empty - 1)
+			{
+				long bit = empty & -empty;
+				int child = tablebase.Value(tablebase.Index(occupied | bit, cross ? crosses | bit : crosses));
+
+				if (child == Tablebase.LOSS)
+					value = Tablebase.WIN;
+				else if (child == Tablebase.DRAW)
+					value = Tablebase.DRAW;
+			}
+
+			tablebase.SetValue(index, value);
+		}
+
+		return;
+	}
+
+	/**
+	 * The number of positions in each chunk solved at once.
+	 */
+	protected static final long CHUNK = 1 << 16;
+
+	/**
+	 * The width of the board.
+	 */
+	protected int Width;
+
+	/**
+	 * The height of the board.
+	 */
+	protected int Height;
+
+	/**
+	 * The winning length of the board.
+	 */
+	protected int WinningLength;
+
+	/**
+	 * The pool chunks are solved on.
+	 */
+	protected ForkJoinPool Pool;
+}
@@ -0,0 +1,338 @@
+package tictactoe.AI;
+
+import java.util.Arrays;
+
+import tictactoe.model.BitBoard;
+import tictactoe.model.PieceType;
+import tictactoe.model.Player;
+import tictactoe.model.WindowCounts;
+
+/**
+ *
+ * Searches for wins that can be forced with a sequence of threats.
+ *
+ * A four is a window holding {@code WinningLength() - 1} of a player's stones and none of their opponent's,
+ * so that the player wins by filling its last cell unless the opponent gets there first. A three is a window
+ * holding one stone fewer, which becomes a four with one more move.
+ *
+ * A VCF (victory by continuous fours) only ever plays moves that make a four. Each one leaves the defender
+ * a single reply, so the tree is very narrow and can be searched deeply. It is found when the attacker makes
+ * two fours with different gaps at once, which cannot both be blocked.
+ *
+ * A VCT (victory by continuous threats) also plays moves that make a three. The defender is then allowed
+ * every move in a window the attacker still has a chance with, and every move that makes a three or a four
+ * of their own. Any four the defender makes is taken as a refutation.
+ *
+ * The search plays and undoes moves on the board it is given, and leaves it as it found it.
+ *
+ * @author Ray Heil
+ *
+ */
+public class ThreatSearch
+{
+	/**
+	 * Creates a threat search.
+	 * @param board The board to search. It is played on and restored.
+	 * @param attacker The player trying to force a win.
+	 * @param node_budget The most positions to visit per search before giving up.
+	 */
+	public ThreatSearch(BitBoard board, PieceType attacker, long node_budget)
+	{
+		Board = board;
+		Windows = board.Windows();
+		Attacker = attacker;
+		Defender = attacker == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+		Winner = attacker == PieceType.CROSS ? Player.CROSS : Player.CIRCLE;
+		Length = board.WinningLength();
+		NodeBudget = node_budget;
+		Nodes = 0;
+		Marks = new int[board.Size()];
+		Stamp = 0;
+	}
+
+	/**
+	 * Obtains every cell that would complete a line of {@code piece} at once.
+	 * @param piece The player to look for wins for.
+	 * @return Returns the int indices of the winning cells.
+	 */
+	public int[] Wins(PieceType piece)
+	{return Makers(piece, Length - 1);}
+
+	/**
+	 * Looks for a VCF for the attacker, assuming it is their move.
+	 * @param max_depth The most fours the attacker may make.
+	 * @return Returns the int index of the attacker's first move, or -1 if no VCF was found.
+	 */
+	public int FindVcf(int max_depth)
+	{
+		Nodes = 0;
+
+		// The defender winning first, or having to be blocked, spoils everything
+		if (Wins(Defender).length > 0)
+			return -1;
+
+		return Vcf(max_depth);
+	}
+
+	/**
+	 * Looks for a VCT for the attacker, assuming it is their move.
+	 * This includes looking for a VCF.
+	 * @param max_depth The most threes the attacker may make.
+	 * @param vcf_depth The most fours the attacker may make after their threes.
+	 * @return Returns the int index of the attacker's first move, or -1 if no VCT was found.
+	 */
+	public int FindVct(int max_depth, int vcf_depth)
+	{
+		Nodes = 0;
+
+		if (Wins(Defender).length > 0)
+			return -1;
+
+		return Vct(max_depth, vcf_depth);
+	}
+
+	/**
+	 * Obtains the number of positions visited by the last search.
+	 */
+	public long Nodes()
+	{return Nodes;}
+
+	/**
+	 * Searches for a VCF with the attacker to move and no four of the defender's on the board.
+	 * @return Returns the attacker's first move, or -1 if there is none within {@code depth} fours.
+	 */
+	protected int Vcf(int depth)
+	{
+		if (depth <= 0 || ++Nodes > NodeBudget)
+			return -1;
+
+		// A four the defender chose not to block simply wins
+		int[] wins = Wins(Attacker);
+		if (wins.length > 0)
+			return wins[0];
+
+		for (int move : Makers(Attacker, Length - 2))
+		{
+			Board.Set(Attacker, move);
+
+			try {
+				int gap = Gap(move, Attacker);
+
+				if (gap == DOUBLE || Board.Victor() == Winner)
+					return move;
+
+				if (gap == NONE)
+					continue;
+
+				Board.Set(Defender, gap);
+
+				try {
+					// A block that makes a four of the defender's own takes the initiative away from us
+					if (Gap(gap, Defender) == NONE && Vcf(depth - 1) >= 0)
+						return move;
+				}
+				finally {
+					Board.Undo();
+				}
+			}
+			finally {
+				Board.Undo();
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Searches for a VCT with the attacker to move and no four of the defender's on the board.
+	 * @return Returns the attacker's first move, or -1 if there is none within {@code depth} threes.
+	 */
+	protected int Vct(int depth, int vcf_depth)
+	{
+		int vcf = Vcf(vcf_depth);
+		if (vcf >= 0 || depth <= 0 || Length < 4)
+			return vcf;
+
+		for (int move : Makers(Attacker, Length - 3))
+		{
+			if (Nodes > NodeBudget)
+				return -1;
+
+			Board.Set(Attacker, move);
+
+			try {
+				if (Refuted(depth, vcf_depth))
+					continue;
+
+				return move;
+			}
+			finally {
+				Board.Undo();
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Determines if the defender has a reply to the three the attacker just made after which the attacker cannot win with {@code depth - 1} more threes.
+	 */
+	protected boolean Refuted(int depth, int vcf_depth)
+	{
+		for (int reply : Defences())
+		{
+			Board.Set(Defender, reply);
+
+			try {
+				// Making a four of their own takes the initiative away from us, so we don't follow it any further
+				if (Gap(reply, Defender) != NONE || Vct(depth - 1, vcf_depth) < 0)
+					return true;
+			}
+			finally {
+				Board.Undo();
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Obtains the defender's replies worth trying against a three: every empty cell of a window the attacker could still complete, and every move that makes a three or a four for the defender.
+	 * A quiet reply that makes a three matters as much as a block, since the attacker's next three gives the defender time to turn it into a four.
+	 */
+	protected int[] Defences()
+	{
+		int[] cells = new int[Board.Size()];
+		int size = 0;
+		Stamp++;
+
+		for (int w = 0; w < Windows.Windows(); w++)
+		{
+			int mine = Windows.Count(w, Attacker);
+			int theirs = Windows.Count(w, Defender);
+
+			if (!(mine > 0 && theirs == 0) && !(mine == 0 && theirs >= Length - 3))
+				continue;
+
+			for (int cell : Windows.CellsOf(w))
+				if (Marks[cell] != Stamp && Board.IsEmpty(cell)) {
+					Marks[cell] = Stamp;
+					cells[size++] = cell;
+				}
+		}
+
+		return Arrays.copyOf(cells, size);
+	}
+
+	/**
+	 * Obtains every empty cell in a window holding exactly {@code count} stones of {@code piece} and none of its opponent's.
+	 * Playing any of them gives {@code piece} a window with {@code count + 1} stones.
+	 */
+	protected int[] Makers(PieceType piece, int count)
+	{
+		PieceType other = piece == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+		int[] cells = new int[Board.Size()];
+		int size = 0;
+		Stamp++;
+
+		for (int w = 0; w < Windows.Windows(); w++)
+		{
+			if (Windows.Count(w, piece) != count || Windows.Count(w, other) != 0)
+				continue;
+
+			for (int cell : Windows.CellsOf(w))
+				if (Marks[cell] != Stamp && Board.IsEmpty(cell)) {
+					Marks[cell] = Stamp;
+					cells[size++] = cell;
+				}
+		}
+
+		return Arrays.copyOf(cells, size);
+	}
+
+	/**
+	 * Finds the fours {@code piece} made by playing {@code cell}.
+	 * @return Returns the cell that must be blocked if there is exactly one, {@code DOUBLE} if there are several different ones, or {@code NONE} if there are none.
+	 */
+	protected int Gap(int cell, PieceType piece)
+	{
+		PieceType other = piece == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+		int gap = NONE;
+
+		for (int w : Windows.WindowsThrough(cell))
+		{
+			if (Windows.Count(w, piece) != Length - 1 || Windows.Count(w, other) != 0)
+				continue;
+
+			for (int c : Windows.CellsOf(w))
+				if (Board.IsEmpty(c)) {
+					if (gap != NONE && gap != c)
+						return DOUBLE;
+
+					gap = c;
+				}
+		}
+
+		return gap;
+	}
+
+	/**
+	 * Returned by {@code Gap} when no four was made.
+	 */
+	protected static final int NONE = -1;
+
+	/**
+	 * Returned by {@code Gap} when fours with different gaps were made.
+	 */
+	protected static final int DOUBLE = -2;
+
+	/**
+	 * The board being searched.
+	 */
+	protected BitBoard Board;
+
+	/**
+	 * The window counts of {@code Board}.
+	 */
+	protected WindowCounts Windows;
+
+	/**
+	 * The player trying to force a win.
+	 */
+	protected PieceType Attacker;
+
+	/**
+	 * The attacker's opponent.
+	 */
+	protected PieceType Defender;
+
+	/**
+	 * The attacker as a victor.
+	 */
+	protected Player Winner;
+
+	/**
+	 * The winning length of the board.
+	 */
+	protected int Length;
+
+	/**
+	 * The most positions to visit per search.
+	 */
+	protected long NodeBudget;
+
+	/**
+	 * The number of positions visited by the current search.
+	 */
+	protected long Nodes;
+
+	/**
+	 * The stamp each cell was last collected with, so that cells in several windows are only collected once.
+	 */
+	protected int[] Marks;
+
+	/**
+	 * The stamp of the current collection.
+	 */
+	protected int Stamp;
+}
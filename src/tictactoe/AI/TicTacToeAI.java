@@ -1,24 +1,42 @@
 package tictactoe.AI;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import gamecore.LINQ.LINQ;
+import gamecore.datastructures.tuples.Pair;
 import gamecore.datastructures.vectors.Vector2i;
+import gamecore.observe.IObservable;
+import gamecore.observe.IObserver;
+import tictactoe.model.BitBoard;
+import tictactoe.model.CandidateSet;
 import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.NeuralAccumulator;
+import tictactoe.model.NeuralNetwork;
+import tictactoe.model.PatternScores;
 import tictactoe.model.Player;
 import tictactoe.model.PieceType;
+import tictactoe.model.SymmetricHashes;
+import tictactoe.model.WindowCounts;
 
 /**
  * 
  * Tic Tac Toe AI that controls one player with variable difficulty, from 1 to 10.
  * 
+ * Observers are sent the statistics of every search that finds a move.
+ * 
  * @author Ray Heil
  *
  */
-public class TicTacToeAI implements ITicTacToeAI 
+public class TicTacToeAI implements ITicTacToeAI, IObservable<SearchStatistics>
 {
 	/**
 	 * Default constructor that creates an AI of difficulty 5. Why not?
@@ -48,261 +66,1877 @@ public class TicTacToeAI implements ITicTacToeAI
 	
 	@Override
 	public Vector2i GetNextMove(ITicTacToeBoard board)
+	{
+		if (TimeBudget > 0)
+			return GetNextMove(board, TimeBudget);
+		
+		return SearchAndReport(board, new SearchContext(0, 0));
+	}
+	
+	@Override
+	public Vector2i GetNextMove(ITicTacToeBoard board, long milliseconds)
+	{
+		if (milliseconds <= 0)
+			throw new IllegalArgumentException("The time budget must be positive.");
+		
+		return SearchAndReport(board, new SearchContext(System.nanoTime() + milliseconds * 1000000, 0));
+	}
+	
+	@Override
+	public CompletableFuture<Vector2i> GetNextMoveAsync(ITicTacToeBoard board)
+	{
+		if (board == null)
+			throw new NullPointerException();
+		
+		// Take the snapshot now, on the caller's thread, so that the board is never read while the caller changes it
+		ITicTacToeBoard snapshot = new BitBoard(board);
+		SearchContext context = new SearchContext(TimeBudget > 0 ? System.nanoTime() + TimeBudget * 1000000 : 0, 0);
+		CompletableFuture<Vector2i> future = new CompletableFuture<Vector2i>();
+		
+		// Cancelling the future doesn't interrupt anything by itself, so pass it on to the search
+		future.whenComplete((move, e) -> {
+			if (future.isCancelled())
+				context.Stop();
+		});
+		
+		Thread worker = new Thread(() -> {
+			try {
+				future.complete(SearchAndReport(snapshot, context));
+			}
+			catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}, "TicTacToeAI " + Player);
+		
+		// A search still running when the game closes should not keep it open
+		worker.setDaemon(true);
+		worker.start();
+		return future;
+	}
+	
+	/**
+	 * Search for a move and send the statistics of the search to every observer and the log.
+	 * The statistics are only counters each thread keeps for itself, so they cost next to nothing to collect.
+	 * @param board The current state of the game.
+	 * @param context The state of the searching thread.
+	 * @return The move found.
+	 */
+	protected Vector2i SearchAndReport(ITicTacToeBoard board, SearchContext context)
+	{
+		long start = System.nanoTime();
+		Vector2i move = Search(board, context);
+		SearchStatistics statistics = new SearchStatistics(context, move, System.nanoTime() - start);
+		
+		LastStatistics = statistics;
+		
+		for (IObserver<SearchStatistics> eye : Observers)
+			eye.OnNext(statistics);
+		
+		PrintStream log = StatisticsLog;
+		if (log != null)
+			log.println("TicTacToeAI " + Player + ": " + statistics);
+		
+		return move;
+	}
+	
+	/**
+	 * Find the best move by iterative deepening: search one ply deep, then two, and so on up to the depth allowed by the difficulty.
+	 * Each iteration tries the previous iteration's best move first, and the transposition table carries everything else learned forward, so the shallow iterations cost little.
+	 * @param board The current state of the game.
+	 * @param context The state of the searching thread, holding the deadline (if any) and the means to stop the search.
+	 * @return The best move of the deepest iteration that finished.
+	 * @throws CancellationException Thrown if the search is stopped before it finishes its first iteration.
+	 */
+	protected Vector2i Search(ITicTacToeBoard board, SearchContext context)
 	{
 		if (board.IsFinished())
 			throw new IllegalStateException("Board is finished and has no next move.");
 		
+		// Search on a bitboard so that every clone below is a cheap array copy.
+		// When making and unmaking moves we always need our own copy, since the search plays on it, and so we do when scanning for wins, since the copy is what says how to check for them.
+		if (MakeUnmake || UseWindowScanner || !(board instanceof BitBoard))
+			board = SearchBoard(board);
+		
 		// Difficulty 1 is the worst thing I could come up with, playing randomly
 		if (Difficulty == 1)
 			return GetRandomMove(board);
 		
-		// Every other difficulty does minimax with varying depth
-		double best_score = Double.NEGATIVE_INFINITY;
-		Vector2i best_move = null;
-		for (Vector2i move : GetChildStates(board))
+		// Small boards may have been solved ahead of time, in which case there's nothing to think about
+		if (Endgame != null && Endgame.Covers(board)) {
+			Vector2i solved = Endgame.BestMove(board);
+			
+			if (solved != null)
+				return solved;
+		}
+		
+		// So may the opening, which is where the search is slowest
+		if (Book != null && Book.Covers(board)) {
+			Vector2i opening = Book.Lookup(board);
+			
+			if (opening != null)
+				return opening;
+		}
+		
+		// Forcing lines are found far faster by looking only at threats than by searching everything
+		Vector2i seed = null;
+		if (UseThreatSearch && board.WinningLength() >= 4) {
+			Pair<Vector2i,Boolean> threat = SearchThreats(new BitBoard(board));
+			
+			if (threat != null && threat.Item2)
+				return threat.Item1;
+			
+			seed = threat == null ? null : threat.Item1;
+		}
+		
+		// Entries from earlier moves are still good, they just become the first to be thrown out
+		TranspositionTable table = PrepareTable(board);
+		if (table != null)
+			table.NewSearch();
+		
+		PrepareOrdering(board);
+		
+		// Every other difficulty does minimax with varying depth.
+		// We go to a depth of difficulty-1 because 1 level is covered by random play, and it can't be deeper than the number of empty cells.
+		int max_depth = Math.min(Difficulty - 1, board.Size() - board.Count());
+		
+		if (Pool == null || Mode != ParallelMode.LAZY_SMP)
+			return MoveOf(Deepen(context, board, max_depth, seed));
+		
+		// Lazy SMP: helpers search the same position on their own boards, and we only ever look at their work through the transposition table
+		int helpers = Pool.getParallelism() - 1;
+		ArrayList<SearchContext> contexts = new ArrayList<SearchContext>(helpers);
+		ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(helpers);
+		
+		for (int i = 1; i <= helpers; i++)
 		{
-			ITicTacToeBoard cloned = board.Clone();
-			cloned.Set(GetPieceType(), move);
-
-			// We start with depth of difficulty-2 because 1 level is covered by random play,
-			// and 1 level is covered by this move selection loop
-			double score = Minimax(cloned, Difficulty-2, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
-			if (score >= best_score) { // if no state is winnable (noticable on a 2x2) we should still decide a move.
-				best_score = score;
-				best_move = move;
-			}
+			SearchContext helper = new SearchContext(context, i);
+			ITicTacToeBoard copy = new BitBoard(board);
+			Vector2i helper_seed = seed;
+			contexts.add(helper);
+			tasks.add(Pool.submit(() -> Deepen(helper, copy, max_depth, helper_seed)));
+		}
+		
+		try {
+			return MoveOf(Deepen(context, board, max_depth, seed));
+		}
+		finally {
+			for (SearchContext helper : contexts)
+				helper.Stop();
+			for (ForkJoinTask<?> task : tasks)
+				task.quietlyJoin();
 		}
-		if (best_move == null)
-			throw new NullPointerException("AI was unable to get next move.");
-		return best_move;
 	}
 	
 	/**
-	 * Get a random valid move on the board.
-	 * @param state The board to use.
-	 * @return A valid move on the board, chosen randomly.
+	 * Look for moves that are forced, either because they win by force or because anything else loses at once.
+	 * If there are none, the opponent's quickest forced win (if they were allowed to move now) is a good place to start looking, since we'll probably want to get in its way.
+	 * @param board The current state of the game. This is played on and restored.
+	 * @return A pair of the move found and true if it must be played, a pair of a move worth trying first and false, or null if there's nothing to go on.
 	 */
-	public Vector2i GetRandomMove(ITicTacToeBoard board)
+	protected Pair<Vector2i,Boolean> SearchThreats(BitBoard board)
 	{
-		Iterable<Vector2i> open = LINQ.Where(board.IndexSet(), t -> board.IsCellEmpty(t));
-		ArrayList<Vector2i> playable = new ArrayList<Vector2i>();
-		for (Vector2i pos : open)
-			playable.add(pos);
+		ThreatSearch ours = new ThreatSearch(board, GetPieceType(), THREAT_NODES);
+		ThreatSearch theirs = new ThreatSearch(board, GetOpponentPieceType(), THREAT_NODES);
 		
-        Random rand = new Random();
-        return playable.get(rand.nextInt(playable.size()));		
+		// Win if we can, and otherwise block the one cell that loses at once
+		int[] wins = ours.Wins(GetPieceType());
+		if (wins.length > 0)
+			return new Pair<Vector2i,Boolean>(ToVector(board, wins[0]), true);
+		
+		int[] losses = ours.Wins(GetOpponentPieceType());
+		if (losses.length == 1)
+			return new Pair<Vector2i,Boolean>(ToVector(board, losses[0]), true);
+		
+		// With two different cells to block we've lost anyway, so leave it to the full search to put up the best fight
+		if (losses.length > 1)
+			return null;
+		
+		int forced = ours.FindVct(VCT_DEPTH, VCF_DEPTH);
+		if (forced >= 0)
+			return new Pair<Vector2i,Boolean>(ToVector(board, forced), true);
+		
+		int danger = theirs.FindVcf(VCF_DEPTH);
+		return danger < 0 ? null : new Pair<Vector2i,Boolean>(ToVector(board, danger), false);
 	}
 	
 	/**
-	 * Perform the minimax algorithm and return the best value.
-	 * @param state The current state of the board.
-	 * @param depth The depth to search.
-	 * @param alpha The current best maximum.
-	 * @param beta The current worst minimum.
-	 * @param maximizing Whether we start by maximizing or by minimizing
-	 * @return The min or max value available from this board state.
+	 * Obtain the position of the cell with int index {@code cell}.
 	 */
-	protected double Minimax(ITicTacToeBoard state, int depth, double alpha, double beta, boolean maximizing)
+	protected static Vector2i ToVector(ITicTacToeBoard board, int cell)
+	{return new Vector2i(cell % board.Width(), cell / board.Width());}
+	
+	/**
+	 * Obtain the move of a search result.
+	 * @param result The result of {@code IterativeDeepening}.
+	 * @return The move.
+	 * @throws CancellationException Thrown if {@code result} is null because the search was stopped before it found anything.
+	 */
+	protected Vector2i MoveOf(Pair<Vector2i,Double> result)
 	{
-		if (depth == 0 || state.IsFinished())
-			return StaticEvalutation(state);
+		if (result == null)
+			throw new CancellationException("The search was stopped before it found a move.");
 		
-		if (maximizing) {
-			double maxEval = Double.NEGATIVE_INFINITY;
-			
-			// For each child position, recursively find the move that helps the AI most
-			for (Vector2i next : GetChildStates(state)) {
-				ITicTacToeBoard cloned = state.Clone();
-				cloned.Set(GetPieceType(), next);
-				maxEval = Double.max(maxEval, Minimax(cloned, depth-1, alpha, beta, false));
-				// If we did too well the minimizer will never choose this, prune
-				alpha = Double.max(alpha, maxEval);
-				if (beta <= alpha)
-					break;
-			}
-			return maxEval;
-		}
-		else {
-			double minEval = Double.POSITIVE_INFINITY;
-			
-			// For each child position, recursively find the move that hurts the AI most
-			for (Vector2i next : GetChildStates(state)) {
-				ITicTacToeBoard cloned = state.Clone();
-				cloned.Set(GetOpponentPieceType(), next);
-				minEval = Double.min(minEval, Minimax(cloned, depth-1, alpha, beta, true));
-				// If we did too poorly the maximizer will never choose this, prune
-				beta = Double.min(beta, minEval);
-				if (beta <= alpha)
-					break;
-			}
-			return minEval;
-		}
+		return result.Item1;
 	}
 	
 	/**
-	 * Evaluate a state and return the value of that state.
-	 * A positive value indicates that this AI is doing better, a negative value that this AI is doing worse.
-	 * @return The goodness of the state (from -inf to inf)
+	 * Create the move ordering tables if they are enabled and are not for boards the size of {@code board}, or else age the history in them so that this search's cutoffs count for more.
+	 * This is synchronized since asynchronous searches may start on different threads.
+	 * @return The tables, or null if move ordering is disabled.
 	 */
-	protected double StaticEvalutation(ITicTacToeBoard state)
+	protected synchronized MoveOrdering PrepareOrdering(ITicTacToeBoard board)
 	{
-		/*
-		 * If state is finished, return a value based on who (if anyone) won
-		 */
-		if (state.IsFinished())
-		{
-			if (state.Victor().equals(GetPlayer()))
-				return Double.POSITIVE_INFINITY;
-			else if (state.Victor().equals(tictactoe.model.Player.NEITHER))
-				return 0;
-			else
-				return Double.NEGATIVE_INFINITY;
+		if (!UseMoveOrdering)
+			return null;
+		
+		if (Ordering == null || Ordering.Cells() != board.Size())
+			Ordering = new MoveOrdering(board.Size());
+		else
+			Ordering.Age();
+		
+		return Ordering;
+	}
+	
+	/**
+	 * Create the transposition table if it is enabled and does not exist yet, or clear it if it holds positions of boards of a different shape than {@code board}.
+	 * Keys come from cell indices alone (the winning length isn't hashed at all), so positions of different shapes can share keys and must not share a table.
+	 * This is synchronized since asynchronous searches may start on different threads.
+	 * @return The table, or null if it is disabled.
+	 */
+	protected synchronized TranspositionTable PrepareTable(ITicTacToeBoard board)
+	{
+		if (Table == null && TableMegabytes > 0)
+			Table = new TranspositionTable((long)TableMegabytes << 20);
+		
+		if (Table != null && (board.Width() != TableWidth || board.Height() != TableHeight || board.WinningLength() != TableLength)) {
+			Table.Clear();
+			TableWidth = board.Width();
+			TableHeight = board.Height();
+			TableLength = board.WinningLength();
 		}
 		
-		int score = 0;
+		return Table;
+	}
+	
+	/**
+	 * Run iterative deepening with the search algorithm chosen by {@code GetSearchAlgorithm()}.
+	 * The parameters and result are as for {@code IterativeDeepening}.
+	 */
+	protected Pair<Vector2i,Double> Deepen(SearchContext context, ITicTacToeBoard board, int max_depth, Vector2i seed)
+	{return Algorithm == SearchAlgorithm.MINIMAX ? IterativeDeepening(context, board, max_depth, seed) : IterativeDeepeningPvs(context, board, max_depth, seed);}
+	
+	/**
+	 * Search deeper and deeper until the deadline passes, a win or loss is certain, or {@code max_depth} is reached.
+	 * @param context The state of the thread doing the search.
+	 * @param board The current state of the game.
+	 * @param max_depth The deepest iteration to run, in plies.
+	 * @param seed The move the first iteration should try first, or null to use the usual ordering.
+	 * @return The best move and score of the deepest iteration that finished, or null if the thread was stopped before one finished.
+	 */
+	protected Pair<Vector2i,Double> IterativeDeepening(SearchContext context, ITicTacToeBoard board, int max_depth, Vector2i seed)
+	{
+		long deadline = context.Deadline;
+		Pair<Vector2i,Double> best = null;
+		
+		// Half of the helpers start one ply deeper, so that the threads are spread over two depths at any moment
+		int start = Math.min(1 + (context.Variation & 1), max_depth);
 		
-		// Reward the longest lines
-		HashSet<Vector2i> seen = new HashSet<Vector2i>();
-		for (Vector2i pos : state.IndexSet(true))
+		if (context.Variation == 0)
+			context.BeginIterations();
+		
+		for (int depth = start; depth <= max_depth; depth++)
 		{
-			if (seen.contains(pos))
-				continue;
+			// The first iteration always finishes so that we always have a move to give
+			context.Deadline = depth == start && context.Variation == 0 ? 0 : deadline;
 			
-			int modifier = state.Get(pos) == GetPieceType() ? 1 : -1;
-			ArrayList<Vector2i> directions = new ArrayList<Vector2i>(4);
-			directions.add(new Vector2i(0, 1));
-			directions.add(new Vector2i(1, 0));
-			directions.add(new Vector2i(1, 1));
-			directions.add(new Vector2i(1, -1));
-
-			for (Vector2i dir : directions) {
-				Iterable<Vector2i> line = state.LongestLine(pos, dir);
-				int count = 0;
-				for (Vector2i vec : line) {
-					seen.add(vec);
-					count++;
-				}
-				// Subtract 1 from count so lengths of 1 do not help score at all
-				score += modifier * (count - 1);
+			try {
+				Vector2i first = best == null ? seed : best.Item1;
+				best = Pool == null || Mode != ParallelMode.ROOT_SPLIT ? SearchRoot(context, board, depth, first) : SearchRootParallel(context, board, depth, first);
 			}
+			catch (SearchTimeoutException e) {
+				break;
+			}
+			
+			if (context.Variation == 0)
+				context.EndIteration(depth);
+			
+			// Once a win or a loss is certain, searching deeper won't change anything
+			if (Double.isInfinite(best.Item2))
+				break;
 		}
 		
-		return score;
+		context.Deadline = deadline;
+		return best;
 	}
 	
 	/**
-	 * Return an iterator containing all the possible positions to play from the current state. 
-	 * Moves that are the most likely to be useful are returned first, to help with alpha/beta pruning.
-	 * @param board The current board state.
-	 * @return Iterable over all empty cells in the board
+	 * Search deeper and deeper by principal variation search or MTD(f), as {@code IterativeDeepening} does with minimax.
+	 * @param context The state of the thread doing the search.
+	 * @param board The current state of the game.
+	 * @param max_depth The deepest iteration to run, in plies.
+	 * @param seed The move the first iteration should try first, or null to use the usual ordering.
+	 * @return The best move and score of the deepest iteration that finished, or null if the thread was stopped before one finished. The score is an int score as {@code Pvs} gives them.
 	 */
-	public Iterable<Vector2i> GetChildStates(ITicTacToeBoard board)
+	protected Pair<Vector2i,Double> IterativeDeepeningPvs(SearchContext context, ITicTacToeBoard board, int max_depth, Vector2i seed)
 	{
-		LinkedList<Vector2i> childStates = new LinkedList<Vector2i>();
-		
-		/*
-		 * Locate and add the centermost square(s) first
-		 */
-		
-		Vector2i pos;
+		long deadline = context.Deadline;
+		Pair<Vector2i,Double> best = null;
+		int start = Math.min(1 + (context.Variation & 1), max_depth);
 		
-		// Width and height of the center of the board depend on if dimensions are even or odd.
-		int centerWidth = (board.Width() % 2 == 0) ? 2 : 1;
-		int centerHeight = (board.Height() % 2 == 0) ? 2 : 1;
-
-		// The position that the center of the board starts.
-		int centerXStart = (board.Width() - centerWidth) / 2;
-		int centerYStart = (board.Height() - centerHeight) / 2;
-
-		// The position that the center of the board ends (not inclusive)
-		int centerXEnd = centerXStart + centerWidth;
-		int centerYEnd = centerYStart + centerHeight;
+		if (context.Variation == 0)
+			context.BeginIterations();
 		
-		// Add all the center squares to the linked list
-		for (int x = centerXStart; x < centerXEnd; x++)
+		for (int depth = start; depth <= max_depth; depth++)
 		{
-			for (int y = centerYStart; y < centerYEnd; y++)
-			{
-				pos = new Vector2i(x, y);
-				if (board.IsCellEmpty(pos))
-					childStates.add(pos);
+			context.Deadline = depth == start && context.Variation == 0 ? 0 : deadline;
+			
+			try {
+				Vector2i first = best == null ? seed : best.Item1;
+				best = Algorithm == SearchAlgorithm.MTDF ? Mtdf(context, board, depth, first, best == null ? 0 : (int)(double)best.Item2) : Aspiration(context, board, depth, first, best);
 			}
+			catch (SearchTimeoutException e) {
+				break;
+			}
+			
+			if (context.Variation == 0)
+				context.EndIteration(depth);
+			
+			if (IsDecided((int)(double)best.Item2))
+				break;
 		}
 		
-		/*
-		 * Add the squares at the corners of the grid if they are available.
-		 */
-		ArrayList<Vector2i> corners = new ArrayList<Vector2i>(4);
-		corners.add(new Vector2i(0, 0));
-		corners.add(new Vector2i(board.Width() - 1, 0));
-		corners.add(new Vector2i(0, board.Height() - 1));
-		corners.add(new Vector2i(board.Width() - 1, board.Height() - 1));
+		context.Deadline = deadline;
+		return best;
+	}
+	
+	/**
+	 * Run one iteration of principal variation search inside an aspiration window.
+	 * The window reaches {@code ASPIRATION_WINDOW} either side of the last iteration's score, since the score rarely moves far from one depth to the next and a narrow window prunes far more.
+	 * If the score falls outside the window, the window is widened on that side (by twice as much each time) and the iteration searched again.
+	 * @param context The state of the thread doing the search.
+	 * @param board The current state of the game.
+	 * @param depth The number of plies to search, counting the root move.
+	 * @param first The move to try first, or null to use the usual ordering.
+	 * @param last The result of the last iteration, or null to search over the full window.
+	 * @return The best move and its int score.
+	 * @throws SearchTimeoutException Thrown if the deadline passes before the search is finished.
+	 */
+	protected Pair<Vector2i,Double> Aspiration(SearchContext context, ITicTacToeBoard board, int depth, Vector2i first, Pair<Vector2i,Double> last)
+	{
+		int guess = last == null ? 0 : (int)(double)last.Item2;
+		int delta = ASPIRATION_WINDOW;
+		int alpha = last == null ? -INFINITE_SCORE : Math.max(-INFINITE_SCORE, guess - delta);
+		int beta = last == null ? INFINITE_SCORE : Math.min(INFINITE_SCORE, guess + delta);
 		
-		for (Vector2i corner : corners) {
-			if (board.IsCellEmpty(corner))
-				childStates.add(corner);
+		while (true)
+		{
+			Pair<Vector2i,Double> result = SearchRootPvs(context, board, depth, first, alpha, beta);
+			int score = (int)(double)result.Item2;
+			
+			if (score <= alpha && alpha > -INFINITE_SCORE)
+				alpha = Math.max(-INFINITE_SCORE, alpha - (delta *= 2));
+			else if (score >= beta && beta < INFINITE_SCORE)
+				beta = Math.min(INFINITE_SCORE, beta + (delta *= 2));
+			else
+				return result;
+			
+			// Whatever was best when the window failed is still the best guess at what to try first
+			first = result.Item1;
 		}
+	}
 	
-		/*
-		 * Add the other squares in the grid, not caring as much about the order now.
-		 */
-		for (int x = 0; x < board.Width(); x++)
+	/**
+	 * Run one iteration of MTD(f): zero window searches, each of which only says whether the score is above or below a guess, closing in on the score from both sides until they meet.
+	 * Every search after the first goes over much the same tree as the one before it, so it relies on the transposition table remembering the bounds found to be cheap.
+	 * @param context The state of the thread doing the search.
+	 * @param board The current state of the game.
+	 * @param depth The number of plies to search, counting the root move.
+	 * @param first The move to try first, or null to use the usual ordering.
+	 * @param guess The first guess at the score, usually the last iteration's score. The closer it is, the fewer searches it takes.
+	 * @return The best move and its int score.
+	 * @throws SearchTimeoutException Thrown if the deadline passes before the search is finished.
+	 */
+	protected Pair<Vector2i,Double> Mtdf(SearchContext context, ITicTacToeBoard board, int depth, Vector2i first, int guess)
+	{
+		int lower = -INFINITE_SCORE;
+		int upper = INFINITE_SCORE;
+		Vector2i best = null;
+		
+		while (lower < upper)
 		{
-			for (int y = 0; y < board.Height(); y++)
-			{
-				// Don't add corners or center twice
-				if ((x >= centerXStart && x < centerXStart + centerWidth) && (y >= centerYStart && y < centerYStart + centerHeight))
-					continue;
-				if ((x == 0 || x == board.Width() - 1) && (y == 0 || y == board.Height() - 1))
-					continue;
-				pos = new Vector2i(x, y);
-				if (board.IsCellEmpty(pos))
-					childStates.add(pos);
+			int beta = guess == lower ? guess + 1 : guess;
+			Pair<Vector2i,Double> result = SearchRootPvs(context, board, depth, first, beta - 1, beta);
+			guess = (int)(double)result.Item2;
+			
+			// Only a move that reached beta is known to be any good, so the best move is that of the last search to fail high
+			if (guess < beta)
+				upper = guess;
+			else {
+				lower = guess;
+				best = result.Item1;
+				first = best;
 			}
 		}
 		
-		return childStates;
+		return new Pair<Vector2i,Double>(best, (double)guess);
 	}
 	
 	/**
-	 * Return a copy of a board with a specified move made.
-	 * @param board The board to copy.
-	 * @param playedPiece The type of piece to play.
-	 * @param move The position at which to play.
-	 * @return A copy of the board with the specified move made. The original board will not be modified.
+	 * Search every move from the root to a fixed depth.
+	 * @param context The state of the thread doing the search.
+	 * @param board The current state of the game.
+	 * @param depth The number of plies to search, counting the root move.
+	 * @param first The move to try first, or null to use the usual ordering.
+	 * @return The best move and its score.
+	 * @throws SearchTimeoutException Thrown if the deadline passes before the search is finished.
 	 */
-	protected ITicTacToeBoard PlayBoard(ITicTacToeBoard board, PieceType playedPiece, Vector2i move)
+	protected Pair<Vector2i,Double> SearchRoot(SearchContext context, ITicTacToeBoard board, int depth, Vector2i first)
 	{
-		ITicTacToeBoard copy = board.Clone();
-		copy.Set(playedPiece, move);
-		return copy;
+		double best_score = Double.NEGATIVE_INFINITY;
+		Vector2i best_move = null;
+		int first_cell = first == null ? -1 : first.Y * board.Width() + first.X;
+		
+		for (Vector2i move : DistinctMoves(board, GetChildStates(context, board, first_cell)))
+		{
+			double score = SearchRootMove(context, board, move, depth, Double.NEGATIVE_INFINITY);
+			
+			if (score >= best_score) { // if no state is winnable (noticable on a 2x2) we should still decide a move.
+				best_score = score;
+				best_move = move;
+			}
+		}
+		if (best_move == null)
+			throw new NullPointerException("AI was unable to get next move.");
+		return new Pair<Vector2i,Double>(best_move, best_score);
 	}
-
-	@Override
-	public Player GetPlayer() 
-	{return Player;}
 	
 	/**
-	 * Determine the type of piece that this AI will play.
-	 * @return PieceType.CIRCLE or PieceType.CROSS as corresponds with our player
+	 * Gets the calling thread's worker for splitting the root of {@code board}, making a new one if the thread's last worker was for another search or another root.
+	 * @param context The state of the thread doing the search.
+	 * @param board The root of the search.
+	 * @return The calling thread's worker.
 	 */
-	public PieceType GetPieceType()
+	protected RootWorker RootWorker(SearchContext context, ITicTacToeBoard board)
 	{
-		switch (GetPlayer()) {
-		case CIRCLE:
-			return PieceType.CIRCLE;
-		case CROSS:
-			return PieceType.CROSS;
-		default:
-			throw new IllegalStateException("AI Player was neither CROSS nor CIRCLE.");
+		RootWorker worker = RootWorkers.get();
+		
+		if (worker == null || worker.Parent != context || worker.Root != board) {
+			worker = new RootWorker(context, board);
+			RootWorkers.set(worker);
 		}
+		
+		// The first iteration runs without a deadline, so the worker must pick up whichever one the search has now
+		worker.Context.Deadline = context.Deadline;
+		return worker;
 	}
 	
 	/**
-	 * Determine the type of piece that the opponent will play.
-	 * @return PieceType.CIRCLE or PieceType.CROSS, the opposite of our player
+	 * Search every move from the root to a fixed depth, splitting the moves across {@code GetPool()}.
+	 * The first move is searched alone to establish a good bound (the young brothers wait for their eldest), then the rest are searched in parallel.
+	 * Each worker searches on its own copy of the board, and whenever one finds a better move it raises the bound every worker starts from, so pruning still works.
+	 * @param context The state of the thread doing the search. Each thread of the pool gets one context of its own with the same deadline, which it keeps for every move and iteration of the search.
+	 * @param board The current state of the game.
+	 * @param depth The number of plies to search, counting the root move.
+	 * @param first The move to try first, or null to use the usual ordering.
+	 * @return The best move and its score.
+	 * @throws SearchTimeoutException Thrown if the deadline passes before the search is finished.
 	 */
-	public PieceType GetOpponentPieceType()
+	protected Pair<Vector2i,Double> SearchRootParallel(SearchContext context, ITicTacToeBoard board, int depth, Vector2i first)
+	{
+		ArrayList<Vector2i> moves = new ArrayList<Vector2i>();
+		for (Vector2i move : DistinctMoves(board, GetChildStates(board, first == null ? -1 : first.Y * board.Width() + first.X)))
+			moves.add(move);
+		
+		if (moves.isEmpty())
+			throw new NullPointerException("AI was unable to get next move.");
+		
+		// The eldest is searched with a full window, so its score is exact and a safe bound for everyone else
+		double eldest = SearchRootMove(context, board, moves.get(0), depth, Double.NEGATIVE_INFINITY);
+		AtomicLong alpha = new AtomicLong(Double.doubleToLongBits(eldest));
+		
+		ArrayList<ForkJoinTask<double[]>> tasks = new ArrayList<ForkJoinTask<double[]>>(moves.size());
+		for (int i = 1; i < moves.size(); i++)
+		{
+			Vector2i move = moves.get(i);
+			
+			tasks.add(Pool.submit(() -> {
+				double bound = Double.longBitsToDouble(alpha.get());
+				RootWorker worker = RootWorker(context, board);
+				double score;
+				
+				// A worker unwound by an exception may not have its board back where it was, so it is not reused
+				try {
+					score = SearchRootMove(worker.Context, worker.Board, move, depth, bound);
+				}
+				catch (RuntimeException e) {
+					RootWorkers.remove();
+					throw e;
+				}
+				
+				// Raise the shared bound if we beat it
+				long current;
+				while (score > Double.longBitsToDouble(current = alpha.get()))
+					if (alpha.compareAndSet(current, Double.doubleToLongBits(score)))
+						break;
+				
+				return new double[] {score, bound};
+			}));
+		}
+		
+		// Wait for every worker, even after one times out, so none of them are left running on a board we are done with
+		double best_score = eldest;
+		Vector2i best_move = moves.get(0);
+		RuntimeException failure = null;
+		
+		for (int i = 0; i < tasks.size(); i++)
+		{
+			double[] result;
+			
+			try {
+				result = tasks.get(i).join();
+			}
+			catch (RuntimeException e) {
+				failure = e;
+				continue;
+			}
+			
+			// A score no better than the bound it was searched with is only an upper bound, so it can never be the best
+			if (result[0] > result[1] && result[0] > best_score) {
+				best_score = result[0];
+				best_move = moves.get(i + 1);
+			}
+		}
+		
+		if (failure != null)
+			throw failure;
+		
+		return new Pair<Vector2i,Double>(best_move, best_score);
+	}
+	
+	/**
+	 * Search every move from the root to a fixed depth by principal variation search.
+	 * The first move is searched over the window it is given. Every other move is only tested to see if it beats the best so far, and searched properly if it does.
+	 * @param context The state of the thread doing the search.
+	 * @param board The current state of the game.
+	 * @param depth The number of plies to search, counting the root move.
+	 * @param first The move to try first, or null to use the usual ordering.
+	 * @param alpha The score the best move must beat. If none do, the score returned is at most this and the move is only the best guess.
+	 * @param beta The score at which to stop looking, since the opponent would never allow it. If a move gets this, the score returned is at least this.
+	 * @return The best move and its int score for us.
+	 * @throws SearchTimeoutException Thrown if the deadline passes before the search is finished.
+	 */
+	protected Pair<Vector2i,Double> SearchRootPvs(SearchContext context, ITicTacToeBoard board, int depth, Vector2i first, int alpha, int beta)
+	{
+		int best_score = -INFINITE_SCORE;
+		Vector2i best_move = null;
+		int first_cell = first == null ? -1 : first.Y * board.Width() + first.X;
+		
+		for (Vector2i move : DistinctMoves(board, GetChildStates(context, board, first_cell)))
+		{
+			ITicTacToeBoard child = Play(board, GetPieceType(), move);
+			int score;
+			
+			try {
+				if (best_move == null)
+					score = -Pvs(context, child, depth - 1, -beta, -alpha, GetOpponentPieceType());
+				else {
+					score = -Pvs(context, child, depth - 1, -alpha - 1, -alpha, GetOpponentPieceType());
+					
+					if (score > alpha && score < beta)
+						score = -Pvs(context, child, depth - 1, -beta, -alpha, GetOpponentPieceType());
+				}
+			}
+			finally {
+				Unplay(board);
+			}
+			
+			if (score > best_score || best_move == null) {
+				best_score = score;
+				best_move = move;
+			}
+			
+			alpha = Math.max(alpha, score);
+			if (alpha >= beta)
+				break;
+		}
+		
+		if (best_move == null)
+			throw new NullPointerException("AI was unable to get next move.");
+		return new Pair<Vector2i,Double>(best_move, (double)best_score);
+	}
+	
+	/**
+	 * Search a single move from the root.
+	 * @param context The state of the thread doing the search.
+	 * @param board The current state of the game. It is returned to this state afterwards.
+	 * @param move The move to search.
+	 * @param depth The number of plies to search, counting {@code move}.
+	 * @param alpha A score the move must beat to matter. Scores at or below this are only upper bounds.
+	 * @return The score of the move.
+	 */
+	protected double SearchRootMove(SearchContext context, ITicTacToeBoard board, Vector2i move, int depth, double alpha)
+	{
+		ITicTacToeBoard child = Play(board, GetPieceType(), move);
+		
+		try {
+			return Minimax(context, child, depth - 1, alpha, Double.POSITIVE_INFINITY, false);
+		}
+		finally {
+			Unplay(board);
+		}
+	}
+	
+	/**
+	 * Get a random valid move on the board.
+	 * @param state The board to use.
+	 * @return A valid move on the board, chosen randomly.
+	 */
+	public Vector2i GetRandomMove(ITicTacToeBoard board)
+	{
+		Iterable<Vector2i> open = LINQ.Where(board.IndexSet(), t -> board.IsCellEmpty(t));
+		ArrayList<Vector2i> playable = new ArrayList<Vector2i>();
+		for (Vector2i pos : open)
+			playable.add(pos);
+		
+        Random rand = new Random();
+        return playable.get(rand.nextInt(playable.size()));		
+	}
+	
+	/**
+	 * Perform the minimax algorithm and return the best value.
+	 * @param state The current state of the board.
+	 * @param depth The depth to search.
+	 * @param alpha The current best maximum.
+	 * @param beta The current worst minimum.
+	 * @param maximizing Whether we start by maximizing or by minimizing
+	 * @return The min or max value available from this board state.
+	 */
+	protected double Minimax(ITicTacToeBoard state, int depth, double alpha, double beta, boolean maximizing)
+	{return Minimax(new SearchContext(0, 0), state, depth, alpha, beta, maximizing);}
+	
+	/**
+	 * Perform the minimax algorithm and return the best value.
+	 * @param context The state of the thread doing the search.
+	 * @param state The current state of the board.
+	 * @param depth The depth to search.
+	 * @param alpha The current best maximum.
+	 * @param beta The current worst minimum.
+	 * @param maximizing Whether we start by maximizing or by minimizing
+	 * @return The min or max value available from this board state.
+	 * @throws SearchTimeoutException Thrown if the context's deadline passes or it is told to stop.
+	 */
+	protected double Minimax(SearchContext context, ITicTacToeBoard state, int depth, double alpha, double beta, boolean maximizing)
+	{
+		if (depth == 0 || state.IsFinished()) {
+			context.Leaves++;
+			return StaticEvalutation(state);
+		}
+		
+		if (context.ShouldStop())
+			throw new SearchTimeoutException();
+		
+		// The same position is often reached by several move orders, so see if we already know about it
+		double alphaOriginal = alpha;
+		double betaOriginal = beta;
+		int tableMove = -1;
+		long entry = Table == null ? TranspositionTable.MISS : Table.Probe(TableKey(state));
+		
+		if (Table != null)
+			context.Probes++;
+		
+		if (entry != TranspositionTable.MISS) {
+			context.Hits++;
+			tableMove = TableMove(state, TranspositionTable.Move(entry), false);
+			
+			if (TranspositionTable.Depth(entry) >= depth) {
+				double score = TranspositionTable.Score(entry);
+				
+				switch (TranspositionTable.Bound(entry))
+				{
+				case TranspositionTable.EXACT:
+					return score;
+				case TranspositionTable.LOWER:
+					alpha = Double.max(alpha, score);
+					break;
+				case TranspositionTable.UPPER:
+					beta = Double.min(beta, score);
+					break;
+				}
+				
+				if (beta <= alpha)
+					return score;
+			}
+		}
+		
+		double bestEval;
+		int bestMove = -1;
+		PieceType piece = maximizing ? GetPieceType() : GetOpponentPieceType();
+		int ply = state.Count();
+		int[] moves = context.Moves(ply, state.Size());
+		int[] keys = context.MoveKeys(ply, state.Size());
+		int count = GenerateMoves(context, state, piece, tableMove, moves, keys);
+		
+		// Just above the leaves, quiet moves can only move the evaluation so far, so if that isn't far enough to matter they aren't worth playing
+		double futility = Double.NaN;
+		if (UseFutilityPruning && depth == 1 && state instanceof BitBoard && state.Size() - state.Count() > 1) {
+			double eval = StaticEvalutation(state);
+			double margin = FutilityMargin(state);
+			
+			if (maximizing ? eval + margin <= alpha : eval - margin >= beta)
+				futility = maximizing ? eval + margin : eval - margin;
+		}
+		
+		if (maximizing) {
+			bestEval = Double.NEGATIVE_INFINITY;
+			
+			// For each child position, recursively find the move that helps the AI most
+			for (int i = 0; i < count; i++) {
+				int next = NextMove(moves, keys, i, count);
+				
+				// A pruned move is only known to be no better than the futility bound, so that is all it counts for
+				if (!Double.isNaN(futility) && keys[i] != Integer.MAX_VALUE && IsQuiet(state, next)) {
+					bestEval = Double.max(bestEval, futility);
+					continue;
+				}
+				
+				int reduction = Reduction(state, next, depth, i, keys[i]);
+				ITicTacToeBoard child = Play(state, piece, next);
+				double eval;
+				try {
+					eval = Minimax(context, child, depth-1-reduction, alpha, beta, false);
+					
+					// A reduced search that looks good might be wrong, so make sure
+					if (reduction > 0 && eval > alpha)
+						eval = Minimax(context, child, depth-1, alpha, beta, false);
+				}
+				finally {
+					Unplay(state);
+				}
+				
+				if (eval > bestEval || bestMove < 0 && eval >= bestEval) {
+					bestEval = eval;
+					bestMove = next;
+				}
+				// If we did too well the minimizer will never choose this, prune
+				alpha = Double.max(alpha, bestEval);
+				if (beta <= alpha) {
+					CountCutoff(context, piece, next, ply, depth, i + 1);
+					break;
+				}
+			}
+		}
+		else {
+			bestEval = Double.POSITIVE_INFINITY;
+			
+			// For each child position, recursively find the move that hurts the AI most
+			for (int i = 0; i < count; i++) {
+				int next = NextMove(moves, keys, i, count);
+				
+				if (!Double.isNaN(futility) && keys[i] != Integer.MAX_VALUE && IsQuiet(state, next)) {
+					bestEval = Double.min(bestEval, futility);
+					continue;
+				}
+				
+				int reduction = Reduction(state, next, depth, i, keys[i]);
+				ITicTacToeBoard child = Play(state, piece, next);
+				double eval;
+				try {
+					eval = Minimax(context, child, depth-1-reduction, alpha, beta, true);
+					
+					if (reduction > 0 && eval < beta)
+						eval = Minimax(context, child, depth-1, alpha, beta, true);
+				}
+				finally {
+					Unplay(state);
+				}
+				
+				if (eval < bestEval || bestMove < 0 && eval <= bestEval) {
+					bestEval = eval;
+					bestMove = next;
+				}
+				// If we did too poorly the maximizer will never choose this, prune
+				beta = Double.min(beta, bestEval);
+				if (beta <= alpha) {
+					CountCutoff(context, piece, next, ply, depth, i + 1);
+					break;
+				}
+			}
+		}
+		
+		// A result outside the window we were given is only a bound on the true value
+		if (Table != null) {
+			int bound = TranspositionTable.EXACT;
+			if (bestEval <= alphaOriginal)
+				bound = TranspositionTable.UPPER;
+			else if (bestEval >= betaOriginal)
+				bound = TranspositionTable.LOWER;
+			
+			Table.Store(TableKey(state), bestEval, TableMove(state, bestMove, true), depth, bound);
+		}
+		
+		return bestEval;
+	}
+	
+	/**
+	 * Perform principal variation search (negamax alpha-beta with null windows) and return the value of {@code state} for the player to move.
+	 * The first move, which the ordering says is most likely best, is searched over the full window. Every other move is searched over a null window, which only tells whether it beats the best so far and so prunes far more, and only if it does is it searched again over the full window.
+	 * Scores are ints. A won position is worth {@code WIN_SCORE} minus the number of stones on the board when the game ends, so quicker wins are worth more and slower losses less. The static evaluation is kept within {@code MAX_EVALUATION}, well clear of those.
+	 * Since the score of a win depends on the stones on the board and not on the path to it, won positions go into the transposition table as they are.
+	 * @param context The state of the thread doing the search.
+	 * @param state The current state of the board.
+	 * @param depth The depth to search.
+	 * @param alpha The score the player to move already has elsewhere. A result at or below this is only an upper bound.
+	 * @param beta The score the opponent already has elsewhere. A result at or above this is only a lower bound.
+	 * @param piece The piece of the player to move.
+	 * @return The value of the position for the player to move.
+	 * @throws SearchTimeoutException Thrown if the context's deadline passes or it is told to stop.
+	 */
+	protected int Pvs(SearchContext context, ITicTacToeBoard state, int depth, int alpha, int beta, PieceType piece)
+	{
+		if (state.IsFinished()) {
+			context.Leaves++;
+			
+			if (state.Victor() == tictactoe.model.Player.NEITHER)
+				return 0;
+			
+			int win = WIN_SCORE - state.Count();
+			return state.Victor() == (piece == PieceType.CROSS ? tictactoe.model.Player.CROSS : tictactoe.model.Player.CIRCLE) ? win : -win;
+		}
+		
+		if (depth == 0) {
+			context.Leaves++;
+			return Evaluate(state, piece);
+		}
+		
+		if (context.ShouldStop())
+			throw new SearchTimeoutException();
+		
+		int alphaOriginal = alpha;
+		int tableMove = -1;
+		long entry = Table == null ? TranspositionTable.MISS : Table.Probe(TableKey(state));
+		
+		if (Table != null)
+			context.Probes++;
+		
+		if (entry != TranspositionTable.MISS) {
+			context.Hits++;
+			tableMove = TableMove(state, TranspositionTable.Move(entry), false);
+			
+			if (TranspositionTable.Depth(entry) >= depth) {
+				int score = (int)TranspositionTable.Score(entry);
+				
+				switch (TranspositionTable.Bound(entry))
+				{
+				case TranspositionTable.EXACT:
+					return score;
+				case TranspositionTable.LOWER:
+					alpha = Math.max(alpha, score);
+					break;
+				case TranspositionTable.UPPER:
+					beta = Math.min(beta, score);
+					break;
+				}
+				
+				if (beta <= alpha)
+					return score;
+			}
+		}
+		
+		int betaOriginal = beta;
+		int best = -INFINITE_SCORE;
+		int bestMove = -1;
+		PieceType other = piece == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+		int ply = state.Count();
+		int[] moves = context.Moves(ply, state.Size());
+		int[] keys = context.MoveKeys(ply, state.Size());
+		int count = GenerateMoves(context, state, piece, tableMove, moves, keys);
+		
+		// Only possible if every cell near a stone is full, in which case there's nothing worth looking at
+		if (count == 0)
+			return Evaluate(state, piece);
+		
+		int futility = -INFINITE_SCORE;
+		if (UseFutilityPruning && depth == 1 && state instanceof BitBoard && state.Size() - state.Count() > 1) {
+			int bound = Evaluate(state, piece) + (int)FutilityMargin(state);
+			
+			if (bound <= alpha)
+				futility = bound;
+		}
+		
+		for (int i = 0; i < count; i++)
+		{
+			int next = NextMove(moves, keys, i, count);
+			
+			if (futility > -INFINITE_SCORE && keys[i] != Integer.MAX_VALUE && IsQuiet(state, next)) {
+				best = Math.max(best, futility);
+				continue;
+			}
+			
+			int reduction = Reduction(state, next, depth, i, keys[i]);
+			ITicTacToeBoard child = Play(state, piece, next);
+			int score;
+			
+			try {
+				if (i == 0)
+					score = -Pvs(context, child, depth - 1, -beta, -alpha, other);
+				else {
+					score = -Pvs(context, child, depth - 1 - reduction, -alpha - 1, -alpha, other);
+					
+					if (reduction > 0 && score > alpha)
+						score = -Pvs(context, child, depth - 1, -alpha - 1, -alpha, other);
+					
+					// It beat the best so far, so find out by how much
+					if (score > alpha && score < beta)
+						score = -Pvs(context, child, depth - 1, -beta, -alpha, other);
+				}
+			}
+			finally {
+				Unplay(state);
+			}
+			
+			if (score > best) {
+				best = score;
+				bestMove = next;
+			}
+			
+			alpha = Math.max(alpha, score);
+			if (alpha >= beta) {
+				CountCutoff(context, piece, next, ply, depth, i + 1);
+				break;
+			}
+		}
+		
+		if (Table != null) {
+			int bound = TranspositionTable.EXACT;
+			if (best <= alphaOriginal)
+				bound = TranspositionTable.UPPER;
+			else if (best >= betaOriginal)
+				bound = TranspositionTable.LOWER;
+			
+			Table.Store(TableKey(state), best, TableMove(state, bestMove, true), depth, bound);
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Determine if a move is quiet: if it neither extends a line of its player's nor blocks one of the opponent's that is within two stones of winning.
+	 * With the pattern evaluation, a move is also loud if it closes off the end of such a line, since that changes its pattern.
+	 * Only a bitboard counts its windows, so on any other board no move is quiet.
+	 */
+	protected boolean IsQuiet(ITicTacToeBoard state, int cell)
+	{
+		if (!(state instanceof BitBoard))
+			return false;
+		
+		WindowCounts windows = ((BitBoard)state).Windows();
+		int threat = state.WinningLength() - 2;
+		
+		if (!IsQuiet(windows, windows.WindowsThrough(cell), threat))
+			return false;
+		
+		PatternScores patterns = Patterns(state);
+		return patterns == null || IsQuiet(windows, patterns.WindowsEndingAt(cell), threat);
+	}
+	
+	/**
+	 * Determine if none of {@code through} holds {@code threat} or more stones of one player and none of the other's.
+	 */
+	protected static boolean IsQuiet(WindowCounts windows, int[] through, int threat)
+	{
+		for (int w : through)
+		{
+			int crosses = windows.Count(w, PieceType.CROSS);
+			int circles = windows.Count(w, PieceType.CIRCLE);
+			
+			if (crosses >= threat && circles == 0 || circles >= threat && crosses == 0)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Obtain the most a quiet move can change the static evaluation of {@code state} by.
+	 * A quiet move only touches windows with at most {@code WinningLength() - 3} stones of one player, each of which it changes by at most the weight of that many stones (or by 1 for an empty window), and at most {@code 4 * WinningLength()} windows pass through a cell.
+	 * With patterns, each window through the cell can end up with {@code WinningLength() - 2} stones, and the (at most eight) windows the cell ends change too, so the bound comes from the most those patterns are worth instead.
+	 * A neural network's score has no such bound for one move, so its margin is the most any two of its scores differ by, which leaves futility pruning with next to nothing to prune.
+	 * Either way, futility pruning with this margin never changes the result of the search, only how much of the tree it visits.
+	 * (Filling the last cell is the exception, since it ends the game in a draw, so futility pruning is never done there.)
+	 */
+	protected double FutilityMargin(ITicTacToeBoard state)
+	{
+		if (Accumulator(state) != null)
+			return Math.ceil(NEURAL_SCALE * Network.Bound()) + 1;
+		
+		int k = state.WinningLength();
+		PatternScores patterns = Patterns(state);
+		
+		if (patterns != null)
+			return 4 * k * patterns.Table().MaxValue(Math.max(1, k - 2)) + 8 * patterns.Table().MaxValue(k - 3);
+		
+		return 4 * k * Math.max(1, WindowCounts.Weight(k - 3));
+	}
+	
+	/**
+	 * Obtain the patterns of {@code state} if it is to be evaluated by them, or null if it is to be evaluated by its windows.
+	 */
+	protected PatternScores Patterns(ITicTacToeBoard state)
+	{return Evaluator == Evaluation.PATTERNS && state instanceof BitBoard ? ((BitBoard)state).Patterns() : null;}
+	
+	/**
+	 * Obtain the first layer of the neural network for {@code state} if it is to be evaluated by the network, or null if it is to be evaluated some other way.
+	 */
+	protected NeuralAccumulator Accumulator(ITicTacToeBoard state)
+	{
+		NeuralNetwork network = Network;
+		return Evaluator == Evaluation.NEURAL && network != null && state instanceof BitBoard ? ((BitBoard)state).Accumulator(network) : null;
+	}
+	
+	/**
+	 * Obtain how many plies less than usual to search a move, which is one for late quiet moves when late move reductions are on and zero otherwise.
+	 * The first {@code LMR_MOVES} moves, the transposition table move, and the killer moves are never reduced, and nor is anything with less than {@code LMR_DEPTH} plies to go.
+	 * @param state The position the move is made in.
+	 * @param cell The int index of the move.
+	 * @param depth The depth left to search from {@code state}.
+	 * @param i The number of moves tried before this one.
+	 * @param key The ordering key of the move.
+	 */
+	protected int Reduction(ITicTacToeBoard state, int cell, int depth, int i, int key)
+	{return UseLateMoveReductions && depth >= LMR_DEPTH && i >= LMR_MOVES && key < MoveOrdering.KILLER - 1 && IsQuiet(state, cell) ? 1 : 0;}
+	
+	/**
+	 * Evaluate a position that isn't over as an int score for {@code piece}, for {@code Pvs}.
+	 * This is the static evaluation, turned around for the opponent and kept within {@code MAX_EVALUATION}.
+	 */
+	protected int Evaluate(ITicTacToeBoard state, PieceType piece)
+	{
+		double score = StaticEvalutation(state);
+		
+		if (piece != GetPieceType())
+			score = -score;
+		
+		return (int)Math.max(-MAX_EVALUATION, Math.min(MAX_EVALUATION, Math.round(score)));
+	}
+	
+	/**
+	 * Determines if an int score says the game is won or lost, rather than being an evaluation.
+	 */
+	protected static boolean IsDecided(int score)
+	{return Math.abs(score) > MAX_EVALUATION;}
+	
+	/**
+	 * Count a cutoff and remember the move that made it, so that it is tried sooner next time.
+	 * @param context The state of the thread doing the search.
+	 * @param piece The piece of the player who made the move.
+	 * @param cell The int index of the move.
+	 * @param ply The number of stones on the board before the move.
+	 * @param depth The depth left to search below the position the move was made in.
+	 * @param tried The number of moves tried, counting this one.
+	 */
+	protected void CountCutoff(SearchContext context, PieceType piece, int cell, int ply, int depth, int tried)
+	{
+		context.Cutoffs++;
+		
+		if (tried == 1)
+			context.FirstCutoffs++;
+		
+		MoveOrdering ordering = Ordering;
+		if (UseMoveOrdering && ordering != null && ordering.Cells() > cell)
+			ordering.Cutoff(piece, cell, ply, depth);
+	}
+	
+	/**
+	 * Write every move the search should consider into {@code moves}, along with a key for each saying how early it should be tried.
+	 * The transposition table move goes first, then the killer moves, then the rest by their history. Without move ordering only the table move is moved up.
+	 * Nothing is allocated unless the board has no stones or the search looks at every cell, when the moves come from {@code GetChildStates(state)}.
+	 * @param context The state of the thread doing the search. Helper threads start from a different order to everyone else, so that they explore the tree differently.
+	 * @param state The current board state.
+	 * @param piece The piece of the player to move.
+	 * @param first The int index of the move to try first, or -1.
+	 * @param moves Where to write the moves, which must have room for every cell.
+	 * @param keys Where to write the keys, which must have room for every cell.
+	 * @return Returns the number of moves.
+	 */
+	protected int GenerateMoves(SearchContext context, ITicTacToeBoard state, PieceType piece, int first, int[] moves, int[] keys)
+	{
+		int count = 0;
+		
+		if (CandidateDistance > 0 && state instanceof BitBoard && state.Count() > 0) {
+			CandidateSet candidates = ((BitBoard)state).Candidates(CandidateDistance);
+			
+			for (int i = 0; i < candidates.Size(); i++)
+				moves[count++] = candidates.Get(i);
+		}
+		else
+			for (Vector2i move : GetChildStates(state))
+				moves[count++] = move.Y * state.Width() + move.X;
+		
+		if (UseDeadCellPruning && state instanceof BitBoard)
+			count = PruneDeadCells((BitBoard)state, moves, count);
+		
+		// Rotate by reversing each part and then the whole
+		if (context.Variation != 0 && count >= 3) {
+			int shift = context.Variation % count;
+			Reverse(moves, 0, shift);
+			Reverse(moves, shift, count);
+			Reverse(moves, 0, count);
+		}
+		
+		MoveOrdering ordering = UseMoveOrdering ? Ordering : null;
+		if (ordering != null && ordering.Cells() != state.Size())
+			ordering = null;
+		
+		for (int i = 0; i < count; i++)
+			keys[i] = moves[i] == first ? Integer.MAX_VALUE : ordering == null ? 0 : ordering.Score(piece, moves[i], state.Count());
+		
+		return count;
+	}
+	
+	/**
+	 * Drop every move to a dead cell, one that every line through holds stones of both players.
+	 * A stone there changes nothing, and an extra stone never hurts in this game, so any other move is at least as good.
+	 * If every move is dead they are all kept, so that there is still something to play; the board is drawn or nearly so by then anyway.
+	 * @param board The current board state.
+	 * @param moves The moves, as int indices, which are compacted in place keeping their order.
+	 * @param count The number of moves.
+	 * @return Returns the number of moves left.
+	 */
+	protected static int PruneDeadCells(BitBoard board, int[] moves, int count)
+	{
+		WindowCounts windows = board.Windows();
+		int live = 0;
+		
+		for (int i = 0; i < count; i++)
+			if (!windows.IsDead(moves[i]))
+				moves[live++] = moves[i];
+		
+		// Nothing was written over unless some move was live, so the original moves are still there if not
+		return live == 0 ? count : live;
+	}
+	
+	/**
+	 * Bring the move with the highest key among those from {@code i} on to {@code i}, and return it.
+	 * Picking one move at a time is cheaper than sorting them all, since a cutoff usually comes after only a few.
+	 * Of moves with the same key, the first is picked, so the order moves were generated in breaks ties.
+	 */
+	protected static int NextMove(int[] moves, int[] keys, int i, int count)
+	{
+		int best = i;
+		
+		for (int j = i + 1; j < count; j++)
+			if (keys[j] > keys[best])
+				best = j;
+		
+		int move = moves[best];
+		int key = keys[best];
+		
+		// Shift the moves in between along rather than swapping, so that the order of the rest is kept
+		for (int j = best; j > i; j--) {
+			moves[j] = moves[j - 1];
+			keys[j] = keys[j - 1];
+		}
+		
+		moves[i] = move;
+		keys[i] = key;
+		return move;
+	}
+	
+	/**
+	 * Reverse {@code cells} from {@code from} up to {@code to}.
+	 */
+	protected static void Reverse(int[] cells, int from, int to)
+	{
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			int t = cells[i];
+			cells[i] = cells[j];
+			cells[j] = t;
+		}
+	}
+	
+	/**
+	 * Evaluate a state and return the value of that state.
+	 * A positive value indicates that this AI is doing better, a negative value that this AI is doing worse.
+	 * @return The goodness of the state (from -inf to inf)
+	 */
+	protected double StaticEvalutation(ITicTacToeBoard state)
+	{
+		/*
+		 * If state is finished, return a value based on who (if anyone) won
+		 */
+		if (state.IsFinished())
+		{
+			if (state.Victor().equals(GetPlayer()))
+				return Double.POSITIVE_INFINITY;
+			else if (state.Victor().equals(tictactoe.model.Player.NEITHER))
+				return 0;
+			else
+				return Double.NEGATIVE_INFINITY;
+		}
+		
+		// Reward every window we could still win with, and penalize every one the opponent could.
+		// The search's boards keep these counts (and the patterns, once asked for) up to date as moves are made, so this costs nothing for them.
+		BitBoard bits = state instanceof BitBoard ? (BitBoard)state : new BitBoard(state);
+		NeuralAccumulator accumulator = Accumulator(bits);
+		
+		if (accumulator != null)
+			return Math.round(NEURAL_SCALE * accumulator.Score(GetPieceType()));
+		
+		PatternScores patterns = Patterns(bits);
+		
+		if (patterns != null)
+			return patterns.Score(GetPieceType());
+		
+		// The scanner finds the same score from scratch, which is the slower way on the search's boards but keeps nothing up to date
+		return UseWindowScanner ? bits.Scanner().Score(GetPieceType()) : bits.Windows().Score(GetPieceType());
+	}
+	
+	/**
+	 * Obtain a bitboard copy of {@code board} for the search to play on, which checks for wins the way {@code GetWindowScanner()} says to.
+	 */
+	protected BitBoard SearchBoard(ITicTacToeBoard board)
+	{
+		BitBoard bits = new BitBoard(board);
+		bits.SetScannedWins(UseWindowScanner);
+		
+		return bits;
+	}
+	
+	/**
+	 * Return an iterator containing all the possible positions to play from the current state. 
+	 * Moves that are the most likely to be useful are returned first, to help with alpha/beta pruning.
+	 * @param board The current board state.
+	 * @return Iterable over all empty cells in the board
+	 */
+	public Iterable<Vector2i> GetChildStates(ITicTacToeBoard board)
+	{
+		// Far away cells are almost never worth a thought, so only look near the action when we're allowed to
+		if (CandidateDistance > 0 && board instanceof BitBoard)
+			return PruneDeadCells(board, GetCandidateMoves((BitBoard)board));
+		
+		LinkedList<Vector2i> childStates = new LinkedList<Vector2i>();
+		
+		/*
+		 * Locate and add the centermost square(s) first
+		 */
+		
+		Vector2i pos;
+		
+		// Width and height of the center of the board depend on if dimensions are even or odd.
+		int centerWidth = (board.Width() % 2 == 0) ? 2 : 1;
+		int centerHeight = (board.Height() % 2 == 0) ? 2 : 1;
+
+		// The position that the center of the board starts.
+		int centerXStart = (board.Width() - centerWidth) / 2;
+		int centerYStart = (board.Height() - centerHeight) / 2;
+
+		// The position that the center of the board ends (not inclusive)
+		int centerXEnd = centerXStart + centerWidth;
+		int centerYEnd = centerYStart + centerHeight;
+		
+		// Add all the center squares to the linked list
+		for (int x = centerXStart; x < centerXEnd; x++)
+		{
+			for (int y = centerYStart; y < centerYEnd; y++)
+			{
+				pos = new Vector2i(x, y);
+				if (board.IsCellEmpty(pos))
+					childStates.add(pos);
+			}
+		}
+		
+		/*
+		 * Add the squares at the corners of the grid if they are available.
+		 */
+		ArrayList<Vector2i> corners = new ArrayList<Vector2i>(4);
+		corners.add(new Vector2i(0, 0));
+		corners.add(new Vector2i(board.Width() - 1, 0));
+		corners.add(new Vector2i(0, board.Height() - 1));
+		corners.add(new Vector2i(board.Width() - 1, board.Height() - 1));
+		
+		for (Vector2i corner : corners) {
+			if (board.IsCellEmpty(corner))
+				childStates.add(corner);
+		}
+	
+		/*
+		 * Add the other squares in the grid, not caring as much about the order now.
+		 */
+		for (int x = 0; x < board.Width(); x++)
+		{
+			for (int y = 0; y < board.Height(); y++)
+			{
+				// Don't add corners or center twice
+				if ((x >= centerXStart && x < centerXStart + centerWidth) && (y >= centerYStart && y < centerYStart + centerHeight))
+					continue;
+				if ((x == 0 || x == board.Width() - 1) && (y == 0 || y == board.Height() - 1))
+					continue;
+				pos = new Vector2i(x, y);
+				if (board.IsCellEmpty(pos))
+					childStates.add(pos);
+			}
+		}
+		
+		return PruneDeadCells(board, childStates);
+	}
+	
+	/**
+	 * Drop every move to a dead cell from {@code moves}, as {@code PruneDeadCells(BitBoard, int[], int)} does, if dead cell pruning is on and {@code board} is a bitboard.
+	 * @param board The current board state.
+	 * @param moves The moves, which are filtered in place.
+	 * @return Returns {@code moves}.
+	 */
+	protected LinkedList<Vector2i> PruneDeadCells(ITicTacToeBoard board, LinkedList<Vector2i> moves)
+	{
+		if (!UseDeadCellPruning || !(board instanceof BitBoard))
+			return moves;
+		
+		BitBoard bits = (BitBoard)board;
+		WindowCounts windows = bits.Windows();
+		
+		for (Vector2i move : moves)
+			if (!windows.IsDead(bits.Cell(move.X, move.Y))) {
+				moves.removeIf(m -> windows.IsDead(bits.Cell(m.X, m.Y)));
+				break;
+			}
+		
+		return moves;
+	}
+	
+	/**
+	 * Return the empty cells within {@code GetCandidateDistance()} of a stone.
+	 * This takes time proportional to the number of candidates, not to the size of the board, since the board keeps the candidates up to date as moves are made.
+	 * On an empty board there are no stones to be near, so the centermost cell(s) are the only candidates.
+	 * @param board The current board state.
+	 * @return The candidate moves.
+	 */
+	protected LinkedList<Vector2i> GetCandidateMoves(BitBoard board)
+	{
+		LinkedList<Vector2i> childStates = new LinkedList<Vector2i>();
+		
+		if (board.Count() == 0) {
+			for (int x = (board.Width() - 1) / 2; x <= board.Width() / 2; x++)
+				for (int y = (board.Height() - 1) / 2; y <= board.Height() / 2; y++)
+					childStates.add(new Vector2i(x, y));
+			
+			return childStates;
+		}
+		
+		CandidateSet candidates = board.Candidates(CandidateDistance);
+		
+		for (int i = 0; i < candidates.Size(); i++)
+		{
+			int cell = candidates.Get(i);
+			childStates.add(new Vector2i(board.X(cell), board.Y(cell)));
+		}
+		
+		return childStates;
+	}
+	
+	/**
+	 * Drop every move that leads to a position symmetric to one an earlier move leads to, since they are worth exactly the same.
+	 * This only happens with symmetry on, and only matters on symmetric positions, which are mostly those early in the game.
+	 * @param board The current board state.
+	 * @param moves The moves to filter, in the order they should be tried.
+	 * @return The moves left, in the same order.
+	 */
+	protected Iterable<Vector2i> DistinctMoves(ITicTacToeBoard board, Iterable<Vector2i> moves)
+	{
+		if (!UseSymmetry || !(board instanceof BitBoard))
+			return moves;
+		
+		BitBoard bits = (BitBoard)board;
+		int[] cells = new int[bits.Size()];
+		int size = 0;
+		
+		for (Vector2i move : moves)
+			cells[size++] = bits.Cell(move.X, move.Y);
+		
+		size = bits.Symmetries().Distinct(cells, size);
+		LinkedList<Vector2i> distinct = new LinkedList<Vector2i>();
+		
+		for (int i = 0; i < size; i++)
+			distinct.add(ToVector(board, cells[i]));
+		
+		return distinct;
+	}
+	
+	/**
+	 * Obtain the key {@code state} is filed under in the transposition table.
+	 * With symmetry on, every position symmetric to {@code state} is filed under the same key, so that what is learned about one is shared by all of them.
+	 */
+	protected long TableKey(ITicTacToeBoard state)
+	{return UseSymmetry && state instanceof BitBoard ? ((BitBoard)state).CanonicalHash() : state.Hash();}
+	
+	/**
+	 * Convert a move on {@code state} into the orientation its position is filed under in the transposition table, or back again.
+	 * @param state The position the move is made on.
+	 * @param move The int index of the move, or -1.
+	 * @param to_table True to convert a move on {@code state} for storing, or false to convert a stored move back for playing on {@code state}.
+	 * @return The converted move, or -1 if {@code move} is -1.
+	 */
+	protected int TableMove(ITicTacToeBoard state, int move, boolean to_table)
+	{
+		if (move < 0 || !UseSymmetry || !(state instanceof BitBoard))
+			return move;
+		
+		SymmetricHashes symmetries = ((BitBoard)state).Symmetries();
+		int t = symmetries.CanonicalTransform();
+		return to_table ? symmetries.Map(t, move) : symmetries.Unmap(t, move);
+	}
+	
+	/**
+	 * Return every possible position to play from the current state, as {@code GetChildStates(board)} does, but with one move tried first.
+	 * @param board The current board state.
+	 * @param first The int index ({@code y * Width() + x}) of the move to put first, typically the best move found by an earlier search. If this is -1 or not an empty cell, the order is unchanged.
+	 * @return Iterable over all empty cells in the board.
+	 */
+	public Iterable<Vector2i> GetChildStates(ITicTacToeBoard board, int first)
+	{
+		LinkedList<Vector2i> childStates = (LinkedList<Vector2i>)GetChildStates(board);
+		
+		if (first < 0)
+			return childStates;
+		
+		Vector2i move = new Vector2i(first % board.Width(), first / board.Width());
+		if (childStates.remove(move))
+			childStates.addFirst(move);
+		
+		return childStates;
+	}
+	
+	/**
+	 * Return every possible position to play from the current state in the order the thread owning {@code context} should try them.
+	 * Helper threads keep {@code first} first but rotate the moves after it, each by a different amount, so that they explore the tree in a different order to everyone else.
+	 * @param context The state of the thread doing the search.
+	 * @param board The current board state.
+	 * @param first The int index of the move to put first, or -1.
+	 * @return Iterable over all empty cells in the board.
+	 */
+	protected Iterable<Vector2i> GetChildStates(SearchContext context, ITicTacToeBoard board, int first)
+	{
+		LinkedList<Vector2i> childStates = (LinkedList<Vector2i>)GetChildStates(board, first);
+		
+		if (context.Variation == 0 || childStates.size() < 3)
+			return childStates;
+		
+		Vector2i head = childStates.removeFirst();
+		for (int i = context.Variation % childStates.size(); i > 0; i--)
+			childStates.addLast(childStates.removeFirst());
+		childStates.addFirst(head);
+		
+		return childStates;
+	}
+	
+	/**
+	 * Return a copy of a board with a specified move made.
+	 * @param board The board to copy.
+	 * @param playedPiece The type of piece to play.
+	 * @param move The position at which to play.
+	 * @return A copy of the board with the specified move made. The original board will not be modified.
+	 */
+	protected ITicTacToeBoard PlayBoard(ITicTacToeBoard board, PieceType playedPiece, Vector2i move)
+	{
+		ITicTacToeBoard copy = board.Clone();
+		copy.Set(playedPiece, move);
+		return copy;
+	}
+	
+	/**
+	 * Make a move for the search, either in place or on a copy depending on {@code GetMakeUnmake()}.
+	 * Every call must be paired with a call to {@code Unplay} on the same board once the child has been searched.
+	 * @param board The board to play on.
+	 * @param playedPiece The type of piece to play.
+	 * @param move The position at which to play.
+	 * @return The board with the move made, which is {@code board} itself when making and unmaking moves.
+	 */
+	protected ITicTacToeBoard Play(ITicTacToeBoard board, PieceType playedPiece, Vector2i move)
+	{
+		if (!MakeUnmake)
+			return PlayBoard(board, playedPiece, move);
+		
+		board.Set(playedPiece, move);
+		return board;
+	}
+	
+	/**
+	 * Make a move for the search, as {@code Play} does, but given by its int index.
+	 * On a bitboard made and unmade in place this costs no allocation.
+	 */
+	protected ITicTacToeBoard Play(ITicTacToeBoard board, PieceType playedPiece, int move)
+	{
+		if (MakeUnmake && board instanceof BitBoard) {
+			((BitBoard)board).Set(playedPiece, move);
+			return board;
+		}
+		
+		return Play(board, playedPiece, ToVector(board, move));
+	}
+	
+	/**
+	 * Take back the move made by the matching call to {@code Play}.
+	 * @param board The board that was passed to {@code Play}.
+	 */
+	protected void Unplay(ITicTacToeBoard board)
+	{
+		if (MakeUnmake)
+			board.Undo();
+	}
+	
+	/**
+	 * Obtains the pool that root moves are searched on, or null if the search runs on the calling thread.
+	 */
+	public ForkJoinPool GetPool()
+	{return Pool;}
+	
+	/**
+	 * Set the pool that root moves are searched on. The number of threads the search uses is the parallelism of the pool.
+	 * @param pool The pool to search on, or null to search on the calling thread.
+	 */
+	public void SetPool(ForkJoinPool pool)
+	{Pool = pool;}
+	
+	/**
+	 * Obtains how the search is spread across the threads of {@code GetPool()}.
+	 */
+	public ParallelMode GetParallelMode()
+	{return Mode;}
+	
+	/**
+	 * Choose how the search is spread across the threads of {@code GetPool()}. This has no effect without a pool.
+	 * @throws NullPointerException Thrown if {@code mode} is null.
+	 */
+	public void SetParallelMode(ParallelMode mode)
+	{
+		if (mode == null)
+			throw new NullPointerException();
+		
+		Mode = mode;
+	}
+	
+	/**
+	 * Obtains the default time budget per move in milliseconds, or 0 if moves are searched to the full depth of the difficulty.
+	 */
+	public long GetTimeBudget()
+	{return TimeBudget;}
+	
+	/**
+	 * Set the time budget {@code GetNextMove(board)} uses for every move.
+	 * @param milliseconds The time budget in milliseconds, or 0 to always search to the full depth of the difficulty.
+	 * @throws IllegalArgumentException Thrown if {@code milliseconds} is negative.
+	 */
+	public void SetTimeBudget(long milliseconds)
+	{
+		if (milliseconds < 0)
+			throw new IllegalArgumentException("The time budget cannot be negative.");
+		
+		TimeBudget = milliseconds;
+	}
+	
+	/**
+	 * Obtains the transposition table shared by this AI's searches, or null if it is disabled or nothing has been searched yet.
+	 * Its hit rate and other statistics accumulate across moves.
+	 */
+	public TranspositionTable GetTranspositionTable()
+	{return Table;}
+	
+	/**
+	 * Obtains the memory cap of the transposition table in megabytes.
+	 */
+	public int GetTranspositionTableMegabytes()
+	{return TableMegabytes;}
+	
+	/**
+	 * Set the memory cap of the transposition table in megabytes. A cap of 0 disables the table.
+	 * The current table (and everything in it) is discarded, and a new one is created at the start of the next search.
+	 * @throws IllegalArgumentException Thrown if {@code megabytes} is negative.
+	 */
+	public void SetTranspositionTableMegabytes(int megabytes)
+	{
+		if (megabytes < 0)
+			throw new IllegalArgumentException("The transposition table cannot have negative size.");
+		
+		TableMegabytes = megabytes;
+		Table = null;
+	}
+	
+	/**
+	 * Determines if a threat search for forced wins and forced blocks is run before the full search on boards with a winning length of at least 4.
+	 */
+	public boolean GetThreatSearch()
+	{return UseThreatSearch;}
+	
+	/**
+	 * Choose whether a threat search for forced wins and forced blocks is run before the full search on boards with a winning length of at least 4.
+	 * When it finds one the move is played at once. Otherwise anything it learned is used to order the full search.
+	 */
+	public void SetThreatSearch(boolean threat_search)
+	{UseThreatSearch = threat_search;}
+	
+	/**
+	 * Obtains the largest Chebyshev distance from an existing stone that the search considers playing, or 0 if it considers every empty cell.
+	 */
+	public int GetCandidateDistance()
+	{return CandidateDistance;}
+	
+	/**
+	 * Set the largest Chebyshev distance from an existing stone that the search considers playing.
+	 * On an empty board the search still starts in the center.
+	 * @param distance The distance, or 0 to consider every empty cell.
+	 * @throws IllegalArgumentException Thrown if {@code distance} is negative.
+	 */
+	public void SetCandidateDistance(int distance)
+	{
+		if (distance < 0)
+			throw new IllegalArgumentException("The candidate distance cannot be negative.");
+		
+		CandidateDistance = distance;
+	}
+	
+	/**
+	 * Obtains the tablebase this AI plays from when it covers the board, or null if it has none.
+	 */
+	public Tablebase GetTablebase()
+	{return Endgame;}
+	
+	/**
+	 * Set a tablebase for this AI to play perfect moves from, without searching, whenever it covers the board.
+	 * This applies at every difficulty but 1, so a weaker AI should not be given one.
+	 * @param tablebase The tablebase, or null to always search.
+	 */
+	public void SetTablebase(Tablebase tablebase)
+	{Endgame = tablebase;}
+	
+	/**
+	 * Obtains the opening book this AI plays from when it covers the position, or null if it has none.
+	 */
+	public OpeningBook GetOpeningBook()
+	{return Book;}
+	
+	/**
+	 * Set an opening book for this AI to play from, without searching, whenever the position is in it.
+	 * This applies at every difficulty but 1, so a weaker AI should not be given one.
+	 * @param book The opening book, or null to always search.
+	 */
+	public void SetOpeningBook(OpeningBook book)
+	{Book = book;}
+	
+	/**
+	 * Determines if positions that are symmetric to each other are treated as one.
+	 */
+	public boolean GetSymmetry()
+	{return UseSymmetry;}
+	
+	/**
+	 * Choose whether positions that are symmetric to each other (by turning or flipping the board) are treated as one.
+	 * When they are, moves from the root that lead to symmetric positions are only searched once, and symmetric positions share their transposition table entries.
+	 */
+	public void SetSymmetry(boolean symmetry)
+	{UseSymmetry = symmetry;}
+	
+	/**
+	 * Determines if the search plays and undoes moves on a single board instead of cloning the board at every node.
+	 */
+	public boolean GetMakeUnmake()
+	{return MakeUnmake;}
+	
+	/**
+	 * Choose whether the search plays and undoes moves on a single board (the default) or clones the board at every node.
+	 * Both find the same moves, but making and unmaking moves does not allocate a board per node.
+	 */
+	public void SetMakeUnmake(boolean make_unmake)
+	{MakeUnmake = make_unmake;}
+
+	/**
+	 * Determines if the search orders moves by killer moves and history.
+	 */
+	public boolean GetMoveOrdering()
+	{return UseMoveOrdering;}
+	
+	/**
+	 * Set whether the search orders moves by killer moves and history as well as trying the transposition table move first.
+	 */
+	public void SetMoveOrdering(boolean move_ordering)
+	{UseMoveOrdering = move_ordering;}
+	
+	/**
+	 * Determines if late quiet moves are searched a ply shallower first.
+	 */
+	public boolean GetLateMoveReductions()
+	{return UseLateMoveReductions;}
+	
+	/**
+	 * Set whether late quiet moves are searched a ply shallower first, and only searched to the full depth if they turn out to beat the best so far.
+	 * This saves a lot of work on large boards, at the risk of missing a quiet move that is only good deep down.
+	 */
+	public void SetLateMoveReductions(boolean reductions)
+	{UseLateMoveReductions = reductions;}
+	
+	/**
+	 * Determines if quiet moves just above the leaves are skipped when they can't make a difference.
+	 */
+	public boolean GetFutilityPruning()
+	{return UseFutilityPruning;}
+	
+	/**
+	 * Set whether quiet moves just above the leaves are skipped when the static evaluation plus the most a quiet move can add still falls short of the window.
+	 */
+	public void SetFutilityPruning(boolean futility)
+	{UseFutilityPruning = futility;}
+	
+	/**
+	 * Determines if moves to dead cells, which no line either player could still win with passes through, are left out of the search.
+	 */
+	public boolean GetDeadCellPruning()
+	{return UseDeadCellPruning;}
+	
+	/**
+	 * Set whether moves to dead cells, which no line either player could still win with passes through, are left out of the search.
+	 * This never makes the search play worse, since such a move is never better than any other.
+	 */
+	public void SetDeadCellPruning(boolean dead_cells)
+	{UseDeadCellPruning = dead_cells;}
+	
+	/**
+	 * Determines if windows are counted from scratch by each board's {@link tictactoe.model.WindowScanner}, rather than read from the counts the boards keep up to date.
+	 */
+	public boolean GetWindowScanner()
+	{return UseWindowScanner;}
+	
+	/**
+	 * Set whether windows are counted from scratch by each board's {@link tictactoe.model.WindowScanner}, 64 at a time or a vector of words at a time when the Vector API is available, rather than read from the counts the boards keep up to date.
+	 * This applies to both the window evaluation and the check for wins after every move of the search.
+	 * The scanner finds exactly what the counts say, so this never changes the move found, only how long it takes to find it.
+	 */
+	public void SetWindowScanner(boolean scanner)
+	{UseWindowScanner = scanner;}
+	
+	/**
+	 * Obtains the algorithm the search uses.
+	 */
+	public SearchAlgorithm GetSearchAlgorithm()
+	{return Algorithm;}
+	
+	/**
+	 * Set the algorithm the search uses.
+	 * The algorithms score positions differently, so the transposition table is cleared when this changes.
+	 * Root splitting only applies to minimax. The other algorithms run on the calling thread unless the parallel mode is Lazy SMP.
+	 * @throws NullPointerException Thrown if {@code algorithm} is null.
+	 */
+	public synchronized void SetSearchAlgorithm(SearchAlgorithm algorithm)
+	{
+		if (algorithm == null)
+			throw new NullPointerException();
+		
+		if (algorithm != Algorithm && Table != null)
+			Table.Clear();
+		
+		Algorithm = algorithm;
+	}
+	
+	/**
+	 * Obtains the static evaluation the search scores positions with.
+	 */
+	public Evaluation GetEvaluation()
+	{return Evaluator;}
+	
+	/**
+	 * Set the static evaluation the search scores positions with.
+	 * The transposition table is cleared if the evaluation changes, since its scores are no longer comparable.
+	 * @throws NullPointerException Thrown if {@code evaluation} is null.
+	 */
+	public synchronized void SetEvaluation(Evaluation evaluation)
+	{
+		if (evaluation == null)
+			throw new NullPointerException();
+		
+		if (evaluation != Evaluator && Table != null)
+			Table.Clear();
+		
+		Evaluator = evaluation;
+	}
+	
+	/**
+	 * Obtains the neural network the {@code NEURAL} evaluation scores positions with, or null if it has none.
+	 */
+	public NeuralNetwork GetNetwork()
+	{return Network;}
+	
+	/**
+	 * Set the neural network the {@code NEURAL} evaluation scores positions with.
+	 * The transposition table is cleared if the network changes while it is in use, since its scores are no longer comparable.
+	 * @param network The network, or null to fall back to the window evaluation.
+	 */
+	public synchronized void SetNetwork(NeuralNetwork network)
+	{
+		if (network != Network && Evaluator == Evaluation.NEURAL && Table != null)
+			Table.Clear();
+		
+		Network = network;
+	}
+	
+	/**
+	 * Obtains the statistics of the last search that found a move, or null if there hasn't been one.
+	 */
+	public SearchStatistics GetLastStatistics()
+	{return LastStatistics;}
+	
+	/**
+	 * Obtains the stream a line of statistics is printed to after every search, or null if they aren't printed.
+	 */
+	public PrintStream GetStatisticsLog()
+	{return StatisticsLog;}
+	
+	/**
+	 * Set the stream a line of statistics is printed to after every search.
+	 * @param log The stream, such as {@code System.err}, or null to print nothing.
+	 */
+	public void SetStatisticsLog(PrintStream log)
+	{StatisticsLog = log;}
+	
+	@Override
+	public void Subscribe(IObserver<SearchStatistics> eye)
+	{
+		if (eye == null)
+			throw new NullPointerException();
+		
+		Observers.add(eye);
+	}
+	
+	@Override
+	public void Unsubscribe(IObserver<SearchStatistics> eye)
+	{
+		if (eye == null)
+			throw new NullPointerException();
+		
+		Observers.remove(eye);
+	}
+	
+	@Override
+	public Player GetPlayer() 
+	{return Player;}
+	
+	/**
+	 * Determine the type of piece that this AI will play.
+	 * @return PieceType.CIRCLE or PieceType.CROSS as corresponds with our player
+	 */
+	public PieceType GetPieceType()
+	{
+		switch (GetPlayer()) {
+		case CIRCLE:
+			return PieceType.CIRCLE;
+		case CROSS:
+			return PieceType.CROSS;
+		default:
+			throw new IllegalStateException("AI Player was neither CROSS nor CIRCLE.");
+		}
+	}
+	
+	/**
+	 * Determine the type of piece that the opponent will play.
+	 * @return PieceType.CIRCLE or PieceType.CROSS, the opposite of our player
+	 */
+	public PieceType GetOpponentPieceType()
 	{
 		switch (GetPlayer())
 		{
@@ -324,4 +1958,239 @@ public class TicTacToeAI implements ITicTacToeAI
 	 * Which player (CROSS or CIRCLE) this AI is playing
 	 */
 	protected Player Player;
+	
+	/**
+	 * If true, the search makes and unmakes moves on one board rather than cloning it for every child.
+	 */
+	protected boolean MakeUnmake = true;
+	
+	/**
+	 * Results of earlier searches, keyed by position. This is created lazily so that AIs that never search do not pay for it.
+	 */
+	protected TranspositionTable Table;
+	
+	/**
+	 * The width of the boards {@code Table} holds positions of, or 0 if it holds none.
+	 */
+	protected int TableWidth = 0;
+	
+	/**
+	 * The height of the boards {@code Table} holds positions of, or 0 if it holds none.
+	 */
+	protected int TableHeight = 0;
+	
+	/**
+	 * The winning length of the boards {@code Table} holds positions of, or 0 if it holds none.
+	 */
+	protected int TableLength = 0;
+	
+	/**
+	 * The memory cap of {@code Table} in megabytes.
+	 */
+	protected int TableMegabytes = 16;
+	
+	/**
+	 * The pool that root moves are split across, or null to search on one thread.
+	 */
+	protected ForkJoinPool Pool = null;
+	
+	/**
+	 * How the search is spread across the threads of {@code Pool}.
+	 */
+	protected ParallelMode Mode = ParallelMode.ROOT_SPLIT;
+	
+	/**
+	 * The worker each thread of {@code Pool} last split the root with.
+	 */
+	protected final ThreadLocal<RootWorker> RootWorkers = new ThreadLocal<RootWorker>();
+	
+	/**
+	 * The time budget per move in milliseconds used by {@code GetNextMove(board)}, or 0 for none.
+	 */
+	protected long TimeBudget = 0;
+	
+	/**
+	 * The largest Chebyshev distance from a stone the search considers playing, or 0 for no limit.
+	 */
+	protected int CandidateDistance = 2;
+	
+	/**
+	 * If true, a threat search is run before the full search.
+	 */
+	protected boolean UseThreatSearch = true;
+	
+	/**
+	 * A tablebase to play from, or null to always search.
+	 */
+	protected Tablebase Endgame = null;
+	
+	/**
+	 * An opening book to play from, or null to always search.
+	 */
+	protected OpeningBook Book = null;
+	
+	/**
+	 * If true, symmetric positions are treated as one.
+	 */
+	protected boolean UseSymmetry = true;
+	
+	/**
+	 * If true, late quiet moves are searched a ply shallower first.
+	 */
+	protected boolean UseLateMoveReductions = false;
+	
+	/**
+	 * If true, quiet moves that can't make a difference just above the leaves are skipped.
+	 */
+	protected boolean UseFutilityPruning = false;
+	
+	/**
+	 * If true, moves to dead cells are left out of the search.
+	 */
+	protected boolean UseDeadCellPruning = true;
+	
+	/**
+	 * If true, windows are counted from scratch by each board's scanner, both to evaluate positions and to check for wins.
+	 */
+	protected boolean UseWindowScanner = false;
+	
+	/**
+	 * The algorithm the search uses.
+	 */
+	protected SearchAlgorithm Algorithm = SearchAlgorithm.MINIMAX;
+	
+	/**
+	 * The static evaluation the search uses.
+	 */
+	protected Evaluation Evaluator = Evaluation.WINDOWS;
+	
+	/**
+	 * The neural network the {@code NEURAL} evaluation uses, or null if there is none.
+	 */
+	protected volatile NeuralNetwork Network = null;
+	
+	/**
+	 * If true, moves are ordered by killer moves and history.
+	 */
+	protected boolean UseMoveOrdering = true;
+	
+	/**
+	 * The killer moves and history the search orders moves by, or null until the first search.
+	 */
+	protected volatile MoveOrdering Ordering = null;
+	
+	/**
+	 * The statistics of the last search that found a move, or null.
+	 */
+	protected volatile SearchStatistics LastStatistics = null;
+	
+	/**
+	 * The stream statistics are printed to after every search, or null.
+	 */
+	protected volatile PrintStream StatisticsLog = null;
+	
+	/**
+	 * Everything observing the statistics of our searches. Searches may finish on any thread, so this is safe to walk while it is changed.
+	 */
+	protected final CopyOnWriteArrayList<IObserver<SearchStatistics>> Observers = new CopyOnWriteArrayList<IObserver<SearchStatistics>>();
+	
+	/**
+	 * The int score of a position won with no stones on the board. Each stone on the board when the game is won takes one off.
+	 * Scores pass through the transposition table as floats, which hold every int up to 2^24 exactly.
+	 */
+	protected static final int WIN_SCORE = 1 << 22;
+	
+	/**
+	 * A bound on every int score, wider than any win.
+	 */
+	protected static final int INFINITE_SCORE = WIN_SCORE + 1;
+	
+	/**
+	 * The largest int score the static evaluation may give, which leaves room for the win scores of boards with up to {@code WIN_SCORE - MAX_EVALUATION} cells.
+	 */
+	protected static final int MAX_EVALUATION = 1 << 21;
+	
+	/**
+	 * How far either side of the last iteration's score the first window of each principal variation search iteration reaches.
+	 */
+	protected static final int ASPIRATION_WINDOW = 16;
+	
+	/**
+	 * The static evaluation of a neural network's score of 1, which is a good deal better than even (tanh(1) is about 0.76).
+	 */
+	protected static final double NEURAL_SCALE = 1000;
+	
+	/**
+	 * The number of moves searched in full at each position before late move reductions start.
+	 */
+	protected static final int LMR_MOVES = 3;
+	
+	/**
+	 * The least depth left at which late move reductions are made.
+	 */
+	protected static final int LMR_DEPTH = 3;
+	
+	/**
+	 * The most positions each threat search may visit.
+	 */
+	protected static final long THREAT_NODES = 20000;
+	
+	/**
+	 * The most fours a forced win may take.
+	 */
+	protected static final int VCF_DEPTH = 12;
+	
+	/**
+	 * The most threes a forced win may take (on top of its fours).
+	 */
+	protected static final int VCT_DEPTH = 2;
+	
+	/**
+	 * What one thread of the pool needs to help split the root: a context of its own and its own copy of the root position.
+	 * Every move and iteration of a search that the thread is given reuses them, so a search makes at most one of each per thread.
+	 */
+	protected static class RootWorker
+	{
+		public RootWorker(SearchContext parent, ITicTacToeBoard root)
+		{
+			Parent = parent;
+			Root = root;
+			Context = new SearchContext(parent, 0);
+			Board = new BitBoard(root);
+			
+			return;
+		}
+		
+		/**
+		 * The context of the search this worker helps.
+		 */
+		public final SearchContext Parent;
+		
+		/**
+		 * The root of the search this worker helps.
+		 */
+		public final ITicTacToeBoard Root;
+		
+		/**
+		 * The worker's own context.
+		 */
+		public final SearchContext Context;
+		
+		/**
+		 * The worker's own copy of the root.
+		 */
+		public final BitBoard Board;
+	}
+	
+	/**
+	 * Thrown from deep inside the search to unwind it once the deadline passes or the thread is told to stop.
+	 * Every Play is paired with an Unplay in a finally block, so the board is left as it was.
+	 */
+	protected static class SearchTimeoutException extends RuntimeException
+	{
+		public SearchTimeoutException()
+		{super(null, null, false, false);}
+		
+		private static final long serialVersionUID = 1L;
+	}
 }
@@ -0,0 +1,318 @@
+package tictactoe.AI;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * A fixed-size hash table of search results, keyed by the Zobrist hash of a position.
+ *
+ * The table is split into buckets of {@code BUCKET_SIZE} entries. A position may live in any entry of
+ * the bucket its key maps to, and when a bucket is full the entry to overwrite is chosen by preferring
+ * entries left over from earlier searches, and then the shallowest entry. An entry is two consecutive longs
+ * of one array: a packed data word holding the score, best move, depth, bound type, and the search
+ * generation that stored it, and the full key XORed with that data word.
+ *
+ * Probing returns the packed data word, or {@code MISS}, so that nothing is allocated per lookup. Use the
+ * static {@code Score}, {@code Move}, {@code Depth}, and {@code Bound} methods to unpack it.
+ *
+ * The table is safe to share between threads without any locking. Two threads writing the same entry at
+ * once can leave it holding one thread's key word and the other's data word, but then the key word no
+ * longer XORs back to the key being probed for, so a torn entry simply reads as a miss instead of handing
+ * out another position's score.
+ *
+ * @author Ray Heil
+ *
+ */
+public class TranspositionTable
+{
+	/**
+	 * Creates a table using at most {@code bytes} bytes of memory.
+	 * The number of buckets is rounded down to a power of two, but there is always at least one.
+	 * @param bytes The memory cap of the table.
+	 * @throws IllegalArgumentException Thrown if {@code bytes} is not positive.
+	 */
+	public TranspositionTable(long bytes)
+	{
+		if (bytes <= 0)
+			throw new IllegalArgumentException("A transposition table needs a positive amount of memory.");
+
+		long buckets = Long.highestOneBit(Math.max(1, bytes / (BUCKET_SIZE * BYTES_PER_ENTRY)));
+		buckets = Math.min(buckets, Integer.MAX_VALUE / (2 * BUCKET_SIZE) + 1);
+
+		BucketMask = (int)buckets - 1;
+		Entries = new long[2 * (int)buckets * BUCKET_SIZE];
+		Generation = 0;
+	}
+
+	/**
+	 * Looks up a position.
+	 * @param key The Zobrist hash of the position.
+	 * @return Returns the packed data stored for the position, or {@code MISS} if it is not in the table.
+	 */
+	public long Probe(long key)
+	{
+		Probes.increment();
+		int start = Bucket(key);
+
+		for (int i = start; i < start + 2 * BUCKET_SIZE; i += 2)
+		{
+			// Read the data once, since another thread may be rewriting the entry under us
+			long data = Entries[i + 1];
+
+			if (data != MISS && (Entries[i] ^ data) == key) {
+				Hits.increment();
+				return data;
+			}
+		}
+
+		return MISS;
+	}
+
+	/**
+	 * Records the result of searching a position.
+	 * @param key The Zobrist hash of the position.
+	 * @param score The score the search found.
+	 * @param move The int index of the best move found, or -1 if there is none.
+	 * @param depth The depth the position was searched to.
+	 * @param bound Whether {@code score} is {@code EXACT}, a {@code LOWER} bound, or an {@code UPPER} bound.
+	 */
+	public void Store(long key, double score, int move, int depth, int bound)
+	{
+		Stores.increment();
+		int start = Bucket(key);
+		int victim = start;
+		int victimWorth = Integer.MAX_VALUE;
+		boolean same = false;
+
+		for (int i = start; i < start + 2 * BUCKET_SIZE; i += 2)
+		{
+			long data = Entries[i + 1];
+
+			// The same position is always refreshed, but keep its old best move if we have no better idea
+			if (data != MISS && (Entries[i] ^ data) == key) {
+				if (move < 0)
+					move = Move(data);
+
+				victim = i;
+				same = true;
+				break;
+			}
+
+			// Otherwise fill an empty slot, or throw out the least valuable entry
+			int worth = data == MISS ? -1 : Worth(data);
+			if (worth < victimWorth) {
+				victim = i;
+				victimWorth = worth;
+			}
+		}
+
+		if (!same && Entries[victim + 1] != MISS)
+			Overwrites.increment();
+
+		long data = Pack(score, move, depth, bound, Generation);
+		Entries[victim] = key ^ data;
+		Entries[victim + 1] = data;
+	}
+
+	/**
+	 * Marks the start of a new search.
+	 * Entries from earlier searches are still used, but are the first to be replaced.
+	 */
+	public void NewSearch()
+	{Generation = (Generation + 1) & GENERATION_MASK;}
+
+	/**
+	 * Removes every entry and resets the statistics.
+	 */
+	public void Clear()
+	{
+		for (int i = 0; i < Entries.length; i++)
+			Entries[i] = MISS;
+
+		Probes.reset();
+		Hits.reset();
+		Stores.reset();
+		Overwrites.reset();
+	}
+
+	/**
+	 * Obtains the fraction of probes that found their position, between 0 and 1.
+	 */
+	public double HitRate()
+	{
+		long probes = Probes();
+		return probes == 0 ? 0 : (double)Hits() / probes;
+	}
+
+	/**
+	 * Obtains the number of lookups made.
+	 */
+	public long Probes()
+	{return Probes.sum();}
+
+	/**
+	 * Obtains the number of lookups that found their position.
+	 */
+	public long Hits()
+	{return Hits.sum();}
+
+	/**
+	 * Obtains the number of results stored.
+	 */
+	public long Stores()
+	{return Stores.sum();}
+
+	/**
+	 * Obtains the number of stores that threw out a different position.
+	 */
+	public long Overwrites()
+	{return Overwrites.sum();}
+
+	/**
+	 * Obtains the number of entries the table can hold.
+	 */
+	public int Capacity()
+	{return Entries.length / 2;}
+
+	/**
+	 * Obtains the approximate memory used by the table in bytes.
+	 */
+	public long Bytes()
+	{return (long)Capacity() * BYTES_PER_ENTRY;}
+
+	@Override
+	public String toString()
+	{
+		return String.format("TT %d entries (%d KiB): %d probes, %.1f%% hits, %d stores, %d overwrites",
+				Capacity(), Bytes() / 1024, Probes(), 100 * HitRate(), Stores(), Overwrites());
+	}
+
+	/**
+	 * Unpacks the score of an entry.
+	 */
+	public static double Score(long data)
+	{return Float.intBitsToFloat((int)data);}
+
+	/**
+	 * Unpacks the best move of an entry, or -1 if it has none.
+	 */
+	public static int Move(long data)
+	{return (int)((data >>> MOVE_SHIFT) & MOVE_MASK) - 1;}
+
+	/**
+	 * Unpacks the depth of an entry.
+	 */
+	public static int Depth(long data)
+	{return (int)((data >>> DEPTH_SHIFT) & DEPTH_MASK);}
+
+	/**
+	 * Unpacks the bound type of an entry, one of {@code EXACT}, {@code LOWER}, or {@code UPPER}.
+	 */
+	public static int Bound(long data)
+	{return (int)((data >>> BOUND_SHIFT) & BOUND_MASK);}
+
+	/**
+	 * Packs the fields of an entry into one long.
+	 * Scores are stored as floats, which represent every score the static evaluation produces (including the infinities of won and lost positions) exactly.
+	 * Depths beyond what fits are clamped, which only ever makes an entry look less useful than it is.
+	 */
+	protected static long Pack(double score, int move, int depth, int bound, int generation)
+	{
+		return (Float.floatToIntBits((float)score) & 0xFFFFFFFFL)
+				| (((move + 1) & MOVE_MASK) << MOVE_SHIFT)
+				| ((long)Math.min(Math.max(depth, 0), DEPTH_MASK) << DEPTH_SHIFT)
+				| ((long)(bound & BOUND_MASK) << BOUND_SHIFT)
+				| ((long)(generation & GENERATION_MASK) << GENERATION_SHIFT)
+				| VALID;
+	}
+
+	/**
+	 * Determines how much an entry is worth keeping. Deeper entries from the current search are worth the most.
+	 */
+	protected int Worth(long data)
+	{
+		int generation = (int)((data >>> GENERATION_SHIFT) & GENERATION_MASK);
+		return Depth(data) + (generation == Generation ? DEPTH_MASK + 1 : 0);
+	}
+
+	/**
+	 * Obtains the index in {@code Entries} of the first entry of the bucket {@code key} belongs in.
+	 */
+	protected int Bucket(long key)
+	{return ((int)(key ^ (key >>> 32)) & BucketMask) * 2 * BUCKET_SIZE;}
+
+	/**
+	 * The score is exactly the minimax value of the position.
+	 */
+	public static final int EXACT = 0;
+
+	/**
+	 * The minimax value of the position is at least the score.
+	 */
+	public static final int LOWER = 1;
+
+	/**
+	 * The minimax value of the position is at most the score.
+	 */
+	public static final int UPPER = 2;
+
+	/**
+	 * Returned by {@code Probe} when a position is not in the table.
+	 */
+	public static final long MISS = 0;
+
+	/**
+	 * The number of entries in each bucket.
+	 */
+	public static final int BUCKET_SIZE = 4;
+
+	/**
+	 * The memory taken by one entry (a key and a data word).
+	 */
+	public static final int BYTES_PER_ENTRY = 16;
+
+	protected static final int MOVE_SHIFT = 32;
+	protected static final long MOVE_MASK = (1L << 21) - 1;
+	protected static final int DEPTH_SHIFT = 53;
+	protected static final int DEPTH_MASK = (1 << 6) - 1;
+	protected static final int BOUND_SHIFT = 59;
+	protected static final int BOUND_MASK = 3;
+	protected static final int GENERATION_SHIFT = 61;
+	protected static final int GENERATION_MASK = 3;
+	protected static final long VALID = 1L << 63;
+
+	/**
+	 * Every entry, as pairs of (key XOR data, data). The data word is {@code MISS} for empty entries.
+	 */
+	protected long[] Entries;
+
+	/**
+	 * One less than the number of buckets, which is a power of two.
+	 */
+	protected int BucketMask;
+
+	/**
+	 * The generation of the current search.
+	 */
+	protected volatile int Generation;
+
+	/**
+	 * The number of lookups made.
+	 */
+	protected final LongAdder Probes = new LongAdder();
+
+	/**
+	 * The number of lookups that found their position.
+	 */
+	protected final LongAdder Hits = new LongAdder();
+
+	/**
+	 * The number of results stored.
+	 */
+	protected final LongAdder Stores = new LongAdder();
+
+	/**
+	 * The number of stores that replaced a different position.
+	 */
+	protected final LongAdder Overwrites = new LongAdder();
+}
@@ -1,14 +1,16 @@
 package tictactoe.controller;
 
+import java.util.concurrent.CompletableFuture;
+
 import gamecore.GameEngine;
 import gamecore.datastructures.vectors.Vector2i;
 import gamecore.input.InputManager;
 import tictactoe.AI.ITicTacToeAI;
 import tictactoe.AI.TicTacToeAI;
+import tictactoe.model.BitBoard;
 import tictactoe.model.ITicTacToeBoard;
 import tictactoe.model.PieceType;
 import tictactoe.model.Player;
-import tictactoe.model.TicTacToeBoard;
 import tictactoe.model.TicTacToeEvent;
 import tictactoe.view.ITicTacToeView;
 import tictactoe.view.TicTacToeView;
@@ -68,7 +70,7 @@ public class TicTacToeController implements ITicTacToeController
 	public void Initialize()
 	{
 		// Create the model
-		Model = new TicTacToeBoard(Width,Height,WinningLength);
+		Model = new BitBoard(Width,Height,WinningLength);
 		Model.Subscribe(this);
 		
 		// Create the view
@@ -121,19 +123,15 @@ public class TicTacToeController implements ITicTacToeController
 			return;
 		
 		// Handle AI logic before human selections so that we have at least one frame after a human selection (if any humans exist) before the AI makes its move
-		// This frame is important because the AI may lag the game, and the human will want to see their move
-		if (ActivePiece().equals(PieceType.CROSS) && !IsPlayerOneHuman) {
-			Vector2i move = PlayerOneAI.GetNextMove(Model);
-			PlacePiece(move);
-		}
-		else if (ActivePiece().equals(PieceType.CIRCLE) && !IsPlayerTwoHuman) {
-			Vector2i move = PlayerTwoAI.GetNextMove(Model);
-			PlacePiece(move);
-		}
+		// The AI thinks on its own thread, so we only start it here and then check back every frame until it has an answer
+		if (ActivePiece().equals(PieceType.CROSS) && !IsPlayerOneHuman)
+			UpdateAI(PlayerOneAI);
+		else if (ActivePiece().equals(PieceType.CIRCLE) && !IsPlayerTwoHuman)
+			UpdateAI(PlayerTwoAI);
 		
 		// Now process selections (we do this after victory animation so that we don't skip a frame in the animation)
-		// Pieces can only be played if the model is not finished
-		if (Input.GracelessInputSatisfied("Select")) {
+		// Pieces can only be played if the model is not finished, and only by a human on their own turn
+		if (Input.GracelessInputSatisfied("Select") && !Model.IsFinished() && IsActivePlayerHuman()) {
 			// Only allow placement if the cell is empty
 			if (Model.IsCellEmpty(View.CursorPosition())) {
 				PlacePiece(View.CursorPosition());
@@ -142,6 +140,53 @@ public class TicTacToeController implements ITicTacToeController
 		return;
 	}
 	
+	/**
+	 * Starts the AI thinking about its move if it isn't already, and plays its move once it has one.
+	 * If the AI fails to find a move, it is asked again on the next frame.
+	 * @param ai The AI whose turn it is.
+	 */
+	protected void UpdateAI(ITicTacToeAI ai)
+	{
+		if (PendingMove == null) {
+			PendingMove = ai.GetNextMoveAsync(Model);
+			return;
+		}
+		
+		if (!PendingMove.isDone())
+			return;
+		
+		// A search that failed has no move to give, so forget it and ask again next frame
+		if (PendingMove.isCompletedExceptionally()) {
+			PendingMove = null;
+			return;
+		}
+		
+		Vector2i move = PendingMove.join();
+		PendingMove = null;
+		
+		PlacePiece(move);
+		return;
+	}
+	
+	/**
+	 * Stops the AI thinking about its move, if it is.
+	 */
+	protected void CancelPendingMove()
+	{
+		if (PendingMove != null) {
+			PendingMove.cancel(true);
+			PendingMove = null;
+		}
+		
+		return;
+	}
+	
+	/**
+	 * Determines if the active player is controlled by a human.
+	 */
+	protected boolean IsActivePlayerHuman()
+	{return ActivePiece().equals(PieceType.CROSS) ? IsPlayerOneHuman : IsPlayerTwoHuman;}
+	
 	protected void PlacePiece(Vector2i pos)
 	{
 		Model.Set(ActivePiece(), pos);
@@ -156,6 +201,8 @@ public class TicTacToeController implements ITicTacToeController
 		if(Disposed())
 			return;
 		
+		CancelPendingMove();
+		
 		if(!View.Disposed())
 			View.Dispose();
 		
@@ -196,6 +243,9 @@ public class TicTacToeController implements ITicTacToeController
 	
 	public void ResetGame()
 	{
+		// Whatever the AI was thinking about is no longer the game being played
+		CancelPendingMove();
+		
 		Model.Clear();
 		ActivePlayer = Player.CROSS;
 		return;
@@ -282,6 +332,11 @@ public class TicTacToeController implements ITicTacToeController
 	 */
 	protected ITicTacToeAI PlayerTwoAI;
 	
+	/**
+	 * The move an AI is working out for the active player, or null if no AI is thinking.
+	 */
+	protected CompletableFuture<Vector2i> PendingMove;
+	
 	/**
 	 * The active player (if any).
 	 */
@@ -0,0 +1,1024 @@
+package tictactoe.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+import gamecore.LINQ.LINQ;
+import gamecore.datastructures.vectors.Vector2i;
+import gamecore.observe.IObserver;
+
+/**
+ *
+ * Implementation of ITicTacToeBoard that keeps one bitset per player.
+ *
+ * Each row of the board is stored with one extra (always empty) guard bit at its end, so a row is
+ * {@code Width() + 1} bits long. Shifting a bitset by 1, by the row stride, or by the stride plus or
+ * minus one moves every piece one step horizontally, vertically, or diagonally, and the guard bits
+ * guarantee that no line ever wraps around from one row onto the next. Winning lines are found by
+ * ANDing a bitset with {@code WinningLength() - 1} shifted copies of itself.
+ *
+ * Boards of up to 64 padded bits (7x7 and anything smaller) fit in a single word. Larger boards are
+ * spread across as many words as they need.
+ *
+ * Cells are additionally addressable by an int index, {@code y * Width() + x}, which is what the AI
+ * uses to avoid creating a Vector2i for every cell it looks at.
+ *
+ * @author Ray Heil
+ *
+ */
+public class BitBoard implements ITicTacToeBoard
+{
+	public BitBoard(int width, int height, int winningLength)
+	{
+		if (width < 1 || height < 1 || winningLength < 1)
+			throw new IllegalArgumentException("Nonpositive arguments for width, height, or winningLength are illegal.");
+
+		this.Width = width;
+		this.Height = height;
+		this.WinningLength = winningLength;
+		this.Stride = width + 1;
+		this.Words = (height * Stride + 63) / 64;
+		this.Crosses = new long[Words];
+		this.Circles = new long[Words];
+		this.Scratch = new long[Words];
+		this.Count = 0;
+		this.Victor = Player.NULL;
+		this.Observers = new LinkedList<IObserver<TicTacToeEvent>>();
+		this.Shifts = new int[] {1, Stride, Stride + 1, Stride - 1};
+		this.HistoryCells = new int[width * height];
+		this.HistoryPieces = new byte[width * height];
+		this.HistoryVictors = new byte[width * height];
+		this.HistorySize = 0;
+		this.Windows = new WindowCounts(width, height, winningLength);
+		this.Symmetries = new SymmetricHashes(width, height);
+
+		// Precompute where each cell lives in the padded bitsets
+		this.BitOf = new int[width * height];
+		for (int cell = 0; cell < BitOf.length; cell++)
+			BitOf[cell] = (cell / width) * Stride + cell % width;
+	}
+
+	/**
+	 * Creates a bitboard with the same dimensions, pieces, and victor as {@code board}.
+	 * Subscribers to {@code board} are not copied.
+	 * @param board The board to copy.
+	 * @throws NullPointerException Thrown if {@code board} is null.
+	 */
+	public BitBoard(ITicTacToeBoard board)
+	{
+		this(board.Width(), board.Height(), board.WinningLength());
+
+		if (board instanceof BitBoard) {
+			BitBoard other = (BitBoard)board;
+			System.arraycopy(other.Crosses, 0, Crosses, 0, Words);
+			System.arraycopy(other.Circles, 0, Circles, 0, Words);
+
+			// Bring the history along so that the copy can be unwound just like the original
+			if (other.HistorySize > HistoryCells.length) {
+				HistoryCells = new int[other.HistorySize];
+				HistoryPieces = new byte[other.HistorySize];
+				HistoryVictors = new byte[other.HistorySize];
+			}
+
+			System.arraycopy(other.HistoryCells, 0, HistoryCells, 0, other.HistorySize);
+			System.arraycopy(other.HistoryPieces, 0, HistoryPieces, 0, other.HistorySize);
+			System.arraycopy(other.HistoryVictors, 0, HistoryVictors, 0, other.HistorySize);
+			HistorySize = other.HistorySize;
+			Windows.CopyFrom(other.Windows);
+			Symmetries.CopyFrom(other.Symmetries);
+
+			if (other.Candidates != null)
+				Candidates = new CandidateSet(other.Candidates);
+
+			if (other.Patterns != null)
+				Patterns = new PatternScores(other.Patterns);
+
+			if (other.Accumulator != null)
+				Accumulator = new NeuralAccumulator(other.Accumulator);
+
+			ScannedWins = other.ScannedWins;
+		}
+		else {
+			for (Vector2i pos : board.IndexSet(true))
+			{
+				int cell = Cell(pos.X, pos.Y);
+				int bit = BitOf[cell];
+				PieceType piece = board.Get(pos);
+
+				if (piece.equals(PieceType.CROSS))
+					Crosses[bit >>> 6] |= 1L << bit;
+				else
+					Circles[bit >>> 6] |= 1L << bit;
+
+				Windows.Add(cell, piece);
+				Symmetries.Add(cell, piece);
+			}
+		}
+
+		this.Count = board.Count();
+		this.Victor = board.Victor();
+		this.Hash = board.Hash();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws IndexOutOfBoundsException Thrown if {@code index} is out of bounds.
+	 * @throws NullPointerException Thrown if {@code index} is null.
+	 */
+	@Override
+	public PieceType Get(Vector2i index)
+	{
+		if (index == null)
+			throw new NullPointerException();
+
+		if (!ContainsIndex(index))
+			throw new IndexOutOfBoundsException("Get: Board does not contain index " + index);
+
+		return Get(Cell(index.X, index.Y));
+	}
+
+	/**
+	 * Gets the piece in the cell with int index {@code cell}.
+	 * @param cell The index of the cell, {@code y * Width() + x}. This is not bounds checked.
+	 * @return Returns the piece in the cell.
+	 */
+	public PieceType Get(int cell)
+	{
+		int bit = BitOf[cell];
+		long mask = 1L << bit;
+
+		if ((Crosses[bit >>> 6] & mask) != 0)
+			return PieceType.CROSS;
+		if ((Circles[bit >>> 6] & mask) != 0)
+			return PieceType.CIRCLE;
+		return PieceType.NONE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws IndexOutOfBoundsException Thrown if {@code index} is out of bounds.
+	 * @throws NullPointerException Thrown {@code index} is null or if {@code t} is null.
+	 */
+	@Override
+	public PieceType Set(PieceType t, Vector2i index)
+	{
+		if (t == null || index == null)
+			throw new NullPointerException();
+
+		if (!ContainsIndex(index))
+			throw new IndexOutOfBoundsException("Set: Board does not include index " + index);
+
+		return Set(t, Cell(index.X, index.Y));
+	}
+
+	/**
+	 * Sets the cell with int index {@code cell} to {@code t}.
+	 * This behaves exactly like {@link #Set(PieceType, Vector2i)} but does not need a Vector2i.
+	 * @param t The piece to place.
+	 * @param cell The index of the cell, {@code y * Width() + x}. This is not bounds checked.
+	 * @return Returns {@code t}.
+	 * @throws NullPointerException Thrown if {@code t} is null.
+	 */
+	public PieceType Set(PieceType t, int cell)
+	{
+		if (t == null)
+			throw new NullPointerException();
+
+		int bit = BitOf[cell];
+		int word = bit >>> 6;
+		long mask = 1L << bit;
+		boolean wasEmpty = ((Crosses[word] | Circles[word]) & mask) == 0;
+
+		PieceType old = Get(cell);
+		Record(cell);
+		Hash ^= Zobrist.Key(cell, old) ^ Zobrist.Key(cell, t);
+		Windows.Remove(cell, old);
+		Windows.Add(cell, t);
+		Symmetries.Remove(cell, old);
+		Symmetries.Add(cell, t);
+
+		if (Patterns != null) {
+			Patterns.Remove(cell, old);
+			Patterns.Add(cell, t);
+		}
+
+		if (Accumulator != null) {
+			Accumulator.Remove(cell, old);
+			Accumulator.Add(cell, t);
+		}
+
+		Crosses[word] &= ~mask;
+		Circles[word] &= ~mask;
+
+		switch (t)
+		{
+		case CROSS:
+			Crosses[word] |= mask;
+			break;
+		case CIRCLE:
+			Circles[word] |= mask;
+			break;
+		default:
+			break;
+		}
+
+		// Keep the count (and the candidates, if anyone wants them) in step with the occupied cells
+		if (wasEmpty && t != PieceType.NONE) {
+			Count++;
+
+			if (Candidates != null)
+				Candidates.Add(cell);
+		}
+		else if (!wasEmpty && t == PieceType.NONE) {
+			Count--;
+
+			if (Candidates != null)
+				Candidates.Remove(cell);
+		}
+
+		// Once no window is left that either player could win with, the game is drawn
+		if (Count >= Size() || Windows.IsDrawn())
+			Victor = Player.NEITHER;
+
+		// Only the player that just moved can have made a new line
+		if (t != PieceType.NONE && (ScannedWins ? Scanner().HasLine(t) : HasLine(t == PieceType.CROSS ? Crosses : Circles)))
+			Victor = t == PieceType.CROSS ? Player.CROSS : Player.CIRCLE;
+
+		// Events are only worth building if someone is listening, which the AI's boards never are
+		if (!Observers.isEmpty()) {
+			Vector2i pos = new Vector2i(X(cell), Y(cell));
+
+			if (t == PieceType.NONE)
+				NotifyObservers(new TicTacToeEvent(pos));
+			else
+				NotifyObservers(new TicTacToeEvent(pos, t));
+
+			Iterable<Vector2i> win_set = t == PieceType.NONE ? null : WinningSet(pos);
+			if (win_set != null)
+				NotifyObservers(new TicTacToeEvent(Victor, win_set));
+		}
+
+		return t;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws IndexOutOfBoundsException Thrown if {@code index} is out of bounds.
+	 * @throws NullPointerException Thrown if {@code index} is null.
+	 */
+	@Override
+	public boolean Remove(Vector2i index)
+	{
+		if (index == null)
+			throw new NullPointerException();
+
+		if (!ContainsIndex(index))
+			throw new IndexOutOfBoundsException("Remove: Board does not contain index " + index);
+
+		int cell = Cell(index.X, index.Y);
+		if (IsEmpty(cell))
+			return false;
+
+		Record(cell);
+		Hash ^= Zobrist.Key(cell, Get(cell));
+		Windows.Remove(cell, Get(cell));
+		Symmetries.Remove(cell, Get(cell));
+
+		if (Patterns != null)
+			Patterns.Remove(cell, Get(cell));
+
+		if (Accumulator != null)
+			Accumulator.Remove(cell, Get(cell));
+
+		int bit = BitOf[cell];
+		Crosses[bit >>> 6] &= ~(1L << bit);
+		Circles[bit >>> 6] &= ~(1L << bit);
+		Count--;
+
+		if (Candidates != null)
+			Candidates.Remove(cell);
+
+		if (!Observers.isEmpty())
+			NotifyObservers(new TicTacToeEvent(index));
+
+		return true;
+	}
+
+	@Override
+	public boolean Undo()
+	{
+		if (HistorySize == 0)
+			return false;
+
+		HistorySize--;
+		int cell = HistoryCells[HistorySize];
+		PieceType piece = Pieces[HistoryPieces[HistorySize]];
+
+		int bit = BitOf[cell];
+		int word = bit >>> 6;
+		long mask = 1L << bit;
+		boolean wasEmpty = ((Crosses[word] | Circles[word]) & mask) == 0;
+		PieceType current = Get(cell);
+		Hash ^= Zobrist.Key(cell, current) ^ Zobrist.Key(cell, piece);
+		Windows.Remove(cell, current);
+		Windows.Add(cell, piece);
+		Symmetries.Remove(cell, current);
+		Symmetries.Add(cell, piece);
+
+		if (Patterns != null) {
+			Patterns.Remove(cell, current);
+			Patterns.Add(cell, piece);
+		}
+
+		if (Accumulator != null) {
+			Accumulator.Remove(cell, current);
+			Accumulator.Add(cell, piece);
+		}
+
+		// Restore the cell directly; nothing that was true before the move needs to be recomputed
+		Crosses[word] &= ~mask;
+		Circles[word] &= ~mask;
+
+		if (piece == PieceType.CROSS)
+			Crosses[word] |= mask;
+		else if (piece == PieceType.CIRCLE)
+			Circles[word] |= mask;
+
+		if (wasEmpty && piece != PieceType.NONE) {
+			Count++;
+
+			if (Candidates != null)
+				Candidates.Add(cell);
+		}
+		else if (!wasEmpty && piece == PieceType.NONE) {
+			Count--;
+
+			if (Candidates != null)
+				Candidates.Remove(cell);
+		}
+
+		Victor = Players[HistoryVictors[HistorySize]];
+
+		if (!Observers.isEmpty()) {
+			Vector2i pos = new Vector2i(X(cell), Y(cell));
+
+			if (piece == PieceType.NONE)
+				NotifyObservers(new TicTacToeEvent(pos));
+			else
+				NotifyObservers(new TicTacToeEvent(pos, piece));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Remembers the current contents of {@code cell} and the current victor so that the next change can be undone.
+	 * @param cell The cell about to be changed.
+	 */
+	protected void Record(int cell)
+	{
+		if (HistorySize == HistoryCells.length) {
+			HistoryCells = Arrays.copyOf(HistoryCells, 2 * HistorySize + 1);
+			HistoryPieces = Arrays.copyOf(HistoryPieces, 2 * HistorySize + 1);
+			HistoryVictors = Arrays.copyOf(HistoryVictors, 2 * HistorySize + 1);
+		}
+
+		HistoryCells[HistorySize] = cell;
+		HistoryPieces[HistorySize] = (byte)Get(cell).ordinal();
+		HistoryVictors[HistorySize] = (byte)Victor.ordinal();
+		HistorySize++;
+	}
+
+	@Override
+	public boolean IsCellOccupied(Vector2i index)
+	{return !IsCellEmpty(index);}
+
+	@Override
+	public boolean IsCellEmpty(Vector2i index)
+	{
+		if (index == null)
+			throw new NullPointerException();
+
+		if (!ContainsIndex(index))
+			throw new IndexOutOfBoundsException("IsCellEmpty: Board does not contain index " + index);
+
+		return IsEmpty(Cell(index.X, index.Y));
+	}
+
+	/**
+	 * Determines if the cell with int index {@code cell} is empty.
+	 * @param cell The index of the cell, {@code y * Width() + x}. This is not bounds checked.
+	 * @return Returns true if nobody has played in the cell.
+	 */
+	public boolean IsEmpty(int cell)
+	{
+		int bit = BitOf[cell];
+		return ((Crosses[bit >>> 6] | Circles[bit >>> 6]) & (1L << bit)) == 0;
+	}
+
+	@Override
+	public Iterable<PieceType> Items()
+	{return LINQ.Select(IndexSet(), t -> Get(t));}
+
+	@Override
+	public Iterable<Vector2i> IndexSet()
+	{
+		return new Iterable<Vector2i>()
+		{
+			public Iterator<Vector2i> iterator()
+			{
+				return new Iterator<Vector2i>()
+				{
+					@Override
+					public boolean hasNext()
+					{return currentIndex < Size();}
+
+					@Override
+					public Vector2i next()
+					{
+						if (!hasNext())
+							throw new NoSuchElementException();
+
+						Vector2i returnVector = new Vector2i(X(currentIndex), Y(currentIndex));
+						currentIndex++;
+						return returnVector;
+					}
+
+					/**
+					 * The current index of the iterator. (0 <= currentIndex < Size())
+					 */
+					protected int currentIndex = 0;
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterable<Vector2i> IndexSet(boolean nonempty)
+	{
+		if (!nonempty)
+			return IndexSet();
+
+		// Walk the set bits of both bitsets rather than testing every cell
+		return new Iterable<Vector2i>()
+		{
+			public Iterator<Vector2i> iterator()
+			{
+				return new Iterator<Vector2i>()
+				{
+					@Override
+					public boolean hasNext()
+					{
+						while (remaining == 0 && ++word < Words)
+							remaining = Crosses[word] | Circles[word];
+
+						return remaining != 0;
+					}
+
+					@Override
+					public Vector2i next()
+					{
+						if (!hasNext())
+							throw new NoSuchElementException();
+
+						int bit = (word << 6) + Long.numberOfTrailingZeros(remaining);
+						remaining &= remaining - 1;
+						return new Vector2i(bit % Stride, bit / Stride);
+					}
+
+					/**
+					 * The word currently being walked.
+					 */
+					protected int word = -1;
+
+					/**
+					 * The occupied bits of {@code word} that have not been returned yet.
+					 */
+					protected long remaining = 0;
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterable<PieceType> Neighbors(Vector2i index)
+	{return LINQ.Select(NeighborIndexSet(index), t -> Get(t));}
+
+	@Override
+	public Iterable<Vector2i> NeighborIndexSet(Vector2i index)
+	{
+		if (index == null)
+			throw new NullPointerException();
+
+		LinkedList<Vector2i> neighbors = new LinkedList<Vector2i>();
+
+		for (int dx = -1; dx <= 1; dx++)
+			for (int dy = -1; dy <= 1; dy++)
+			{
+				Vector2i pos = new Vector2i(index.X + dx, index.Y + dy);
+
+				if ((dx != 0 || dy != 0) && ContainsIndex(pos))
+					neighbors.add(pos);
+			}
+
+		return neighbors;
+	}
+
+	@Override
+	public Iterable<Vector2i> NeighborIndexSet(Vector2i index, boolean nonempty)
+	{
+		if (nonempty)
+			return LINQ.Where(NeighborIndexSet(index), t -> IsCellOccupied(t));
+		return NeighborIndexSet(index);
+	}
+
+	@Override
+	public boolean ContainsIndex(Vector2i index)
+	{
+		return (0 <= index.X && index.X < Width &&
+				0 <= index.Y && index.Y < Height);
+	}
+
+	@Override
+	public boolean Clear()
+	{
+		Victor = Player.NULL;
+		Count = 0;
+		Hash = 0;
+		HistorySize = 0;
+		Windows.Clear();
+		Symmetries.Clear();
+
+		if (Candidates != null)
+			Candidates.Clear();
+
+		if (Patterns != null)
+			Patterns.Clear();
+
+		if (Accumulator != null)
+			Accumulator.Clear();
+
+		for (int i = 0; i < Words; i++) {
+			Crosses[i] = 0;
+			Circles[i] = 0;
+		}
+
+		NotifyObservers(new TicTacToeEvent());
+		return true;
+	}
+
+	@Override
+	public int Count()
+	{return Count;}
+
+	@Override
+	public int Size()
+	{return Width * Height;}
+
+	@Override
+	public void Subscribe(IObserver<TicTacToeEvent> eye)
+	{Observers.add(eye);}
+
+	@Override
+	public void Unsubscribe(IObserver<TicTacToeEvent> eye)
+	{Observers.remove(eye);}
+
+	@Override
+	public ITicTacToeBoard Clone()
+	{return new BitBoard(this);}
+
+	@Override
+	public long Hash()
+	{return Hash;}
+
+	/**
+	 * Obtains the stone counts of every window of {@code WinningLength()} cells on this board.
+	 * These are kept up to date on every change, so they should only be read.
+	 */
+	public WindowCounts Windows()
+	{return Windows;}
+
+	/**
+	 * Obtains the hashes of the position under every symmetry of this board.
+	 * These are kept up to date on every change, so they should only be read.
+	 */
+	public SymmetricHashes Symmetries()
+	{return Symmetries;}
+
+	/**
+	 * Obtains a hash of the pieces on this board that is the same for every position symmetric to this one.
+	 */
+	public long CanonicalHash()
+	{return Symmetries.Canonical();}
+
+	/**
+	 * Obtains the empty cells within Chebyshev distance {@code distance} of a stone.
+	 * The set is built the first time it is asked for (or when asked for a different distance) and is kept up to date on every change after that, so it should only be read.
+	 * @param distance The largest distance from a stone a candidate may be.
+	 * @return Returns the candidate set.
+	 * @throws IllegalArgumentException Thrown if {@code distance} is not positive.
+	 */
+	public CandidateSet Candidates(int distance)
+	{
+		if (Candidates == null || Candidates.Distance() != distance) {
+			Candidates = new CandidateSet(Width, Height, distance);
+
+			for (int cell = 0; cell < Size(); cell++)
+				if (!IsEmpty(cell))
+					Candidates.Add(cell);
+		}
+
+		return Candidates;
+	}
+
+	/**
+	 * Obtains the pattern of every window of {@code WinningLength()} cells on this board and their total value.
+	 * The patterns are worked out the first time they are asked for and are kept up to date on every change after that, so they should only be read.
+	 * @return Returns the patterns, or null if there is no {@link PatternTable} for this board's winning length.
+	 */
+	public PatternScores Patterns()
+	{
+		if (Patterns == null && PatternTable.For(WinningLength) != null) {
+			Patterns = new PatternScores(Width, Height, WinningLength);
+
+			for (int cell = 0; cell < Size(); cell++)
+				Patterns.Add(cell, Get(cell));
+		}
+
+		return Patterns;
+	}
+
+	/**
+	 * Obtains the first layer of {@code network} for this board.
+	 * The layer is worked out the first time it is asked for, or again if a different network is asked for, and is kept up to date on every change after that, so it should only be read.
+	 * @param network The network to score this board with.
+	 * @return Returns the layer, or null if {@code network} is not for boards of this shape.
+	 * @throws NullPointerException Thrown if {@code network} is null.
+	 */
+	public NeuralAccumulator Accumulator(NeuralNetwork network)
+	{
+		if (!network.Covers(this))
+			return null;
+
+		if (Accumulator == null || Accumulator.Network() != network) {
+			Accumulator = new NeuralAccumulator(network);
+
+			for (int cell = 0; cell < Size(); cell++)
+				Accumulator.Add(cell, Get(cell));
+		}
+
+		return Accumulator;
+	}
+
+	/**
+	 * Obtains a scanner that counts the windows of this board from scratch, rather than reading the counts kept up to date in {@code Windows()}.
+	 * The scanner is made the first time it is asked for, by {@link WindowScanner#Create(BitBoard)}. It is not copied with the board.
+	 */
+	public WindowScanner Scanner()
+	{
+		if (Scanner == null)
+			Scanner = WindowScanner.Create(this);
+
+		return Scanner;
+	}
+
+	/**
+	 * Determines if this board checks for wins with {@code Scanner()} rather than with its own line search.
+	 */
+	public boolean ScannedWins()
+	{return ScannedWins;}
+
+	/**
+	 * Sets whether this board checks for wins with {@code Scanner()} rather than with its own line search.
+	 * Both find exactly the same wins, so this only changes how the work is done. It is copied with the board.
+	 */
+	public void SetScannedWins(boolean scanned)
+	{ScannedWins = scanned;}
+
+	@Override
+	public boolean IsFinished()
+	{return Count >= Size() || Victor != Player.NULL;}
+
+	protected void NotifyObservers(TicTacToeEvent event)
+	{
+		for (IObserver<TicTacToeEvent> eye : Observers)
+			eye.OnNext(event);
+	}
+
+	@Override
+	public Iterable<Vector2i> WinningSet()
+	{
+		if (Victor != Player.CROSS && Victor != Player.CIRCLE)
+			return null;
+
+		long[] bits = Victor == Player.CROSS ? Crosses : Circles;
+
+		// Find the first cell that starts a complete line and report the line through it
+		for (int d = 0; d < 4; d++)
+		{
+			LineStarts(bits, Shifts[d]);
+
+			for (int i = 0; i < Words; i++)
+				if (Scratch[i] != 0) {
+					int bit = (i << 6) + Long.numberOfTrailingZeros(Scratch[i]);
+					return LongestLine(new Vector2i(bit % Stride, bit / Stride), Directions[d]);
+				}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Iterable<Vector2i> WinningSet(Vector2i use_me)
+	{
+		if (use_me == null)
+			throw new NullPointerException();
+
+		if (Get(use_me).equals(PieceType.NONE))
+			return null;
+
+		for (Vector2i direction : Directions)
+		{
+			Iterable<Vector2i> line = LongestLine(use_me, direction);
+
+			if (LINQ.Count(line) >= WinningLength) {
+				Victor = Get(use_me).equals(PieceType.CROSS) ? Player.CROSS : Player.CIRCLE;
+				return line;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Determines if {@code bits} contains {@code WinningLength()} set bits in a row in any direction.
+	 * @param bits The bitset of one player.
+	 * @return Returns true if the player owning {@code bits} has a winning line.
+	 */
+	protected boolean HasLine(long[] bits)
+	{
+		// The common case gets to do everything in registers
+		if (Words == 1) {
+			long b = bits[0];
+
+			for (int d = 0; d < 4; d++) {
+				long m = b;
+				int shift = Shifts[d];
+
+				// Shifts of a long only use their low six bits, so a line too long to fit in the word must be skipped rather than wrapped around
+				if ((WinningLength - 1) * shift >= 64)
+					continue;
+
+				for (int i = 1; i < WinningLength && m != 0; i++)
+					m &= b >>> (i * shift);
+
+				if (m != 0)
+					return true;
+			}
+
+			return false;
+		}
+
+		for (int d = 0; d < 4; d++)
+		{
+			LineStarts(bits, Shifts[d]);
+
+			for (int i = 0; i < Words; i++)
+				if (Scratch[i] != 0)
+					return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Fills {@code Scratch} with the bits that start a line of {@code WinningLength()} set bits of {@code bits}, each step of the line being {@code shift} bits apart.
+	 * @param bits The bitset to search.
+	 * @param shift The distance in bits between consecutive cells of a line.
+	 */
+	protected void LineStarts(long[] bits, int shift)
+	{
+		System.arraycopy(bits, 0, Scratch, 0, Words);
+
+		for (int step = 1; step < WinningLength; step++)
+		{
+			int n = step * shift;
+			int wordShift = n >>> 6;
+			int bitShift = n & 63;
+			boolean any = false;
+
+			// Scratch &= bits >>> n, one word at a time
+			for (int i = 0; i < Words; i++)
+			{
+				long shifted = 0;
+
+				if (i + wordShift < Words) {
+					shifted = bits[i + wordShift] >>> bitShift;
+
+					if (bitShift != 0 && i + wordShift + 1 < Words)
+						shifted |= bits[i + wordShift + 1] << (64 - bitShift);
+				}
+
+				Scratch[i] &= shifted;
+				any |= Scratch[i] != 0;
+			}
+
+			if (!any)
+				return;
+		}
+	}
+
+	@Override
+	public Iterable<Vector2i> LongestLine(Vector2i start, Vector2i offset)
+	{
+		PieceType searchType = Get(start);
+		LinkedList<Vector2i> line = new LinkedList<Vector2i>();
+		line.add(start);
+
+		// Walk backwards then forwards from the start for as long as the pieces match
+		for (Vector2i pos = start.Subtract(offset); ContainsIndex(pos) && Get(pos).equals(searchType); pos = pos.Subtract(offset))
+			line.addFirst(pos);
+
+		for (Vector2i pos = start.Add(offset); ContainsIndex(pos) && Get(pos).equals(searchType); pos = pos.Add(offset))
+			line.addLast(pos);
+
+		return line;
+	}
+
+	/**
+	 * Obtains the int index of the cell at ({@code x},{@code y}).
+	 */
+	public int Cell(int x, int y)
+	{return y * Width + x;}
+
+	/**
+	 * Obtains the x coordinate of the cell with int index {@code cell}.
+	 */
+	public int X(int cell)
+	{return cell % Width;}
+
+	/**
+	 * Obtains the y coordinate of the cell with int index {@code cell}.
+	 */
+	public int Y(int cell)
+	{return cell / Width;}
+
+	@Override
+	public Player Victor()
+	{return Victor;}
+
+	@Override
+	public int Width()
+	{return Width;}
+
+	@Override
+	public int Height()
+	{return Height;}
+
+	@Override
+	public int WinningLength()
+	{return WinningLength;}
+
+	/**
+	 * The bits occupied by CROSS pieces.
+	 */
+	protected long[] Crosses;
+
+	/**
+	 * The bits occupied by CIRCLE pieces.
+	 */
+	protected long[] Circles;
+
+	/**
+	 * Working space for multi-word line checks, so they do not allocate.
+	 */
+	protected long[] Scratch;
+
+	/**
+	 * Maps the int index of a cell to its bit in the padded bitsets.
+	 */
+	protected int[] BitOf;
+
+	/**
+	 * The width of this board.
+	 */
+	protected int Width;
+
+	/**
+	 * The height of this board.
+	 */
+	protected int Height;
+
+	/**
+	 * The winning length of this board.
+	 */
+	protected int WinningLength;
+
+	/**
+	 * The number of bits per row, including the guard bit.
+	 */
+	protected int Stride;
+
+	/**
+	 * The number of longs in each bitset.
+	 */
+	protected int Words;
+
+	/**
+	 * The number of cells currently filled on this board.
+	 */
+	protected int Count;
+
+	/**
+	 * The Zobrist hash of the pieces on this board.
+	 */
+	protected long Hash;
+
+	/**
+	 * The stone counts of every window on this board.
+	 */
+	protected WindowCounts Windows;
+
+	/**
+	 * The hashes of the pieces on this board under each of its symmetries.
+	 */
+	protected SymmetricHashes Symmetries;
+
+	/**
+	 * The empty cells near a stone, or null if nobody has asked for them.
+	 */
+	protected CandidateSet Candidates;
+
+	/**
+	 * The patterns of every window, or null if no one has asked for them yet.
+	 */
+	protected PatternScores Patterns;
+
+	/**
+	 * The first layer of the neural network this board is scored with, or null if no one has asked for one yet.
+	 */
+	protected NeuralAccumulator Accumulator;
+
+	/**
+	 * The scanner of this board's windows, or null if no one has asked for it yet.
+	 */
+	protected WindowScanner Scanner;
+
+	/**
+	 * If true, wins are checked for with {@code Scanner} rather than with {@code HasLine}.
+	 */
+	protected boolean ScannedWins;
+
+	/**
+	 * The player that has won, if one exists.
+	 */
+	protected Player Victor;
+
+	/**
+	 * A list of every eye observing this board.
+	 */
+	protected LinkedList<IObserver<TicTacToeEvent>> Observers;
+
+	/**
+	 * The cells changed by each undoable call, oldest first.
+	 */
+	protected int[] HistoryCells;
+
+	/**
+	 * The ordinal of the piece each changed cell held beforehand.
+	 */
+	protected byte[] HistoryPieces;
+
+	/**
+	 * The ordinal of the victor before each change.
+	 */
+	protected byte[] HistoryVictors;
+
+	/**
+	 * The number of changes that can currently be undone.
+	 */
+	protected int HistorySize;
+
+	/**
+	 * Every piece type, indexed by ordinal.
+	 */
+	protected static final PieceType[] Pieces = PieceType.values();
+
+	/**
+	 * Every player, indexed by ordinal.
+	 */
+	protected static final Player[] Players = Player.values();
+
+	/**
+	 * The bit distances between neighbours horizontally, vertically, diagonally, and anti-diagonally.
+	 * These line up with {@code Directions}.
+	 */
+	protected int[] Shifts;
+
+	/**
+	 * The four line directions, in the same order as {@code Shifts}.
+	 */
+	protected static final Vector2i[] Directions = new Vector2i[] {new Vector2i(1, 0), new Vector2i(0, 1), new Vector2i(1, 1), new Vector2i(-1, 1)};
+}
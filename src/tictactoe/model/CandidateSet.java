@@ -0,0 +1,212 @@
+package tictactoe.model;
+
+/**
+ *
+ * The empty cells of a board that lie within a fixed Chebyshev distance of at least one stone.
+ *
+ * On a large board nearly every useful move is close to the stones already played, so these are the only
+ * moves worth searching. The set is kept up to date as stones are placed and removed: each cell counts the
+ * stones near it, and only the cells around a changed cell are touched. The members are stored densely, so
+ * walking them costs time proportional to the number of candidates rather than to the size of the board.
+ *
+ * The order of the members depends on the order stones were played in, and is not otherwise meaningful.
+ *
+ * @author Ray Heil
+ *
+ */
+public class CandidateSet
+{
+	/**
+	 * Creates an empty candidate set for an empty board.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param distance The largest Chebyshev distance from a stone a candidate may be.
+	 * @throws IllegalArgumentException Thrown if {@code distance} is not positive.
+	 */
+	public CandidateSet(int width, int height, int distance)
+	{
+		if (distance < 1)
+			throw new IllegalArgumentException("Candidates must be allowed at least one cell away from a stone.");
+
+		Width = width;
+		Height = height;
+		Distance = distance;
+		Near = new int[width * height];
+		Occupied = new boolean[width * height];
+		Members = new int[width * height];
+		Position = new int[width * height];
+		Size = 0;
+
+		for (int cell = 0; cell < Position.length; cell++)
+			Position[cell] = -1;
+	}
+
+	/**
+	 * Creates a copy of {@code other}.
+	 * @param other The set to copy.
+	 */
+	public CandidateSet(CandidateSet other)
+	{
+		Width = other.Width;
+		Height = other.Height;
+		Distance = other.Distance;
+		Near = other.Near.clone();
+		Occupied = other.Occupied.clone();
+		Members = other.Members.clone();
+		Position = other.Position.clone();
+		Size = other.Size;
+	}
+
+	/**
+	 * Records a stone being placed in the empty cell with int index {@code cell}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 */
+	public void Add(int cell)
+	{
+		Occupied[cell] = true;
+		Exclude(cell);
+
+		int x = cell % Width;
+		int y = cell / Width;
+
+		for (int ny = Math.max(0, y - Distance); ny <= Math.min(Height - 1, y + Distance); ny++)
+			for (int nx = Math.max(0, x - Distance); nx <= Math.min(Width - 1, x + Distance); nx++)
+			{
+				int n = ny * Width + nx;
+
+				if (n != cell && Near[n]++ == 0 && !Occupied[n])
+					Include(n);
+			}
+	}
+
+	/**
+	 * Records the stone in the cell with int index {@code cell} being removed.
+	 * This exactly reverses {@link #Add(int)}, apart from the order of the members.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 */
+	public void Remove(int cell)
+	{
+		Occupied[cell] = false;
+
+		int x = cell % Width;
+		int y = cell / Width;
+
+		for (int ny = Math.max(0, y - Distance); ny <= Math.min(Height - 1, y + Distance); ny++)
+			for (int nx = Math.max(0, x - Distance); nx <= Math.min(Width - 1, x + Distance); nx++)
+			{
+				int n = ny * Width + nx;
+
+				if (n != cell && --Near[n] == 0)
+					Exclude(n);
+			}
+
+		if (Near[cell] > 0)
+			Include(cell);
+	}
+
+	/**
+	 * Forgets every stone.
+	 */
+	public void Clear()
+	{
+		for (int cell = 0; cell < Near.length; cell++) {
+			Near[cell] = 0;
+			Occupied[cell] = false;
+			Position[cell] = -1;
+		}
+
+		Size = 0;
+	}
+
+	/**
+	 * Determines if the cell with int index {@code cell} is a candidate.
+	 */
+	public boolean Contains(int cell)
+	{return Position[cell] >= 0;}
+
+	/**
+	 * Obtains the {@code i}th candidate, for {@code 0 <= i < Size()}.
+	 * @return Returns the int index of the candidate cell.
+	 */
+	public int Get(int i)
+	{return Members[i];}
+
+	/**
+	 * Obtains the number of candidates.
+	 */
+	public int Size()
+	{return Size;}
+
+	/**
+	 * Obtains the largest Chebyshev distance from a stone a candidate may be.
+	 */
+	public int Distance()
+	{return Distance;}
+
+	/**
+	 * Adds {@code cell} to the members if it is not already one.
+	 */
+	protected void Include(int cell)
+	{
+		if (Position[cell] >= 0)
+			return;
+
+		Position[cell] = Size;
+		Members[Size++] = cell;
+	}
+
+	/**
+	 * Removes {@code cell} from the members if it is one, moving the last member into its place.
+	 */
+	protected void Exclude(int cell)
+	{
+		int i = Position[cell];
+		if (i < 0)
+			return;
+
+		int last = Members[--Size];
+		Members[i] = last;
+		Position[last] = i;
+		Position[cell] = -1;
+	}
+
+	/**
+	 * The width of the board.
+	 */
+	protected final int Width;
+
+	/**
+	 * The height of the board.
+	 */
+	protected final int Height;
+
+	/**
+	 * The largest Chebyshev distance from a stone a candidate may be.
+	 */
+	protected final int Distance;
+
+	/**
+	 * The number of stones within {@code Distance} of each cell, not counting a stone in the cell itself.
+	 */
+	protected int[] Near;
+
+	/**
+	 * Whether each cell holds a stone.
+	 */
+	protected boolean[] Occupied;
+
+	/**
+	 * The candidate cells, densely packed in the first {@code Size} entries.
+	 */
+	protected int[] Members;
+
+	/**
+	 * The index of each cell in {@code Members}, or -1 if it is not a candidate.
+	 */
+	protected int[] Position;
+
+	/**
+	 * The number of candidates.
+	 */
+	protected int Size;
+}
@@ -24,10 +24,27 @@ public interface ITicTacToeBoard extends IGrid<Vector2i,PieceType>, IObservable<
 	/**
 	 * Determines if this game is finished.
 	 * A game is finished if no more moves can be made or if a player has at least {@code WinningLength()} number of pieces in a row horizontally, vertically, or diagonally.
+	 * It is also finished, as a tie, once every line of {@code WinningLength()} cells holds pieces of both players, since then nobody can win however many cells are left.
 	 * @return Returns true if the game is over and false otherwise.
 	 */
 	public boolean IsFinished();
 	
+	/**
+	 * Reverts the most recent call to {@code Set} or successful call to {@code Remove}.
+	 * The cell, {@code Count()}, and {@code Victor()} are all restored to what they were before that call, and an appropriate event is issued.
+	 * Calls can be undone repeatedly back to the last {@code Clear()} (or the creation of the board).
+	 * @return Returns true if something was undone and false if there was nothing left to undo.
+	 */
+	public boolean Undo();
+	
+	/**
+	 * Obtains a 64-bit Zobrist hash of the pieces on this board.
+	 * Boards holding the same pieces in the same cells have the same hash, no matter what order the pieces were played in.
+	 * The hash is kept up to date on every change, so this is cheap to call.
+	 * @see Zobrist
+	 */
+	public long Hash();
+	
 	/**
 	 * Obtains a winning set of positions if one exists.
 	 * @return If no one has won, null is returned.
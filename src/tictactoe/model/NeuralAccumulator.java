@@ -0,0 +1,230 @@
+package tictactoe.model;
+
+import java.util.Arrays;
+
+/**
+ *
+ * The first layer of a {@link NeuralNetwork} for one board, kept up to date as stones are placed and removed.
+ *
+ * Each stone adds one row of weights to each side's sums, and moves each window through or just past its
+ * cell from one row to another, so placing or removing one costs at most
+ * {@code 2 * (8 * WinningLength() + 17) * Hidden()} int16 additions however many stones there are, and
+ * scoring the position only has to run the network's small head. The windows are laid out as in
+ * {@link PatternScores}, whose layout this shares.
+ *
+ * @author Ray Heil
+ *
+ */
+public class NeuralAccumulator
+{
+	/**
+	 * Creates the accumulator of an empty board.
+	 * @param network The network whose first layer this is.
+	 * @throws NullPointerException Thrown if {@code network} is null.
+	 */
+	public NeuralAccumulator(NeuralNetwork network)
+	{
+		if (network == null)
+			throw new NullPointerException();
+
+		Network = network;
+		Shape = PatternScores.Layout(network.Width(), network.Height(), network.WinningLength());
+		Sums = new short[2 * network.Hidden()];
+		Crosses = new int[Shape.Empty.length];
+		Circles = new int[Crosses.length];
+		Open = new int[Crosses.length];
+		Clear();
+	}
+
+	/**
+	 * Creates a copy of {@code other}.
+	 * @param other The accumulator to copy.
+	 */
+	public NeuralAccumulator(NeuralAccumulator other)
+	{
+		Network = other.Network;
+		Shape = other.Shape;
+		Sums = other.Sums.clone();
+		Crosses = other.Crosses.clone();
+		Circles = other.Circles.clone();
+		Open = other.Open.clone();
+		Stones = other.Stones;
+	}
+
+	/**
+	 * Records a stone of {@code piece} being placed in the empty cell with int index {@code cell}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param piece The stone placed. Nothing happens for {@code PieceType.NONE}.
+	 */
+	public void Add(int cell, PieceType piece)
+	{
+		if (piece == PieceType.NONE)
+			return;
+
+		Change(cell, piece, 1);
+
+		for (int w : Shape.Through[cell]) {
+			Window(w, -1);
+
+			if (piece == PieceType.CROSS)
+				Crosses[w]++;
+			else
+				Circles[w]++;
+
+			Window(w, 1);
+		}
+
+		// The cell isn't empty any more, so every window it ends is closed at that end
+		for (int w : Shape.Ends[cell]) {
+			Window(w, -1);
+			Open[w]--;
+			Window(w, 1);
+		}
+
+		Stones++;
+	}
+
+	/**
+	 * Records a stone of {@code piece} being taken out of the cell with int index {@code cell}.
+	 * This exactly reverses {@link #Add(int, PieceType)}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param piece The stone removed. Nothing happens for {@code PieceType.NONE}.
+	 */
+	public void Remove(int cell, PieceType piece)
+	{
+		if (piece == PieceType.NONE)
+			return;
+
+		Change(cell, piece, -1);
+
+		for (int w : Shape.Through[cell]) {
+			Window(w, -1);
+
+			if (piece == PieceType.CROSS)
+				Crosses[w]--;
+			else
+				Circles[w]--;
+
+			Window(w, 1);
+		}
+
+		for (int w : Shape.Ends[cell]) {
+			Window(w, -1);
+			Open[w]++;
+			Window(w, 1);
+		}
+
+		Stones--;
+	}
+
+	/**
+	 * Forgets every stone.
+	 */
+	public void Clear()
+	{
+		short[] biases = Network.Biases();
+		int hidden = Network.Hidden();
+
+		System.arraycopy(biases, 0, Sums, 0, hidden);
+		System.arraycopy(biases, 0, Sums, hidden, hidden);
+		Arrays.fill(Crosses, 0);
+		Arrays.fill(Circles, 0);
+
+		for (int w = 0; w < Open.length; w++)
+			Open[w] = Integer.bitCount(Shape.Empty[w]);
+
+		Stones = 0;
+	}
+
+	/**
+	 * Obtains the network's score of the position for {@code piece}, taking CROSS to move when there are as many crosses as circles.
+	 * @param piece The player to score for. This must be {@code PieceType.CROSS} or {@code PieceType.CIRCLE}.
+	 */
+	public float Score(PieceType piece)
+	{
+		float score = Network.Score(Sums, Stones % 2 == 0);
+		return piece == PieceType.CROSS ? score : -score;
+	}
+
+	/**
+	 * Obtains the network whose first layer this is.
+	 */
+	public NeuralNetwork Network()
+	{return Network;}
+
+	/**
+	 * Adds or takes away the weights of a stone from both sides' sums.
+	 * @param sign 1 to add them or -1 to take them away.
+	 */
+	protected void Change(int cell, PieceType piece, int sign)
+	{
+		short[] features = Network.Features();
+		int hidden = Network.Hidden();
+		int cross = Network.Feature(cell, piece == PieceType.CROSS);
+		int circle = Network.Feature(cell, piece == PieceType.CIRCLE);
+
+		for (int j = 0; j < hidden; j++) {
+			Sums[j] += sign * features[cross + j];
+			Sums[hidden + j] += sign * features[circle + j];
+		}
+	}
+
+	/**
+	 * Adds or takes away the weights of window {@code w} from both sides' sums, if it holds the stones of only one side.
+	 * @param sign 1 to add them or -1 to take them away.
+	 */
+	protected void Window(int w, int sign)
+	{
+		int crosses = Crosses[w];
+		int circles = Circles[w];
+
+		if (crosses > 0 == circles > 0)
+			return;
+
+		short[] features = Network.WindowFeatures();
+		int hidden = Network.Hidden();
+		int n = crosses + circles;
+		int cross = Network.WindowFeature(n, Open[w], crosses > 0);
+		int circle = Network.WindowFeature(n, Open[w], circles > 0);
+
+		for (int j = 0; j < hidden; j++) {
+			Sums[j] += sign * features[cross + j];
+			Sums[hidden + j] += sign * features[circle + j];
+		}
+	}
+
+	/**
+	 * The network whose first layer this is.
+	 */
+	protected final NeuralNetwork Network;
+
+	/**
+	 * Where each cell falls in each window, shared with every board of the same shape.
+	 */
+	protected final PatternScores.PatternLayout Shape;
+
+	/**
+	 * CROSS's side's sums, followed by CIRCLE's.
+	 */
+	protected short[] Sums;
+
+	/**
+	 * The number of crosses in each window.
+	 */
+	protected int[] Crosses;
+
+	/**
+	 * The number of circles in each window.
+	 */
+	protected int[] Circles;
+
+	/**
+	 * The number of empty cells just past the ends of each window.
+	 */
+	protected int[] Open;
+
+	/**
+	 * The number of stones on the board.
+	 */
+	protected int Stones;
+}
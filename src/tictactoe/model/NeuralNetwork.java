@@ -0,0 +1,399 @@
+package tictactoe.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *
+ * A small neural network that scores positions of one board shape, built so that it can be kept up to date as moves are made.
+ *
+ * Its inputs are one feature for each cell and whose stone is in it, seen from each player's side: from
+ * CROSS's side a cross is "mine" and a circle "theirs", and from CIRCLE's side the other way around. The
+ * first layer turns the features of each side into {@code Hidden()} int16 sums, its accumulator. Since
+ * the features are just the stones, placing or removing a stone only adds or takes away one row of
+ * weights from each side's accumulator, which is what {@link NeuralAccumulator} does, and the rest of
+ * the network never has to look at the board.
+ *
+ * The stones alone say nothing about lines until a network has seen a great many games, so every window
+ * of {@code WinningLength()} cells is a feature too: a window holding {@code n} stones of one side and none
+ * of the other adds the row for {@code n} of "mine" or "theirs" with however many of the cells just past
+ * its ends are empty, as in {@link PatternTable}, the same row wherever the window is. A stone changes at
+ * most {@code 4 * WinningLength()} windows through its cell and 8 that it ends, so these are kept up to date
+ * the same way.
+ *
+ * The rest of the network is a tiny dense head run on each side's accumulator in turn. It clips the
+ * accumulator to {@code [0, QA]}, multiplies it by an int16 layer of {@code Head()} outputs, clips those
+ * to {@code [0, 1]}, and adds them up with float weights. CROSS's score is the head's value of CROSS's
+ * side less its value of CIRCLE's side, plus {@code Tempo()} if it is CROSS's move and minus it if it is
+ * CIRCLE's, so swapping every stone's colour and whose move it is exactly negates the score.
+ * The score is in units where {@code tanh} of it is how likely CROSS is to win, less how likely it is to lose.
+ *
+ * A network is written by {@code NeuralTrainer} and only read after that, so any number of boards and
+ * threads may share one.
+ *
+ * @author Ray Heil
+ *
+ */
+public class NeuralNetwork
+{
+	/**
+	 * Creates a network from its weights, which it keeps rather than copies.
+	 * @param width The width of the boards it scores.
+	 * @param height The height of the boards it scores.
+	 * @param winningLength The winning length of the boards it scores.
+	 * @param features The first layer's weights, {@code Hidden()} for each of the two features of each cell (its own stone, then its opponent's), scaled by {@code QA}.
+	 * @param windowFeatures The first layer's window weights, {@code Hidden()} for each feature as numbered by {@link #WindowFeature(int, int, boolean)}, scaled by {@code QA}.
+	 * @param biases The first layer's biases, scaled by {@code QA}.
+	 * @param headWeights The head's int16 layer, {@code Head()} weights for each accumulator sum, scaled by {@code QB}.
+	 * @param headBiases The head's int16 layer's biases, scaled by {@code QA * QB}.
+	 * @param outputWeights The weight of each of the head's outputs in the score.
+	 * @param tempo How much being the one to move is worth.
+	 * @throws IllegalArgumentException Thrown if the board is not positive in size, the layers are empty, or the lengths of the weights don't agree.
+	 * @throws NullPointerException Thrown if any of the weights are null.
+	 */
+	public NeuralNetwork(int width, int height, int winningLength, short[] features, short[] windowFeatures, short[] biases, short[] headWeights, int[] headBiases, float[] outputWeights, float tempo)
+	{
+		if (width < 1 || height < 1 || winningLength < 1)
+			throw new IllegalArgumentException("Nonpositive arguments for width, height, or winningLength are illegal.");
+
+		if (features == null || windowFeatures == null || biases == null || headWeights == null || headBiases == null || outputWeights == null)
+			throw new NullPointerException();
+
+		int hidden = biases.length;
+		int head = headBiases.length;
+
+		if (hidden < 1 || head < 1 || features.length != 2 * width * height * hidden || windowFeatures.length != 6 * winningLength * hidden || headWeights.length != hidden * head || outputWeights.length != head)
+			throw new IllegalArgumentException("The lengths of the weights do not agree with each other and the board.");
+
+		Width = width;
+		Height = height;
+		WinningLength = winningLength;
+		Hidden = hidden;
+		Head = head;
+		Features = features;
+		WindowFeatures = windowFeatures;
+		Biases = biases;
+		HeadWeights = headWeights;
+		HeadBiases = headBiases;
+		OutputWeights = outputWeights;
+		Tempo = tempo;
+
+		float bound = 0;
+		for (float w : outputWeights)
+			bound += Math.abs(w);
+
+		Bound = 2 * (bound + Math.abs(tempo));
+	}
+
+	/**
+	 * Reads a network written by {@link #Save(Path)}.
+	 * @param path The file to read.
+	 * @return Returns the network.
+	 * @throws IOException Thrown if the file cannot be read or is not a network.
+	 */
+	public static NeuralNetwork Load(Path path) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+		{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException(path + " is not a neural network.");
+
+			int width = in.readInt();
+			int height = in.readInt();
+			int winningLength = in.readInt();
+			int hidden = in.readInt();
+			int head = in.readInt();
+
+			if (width < 1 || height < 1 || winningLength < 1 || hidden < 1 || head < 1 || (long)(width * height + winningLength) * hidden > Integer.MAX_VALUE / 2)
+				throw new IOException(path + " is not a neural network.");
+
+			short[] features = new short[2 * width * height * hidden];
+			short[] windowFeatures = new short[6 * winningLength * hidden];
+			short[] biases = new short[hidden];
+			short[] headWeights = new short[hidden * head];
+			int[] headBiases = new int[head];
+			float[] outputWeights = new float[head];
+
+			for (int i = 0; i < features.length; i++)
+				features[i] = in.readShort();
+
+			for (int i = 0; i < windowFeatures.length; i++)
+				windowFeatures[i] = in.readShort();
+
+			for (int i = 0; i < biases.length; i++)
+				biases[i] = in.readShort();
+
+			for (int i = 0; i < headWeights.length; i++)
+				headWeights[i] = in.readShort();
+
+			for (int i = 0; i < headBiases.length; i++)
+				headBiases[i] = in.readInt();
+
+			for (int i = 0; i < outputWeights.length; i++)
+				outputWeights[i] = in.readFloat();
+
+			float tempo = in.readFloat();
+
+			if (in.read() >= 0)
+				throw new IOException(path + " has more in it than a neural network.");
+
+			return new NeuralNetwork(width, height, winningLength, features, windowFeatures, biases, headWeights, headBiases, outputWeights, tempo);
+		}
+		catch (EOFException e) {
+			throw new IOException(path + " is truncated.", e);
+		}
+	}
+
+	/**
+	 * Writes this network to a file, all in big endian order.
+	 * The file is a header of seven ints (a magic number, the version, the width, height, and winning length of the board, {@code Hidden()}, and {@code Head()}), then the weights in the order the constructor takes them.
+	 * @param path The file to write. It is replaced if it exists.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public void Save(Path path) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(Width);
+			out.writeInt(Height);
+			out.writeInt(WinningLength);
+			out.writeInt(Hidden);
+			out.writeInt(Head);
+
+			for (short w : Features)
+				out.writeShort(w);
+
+			for (short w : WindowFeatures)
+				out.writeShort(w);
+
+			for (short b : Biases)
+				out.writeShort(b);
+
+			for (short w : HeadWeights)
+				out.writeShort(w);
+
+			for (int b : HeadBiases)
+				out.writeInt(b);
+
+			for (float w : OutputWeights)
+				out.writeFloat(w);
+
+			out.writeFloat(Tempo);
+		}
+
+		return;
+	}
+
+	/**
+	 * Determines if this network is for boards the shape of {@code board}.
+	 */
+	public boolean Covers(ITicTacToeBoard board)
+	{return board.Width() == Width && board.Height() == Height && board.WinningLength() == WinningLength;}
+
+	/**
+	 * Obtains the score of a position for CROSS from its accumulator.
+	 * @param accumulator CROSS's side's sums followed by CIRCLE's, as kept by {@link NeuralAccumulator}.
+	 * @param crossToMove True if it is CROSS's move.
+	 */
+	public float Score(short[] accumulator, boolean crossToMove)
+	{return Side(accumulator, 0) - Side(accumulator, Hidden) + (crossToMove ? Tempo : -Tempo);}
+
+	/**
+	 * Runs the head on one side's accumulator.
+	 * @param accumulator The accumulators of both sides.
+	 * @param offset Where the side's sums start.
+	 */
+	protected float Side(short[] accumulator, int offset)
+	{
+		float value = 0;
+
+		for (int i = 0; i < Head; i++)
+		{
+			int sum = HeadBiases[i];
+
+			for (int j = 0, w = i; j < Hidden; j++, w += Head)
+			{
+				int a = accumulator[offset + j];
+
+				if (a > 0)
+					sum += Math.min(a, QA) * HeadWeights[w];
+			}
+
+			if (sum > 0)
+				value += OutputWeights[i] * Math.min(1.0f, (float)sum / (QA * QB));
+		}
+
+		return value;
+	}
+
+	/**
+	 * Obtains where the weights of a stone in {@code cell} start in {@code Features()}, for one side's accumulator.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param own True if the stone belongs to the side whose accumulator this is.
+	 */
+	public int Feature(int cell, boolean own)
+	{return (2 * cell + (own ? 0 : 1)) * Hidden;}
+
+	/**
+	 * Obtains where the weights of a window holding {@code n} stones of only one side start in {@code WindowFeatures()}, for one side's accumulator.
+	 * @param n The number of stones in the window, from 1 to {@code WinningLength()}.
+	 * @param open The number of empty cells just past the window's ends, from 0 to 2.
+	 * @param own True if the stones belong to the side whose accumulator this is.
+	 */
+	public int WindowFeature(int n, int open, boolean own)
+	{return (2 * (3 * (n - 1) + open) + (own ? 0 : 1)) * Hidden;}
+
+	/**
+	 * Obtains the first layer's weights, as given to the constructor. The returned array is shared and must not be modified.
+	 */
+	public short[] Features()
+	{return Features;}
+
+	/**
+	 * Obtains the first layer's window weights. The returned array is shared and must not be modified.
+	 */
+	public short[] WindowFeatures()
+	{return WindowFeatures;}
+
+	/**
+	 * Obtains the first layer's biases. The returned array is shared and must not be modified.
+	 */
+	public short[] Biases()
+	{return Biases;}
+
+	/**
+	 * Obtains the width of the boards this network scores.
+	 */
+	public int Width()
+	{return Width;}
+
+	/**
+	 * Obtains the height of the boards this network scores.
+	 */
+	public int Height()
+	{return Height;}
+
+	/**
+	 * Obtains the winning length of the boards this network scores.
+	 */
+	public int WinningLength()
+	{return WinningLength;}
+
+	/**
+	 * Obtains the number of sums in each side's accumulator.
+	 */
+	public int Hidden()
+	{return Hidden;}
+
+	/**
+	 * Obtains the number of outputs of the head's int16 layer.
+	 */
+	public int Head()
+	{return Head;}
+
+	/**
+	 * Obtains how much being the one to move is worth.
+	 */
+	public float Tempo()
+	{return Tempo;}
+
+	/**
+	 * Obtains the most any score can differ from any other.
+	 */
+	public float Bound()
+	{return Bound;}
+
+	/**
+	 * The value an accumulator sum is clipped to, which stands for 1.
+	 * Every first layer weight is kept to {@code 1 / (cells + windows + 1)} of the int16 range, so that no sum can overflow however many stones there are.
+	 */
+	public static final int QA = 64;
+
+	/**
+	 * The value of a weight of 1 in the head's int16 layer.
+	 */
+	public static final int QB = 64;
+
+	/**
+	 * The first four bytes of every network file, "MNKN".
+	 */
+	protected static final int MAGIC = 0x4D4E4B4E;
+
+	/**
+	 * The version of the network file format.
+	 */
+	protected static final int VERSION = 1;
+
+	/**
+	 * The width of the boards this network scores.
+	 */
+	protected final int Width;
+
+	/**
+	 * The height of the boards this network scores.
+	 */
+	protected final int Height;
+
+	/**
+	 * The winning length of the boards this network scores.
+	 */
+	protected final int WinningLength;
+
+	/**
+	 * The number of sums in each side's accumulator.
+	 */
+	protected final int Hidden;
+
+	/**
+	 * The number of outputs of the head's int16 layer.
+	 */
+	protected final int Head;
+
+	/**
+	 * The first layer's weights, {@code Hidden} for each feature, scaled by {@code QA}.
+	 */
+	protected final short[] Features;
+
+	/**
+	 * The first layer's window weights, {@code Hidden} for each feature, scaled by {@code QA}.
+	 */
+	protected final short[] WindowFeatures;
+
+	/**
+	 * The first layer's biases, scaled by {@code QA}.
+	 */
+	protected final short[] Biases;
+
+	/**
+	 * The head's int16 layer, {@code Head} weights for each accumulator sum, scaled by {@code QB}.
+	 */
+	protected final short[] HeadWeights;
+
+	/**
+	 * The head's int16 layer's biases, scaled by {@code QA * QB}.
+	 */
+	protected final int[] HeadBiases;
+
+	/**
+	 * The weight of each of the head's outputs in the score.
+	 */
+	protected final float[] OutputWeights;
+
+	/**
+	 * How much being the one to move is worth.
+	 */
+	protected final float Tempo;
+
+	/**
+	 * The most any score can differ from any other.
+	 */
+	protected final float Bound;
+}
@@ -0,0 +1,302 @@
+package tictactoe.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * The pattern of every window of {@code WinningLength()} cells on a board, and their total value from a {@link PatternTable}.
+ *
+ * Each window keeps its pattern index, so placing or removing a stone only has to adjust the index of each
+ * window through its cell (by the stone's digit in that window) and of each window it is just past the end
+ * of (by that end's bit), and swap out the old table value of each for the new one. The total is always up
+ * to date, so reading it costs nothing.
+ *
+ * Where each cell falls in each window is worked out once per board shape and shared by every board of that
+ * shape, like the windows themselves are in {@link WindowCounts}.
+ *
+ * @author Ray Heil
+ *
+ */
+public class PatternScores
+{
+	/**
+	 * Creates the patterns of an empty board of the given shape.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param winningLength The winning length of the board, which is the length of every window.
+	 * @throws IllegalArgumentException Thrown if there is no pattern table for {@code winningLength}.
+	 */
+	public PatternScores(int width, int height, int winningLength)
+	{
+		Table = PatternTable.For(winningLength);
+
+		if (Table == null)
+			throw new IllegalArgumentException("There is no pattern table for a winning length of " + winningLength + ".");
+
+		Shape = Layout(width, height, winningLength);
+		Patterns = new int[Shape.Empty.length];
+		Clear();
+	}
+
+	/**
+	 * Creates a copy of {@code other}.
+	 * @param other The patterns to copy.
+	 */
+	public PatternScores(PatternScores other)
+	{
+		Table = other.Table;
+		Shape = other.Shape;
+		Patterns = other.Patterns.clone();
+		Score = other.Score;
+	}
+
+	/**
+	 * Records a stone of {@code piece} being placed in the empty cell with int index {@code cell}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param piece The stone placed. Nothing happens for {@code PieceType.NONE}.
+	 */
+	public void Add(int cell, PieceType piece)
+	{
+		if (piece == PieceType.NONE)
+			return;
+
+		int digit = piece == PieceType.CROSS ? 1 : 2;
+		int[] through = Shape.Through[cell];
+		int[] steps = Shape.Steps[cell];
+
+		for (int j = 0; j < through.length; j++)
+			Change(through[j], digit * steps[j]);
+
+		// The cell isn't empty any more, so every window it ends is closed at that end
+		int[] ends = Shape.Ends[cell];
+		int[] bits = Shape.EndBits[cell];
+
+		for (int j = 0; j < ends.length; j++)
+			Change(ends[j], -bits[j]);
+	}
+
+	/**
+	 * Records a stone of {@code piece} being taken out of the cell with int index {@code cell}.
+	 * This exactly reverses {@link #Add(int, PieceType)}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param piece The stone removed. Nothing happens for {@code PieceType.NONE}.
+	 */
+	public void Remove(int cell, PieceType piece)
+	{
+		if (piece == PieceType.NONE)
+			return;
+
+		int digit = piece == PieceType.CROSS ? 1 : 2;
+		int[] through = Shape.Through[cell];
+		int[] steps = Shape.Steps[cell];
+
+		for (int j = 0; j < through.length; j++)
+			Change(through[j], -digit * steps[j]);
+
+		int[] ends = Shape.Ends[cell];
+		int[] bits = Shape.EndBits[cell];
+
+		for (int j = 0; j < ends.length; j++)
+			Change(ends[j], bits[j]);
+	}
+
+	/**
+	 * Forgets every stone.
+	 */
+	public void Clear()
+	{
+		System.arraycopy(Shape.Empty, 0, Patterns, 0, Patterns.length);
+		Score = 0;
+	}
+
+	/**
+	 * Obtains how much better the patterns of {@code piece} are than those of its opponent.
+	 * @param piece The player to score for. This must be {@code PieceType.CROSS} or {@code PieceType.CIRCLE}.
+	 */
+	public long Score(PieceType piece)
+	{return piece == PieceType.CROSS ? Score : -Score;}
+
+	/**
+	 * Obtains the pattern index of window {@code w}, numbered as in {@link WindowCounts}.
+	 */
+	public int Pattern(int w)
+	{return Patterns[w];}
+
+	/**
+	 * Obtains the indices of every window that the cell with int index {@code cell} is just past one end of.
+	 * The returned array is shared and must not be modified.
+	 */
+	public int[] WindowsEndingAt(int cell)
+	{return Shape.Ends[cell];}
+
+	/**
+	 * Obtains the table the patterns are valued with.
+	 */
+	public PatternTable Table()
+	{return Table;}
+
+	/**
+	 * Moves window {@code w} to another pattern, keeping the total value in step.
+	 * @param w The window.
+	 * @param change How much its pattern index changes by.
+	 */
+	protected void Change(int w, int change)
+	{
+		Score -= Table.Value(Patterns[w]);
+		Patterns[w] += change;
+		Score += Table.Value(Patterns[w]);
+	}
+
+	/**
+	 * Obtains where each cell falls in each window of a board of the given shape, working it out the first time each shape is seen.
+	 */
+	protected static PatternLayout Layout(int width, int height, int winningLength)
+	{
+		long key = ((long)width << 42) | ((long)height << 21) | winningLength;
+		return Layouts.computeIfAbsent(key, k -> new PatternLayout(width, height, winningLength));
+	}
+
+	/**
+	 * Where each cell falls in each window of one board shape.
+	 */
+	protected static class PatternLayout
+	{
+		public PatternLayout(int width, int height, int winningLength)
+		{
+			int[][][] windows = WindowCounts.Layout(width, height, winningLength);
+			int[][] cells = windows[1];
+			int size = width * height;
+
+			Through = windows[0];
+			Steps = new int[size][];
+			Empty = new int[cells.length];
+
+			int[] powers = new int[winningLength];
+			for (int i = 0, power = 4; i < winningLength; i++, power *= 3)
+				powers[i] = power;
+
+			for (int cell = 0; cell < size; cell++)
+			{
+				Steps[cell] = new int[Through[cell].length];
+
+				for (int j = 0; j < Through[cell].length; j++)
+				{
+					int[] line = cells[Through[cell][j]];
+					int i = 0;
+
+					while (line[i] != cell)
+						i++;
+
+					Steps[cell][j] = powers[i];
+				}
+			}
+
+			// Find the cells just past each end of each window, counting how many windows each cell ends first so every list can be allocated exactly
+			int[] before = new int[cells.length];
+			int[] after = new int[cells.length];
+			int[] sizes = new int[size];
+
+			for (int w = 0; w < cells.length; w++)
+			{
+				before[w] = -1;
+				after[w] = -1;
+
+				// A single cell has no direction, and with a winning length of one the first stone wins anyway
+				if (winningLength < 2)
+					continue;
+
+				int[] line = cells[w];
+				int x = line[0] % width;
+				int y = line[0] / width;
+				int dx = line[1] % width - x;
+				int dy = line[1] / width - y;
+				int ex = line[winningLength - 1] % width;
+				int ey = line[winningLength - 1] / width;
+
+				if (x - dx >= 0 && x - dx < width && y - dy >= 0 && y - dy < height) {
+					before[w] = (y - dy) * width + x - dx;
+					Empty[w] |= 1;
+					sizes[before[w]]++;
+				}
+
+				if (ex + dx >= 0 && ex + dx < width && ey + dy >= 0 && ey + dy < height) {
+					after[w] = (ey + dy) * width + ex + dx;
+					Empty[w] |= 2;
+					sizes[after[w]]++;
+				}
+			}
+
+			Ends = new int[size][];
+			EndBits = new int[size][];
+
+			for (int cell = 0; cell < size; cell++) {
+				Ends[cell] = new int[sizes[cell]];
+				EndBits[cell] = new int[sizes[cell]];
+				sizes[cell] = 0;
+			}
+
+			for (int w = 0; w < cells.length; w++)
+			{
+				if (before[w] >= 0) {
+					Ends[before[w]][sizes[before[w]]] = w;
+					EndBits[before[w]][sizes[before[w]]++] = 1;
+				}
+
+				if (after[w] >= 0) {
+					Ends[after[w]][sizes[after[w]]] = w;
+					EndBits[after[w]][sizes[after[w]]++] = 2;
+				}
+			}
+		}
+
+		/**
+		 * The windows through each cell, as in {@link WindowCounts}.
+		 */
+		public final int[][] Through;
+
+		/**
+		 * How much a stone digit of 1 in each cell adds to the pattern index of each window through it, in the same order as {@code Through}.
+		 */
+		public final int[][] Steps;
+
+		/**
+		 * The windows each cell is just past one end of.
+		 */
+		public final int[][] Ends;
+
+		/**
+		 * Which end bit of each window in {@code Ends} the cell is.
+		 */
+		public final int[][] EndBits;
+
+		/**
+		 * The pattern index of each window on an empty board, which is just its open ends.
+		 */
+		public final int[] Empty;
+	}
+
+	/**
+	 * The layout of every board shape seen so far, keyed by the packed shape.
+	 */
+	protected static final ConcurrentHashMap<Long,PatternLayout> Layouts = new ConcurrentHashMap<Long,PatternLayout>();
+
+	/**
+	 * The table patterns are valued with.
+	 */
+	protected final PatternTable Table;
+
+	/**
+	 * Where each cell falls in each window of this board's shape.
+	 */
+	protected final PatternLayout Shape;
+
+	/**
+	 * The pattern index of each window.
+	 */
+	protected int[] Patterns;
+
+	/**
+	 * The total value of every window for CROSS.
+	 */
+	protected long Score;
+}
@@ -0,0 +1,161 @@
+package tictactoe.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * The value of every pattern a window of {@code k} cells can hold, looked up instead of worked out.
+ *
+ * A pattern is the contents of a window together with whether the cell just past each end of it is empty.
+ * It is encoded as an int: the cells of the window as a base 3 number, first cell lowest, with 0 for empty,
+ * 1 for CROSS, and 2 for CIRCLE, times 4, plus 1 if the cell before the window is empty and 2 if the cell
+ * after it is. A cell past the edge of the board is never empty.
+ *
+ * A window holding stones of both players, or of neither, is worth nothing. Otherwise it is worth
+ * {@code 4 * WindowCounts.Weight(n)} to the player with {@code n} stones in it, adjusted for its shape:
+ * <ul>
+ * <li>a window one stone short of winning is a threat the opponent has to answer, and is worth eight times as much;</li>
+ * <li>each open end adds half, since the line can also be finished or extended past that end, so an open three is worth twice a three boxed in at both ends.</li>
+ * </ul>
+ * Split runs, with gaps between their stones, are worth as much as solid ones, since they take just as many moves to finish.
+ * (Valuing them lower, and threats at only four times, both lost more games against the plain window evaluation than they won.)
+ * The values are for CROSS, so a CIRCLE pattern is worth minus the value of the same pattern with the pieces swapped.
+ *
+ * There is one table for each winning length, built the first time it is needed and shared by every board
+ * after that. It has {@code 4 * 3^k} entries, so only winning lengths up to {@code MAX_LENGTH} have one.
+ *
+ * @author Ray Heil
+ *
+ */
+public class PatternTable
+{
+	/**
+	 * Builds the table for windows of {@code length} cells. Use {@link #For(int)} to share tables instead.
+	 * @param length The winning length.
+	 * @throws IllegalArgumentException Thrown if {@code length} is not from 1 to {@code MAX_LENGTH}.
+	 */
+	protected PatternTable(int length)
+	{
+		if (length < 1 || length > MAX_LENGTH)
+			throw new IllegalArgumentException("Pattern tables only exist for winning lengths from 1 to " + MAX_LENGTH + ".");
+
+		Length = length;
+
+		int patterns = 1;
+		for (int i = 0; i < length; i++)
+			patterns *= 3;
+
+		Values = new int[4 * patterns];
+		MaxValues = new int[length + 1];
+
+		int[] cells = new int[length];
+
+		for (int code = 0; code < patterns; code++)
+		{
+			for (int i = 0, c = code; i < length; i++, c /= 3)
+				cells[i] = c % 3;
+
+			for (int ends = 0; ends < 4; ends++)
+			{
+				int value = Value(cells, ends);
+				Values[4 * code + ends] = value;
+
+				int stones = 0;
+				for (int cell : cells)
+					if (cell != 0)
+						stones++;
+
+				MaxValues[stones] = Math.max(MaxValues[stones], Math.abs(value));
+			}
+		}
+
+		// Make the maxima cumulative
+		for (int n = 1; n <= length; n++)
+			MaxValues[n] = Math.max(MaxValues[n], MaxValues[n - 1]);
+	}
+
+	/**
+	 * Obtains the table for windows of {@code length} cells, building it the first time each length is asked for.
+	 * @param length The winning length.
+	 * @return Returns the table, or null if {@code length} is not from 1 to {@code MAX_LENGTH}.
+	 */
+	public static PatternTable For(int length)
+	{
+		if (length < 1 || length > MAX_LENGTH)
+			return null;
+
+		return Tables.computeIfAbsent(length, PatternTable::new);
+	}
+
+	/**
+	 * Obtains the value of the pattern with index {@code pattern} for CROSS.
+	 */
+	public int Value(int pattern)
+	{return Values[pattern];}
+
+	/**
+	 * Obtains the most any window holding at most {@code n} stones is worth to either player.
+	 */
+	public int MaxValue(int n)
+	{return MaxValues[Math.max(0, Math.min(n, Length))];}
+
+	/**
+	 * Obtains the winning length this table is for.
+	 */
+	public int Length()
+	{return Length;}
+
+	/**
+	 * Works out the value of one pattern for CROSS.
+	 * @param cells The cells of the window in order, 0 for empty, 1 for CROSS, and 2 for CIRCLE.
+	 * @param ends 1 if the cell before the window is empty plus 2 if the cell after it is.
+	 */
+	protected static int Value(int[] cells, int ends)
+	{
+		int crosses = 0;
+		int circles = 0;
+
+		for (int cell : cells)
+			if (cell == 1)
+				crosses++;
+			else if (cell == 2)
+				circles++;
+
+		if (crosses > 0 && circles > 0 || crosses + circles == 0)
+			return 0;
+
+		int n = crosses + circles;
+		long value = 4 * WindowCounts.Weight(n);
+
+		if (n == cells.length - 1)
+			value *= 8;
+
+		value = value * (2 + (ends & 1) + (ends >> 1)) / 2;
+		return (int)(crosses > 0 ? value : -value);
+	}
+
+	/**
+	 * The longest winning length with a table. Its table has a little over two million entries.
+	 */
+	public static final int MAX_LENGTH = 12;
+
+	/**
+	 * The table for each winning length built so far.
+	 */
+	protected static final ConcurrentHashMap<Integer,PatternTable> Tables = new ConcurrentHashMap<Integer,PatternTable>();
+
+	/**
+	 * The winning length this table is for.
+	 */
+	protected final int Length;
+
+	/**
+	 * The value of each pattern for CROSS, by pattern index.
+	 */
+	protected final int[] Values;
+
+	/**
+	 * The most a window with at most each number of stones is worth to either player.
+	 */
+	protected final int[] MaxValues;
+}
@@ -0,0 +1,304 @@
+package tictactoe.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Zobrist hashes of a position under every symmetry of its board.
+ *
+ * A rectangular board looks the same after flipping it horizontally, flipping it vertically, or turning it
+ * half way around, and a square board also after turning it a quarter of the way or flipping it along either
+ * diagonal. Positions related by one of these transforms are worth exactly the same, so a search only needs
+ * to look at one of them. Keeping the hash of the position under every transform lets any of them be told
+ * apart from the others, and the smallest of the hashes is a canonical key shared by all of them.
+ *
+ * The hash under the identity is always the same as the board's own {@code Hash()}. Every hash is a single
+ * XOR to update, so the canonical key is kept up to date with every Set, Remove, and Undo for next to nothing.
+ *
+ * @author Ray Heil
+ *
+ */
+public class SymmetricHashes
+{
+	/**
+	 * Creates the hashes of an empty board of the given shape.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 */
+	public SymmetricHashes(int width, int height)
+	{
+		int[][][] layout = Layout(width, height);
+		Maps = layout[0];
+		Inverses = layout[1];
+		Keys = Keys(width, height);
+		Transforms = Maps.length;
+		Hashes = new long[Transforms];
+	}
+
+	/**
+	 * Makes these hashes the same as {@code other}, which must be for a board of the same shape.
+	 * @param other The hashes to copy.
+	 */
+	public void CopyFrom(SymmetricHashes other)
+	{
+		System.arraycopy(other.Hashes, 0, Hashes, 0, Transforms);
+	}
+
+	/**
+	 * Records a stone of {@code piece} being placed in the cell with int index {@code cell}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param piece The stone placed. Nothing happens for {@code PieceType.NONE}.
+	 */
+	public void Add(int cell, PieceType piece)
+	{
+		if (piece == PieceType.NONE)
+			return;
+
+		long[] keys = Keys[KeyIndex(cell, piece)];
+
+		for (int t = 0; t < Transforms; t++)
+			Hashes[t] ^= keys[t];
+	}
+
+	/**
+	 * Records a stone of {@code piece} being removed from the cell with int index {@code cell}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param piece The stone removed. Nothing happens for {@code PieceType.NONE}.
+	 */
+	public void Remove(int cell, PieceType piece)
+	{
+		// XOR is its own inverse
+		Add(cell, piece);
+	}
+
+	/**
+	 * Forgets every stone.
+	 */
+	public void Clear()
+	{
+		Arrays.fill(Hashes, 0);
+	}
+
+	/**
+	 * Obtains the canonical key of the position, which is the same for every position it is symmetric to.
+	 */
+	public long Canonical()
+	{
+		long min = Hashes[0];
+
+		for (int t = 1; t < Transforms; t++)
+			min = Math.min(min, Hashes[t]);
+
+		return min;
+	}
+
+	/**
+	 * Obtains the canonical key the position would have after placing a stone of {@code piece} in the cell with int index {@code cell}, without placing it.
+	 * @param cell The index of the cell, {@code y * width + x}. It should be empty.
+	 * @param piece The stone to place. This must be {@code PieceType.CROSS} or {@code PieceType.CIRCLE}.
+	 */
+	public long CanonicalAfter(int cell, PieceType piece)
+	{
+		long[] keys = Keys[KeyIndex(cell, piece)];
+		long min = Hashes[0] ^ keys[0];
+
+		for (int t = 1; t < Transforms; t++)
+			min = Math.min(min, Hashes[t] ^ keys[t]);
+
+		return min;
+	}
+
+	/**
+	 * Obtains a transform that takes the position to its canonical orientation, which is the one whose hash is the canonical key.
+	 * Cells are brought into that orientation with {@code Map} and back out of it with {@code Unmap}.
+	 */
+	public int CanonicalTransform()
+	{
+		int best = 0;
+
+		for (int t = 1; t < Transforms; t++)
+			if (Hashes[t] < Hashes[best])
+				best = t;
+
+		return best;
+	}
+
+	/**
+	 * Determines if the position looks the same after transform {@code t}.
+	 */
+	public boolean Fixes(int t)
+	{return Hashes[t] == Hashes[0];}
+
+	/**
+	 * Keeps only one cell of {@code cells} out of each group of cells the position's own symmetries take to one another.
+	 * Placing a stone in any cell of such a group leads to positions that are symmetric to each other, so only one of them needs to be looked at.
+	 * The first cell of each group is kept, and the order of the kept cells is unchanged.
+	 * @param cells The cells to filter, as int indices.
+	 * @param size The number of cells at the start of {@code cells} to consider.
+	 * @return Returns the number of cells kept, which are moved to the start of {@code cells}.
+	 */
+	public int Distinct(int[] cells, int size)
+	{
+		int symmetries = 0;
+
+		for (int t = 1; t < Transforms; t++)
+			if (Fixes(t))
+				symmetries |= 1 << t;
+
+		// Almost every position past the first few moves has no symmetry at all
+		if (symmetries == 0)
+			return size;
+
+		int kept = 0;
+
+		for (int i = 0; i < size; i++)
+		{
+			boolean duplicate = false;
+
+			for (int t = 1; t < Transforms && !duplicate; t++)
+				if ((symmetries & (1 << t)) != 0)
+					for (int j = 0; j < kept && !duplicate; j++)
+						duplicate = cells[j] == Maps[t][cells[i]];
+
+			if (!duplicate)
+				cells[kept++] = cells[i];
+		}
+
+		return kept;
+	}
+
+	/**
+	 * Obtains the hash of the position under transform {@code t}.
+	 */
+	public long Hash(int t)
+	{return Hashes[t];}
+
+	/**
+	 * Obtains the cell that the cell with int index {@code cell} is taken to by transform {@code t}.
+	 */
+	public int Map(int t, int cell)
+	{return Maps[t][cell];}
+
+	/**
+	 * Obtains the cell that transform {@code t} takes to the cell with int index {@code cell}.
+	 */
+	public int Unmap(int t, int cell)
+	{return Inverses[t][cell];}
+
+	/**
+	 * Obtains the number of symmetries of the board, counting the identity, which is transform 0.
+	 * This is 8 for square boards and 4 for all others.
+	 */
+	public int Transforms()
+	{return Transforms;}
+
+	/**
+	 * Obtains the index into {@code Keys} of a stone of {@code piece} in the cell with int index {@code cell}.
+	 */
+	protected static int KeyIndex(int cell, PieceType piece)
+	{return 2 * cell + (piece == PieceType.CROSS ? 0 : 1);}
+
+	/**
+	 * Obtains where every transform takes each cell, followed by where each cell is taken from, for a board of the given shape.
+	 */
+	protected static int[][][] Layout(int width, int height)
+	{
+		long key = ((long)width << 32) | height;
+		return Layouts.computeIfAbsent(key, k -> ComputeLayout(width, height));
+	}
+
+	/**
+	 * Works out the symmetries of a board of the given shape.
+	 */
+	protected static int[][][] ComputeLayout(int width, int height)
+	{
+		int transforms = width == height ? 8 : 4;
+		int[][] maps = new int[transforms][width * height];
+		int[][] inverses = new int[transforms][width * height];
+
+		for (int t = 0; t < transforms; t++)
+			for (int y = 0; y < height; y++)
+				for (int x = 0; x < width; x++)
+				{
+					// The first four flip x and y in every combination, and the last four (square boards only) do the same after swapping x and y
+					int tx = (t & 4) == 0 ? x : y;
+					int ty = (t & 4) == 0 ? y : x;
+
+					if ((t & 1) != 0)
+						tx = width - 1 - tx;
+
+					if ((t & 2) != 0)
+						ty = height - 1 - ty;
+
+					int cell = y * width + x;
+					int image = ty * width + tx;
+					maps[t][cell] = image;
+					inverses[t][image] = cell;
+				}
+
+		return new int[][][] {maps, inverses};
+	}
+
+	/**
+	 * Obtains the Zobrist key of every stone under every transform of a board of the given shape.
+	 */
+	protected static long[][] Keys(int width, int height)
+	{
+		long key = ((long)width << 32) | height;
+		return KeyTables.computeIfAbsent(key, k -> ComputeKeys(width, height));
+	}
+
+	/**
+	 * Works out the Zobrist key of every stone under every transform of a board of the given shape.
+	 * Keys are indexed by {@code KeyIndex} first so that updating every hash for one stone reads a single array.
+	 */
+	protected static long[][] ComputeKeys(int width, int height)
+	{
+		int[][] maps = Layout(width, height)[0];
+		long[][] keys = new long[2 * width * height][maps.length];
+
+		for (int cell = 0; cell < width * height; cell++)
+			for (int t = 0; t < maps.length; t++) {
+				keys[KeyIndex(cell, PieceType.CROSS)][t] = Zobrist.Key(maps[t][cell], PieceType.CROSS);
+				keys[KeyIndex(cell, PieceType.CIRCLE)][t] = Zobrist.Key(maps[t][cell], PieceType.CIRCLE);
+			}
+
+		return keys;
+	}
+
+	/**
+	 * The symmetries of every board shape seen so far, keyed by the packed shape.
+	 */
+	protected static final ConcurrentHashMap<Long,int[][][]> Layouts = new ConcurrentHashMap<Long,int[][][]>();
+
+	/**
+	 * The transformed keys of every board shape seen so far, keyed by the packed shape.
+	 */
+	protected static final ConcurrentHashMap<Long,long[][]> KeyTables = new ConcurrentHashMap<Long,long[][]>();
+
+	/**
+	 * The cell each transform takes each cell to. This is shared between every board of the same shape.
+	 */
+	protected final int[][] Maps;
+
+	/**
+	 * The cell each transform takes to each cell. This is shared between every board of the same shape.
+	 */
+	protected final int[][] Inverses;
+
+	/**
+	 * The key of each stone under each transform. This is shared between every board of the same shape.
+	 */
+	protected final long[][] Keys;
+
+	/**
+	 * The number of symmetries of the board.
+	 */
+	protected final int Transforms;
+
+	/**
+	 * The hash of the position under each transform.
+	 */
+	protected long[] Hashes;
+}
@@ -26,6 +26,8 @@ public class TicTacToeBoard implements ITicTacToeBoard {
 		this.Count = 0;
 		this.Observers = new LinkedList<IObserver<TicTacToeEvent>>();
 		this.Victor = Player.NULL;
+		this.History = new LinkedList<HistoryEntry>();
+		this.LiveDirection = -1;
 		
 		// Fill the board with PieceType.NONE
 		for (int x = 0; x < Width(); x++)
@@ -71,14 +73,19 @@ public class TicTacToeBoard implements ITicTacToeBoard {
 		if (!ContainsIndex(index))
 			throw new IndexOutOfBoundsException("Set: Board does not include index " + index);
 		
-		// Increase count if we are filling a new cell
-		if (Get(index).equals(PieceType.NONE) && !t.equals(PieceType.NONE)) {
+		History.push(new HistoryEntry(index, Get(index), Victor, Count));
+		Hash ^= Zobrist.Key(Cell(index), Get(index)) ^ Zobrist.Key(Cell(index), t);
+		
+		// Increase count if we are filling a new cell, which ties the game if the board is now full or nobody can complete a line any more
+		boolean filling = Get(index).equals(PieceType.NONE) && !t.equals(PieceType.NONE);
+		Board[index.Y][index.X] = t;
+		
+		if (filling) {
 			Count++;
-			if (Count() >= Size())
+			if (Count() >= Size() || IsDeadDraw())
 				Victor = Player.NEITHER;
 		}
 		
-		Board[index.Y][index.X] = t;	
 		NotifyObservers(new TicTacToeEvent(index, t));
 		WinningSet(index);
 		return t;
@@ -101,6 +108,8 @@ public class TicTacToeBoard implements ITicTacToeBoard {
 		if (Board[index.Y][index.X] == PieceType.NONE)
 			return false;
 	
+		History.push(new HistoryEntry(index, Board[index.Y][index.X], Victor, Count));
+		Hash ^= Zobrist.Key(Cell(index), Board[index.Y][index.X]);
 		Board[index.Y][index.X] = PieceType.NONE;
 		Count--;
 		
@@ -109,6 +118,26 @@ public class TicTacToeBoard implements ITicTacToeBoard {
 		
 		return true;
 	}
+	
+	@Override
+	public boolean Undo() {
+		if (History.isEmpty())
+			return false;
+		
+		// Put back exactly what was there, without going through Set (which would record history and check for wins)
+		HistoryEntry last = History.pop();
+		Hash ^= Zobrist.Key(Cell(last.Index), Get(last.Index)) ^ Zobrist.Key(Cell(last.Index), last.Piece);
+		Board[last.Index.Y][last.Index.X] = last.Piece;
+		Victor = last.Victor;
+		Count = last.Count;
+		
+		if (last.Piece.equals(PieceType.NONE))
+			NotifyObservers(new TicTacToeEvent(last.Index));
+		else
+			NotifyObservers(new TicTacToeEvent(last.Index, last.Piece));
+		
+		return true;
+	}
 
 	@Override
 	public boolean IsCellOccupied(Vector2i index) {
@@ -304,9 +333,11 @@ public class TicTacToeBoard implements ITicTacToeBoard {
 
 	@Override
 	public boolean Clear() {
-		// Reset victor and count
+		// Reset victor, count, and history
 		Victor = Player.NULL;
 		Count = 0;
+		Hash = 0;
+		History.clear();
 		
 		// Initialize the board again.
 		for (int y = 0; y < Height(); y++)
@@ -346,13 +377,78 @@ public class TicTacToeBoard implements ITicTacToeBoard {
 		
 		clonedBoard.Victor = this.Victor;
 		clonedBoard.Count = this.Count;
+		clonedBoard.History = new LinkedList<HistoryEntry>(this.History);
 		return clonedBoard;
 	}
 
+	@Override
+	public long Hash()
+	{return Hash;}
+	
+	/**
+	 * Obtains the int index of a cell, which is what Zobrist keys are defined over.
+	 */
+	protected int Cell(Vector2i index)
+	{return index.Y * Width + index.X;}
+
 	@Override
 	public boolean IsFinished() {
 		return (Count() >= Size() || !Victor().equals(Player.NULL));
 	}
+	
+	/**
+	 * Determines if every line of {@code WinningLength()} cells holds pieces of both players, so that nobody can win any more.
+	 * A board too small to hold a single line is never a dead draw, and is played until it is full.
+	 * We remember a line that was still open last time and only look at every line once it closes, so this is usually cheap.
+	 */
+	protected boolean IsDeadDraw()
+	{
+		if (WinningLength() > Width() && WinningLength() > Height())
+			return false;
+		
+		if (LiveDirection >= 0 && IsLive(LiveX, LiveY, LiveDirection))
+			return false;
+		
+		for (int d = 0; d < DIRECTIONS.length; d++)
+			for (int y = 0; y < Height(); y++)
+				for (int x = 0; x < Width(); x++)
+					if (IsLive(x, y, d)) {
+						LiveX = x;
+						LiveY = y;
+						LiveDirection = d;
+						
+						return false;
+					}
+		
+		LiveDirection = -1;
+		return true;
+	}
+	
+	/**
+	 * Determines if the line of {@code WinningLength()} cells starting at ({@code x},{@code y}) and running in direction {@code d} fits on the board and could still be completed by a player.
+	 */
+	protected boolean IsLive(int x, int y, int d)
+	{
+		int dx = DIRECTIONS[d][0];
+		int dy = DIRECTIONS[d][1];
+		int ex = x + dx * (WinningLength() - 1);
+		int ey = y + dy * (WinningLength() - 1);
+		
+		if (ex < 0 || ex >= Width() || ey >= Height())
+			return false;
+		
+		boolean cross = false;
+		boolean circle = false;
+		
+		for (int i = 0; i < WinningLength(); i++)
+		{
+			PieceType piece = Board[y + dy * i][x + dx * i];
+			cross |= piece == PieceType.CROSS;
+			circle |= piece == PieceType.CIRCLE;
+		}
+		
+		return !(cross && circle);
+	}
 
 	protected void NotifyObservers(TicTacToeEvent event) {
 		for (IObserver<TicTacToeEvent> eye : Observers)
@@ -542,6 +638,31 @@ public class TicTacToeBoard implements ITicTacToeBoard {
 	 */
 	protected int Count;
 	
+	/**
+	 * The Zobrist hash of the pieces on this board.
+	 */
+	protected long Hash;
+	
+	/**
+	 * The x coordinate of the first cell of a line that could still be completed when we last looked.
+	 */
+	protected int LiveX;
+	
+	/**
+	 * The y coordinate of the first cell of a line that could still be completed when we last looked.
+	 */
+	protected int LiveY;
+	
+	/**
+	 * The direction of that line as an index into {@code DIRECTIONS}, or -1 if we don't know of one.
+	 */
+	protected int LiveDirection;
+	
+	/**
+	 * The directions lines run in: horizontal, vertical, diagonal, and anti-diagonal.
+	 */
+	protected static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+	
 	/**
 	 * The player that has won, if one exists.
 	 */
@@ -551,5 +672,44 @@ public class TicTacToeBoard implements ITicTacToeBoard {
 	 * A list of every eye observing this board.
 	 */
 	protected LinkedList<IObserver<TicTacToeEvent>> Observers;
+	
+	/**
+	 * Every change that can still be undone, most recent first.
+	 */
+	protected LinkedList<HistoryEntry> History;
+	
+	/**
+	 * What the board looked like just before one call to Set or Remove.
+	 */
+	protected static class HistoryEntry
+	{
+		public HistoryEntry(Vector2i index, PieceType piece, Player victor, int count)
+		{
+			Index = index;
+			Piece = piece;
+			Victor = victor;
+			Count = count;
+		}
+		
+		/**
+		 * The cell that was changed.
+		 */
+		public final Vector2i Index;
+		
+		/**
+		 * The piece that was in the cell beforehand.
+		 */
+		public final PieceType Piece;
+		
+		/**
+		 * The victor beforehand.
+		 */
+		public final Player Victor;
+		
+		/**
+		 * The count beforehand.
+		 */
+		public final int Count;
+	}
 
 }
@@ -0,0 +1,159 @@
+package tictactoe.model;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ *
+ * A {@link WindowScanner} that does its work on whole vectors of words at a time with the Vector API, rather than one word at a time.
+ *
+ * The bitsets are scanned just as {@code WindowScanner} scans them, but the loops over their words AND, XOR and
+ * OR as many words at once as the machine's vectors hold. The scratch bitsets are padded out to a whole number
+ * of vectors, with the padding always zero, so no loop needs a mask for the last words. Shifting the stones
+ * across word boundaries and counting bits are still done a word at a time.
+ *
+ * The Vector API is an incubator module, so this class can only be loaded if the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}. {@link WindowScanner#Create(BitBoard)} only makes one if it was.
+ *
+ * @author Ray Heil
+ *
+ */
+public class VectorWindowScanner extends WindowScanner
+{
+	/**
+	 * Creates a scanner for {@code board}.
+	 * @param board The board to scan. Its shape must not change.
+	 */
+	public VectorWindowScanner(BitBoard board)
+	{super(board, Padded(board.Words));}
+
+	@Override
+	public boolean HasLine(PieceType piece)
+	{
+		long[] mine = piece == PieceType.CROSS ? Board.Crosses : Board.Circles;
+		int words = Free.length;
+
+		for (int d = 0; d < 4; d++)
+		{
+			int shift = Board.Shifts[d];
+			boolean any = true;
+			System.arraycopy(Starts[d], 0, Free, 0, Board.Words);
+
+			// Keep the windows with our stones in every one of their cells, giving up on the direction as soon as there are none
+			for (int i = 0; i < Board.WinningLength && any; i++)
+			{
+				ShiftDown(mine, i * shift, Shifted);
+				LongVector found = LongVector.zero(SPECIES);
+
+				for (int w = 0; w < words; w += SPECIES.length())
+				{
+					LongVector free = LongVector.fromArray(SPECIES, Free, w).and(LongVector.fromArray(SPECIES, Shifted, w));
+					free.intoArray(Free, w);
+					found = found.or(free);
+				}
+
+				any = found.reduceLanes(VectorOperators.OR) != 0;
+			}
+
+			if (any)
+				return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	protected long Scan(long[] mine, long[] theirs, boolean score)
+	{
+		int words = Free.length;
+		int k = Board.WinningLength;
+		long total = 0;
+
+		for (int d = 0; d < 4; d++)
+		{
+			int shift = Board.Shifts[d];
+			System.arraycopy(Starts[d], 0, Free, 0, Board.Words);
+
+			// Keep the windows with none of their stones in them
+			for (int i = 0; i < k; i++)
+			{
+				ShiftDown(theirs, i * shift, Shifted);
+
+				for (int w = 0; w < words; w += SPECIES.length())
+					LongVector.fromArray(SPECIES, Free, w).and(LongVector.fromArray(SPECIES, Shifted, w).not()).intoArray(Free, w);
+			}
+
+			if (!score) {
+				total += BitCount(Free);
+				continue;
+			}
+
+			// Count our stones in every window with a ripple carry adder per lane, the count's bits being spread over the planes
+			for (long[] plane : Counts)
+				Arrays.fill(plane, 0);
+
+			for (int i = 0; i < k; i++)
+			{
+				ShiftDown(mine, i * shift, Shifted);
+
+				for (int w = 0; w < words; w += SPECIES.length())
+				{
+					LongVector carry = LongVector.fromArray(SPECIES, Shifted, w).and(LongVector.fromArray(SPECIES, Free, w));
+
+					for (long[] plane : Counts) {
+						LongVector count = LongVector.fromArray(SPECIES, plane, w);
+						count.lanewise(VectorOperators.XOR, carry).intoArray(plane, w);
+						carry = count.and(carry);
+					}
+				}
+			}
+
+			// Then pick out the windows with each count, leaving them in Shifted to be counted
+			for (int n = 1; n <= k; n++)
+			{
+				for (int w = 0; w < words; w += SPECIES.length())
+				{
+					LongVector match = LongVector.fromArray(SPECIES, Free, w);
+
+					for (int p = 0; p < Counts.length; p++) {
+						LongVector plane = LongVector.fromArray(SPECIES, Counts[p], w);
+						match = match.and((n >>> p & 1) != 0 ? plane : plane.not());
+					}
+
+					match.intoArray(Shifted, w);
+				}
+
+				total += WindowCounts.Weight(n) * BitCount(Shifted);
+			}
+		}
+
+		return total;
+	}
+
+	/**
+	 * Obtains the number of set bits in {@code bits}.
+	 */
+	protected static long BitCount(long[] bits)
+	{
+		long count = 0;
+
+		for (long word : bits)
+			count += Long.bitCount(word);
+
+		return count;
+	}
+
+	/**
+	 * Obtains the number of words the scratch bitsets need to hold {@code words} words in whole vectors.
+	 */
+	protected static int Padded(int words)
+	{return (words + SPECIES.length() - 1) / SPECIES.length() * SPECIES.length();}
+
+	/**
+	 * The widest vectors of longs the machine handles well.
+	 */
+	protected static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+}
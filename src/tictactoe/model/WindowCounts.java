@@ -0,0 +1,352 @@
+package tictactoe.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Per-player stone counts for every window of {@code WinningLength()} cells in a row on a board.
+ *
+ * A window is any horizontal, vertical, or diagonal run of exactly {@code WinningLength()} cells. A window
+ * holding stones of only one player is still winnable by that player, and the more stones it holds the
+ * closer that player is to winning with it. Each player's score is the sum of {@code Weight(n)} over the
+ * windows holding {@code n > 0} of their stones and none of their opponent's.
+ *
+ * A window holding stones of both players can never be won by either, and a cell all of whose windows are
+ * like that is dead: a stone there changes nothing for anyone. Once every window is shared, nobody can
+ * win at all and the game is a draw, however many cells are left.
+ *
+ * The windows through each cell are worked out once per board shape and shared by every board of that
+ * shape. Adding or removing a stone then only touches the windows through its cell, and both scores,
+ * the live windows of each player, and the live windows through each cell are kept up to date as it goes,
+ * so reading any of them costs nothing.
+ *
+ * @author Ray Heil
+ *
+ */
+public class WindowCounts
+{
+	/**
+	 * Creates empty counts for a board of the given shape.
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param winningLength The winning length of the board, which is the length of every window.
+	 */
+	public WindowCounts(int width, int height, int winningLength)
+	{
+		int[][][] layout = Layout(width, height, winningLength);
+		WindowsOf = layout[0];
+		CellsOf = layout[1];
+		Windows = CellsOf.length;
+		Counts = new int[][] {new int[Windows], new int[Windows]};
+		Scores = new long[2];
+		Live = new int[2];
+		LiveThrough = new int[WindowsOf.length];
+
+		Clear();
+	}
+
+	/**
+	 * Makes these counts the same as {@code other}, which must be for a board of the same shape.
+	 * @param other The counts to copy.
+	 */
+	public void CopyFrom(WindowCounts other)
+	{
+		System.arraycopy(other.Counts[0], 0, Counts[0], 0, Windows);
+		System.arraycopy(other.Counts[1], 0, Counts[1], 0, Windows);
+		Scores[0] = other.Scores[0];
+		Scores[1] = other.Scores[1];
+		Live[0] = other.Live[0];
+		Live[1] = other.Live[1];
+		System.arraycopy(other.LiveThrough, 0, LiveThrough, 0, LiveThrough.length);
+	}
+
+	/**
+	 * Records a stone of {@code piece} being placed in the cell with int index {@code cell}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param piece The stone placed. Nothing happens for {@code PieceType.NONE}.
+	 */
+	public void Add(int cell, PieceType piece)
+	{
+		if (piece == PieceType.NONE)
+			return;
+
+		int side = Side(piece);
+		int[] mine = Counts[side];
+		int[] theirs = Counts[1 - side];
+
+		for (int w : WindowsOf[cell])
+		{
+			// A window we share is worth nothing to either of us, and one we just entered is now worth nothing to them
+			if (theirs[w] == 0)
+				Scores[side] += Weight(mine[w] + 1) - Weight(mine[w]);
+			else if (mine[w] == 0) {
+				Scores[1 - side] -= Weight(theirs[w]);
+				Share(w, -1);
+			}
+
+			if (mine[w] == 0)
+				Live[1 - side]--;
+
+			mine[w]++;
+		}
+	}
+
+	/**
+	 * Records a stone of {@code piece} being taken out of the cell with int index {@code cell}.
+	 * This exactly reverses {@link #Add(int, PieceType)}.
+	 * @param cell The index of the cell, {@code y * width + x}.
+	 * @param piece The stone removed. Nothing happens for {@code PieceType.NONE}.
+	 */
+	public void Remove(int cell, PieceType piece)
+	{
+		if (piece == PieceType.NONE)
+			return;
+
+		int side = Side(piece);
+		int[] mine = Counts[side];
+		int[] theirs = Counts[1 - side];
+
+		for (int w : WindowsOf[cell])
+		{
+			mine[w]--;
+
+			if (theirs[w] == 0)
+				Scores[side] -= Weight(mine[w] + 1) - Weight(mine[w]);
+			else if (mine[w] == 0) {
+				Scores[1 - side] += Weight(theirs[w]);
+				Share(w, 1);
+			}
+
+			if (mine[w] == 0)
+				Live[1 - side]++;
+		}
+	}
+
+	/**
+	 * Forgets every stone.
+	 */
+	public void Clear()
+	{
+		for (int w = 0; w < Windows; w++) {
+			Counts[0][w] = 0;
+			Counts[1][w] = 0;
+		}
+
+		Scores[0] = 0;
+		Scores[1] = 0;
+		Live[0] = Windows;
+		Live[1] = Windows;
+
+		for (int cell = 0; cell < LiveThrough.length; cell++)
+			LiveThrough[cell] = WindowsOf[cell].length;
+	}
+
+	/**
+	 * Moves every cell of window {@code w} in or out of play when the window stops or starts being shared by both players.
+	 * @param w The window.
+	 * @param change -1 when the window has just become shared, or 1 when it has just stopped being shared.
+	 */
+	protected void Share(int w, int change)
+	{
+		for (int cell : CellsOf[w])
+			LiveThrough[cell] += change;
+	}
+
+	/**
+	 * Obtains how much better the windows of {@code piece} are than those of its opponent.
+	 * @param piece The player to score for. This must be {@code PieceType.CROSS} or {@code PieceType.CIRCLE}.
+	 * @return Returns the score of {@code piece} minus the score of its opponent.
+	 */
+	public long Score(PieceType piece)
+	{
+		int side = Side(piece);
+		return Scores[side] - Scores[1 - side];
+	}
+
+	/**
+	 * Obtains the number of windows {@code piece} could still win with, which are those holding none of its opponent's stones.
+	 * @param piece The player to count for. This must be {@code PieceType.CROSS} or {@code PieceType.CIRCLE}.
+	 */
+	public int Live(PieceType piece)
+	{return Live[Side(piece)];}
+
+	/**
+	 * Determines if neither player can win any more, because every window holds stones of both.
+	 * A board too small to hold a single window is never drawn this way, and is played until it is full as always.
+	 */
+	public boolean IsDrawn()
+	{return Windows > 0 && Live[0] == 0 && Live[1] == 0;}
+
+	/**
+	 * Determines if the cell with int index {@code cell} is dead, meaning every window through it holds stones of both players.
+	 * A stone in a dead cell can't help or hinder either player, so it is never a better move than any other.
+	 * Every cell of a board too small to hold a single window is dead.
+	 */
+	public boolean IsDead(int cell)
+	{return LiveThrough[cell] == 0;}
+
+	/**
+	 * Obtains the number of {@code piece} stones in window {@code w}.
+	 */
+	public int Count(int w, PieceType piece)
+	{return Counts[Side(piece)][w];}
+
+	/**
+	 * Obtains the indices of every window through the cell with int index {@code cell}.
+	 * The returned array is shared and must not be modified.
+	 */
+	public int[] WindowsThrough(int cell)
+	{return WindowsOf[cell];}
+
+	/**
+	 * Obtains the cells of window {@code w}, in order along its line.
+	 * The returned array is shared and must not be modified.
+	 */
+	public int[] CellsOf(int w)
+	{return CellsOf[w];}
+
+	/**
+	 * Obtains the number of windows on the board.
+	 */
+	public int Windows()
+	{return Windows;}
+
+	/**
+	 * Obtains the value of a window holding {@code n} stones of one player and none of the other.
+	 * Each extra stone doubles the value, so a single nearly complete line outweighs several barely started ones.
+	 */
+	public static long Weight(int n)
+	{return n == 0 ? 0 : 1L << Math.min(n - 1, 62);}
+
+	/**
+	 * Obtains the index of {@code piece} into {@code Counts} and {@code Scores}.
+	 */
+	protected static int Side(PieceType piece)
+	{return piece == PieceType.CROSS ? 0 : 1;}
+
+	/**
+	 * Obtains the windows through every cell and the cells of every window of a board of the given shape, computing them the first time each shape is seen.
+	 * @return Returns the windows through each cell followed by the cells of each window.
+	 */
+	protected static int[][][] Layout(int width, int height, int winningLength)
+	{
+		long key = ((long)width << 42) | ((long)height << 21) | winningLength;
+		return Layouts.computeIfAbsent(key, k -> ComputeLayout(width, height, winningLength));
+	}
+
+	/**
+	 * Numbers every window on a board of the given shape and lists the windows through each cell and the cells of each window.
+	 */
+	protected static int[][][] ComputeLayout(int width, int height, int winningLength)
+	{
+		int[][] cells = new int[CountWindows(width, height, winningLength)][winningLength];
+		int[] sizes = new int[width * height];
+		int windows = 0;
+
+		// First count the windows through each cell so every list can be allocated exactly
+		for (int pass = 0; pass < 2; pass++)
+		{
+			int[][] through = pass == 0 ? null : new int[width * height][];
+			if (through != null)
+				for (int cell = 0; cell < through.length; cell++) {
+					through[cell] = new int[sizes[cell]];
+					sizes[cell] = 0;
+				}
+
+			windows = 0;
+			for (int[] d : DIRECTIONS)
+				for (int y = 0; y < height; y++)
+					for (int x = 0; x < width; x++)
+					{
+						int ex = x + d[0] * (winningLength - 1);
+						int ey = y + d[1] * (winningLength - 1);
+
+						if (ex < 0 || ex >= width || ey >= height)
+							continue;
+
+						for (int i = 0; i < winningLength; i++)
+						{
+							int cell = (y + d[1] * i) * width + x + d[0] * i;
+
+							if (through != null) {
+								through[cell][sizes[cell]] = windows;
+								cells[windows][i] = cell;
+							}
+
+							sizes[cell]++;
+						}
+
+						windows++;
+					}
+
+			if (through != null)
+				return new int[][][] {through, cells};
+		}
+
+		return null;
+	}
+
+	/**
+	 * Counts the windows on a board of the given shape.
+	 */
+	protected static int CountWindows(int width, int height, int winningLength)
+	{
+		int windows = 0;
+
+		for (int[] d : DIRECTIONS)
+		{
+			int spanX = d[0] == 0 ? width : width - winningLength + 1;
+			int spanY = d[1] == 0 ? height : height - winningLength + 1;
+
+			if (spanX > 0 && spanY > 0)
+				windows += spanX * spanY;
+		}
+
+		return windows;
+	}
+
+	/**
+	 * The line directions windows run in: horizontal, vertical, diagonal, and anti-diagonal.
+	 */
+	protected static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+
+	/**
+	 * The layout of every board shape seen so far, keyed by the packed shape.
+	 */
+	protected static final ConcurrentHashMap<Long,int[][][]> Layouts = new ConcurrentHashMap<Long,int[][][]>();
+
+	/**
+	 * The indices of the windows through each cell. This is shared between every board of the same shape.
+	 */
+	protected final int[][] WindowsOf;
+
+	/**
+	 * The cells of each window. This is shared between every board of the same shape.
+	 */
+	protected final int[][] CellsOf;
+
+	/**
+	 * The number of windows on the board.
+	 */
+	protected final int Windows;
+
+	/**
+	 * The number of stones each player has in each window, CROSS first.
+	 */
+	protected int[][] Counts;
+
+	/**
+	 * The score of each player, CROSS first.
+	 */
+	protected long[] Scores;
+
+	/**
+	 * The number of windows each player could still win with, CROSS first.
+	 */
+	protected int[] Live;
+
+	/**
+	 * The number of windows through each cell that are not shared by both players.
+	 */
+	protected int[] LiveThrough;
+}
@@ -0,0 +1,277 @@
+package tictactoe.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Counts the windows of a {@link BitBoard} from scratch, 64 windows at a time.
+ *
+ * Every bit of the board's bitsets is a cell, so every bit can also stand for the window that starts at that
+ * cell and runs {@code WinningLength()} cells in one direction. Shifting a bitset down by one step in that
+ * direction lines each window's next cell up with its first, so a window's cells can be combined with
+ * plain bitwise operations on whole words: OR-ing the opponent's shifted stones finds the windows they are
+ * in, and adding our shifted stones into a bit-sliced counter (one word per bit of the count) counts ours
+ * in every window at once. The answer is the same as {@link WindowCounts} keeps, but found without it.
+ *
+ * A scanner belongs to one board and reads its stones directly, so it is always up to date, but it keeps
+ * scratch space and must only be used by one thread at a time, like its board.
+ *
+ * @author Ray Heil
+ *
+ */
+public class WindowScanner
+{
+	/**
+	 * Creates a scanner for {@code board}.
+	 * @param board The board to scan. Its shape must not change.
+	 */
+	public WindowScanner(BitBoard board)
+	{this(board, board.Words);}
+
+	/**
+	 * Creates a scanner for {@code board} whose scratch space has room for {@code words} words, for scanners that work on more words than the board has.
+	 * @param board The board to scan. Its shape must not change.
+	 * @param words The length of the scratch bitsets, at least {@code board.Words}. The words past the board's stay zero.
+	 */
+	protected WindowScanner(BitBoard board, int words)
+	{
+		Board = board;
+		Starts = Layout(board);
+
+		int planes = 1;
+		while ((1 << planes) <= board.WinningLength)
+			planes++;
+
+		Free = new long[words];
+		Shifted = new long[words];
+		Counts = new long[planes][words];
+	}
+
+	/**
+	 * Creates the fastest scanner this JVM can run for {@code board}: a {@link VectorWindowScanner} if the Vector API is available, and a plain one if not.
+	 * @param board The board to scan. Its shape must not change.
+	 */
+	public static WindowScanner Create(BitBoard board)
+	{return VECTORIZED ? new VectorWindowScanner(board) : new WindowScanner(board);}
+
+	/**
+	 * Obtains how much better the windows of {@code piece} are than those of its opponent, as {@link WindowCounts#Score(PieceType)} does.
+	 * @param piece The player to score for. This must be {@code PieceType.CROSS} or {@code PieceType.CIRCLE}.
+	 */
+	public long Score(PieceType piece)
+	{
+		long crosses = Scan(Board.Crosses, Board.Circles, true);
+		long circles = Scan(Board.Circles, Board.Crosses, true);
+
+		return piece == PieceType.CROSS ? crosses - circles : circles - crosses;
+	}
+
+	/**
+	 * Obtains the number of windows {@code piece} could still win with, as {@link WindowCounts#Live(PieceType)} does.
+	 * @param piece The player to count for. This must be {@code PieceType.CROSS} or {@code PieceType.CIRCLE}.
+	 */
+	public int Live(PieceType piece)
+	{return (int)(piece == PieceType.CROSS ? Scan(Board.Crosses, Board.Circles, false) : Scan(Board.Circles, Board.Crosses, false));}
+
+	/**
+	 * Determines if {@code piece} has {@code WinningLength()} stones in a row anywhere, as {@link BitBoard} checks after every move.
+	 * Only bits that start a window on the board are kept, so no line can wrap from one row to the next or run off the end of the bitsets.
+	 * @param piece The player to look for. This must be {@code PieceType.CROSS} or {@code PieceType.CIRCLE}.
+	 */
+	public boolean HasLine(PieceType piece)
+	{
+		long[] mine = piece == PieceType.CROSS ? Board.Crosses : Board.Circles;
+		int words = Board.Words;
+
+		for (int d = 0; d < 4; d++)
+		{
+			int shift = Board.Shifts[d];
+			long any = 0;
+			System.arraycopy(Starts[d], 0, Free, 0, words);
+
+			// Keep the windows with our stones in every one of their cells, giving up on the direction as soon as there are none
+			for (int i = 0; i < Board.WinningLength; i++)
+			{
+				ShiftDown(mine, i * shift, Shifted);
+				any = 0;
+
+				for (int w = 0; w < words; w++)
+					any |= Free[w] &= Shifted[w];
+
+				if (any == 0)
+					break;
+			}
+
+			if (any != 0)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Scans every window for one player.
+	 * @param mine The stones of the player.
+	 * @param theirs The stones of their opponent.
+	 * @param score True to sum the weights of the windows the player could still win with, or false to just count them.
+	 */
+	protected long Scan(long[] mine, long[] theirs, boolean score)
+	{
+		int words = Board.Words;
+		int k = Board.WinningLength;
+		long total = 0;
+
+		for (int d = 0; d < 4; d++)
+		{
+			int shift = Board.Shifts[d];
+			System.arraycopy(Starts[d], 0, Free, 0, words);
+
+			// Keep the windows with none of their stones in them
+			for (int i = 0; i < k; i++)
+			{
+				ShiftDown(theirs, i * shift, Shifted);
+
+				for (int w = 0; w < words; w++)
+					Free[w] &= ~Shifted[w];
+			}
+
+			if (!score) {
+				for (int w = 0; w < words; w++)
+					total += Long.bitCount(Free[w]);
+
+				continue;
+			}
+
+			// Count our stones in every window with a ripple carry adder per word, the count's bits being spread over the planes
+			for (long[] plane : Counts)
+				Arrays.fill(plane, 0);
+
+			for (int i = 0; i < k; i++)
+			{
+				ShiftDown(mine, i * shift, Shifted);
+
+				for (int w = 0; w < words; w++)
+				{
+					long carry = Shifted[w] & Free[w];
+
+					for (int p = 0; p < Counts.length && carry != 0; p++) {
+						long next = Counts[p][w] & carry;
+						Counts[p][w] ^= carry;
+						carry = next;
+					}
+				}
+			}
+
+			// Then pick out the windows with each count
+			for (int w = 0; w < words; w++)
+			{
+				if (Free[w] == 0)
+					continue;
+
+				for (int n = 1; n <= k; n++)
+				{
+					long match = Free[w];
+
+					for (int p = 0; p < Counts.length; p++)
+						match &= (n >>> p & 1) != 0 ? Counts[p][w] : ~Counts[p][w];
+
+					total += WindowCounts.Weight(n) * Long.bitCount(match);
+				}
+			}
+		}
+
+		return total;
+	}
+
+	/**
+	 * Shifts {@code bits} down by {@code n} bits into {@code out}, bringing in zeros at the top.
+	 */
+	protected void ShiftDown(long[] bits, int n, long[] out)
+	{
+		int words = Board.Words;
+		int wordShift = n >>> 6;
+		int bitShift = n & 63;
+
+		for (int i = 0; i < words; i++)
+		{
+			long shifted = 0;
+
+			if (i + wordShift < words) {
+				shifted = bits[i + wordShift] >>> bitShift;
+
+				if (bitShift != 0 && i + wordShift + 1 < words)
+					shifted |= bits[i + wordShift + 1] << (64 - bitShift);
+			}
+
+			out[i] = shifted;
+		}
+	}
+
+	/**
+	 * Obtains the bits that start a window in each direction on boards of the same shape as {@code board}, working them out the first time each shape is seen.
+	 */
+	protected static long[][] Layout(BitBoard board)
+	{
+		long key = ((long)board.Width << 42) | ((long)board.Height << 21) | board.WinningLength;
+
+		return Layouts.computeIfAbsent(key, k -> {
+			long[][] starts = new long[4][board.Words];
+
+			// A window starts wherever its first cell and every cell after it are on the board, which the empty column at the end of each row sees to
+			for (int d = 0; d < 4; d++)
+				for (int cell = 0; cell < board.Size(); cell++)
+				{
+					int x = cell % board.Width;
+					int y = cell / board.Width;
+					int dx = d == 0 || d == 2 ? 1 : d == 3 ? -1 : 0;
+					int dy = d == 0 ? 0 : 1;
+					int ex = x + dx * (board.WinningLength - 1);
+					int ey = y + dy * (board.WinningLength - 1);
+
+					if (ex >= 0 && ex < board.Width && ey < board.Height) {
+						int bit = board.BitOf[cell];
+						starts[d][bit >>> 6] |= 1L << bit;
+					}
+				}
+
+			return starts;
+		});
+	}
+
+	/**
+	 * If true, the JVM was started with the Vector API ({@code --add-modules jdk.incubator.vector}) and {@code Create} makes vector scanners.
+	 * Without it the vector scanner can't be loaded, so it is never touched.
+	 */
+	public static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+	/**
+	 * The bits that start a window in each direction, for every board shape seen so far, keyed by the packed shape.
+	 */
+	protected static final ConcurrentHashMap<Long,long[][]> Layouts = new ConcurrentHashMap<Long,long[][]>();
+
+	/**
+	 * The board scanned.
+	 */
+	protected final BitBoard Board;
+
+	/**
+	 * The bits that start a window in each direction of {@code BitBoard.Shifts}.
+	 */
+	protected final long[][] Starts;
+
+	/**
+	 * The windows free of the opponent's stones in the direction being scanned.
+	 */
+	protected final long[] Free;
+
+	/**
+	 * A bitset shifted down some number of steps.
+	 */
+	protected final long[] Shifted;
+
+	/**
+	 * The number of our stones in each window of the direction being scanned, one bit of the count per plane.
+	 */
+	protected final long[][] Counts;
+}
@@ -0,0 +1,46 @@
+package tictactoe.model;
+
+/**
+ *
+ * Zobrist keys for hashing board positions.
+ *
+ * Every (cell, piece) pair has a fixed pseudorandom 64-bit key, and the hash of a position is the XOR of
+ * the keys of every piece on it. Placing or removing a piece is therefore a single XOR, which is what lets
+ * the boards keep their hash up to date on every Set, Remove, and Undo.
+ *
+ * Keys are computed from the cell index rather than looked up, so boards of every size agree on them and
+ * nothing needs to be shared between threads.
+ *
+ * @author Ray Heil
+ *
+ */
+public final class Zobrist
+{
+	private Zobrist()
+	{}
+
+	/**
+	 * Obtains the key of {@code piece} sitting in the cell with int index {@code cell}.
+	 * @param cell The index of the cell, {@code y * Width() + x}.
+	 * @param piece The piece in the cell.
+	 * @return Returns the key, which is 0 for {@code PieceType.NONE}.
+	 */
+	public static long Key(int cell, PieceType piece)
+	{
+		if (piece == PieceType.NONE)
+			return 0;
+
+		return Mix(2L * cell + (piece == PieceType.CROSS ? 0 : 1));
+	}
+
+	/**
+	 * Scrambles {@code x} with the SplitMix64 finalizer, so that nearby inputs produce unrelated keys.
+	 */
+	protected static long Mix(long x)
+	{
+		long z = (x + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,6 +1,16 @@
 package tictactoe.test;
 
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -8,11 +18,30 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import gamecore.LINQ.LINQ;
+import gamecore.datastructures.tuples.Pair;
 import gamecore.datastructures.vectors.Vector2i;
+import gamecore.observe.IObserver;
+import tictactoe.AI.DfpnAI;
+import tictactoe.AI.Evaluation;
+import tictactoe.AI.MctsAI;
+import tictactoe.AI.NeuralTrainer;
+import tictactoe.AI.Outcome;
+import tictactoe.AI.OpeningBook;
+import tictactoe.AI.OpeningBookBuilder;
+import tictactoe.AI.ParallelMode;
+import tictactoe.AI.SearchAlgorithm;
+import tictactoe.AI.SearchStatistics;
+import tictactoe.AI.Tablebase;
+import tictactoe.AI.TablebaseGenerator;
+import tictactoe.AI.ThreatSearch;
 import tictactoe.AI.TicTacToeAI;
+import tictactoe.AI.TranspositionTable;
+import tictactoe.model.BitBoard;
 import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.NeuralNetwork;
 import tictactoe.model.PieceType;
 import tictactoe.model.Player;
 import tictactoe.model.TicTacToeBoard;
@@ -75,5 +104,706 @@ public class AITests {
 			assertEquals("Failed on iteration " + i + ".", 8, LINQ.Count(states));
 		}
 	}
+	
+	@Test
+	public void MakeUnmakeMatchesClone()
+	{
+		TicTacToeBoard b = new TicTacToeBoard(4, 4, 3);
+		b.Set(PieceType.CROSS, new Vector2i(1, 1));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 1));
+		
+		// Use separate AIs so that the second search doesn't start from the first one's transposition table
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 6);
+		Vector2i fast = ai.GetNextMove(b);
+		ai = new TicTacToeAI(Player.CROSS, 6);
+		ai.SetMakeUnmake(false);
+		Vector2i slow = ai.GetNextMove(b);
+		
+		assertEquals(slow, fast);
+		assertEquals(2, b.Count()); // The caller's board must be left alone
+	}
+	
+	@Test
+	public void ParallelMatchesSequential()
+	{
+		// CIRCLE threatens to complete a line at (3,0), and every other move loses
+		TicTacToeBoard b = new TicTacToeBoard(5, 5, 4);
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 0));
+		b.Set(PieceType.CROSS, new Vector2i(2, 2));
+		b.Set(PieceType.CROSS, new Vector2i(4, 4));
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		TicTacToeAI parallel = new TicTacToeAI(Player.CROSS, 6);
+		parallel.SetPool(pool);
+		
+		Vector2i move = parallel.GetNextMove(b);
+		parallel.SetParallelMode(ParallelMode.LAZY_SMP);
+		Vector2i lazy = parallel.GetNextMove(b);
+		pool.shutdown();
+		
+		assertEquals(new Vector2i(3, 0), move);
+		assertEquals(new Vector2i(3, 0), lazy);
+		assertEquals(new Vector2i(3, 0), new TicTacToeAI(Player.CROSS, 6).GetNextMove(b));
+	}
+	
+	@Test
+	public void TimeBudgetIsRespected()
+	{
+		// Difficulty 10 on an empty 6x6 board would take far longer than this to search fully
+		TicTacToeBoard b = new TicTacToeBoard(6, 6, 4);
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 10);
+		
+		long start = System.currentTimeMillis();
+		Vector2i move = ai.GetNextMove(b, 200);
+		long elapsed = System.currentTimeMillis() - start;
+		
+		assertTrue(b.ContainsIndex(move));
+		assertTrue("Took " + elapsed + "ms", elapsed < 1000);
+	}
+	
+	@Test
+	public void ParallelTimeBudgetIsRespected()
+	{
+		// The workers that split the root are kept from one iteration to the next, but the first iteration has no deadline for them to keep
+		TicTacToeBoard b = new TicTacToeBoard(6, 6, 4);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 10);
+		ai.SetPool(pool);
+		
+		long start = System.currentTimeMillis();
+		Vector2i move = ai.GetNextMove(b, 200);
+		long elapsed = System.currentTimeMillis() - start;
+		pool.shutdown();
+		
+		assertTrue(b.ContainsIndex(move));
+		assertTrue("Took " + elapsed + "ms", elapsed < 1000);
+	}
+	
+	@Test
+	public void TimeBudgetFindsWin()
+	{
+		TicTacToeBoard b = new TicTacToeBoard(5, 5, 4);
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 0));
+		b.Set(PieceType.CROSS, new Vector2i(4, 4));
+		b.Set(PieceType.CROSS, new Vector2i(0, 4));
+		
+		TicTacToeAI ai = new TicTacToeAI(Player.CIRCLE, 10);
+		assertEquals(new Vector2i(3, 0), ai.GetNextMove(b, 100));
+	}
+	
+	@Test
+	public void ThreatSearchFindsDoubleFour()
+	{
+		// Playing (4,0) makes two fours at once, one along the top row and one down the right
+		BitBoard b = new BitBoard(9, 9, 5);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CROSS, new Vector2i(1, 0));
+		b.Set(PieceType.CROSS, new Vector2i(2, 0));
+		b.Set(PieceType.CROSS, new Vector2i(4, 1));
+		b.Set(PieceType.CROSS, new Vector2i(4, 2));
+		b.Set(PieceType.CROSS, new Vector2i(4, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(8, 8));
+		b.Set(PieceType.CIRCLE, new Vector2i(7, 8));
+		b.Set(PieceType.CIRCLE, new Vector2i(8, 7));
+		b.Set(PieceType.CIRCLE, new Vector2i(6, 6));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 8));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 6));
+		long hash = b.Hash();
+		
+		ThreatSearch threats = new ThreatSearch(b, PieceType.CROSS, 10000);
+		assertEquals(b.Cell(4, 0), threats.FindVcf(1));
+		assertTrue(threats.FindVcf(12) >= 0);
+		assertEquals(-1, new ThreatSearch(b, PieceType.CIRCLE, 10000).FindVcf(12));
+		
+		// The search must leave the board as it found it
+		assertEquals(hash, b.Hash());
+		assertEquals(12, b.Count());
+		
+		// CIRCLE has no immediate win to block, so CROSS should cash in
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 3);
+		ITicTacToeBoard after = b.Clone();
+		after.Set(PieceType.CROSS, ai.GetNextMove(b));
+		assertTrue(new ThreatSearch((BitBoard)after, PieceType.CROSS, 10000).Wins(PieceType.CROSS).length >= 1);
+	}
+	
+	@Test
+	public void ThreatSearchTriesQuietDefences()
+	{
+		// CROSS wins from here, but not with (0,1), which CIRCLE answers with the quiet (4,3) to make a three of their own and take over
+		BitBoard b = new BitBoard(6, 6, 4);
+		b.Set(PieceType.CROSS, new Vector2i(1, 1));
+		b.Set(PieceType.CIRCLE, new Vector2i(3, 2));
+		b.Set(PieceType.CROSS, new Vector2i(1, 4));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 5));
+		assertEquals(Outcome.WIN, new DfpnAI(Player.CROSS).Solve(b).Item1);
+		
+		// Any move the threat search says is forced had better keep the win
+		int forced = new ThreatSearch(b, PieceType.CROSS, 100000).FindVct(2, 12);
+		if (forced >= 0) {
+			BitBoard after = new BitBoard(b);
+			after.Set(PieceType.CROSS, forced);
+			assertEquals(Outcome.LOSS, new DfpnAI(Player.CIRCLE).Solve(after).Item1);
+		}
+		
+		b.Set(PieceType.CROSS, new TicTacToeAI(Player.CROSS, 5).GetNextMove(b));
+		assertEquals(Outcome.LOSS, new DfpnAI(Player.CIRCLE).Solve(b).Item1);
+	}
+	
+	@Test
+	public void DfpnSolvesSmallBoards()
+	{
+		DfpnAI ai = new DfpnAI(Player.CROSS);
+		assertEquals(Outcome.DRAW, ai.Solve(new BitBoard(3, 3, 3)).Item1);
+		assertEquals(Outcome.DRAW, ai.Solve(new BitBoard(4, 4, 4)).Item1);
+		
+		// Three in a row on 4x4 is a first player win, so the move played had better keep it one
+		BitBoard b = new BitBoard(4, 4, 3);
+		Pair<Outcome,Vector2i> solution = ai.Solve(b);
+		assertEquals(Outcome.WIN, solution.Item1);
+		
+		b.Set(PieceType.CROSS, solution.Item2);
+		assertEquals(Outcome.LOSS, new DfpnAI(Player.CIRCLE).Solve(b).Item1);
+		
+		// A lost position still gets a move from the minimax fallback
+		assertTrue(!b.IsCellOccupied(new DfpnAI(Player.CIRCLE, 3).GetNextMove(b)));
+	}
+	
+	@Test
+	public void TablebaseMatchesSolver() throws Exception
+	{
+		ForkJoinPool pool = new ForkJoinPool(2);
+		Tablebase generated = new TablebaseGenerator(4, 3, 3, pool).Generate();
+		pool.shutdown();
+		
+		// The file must give back exactly what was saved
+		Path file = Files.createTempFile("tablebase", ".bin");
+		generated.Save(file);
+		Tablebase tablebase = Tablebase.Load(file);
+		Files.delete(file);
+		
+		assertEquals(generated.Positions(), tablebase.Positions());
+		assertEquals(Outcome.WIN, tablebase.Probe(new BitBoard(4, 3, 3)));
+		
+		// Random positions along random games must agree with the proof-number solver, and the tablebase's move must keep the value
+		Random rand = new Random(5);
+		
+		for (int game = 0; game < 20; game++)
+		{
+			BitBoard b = new BitBoard(4, 3, 3);
+			
+			while (!b.IsFinished())
+			{
+				Player mover = b.Count() % 2 == 0 ? Player.CROSS : Player.CIRCLE;
+				Outcome outcome = tablebase.Probe(b);
+				assertEquals(new DfpnAI(mover).Solve(b).Item1, outcome);
+				
+				Vector2i move = tablebase.BestMove(b);
+				b.Set(mover == Player.CROSS ? PieceType.CROSS : PieceType.CIRCLE, move);
+				
+				if (outcome == Outcome.WIN)
+					assertTrue(b.IsFinished() || tablebase.Probe(b) == Outcome.LOSS);
+				else if (outcome == Outcome.DRAW)
+					assertTrue(b.IsFinished() ? b.Victor() == Player.NEITHER : tablebase.Probe(b) == Outcome.DRAW);
+				
+				// Play on randomly half the time, so that lost and drawn positions come up too
+				if (!b.IsFinished() && rand.nextBoolean()) {
+					b.Undo();
+					int cell;
+					do cell = rand.nextInt(b.Size()); while (!b.IsEmpty(cell));
+					b.Set(mover == Player.CROSS ? PieceType.CROSS : PieceType.CIRCLE, cell);
+				}
+			}
+		}
+		
+		// An AI with a tablebase plays from it at any difficulty above 1
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 2);
+		ai.SetTablebase(tablebase);
+		BitBoard b = new BitBoard(4, 3, 3);
+		b.Set(PieceType.CROSS, ai.GetNextMove(b));
+		assertEquals(Outcome.LOSS, tablebase.Probe(b));
+	}
+	
+	@Test
+	public void OpeningBookServesSymmetricPositions() throws Exception
+	{
+		ForkJoinPool pool = new ForkJoinPool(2);
+		Path file = Files.createTempFile("book", ".bin");
+		file.toFile().deleteOnExit();
+		int entries = new OpeningBookBuilder(7, 7, 4, 3, 3, 0, pool).Build(file);
+		pool.shutdown();
+		
+		OpeningBook book = OpeningBook.Open(file);
+		assertEquals(entries, book.Size());
+		assertTrue(entries > 2);
+		
+		// The search only ever starts in the center
+		assertEquals(new Vector2i(3, 3), book.Lookup(new BitBoard(7, 7, 4)));
+		
+		// A position and its mirror image share an entry, and the move is mirrored to match
+		BitBoard b = new BitBoard(7, 7, 4);
+		b.Set(PieceType.CROSS, new Vector2i(3, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(4, 2));
+		BitBoard mirror = new BitBoard(7, 7, 4);
+		mirror.Set(PieceType.CROSS, new Vector2i(3, 3));
+		mirror.Set(PieceType.CIRCLE, new Vector2i(2, 2));
+		
+		Vector2i move = book.Lookup(b);
+		assertEquals(new Vector2i(6 - move.X, move.Y), book.Lookup(mirror));
+		assertEquals(book.Score(b), book.Score(mirror), 0);
+		
+		// Positions outside the book are left to the search
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(6, 6));
+		assertEquals(null, book.Lookup(b));
+		
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 3);
+		ai.SetOpeningBook(book);
+		assertEquals(book.Lookup(mirror), ai.GetNextMove(mirror));
+		assertTrue(ai.GetNextMove(b) != null);
+	}
+	
+	@Test
+	public void MctsFindsWinAndKeepsTree()
+	{
+		// CROSS wins at (2,0), and anything else loses to CIRCLE at (2,1)
+		BitBoard b = new BitBoard(3, 3, 3);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 1));
+		b.Set(PieceType.CROSS, new Vector2i(1, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		
+		ForkJoinPool pool = new ForkJoinPool(2);
+		MctsAI ai = new MctsAI(Player.CROSS, 4);
+		ai.SetPool(pool);
+		assertEquals(new Vector2i(2, 0), ai.GetNextMove(b));
+		
+		// After our move and a reply next to it, the search carries on from where the last one left off (the threat search would otherwise find a forced win here first)
+		b = new BitBoard(6, 6, 4);
+		ai.SetThreatSearch(false);
+		Vector2i move = ai.GetNextMove(b);
+		assertEquals(0, ai.GetReusedVisits());
+		b.Set(PieceType.CROSS, move);
+		b.Set(PieceType.CIRCLE, new Vector2i(move.X + 1, move.Y));
+		
+		assertTrue(!b.IsCellOccupied(ai.GetNextMove(b)));
+		assertTrue(ai.GetReusedVisits() > 0);
+		assertEquals(ai.GetReusedVisits() + ai.GetPlayouts(), ai.GetTreeVisits());
+		pool.shutdown();
+	}
+	
+	@Test
+	public void MctsTimeBudgetIsRespected()
+	{
+		// A playout on an empty 19x19 board costs hundreds of nodes of alpha-beta, so checking the clock only every thousand or so would overrun the budget many times over
+		BitBoard b = new BitBoard(19, 19, 5);
+		MctsAI ai = new MctsAI(Player.CROSS, 10);
+		ai.GetNextMove(b, 20);
+		
+		long start = System.currentTimeMillis();
+		Vector2i move = ai.GetNextMove(b, 20);
+		long elapsed = System.currentTimeMillis() - start;
+		
+		assertTrue(b.ContainsIndex(move));
+		assertTrue("Took " + elapsed + "ms", elapsed < 150);
+	}
+	
+	@Test
+	public void StatisticsAreReported()
+	{
+		TicTacToeBoard b = new TicTacToeBoard(5, 5, 4);
+		b.Set(PieceType.CROSS, new Vector2i(2, 2));
+		b.Set(PieceType.CIRCLE, new Vector2i(3, 2));
+		
+		ArrayList<SearchStatistics> seen = new ArrayList<SearchStatistics>();
+		IObserver<SearchStatistics> eye = new IObserver<SearchStatistics>() {
+			public void OnNext(SearchStatistics event) {seen.add(event);}
+			public void OnError(Exception e) {}
+			public void OnCompleted() {}
+		};
+		ByteArrayOutputStream log = new ByteArrayOutputStream();
+		
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 5);
+		ai.SetThreatSearch(false);
+		ai.Subscribe(eye);
+		ai.SetStatisticsLog(new PrintStream(log));
+		Vector2i move = ai.GetNextMove(b);
+		
+		assertEquals(1, seen.size());
+		SearchStatistics stats = seen.get(0);
+		assertEquals(stats, ai.GetLastStatistics());
+		assertEquals(move, stats.Move());
+		
+		// Every depth up to difficulty - 1 was searched, and the iterations add up to the whole search
+		assertEquals(4, stats.Depth());
+		assertEquals(4, stats.IterationCount());
+		long nodes = 0;
+		for (int i = 0; i < stats.IterationCount(); i++)
+			nodes += stats.IterationNodes(i);
+		assertEquals(stats.Nodes(), nodes);
+		
+		assertTrue(stats.Leaves() > 0 && stats.Leaves() < stats.Nodes());
+		assertTrue(stats.Cutoffs() > 0 && stats.FirstMoveCutoffRate() <= 1);
+		assertTrue(stats.TableHits() > 0 && stats.TableHits() <= stats.TableProbes());
+		assertTrue(stats.BranchingFactor() > 1);
+		assertTrue(log.toString().contains("depth 4"));
+		
+		ai.Unsubscribe(eye);
+		ai.GetNextMove(b);
+		assertEquals(1, seen.size());
+	}
+	
+	@Test
+	public void MoveOrderingSearchesFewerNodes()
+	{
+		BitBoard b = new BitBoard(9, 9, 5);
+		b.Set(PieceType.CROSS, new Vector2i(3, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(4, 4));
+		b.Set(PieceType.CROSS, new Vector2i(4, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(3, 4));
+		
+		// Killers and history change which moves are tried first, not what the search finds
+		TicTacToeAI plain = new TicTacToeAI(Player.CROSS, 6);
+		plain.SetThreatSearch(false);
+		plain.SetMoveOrdering(false);
+		Vector2i expected = plain.GetNextMove(b);
+		
+		TicTacToeAI ordered = new TicTacToeAI(Player.CROSS, 6);
+		ordered.SetThreatSearch(false);
+		assertEquals(expected, ordered.GetNextMove(b));
+		
+		SearchStatistics before = plain.GetLastStatistics();
+		SearchStatistics after = ordered.GetLastStatistics();
+		assertEquals(before.Depth(), after.Depth());
+		assertTrue(after.Nodes() + " vs " + before.Nodes(), after.Nodes() < before.Nodes());
+		assertTrue(after.FirstMoveCutoffRate() > before.FirstMoveCutoffRate());
+	}
+	
+	@Test
+	public void PrincipalVariationSearchPrefersQuickWins()
+	{
+		BitBoard b = new BitBoard(9, 9, 5);
+		b.Set(PieceType.CROSS, new Vector2i(3, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(4, 4));
+		b.Set(PieceType.CROSS, new Vector2i(4, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(3, 4));
+		
+		TicTacToeAI minimax = new TicTacToeAI(Player.CROSS, 6);
+		minimax.SetThreatSearch(false);
+		minimax.GetNextMove(b);
+		
+		TicTacToeAI pvs = new TicTacToeAI(Player.CROSS, 6);
+		pvs.SetThreatSearch(false);
+		pvs.SetSearchAlgorithm(SearchAlgorithm.PVS);
+		pvs.GetNextMove(b);
+		
+		assertEquals(minimax.GetLastStatistics().Depth(), pvs.GetLastStatistics().Depth());
+		assertTrue(pvs.GetLastStatistics().Nodes() < minimax.GetLastStatistics().Nodes());
+		
+		// An open three wins at once at either end, and in three moves in plenty of other ways, which minimax can't tell apart
+		b = new BitBoard(7, 7, 4);
+		b.Set(PieceType.CROSS, new Vector2i(2, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 0));
+		b.Set(PieceType.CROSS, new Vector2i(3, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(6, 0));
+		b.Set(PieceType.CROSS, new Vector2i(4, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 6));
+		
+		b.Set(PieceType.CROSS, pvs.GetNextMove(b));
+		assertEquals(Player.CROSS, b.Victor());
+	}
+	
+	@Test
+	public void MtdfFindsQuickWins()
+	{
+		TicTacToeAI mtdf = new TicTacToeAI(Player.CROSS, 5);
+		mtdf.SetThreatSearch(false);
+		mtdf.SetSearchAlgorithm(SearchAlgorithm.MTDF);
+		
+		// Nothing is decided yet, so every iteration runs
+		BitBoard b = new BitBoard(7, 7, 4);
+		b.Set(PieceType.CROSS, new Vector2i(3, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(4, 4));
+		assertTrue(b.IsCellEmpty(mtdf.GetNextMove(b)));
+		assertEquals(4, mtdf.GetLastStatistics().Depth());
+		
+		b = new BitBoard(7, 7, 4);
+		b.Set(PieceType.CROSS, new Vector2i(2, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 0));
+		b.Set(PieceType.CROSS, new Vector2i(3, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(6, 0));
+		b.Set(PieceType.CROSS, new Vector2i(4, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 6));
+		
+		b.Set(PieceType.CROSS, mtdf.GetNextMove(b));
+		assertEquals(Player.CROSS, b.Victor());
+	}
+	
+	@Test
+	public void SelectiveSearchVisitsFewerNodes()
+	{
+		BitBoard b = new BitBoard(9, 9, 5);
+		b.Set(PieceType.CROSS, new Vector2i(3, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(4, 4));
+		b.Set(PieceType.CROSS, new Vector2i(4, 3));
+		b.Set(PieceType.CIRCLE, new Vector2i(3, 4));
+		
+		TicTacToeAI full = new TicTacToeAI(Player.CROSS, 6);
+		full.SetThreatSearch(false);
+		full.SetSearchAlgorithm(SearchAlgorithm.PVS);
+		Vector2i expected = full.GetNextMove(b);
+		
+		// Futility pruning only skips moves that could not have changed the result
+		TicTacToeAI futile = new TicTacToeAI(Player.CROSS, 6);
+		futile.SetThreatSearch(false);
+		futile.SetSearchAlgorithm(SearchAlgorithm.PVS);
+		futile.SetFutilityPruning(true);
+		assertEquals(expected, futile.GetNextMove(b));
+		assertTrue(futile.GetLastStatistics().Nodes() <= full.GetLastStatistics().Nodes());
+		
+		TicTacToeAI reduced = new TicTacToeAI(Player.CROSS, 6);
+		reduced.SetThreatSearch(false);
+		reduced.SetSearchAlgorithm(SearchAlgorithm.PVS);
+		reduced.SetLateMoveReductions(true);
+		reduced.SetFutilityPruning(true);
+		reduced.GetNextMove(b);
+		
+		assertEquals(full.GetLastStatistics().Depth(), reduced.GetLastStatistics().Depth());
+		assertTrue(reduced.GetLastStatistics().Nodes() + " vs " + full.GetLastStatistics().Nodes(), reduced.GetLastStatistics().Nodes() < full.GetLastStatistics().Nodes());
+	}
+	
+	@Test
+	public void PatternEvaluationBlocksOpenLines()
+	{
+		// One ply deep, nothing but the evaluation tells CROSS to answer an open three
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 2);
+		ai.SetThreatSearch(false);
+		ai.SetSearchAlgorithm(SearchAlgorithm.PVS);
+		ai.SetEvaluation(Evaluation.PATTERNS);
+		assertEquals(Evaluation.PATTERNS, ai.GetEvaluation());
+		
+		BitBoard b = new BitBoard(9, 9, 5);
+		b.Set(PieceType.CROSS, new Vector2i(6, 6));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 2));
+		b.Set(PieceType.CROSS, new Vector2i(7, 7));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 3));
+		b.Set(PieceType.CROSS, new Vector2i(6, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 4));
+		
+		Vector2i block = ai.GetNextMove(b);
+		assertTrue(block.toString(), block.equals(new Vector2i(2, 1)) || block.equals(new Vector2i(2, 5)));
+		
+		// A four is worth finishing
+		b.Set(PieceType.CROSS, block);
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 8));
+		b.Set(PieceType.CROSS, new Vector2i(5, 5));
+		b.Set(PieceType.CIRCLE, new Vector2i(8, 0));
+		b.Set(PieceType.CROSS, new Vector2i(4, 4));
+		b.Set(PieceType.CIRCLE, new Vector2i(3, 3));
+		
+		b.Set(PieceType.CROSS, ai.GetNextMove(b));
+		assertEquals(Player.CROSS, b.Victor());
+	}
+	
+	@Test
+	public void WindowScannerSearchesTheSameTree()
+	{
+		// The scanner finds the same scores and wins as the counts, so a search with it must pick the same move after visiting the same nodes
+		Random rand = new Random(24);
+		
+		for (int game = 0; game < 5; game++)
+		{
+			BitBoard b = new BitBoard(9, 9, 5);
+			
+			for (int ply = 0; ply < 6; ply++) {
+				int cell;
+				do cell = rand.nextInt(b.Size()); while (!b.IsEmpty(cell));
+				b.Set(ply % 2 == 0 ? PieceType.CROSS : PieceType.CIRCLE, cell);
+			}
+			
+			TicTacToeAI counted = new TicTacToeAI(Player.CROSS, 4);
+			TicTacToeAI scanned = new TicTacToeAI(Player.CROSS, 4);
+			scanned.SetWindowScanner(true);
+			assertTrue(scanned.GetWindowScanner());
+			
+			assertEquals(counted.GetNextMove(b), scanned.GetNextMove(b));
+			assertEquals(counted.GetLastStatistics().Nodes(), scanned.GetLastStatistics().Nodes());
+			assertTrue(!b.ScannedWins()); // The caller's board must be left alone
+		}
+	}
+	
+	@Test
+	public void NeuralTrainerLearnsFromSelfPlay() throws Exception
+	{
+		// CROSS always wins 4x4/3 with good play, which even a few games and epochs should teach
+		ForkJoinPool pool = new ForkJoinPool(2);
+		NeuralNetwork network = new NeuralTrainer(4, 4, 3, 40, 4, 10, 1, pool).Train();
+		pool.shutdown();
+		
+		BitBoard b = new BitBoard(4, 4, 3);
+		assertTrue(b.Accumulator(network).Score(PieceType.CROSS) > 0);
+		
+		// The weights file gives back the same network
+		Path file = Files.createTempFile("network", ".bin");
+		file.toFile().deleteOnExit();
+		network.Save(file);
+		NeuralNetwork loaded = NeuralNetwork.Load(file);
+		
+		b.Set(PieceType.CROSS, new Vector2i(1, 1));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 3));
+		assertEquals(new BitBoard(b).Accumulator(network).Score(PieceType.CROSS), b.Accumulator(loaded).Score(PieceType.CROSS), 0);
+		
+		// The AI plays with it on the boards it is for, and falls back to the windows on others
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 4);
+		ai.SetEvaluation(Evaluation.NEURAL);
+		ai.SetNetwork(loaded);
+		
+		while (!b.IsFinished())
+			b.Set(b.Count() % 2 == 0 ? PieceType.CROSS : PieceType.CIRCLE, b.Count() % 2 == 0 ? ai.GetNextMove(b) : new TicTacToeAI(Player.CIRCLE, 4).GetNextMove(b));
+		
+		assertEquals(Player.CROSS, b.Victor());
+		assertTrue(ai.GetNextMove(new BitBoard(5, 5, 3)) != null);
+	}
+	
+	@Test
+	public void DeadCellsAreNotSearched()
+	{
+		// X O .
+		// . O O
+		// X . X
+		// Every line through the top right corner holds both pieces
+		BitBoard b = new BitBoard(3, 3, 3);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 0));
+		b.Set(PieceType.CROSS, new Vector2i(2, 2));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 1));
+		b.Set(PieceType.CROSS, new Vector2i(0, 2));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 9);
+		assertEquals(2, LINQ.Count(ai.GetChildStates(b)));
+		assertTrue(!LINQ.Contains(ai.GetChildStates(b), new Vector2i(2, 0)));
+		
+		ai.SetDeadCellPruning(false);
+		assertEquals(3, LINQ.Count(ai.GetChildStates(b)));
+		
+		ai.SetDeadCellPruning(true);
+		b.Set(PieceType.CROSS, ai.GetNextMove(b));
+		assertEquals(Player.CROSS, b.Victor());
+	}
+	
+	@Test
+	public void AsyncMoveUsesSnapshot() throws Exception
+	{
+		TicTacToeBoard b = new TicTacToeBoard(5, 5, 4);
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 0));
+		b.Set(PieceType.CROSS, new Vector2i(4, 4));
+		b.Set(PieceType.CROSS, new Vector2i(0, 4));
+		
+		TicTacToeAI ai = new TicTacToeAI(Player.CIRCLE, 4);
+		CompletableFuture<Vector2i> move = ai.GetNextMoveAsync(b);
+		
+		// Changing the board afterward must not change what the AI is thinking about
+		b.Set(PieceType.CROSS, new Vector2i(3, 0));
+		assertEquals(new Vector2i(3, 0), move.get(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void AsyncMoveCanBeCancelled()
+	{
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 10);
+		CompletableFuture<Vector2i> move = ai.GetNextMoveAsync(new BitBoard(15, 15, 5));
+		
+		assertTrue(move.cancel(true));
+		assertTrue(move.isCancelled());
+		
+		// The AI is still usable afterward
+		TicTacToeBoard b = new TicTacToeBoard(3, 3, 3);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CROSS, new Vector2i(1, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 2));
+		assertEquals(new Vector2i(2, 0), ai.GetNextMoveAsync(b).join());
+	}
+	
+	@Test
+	public void TranspositionTableStoreAndProbe()
+	{
+		TranspositionTable table = new TranspositionTable(1 << 10);
+		assertEquals(TranspositionTable.MISS, table.Probe(42));
+		
+		table.Store(42, Double.NEGATIVE_INFINITY, 7, 5, TranspositionTable.LOWER);
+		long entry = table.Probe(42);
+		assertEquals(Double.NEGATIVE_INFINITY, TranspositionTable.Score(entry), 0);
+		assertEquals(7, TranspositionTable.Move(entry));
+		assertEquals(5, TranspositionTable.Depth(entry));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.Bound(entry));
+		assertEquals(0.5, table.HitRate(), 0);
+		
+		// Storing again without a move keeps the old move
+		table.Store(42, 3, -1, 6, TranspositionTable.EXACT);
+		assertEquals(7, TranspositionTable.Move(table.Probe(42)));
+	}
+	
+	@Test
+	public void TranspositionTableHashesTranspositions()
+	{
+		TicTacToeBoard a = new TicTacToeBoard(3, 3, 3);
+		a.Set(PieceType.CROSS, new Vector2i(0, 0));
+		a.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		a.Set(PieceType.CROSS, new Vector2i(2, 2));
+		
+		TicTacToeBoard b = new TicTacToeBoard(3, 3, 3);
+		b.Set(PieceType.CROSS, new Vector2i(2, 2));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		
+		assertEquals(a.Hash(), b.Hash());
+		assertEquals(a.Hash(), new BitBoard(b).Hash());
+		
+		b.Undo();
+		assertTrue(a.Hash() != b.Hash());
+	}
+	
+	@Test
+	public void TranspositionTableIsClearedOnNewShape()
+	{
+		// Positions with the same stones hash alike whatever the winning length, so what was learned about four in a row mustn't be used for three
+		TicTacToeAI ai = new TicTacToeAI(Player.CROSS, 8);
+		ai.SetSymmetry(false);
+		
+		Random rand = new Random(26);
+		int checked = 0;
+		
+		while (checked < 10)
+		{
+			BitBoard b = new BitBoard(4, 4, 3);
+			
+			for (int ply = 2 * rand.nextInt(3); ply > 0 && !b.IsFinished(); ply--) {
+				int cell;
+				do cell = rand.nextInt(b.Size()); while (!b.IsEmpty(cell));
+				b.Set(b.Count() % 2 == 0 ? PieceType.CROSS : PieceType.CIRCLE, cell);
+			}
+			
+			if (b.IsFinished() || new DfpnAI(Player.CROSS).Solve(b).Item1 != Outcome.WIN)
+				continue;
+			
+			// Search the same stones with four in a row first, which is a draw, then see that it still wins with three
+			BitBoard four = new BitBoard(4, 4, 4);
+			
+			for (int cell = 0; cell < b.Size(); cell++)
+				four.Set(b.Get(cell), cell);
+			
+			ai.GetNextMove(four);
+			b.Set(PieceType.CROSS, ai.GetNextMove(b));
+			assertTrue(b.Victor() == Player.CROSS || new DfpnAI(Player.CIRCLE).Solve(b).Item1 == Outcome.LOSS);
+			checked++;
+		}
+	}
 
 }
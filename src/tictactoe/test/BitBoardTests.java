@@ -0,0 +1,620 @@
+package tictactoe.test;
+
+import tictactoe.model.BitBoard;
+import tictactoe.model.CandidateSet;
+import tictactoe.model.ITicTacToeBoard;
+import tictactoe.model.NeuralAccumulator;
+import tictactoe.model.NeuralNetwork;
+import tictactoe.model.PieceType;
+import tictactoe.model.Player;
+import tictactoe.model.SymmetricHashes;
+import tictactoe.model.TicTacToeBoard;
+import tictactoe.model.VectorWindowScanner;
+import tictactoe.model.WindowScanner;
+
+import java.util.Random;
+
+import gamecore.LINQ.LINQ;
+import gamecore.datastructures.vectors.Vector2i;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+public class BitBoardTests
+{
+	@Test
+	public void BoardDefaultConstructor()
+	{
+		BitBoard b = new BitBoard(3, 3, 3);
+		for (int i = 0; i < 3; i++)
+			for (int j = 0; j < 3; j++)
+				assertEquals(PieceType.NONE, b.Get(new Vector2i(i, j)));
+		assertEquals(Player.NULL, b.Victor());
+	}
+
+	@Test
+	public void GetSet()
+	{
+		BitBoard b = new BitBoard(3, 3, 3);
+		b.Set(PieceType.CROSS, new Vector2i(2, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 2));
+		assertEquals(PieceType.CROSS, b.Get(new Vector2i(2, 0)));
+		assertEquals(PieceType.CIRCLE, b.Get(new Vector2i(0, 2)));
+		assertEquals(PieceType.CIRCLE, b.Get(b.Cell(0, 2)));
+		assertEquals(2, b.Count());
+	}
+
+	@Test
+	public void WinHorizontal()
+	{
+		BitBoard b = new BitBoard(3,3,3);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CROSS, new Vector2i(1, 0));
+		assertFalse(b.IsFinished());
+		b.Set(PieceType.CROSS, new Vector2i(2, 0));
+		assertEquals(Player.CROSS, b.Victor());
+		assertEquals(3, LINQ.Count(b.WinningSet(new Vector2i(1, 0))));
+		assertEquals(3, LINQ.Count(b.WinningSet()));
+	}
+
+	@Test
+	public void WinAntiDiagonal()
+	{
+		BitBoard b = new BitBoard(10, 3, 3);
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 2));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 0));
+		assertEquals(Player.CIRCLE, b.Victor());
+		assertEquals(3, LINQ.Count(b.WinningSet()));
+	}
+
+	@Test
+	public void NoWrapAroundRows()
+	{
+		// (3,0) and (0,1) are adjacent in memory but not on the board
+		BitBoard b = new BitBoard(4, 4, 3);
+		b.Set(PieceType.CROSS, new Vector2i(2, 0));
+		b.Set(PieceType.CROSS, new Vector2i(3, 0));
+		b.Set(PieceType.CROSS, new Vector2i(0, 1));
+		assertEquals(Player.NULL, b.Victor());
+
+		// Nor should a diagonal step off the right edge land on the next row
+		b.Set(PieceType.CIRCLE, new Vector2i(3, 1));
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 2));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 3));
+		assertEquals(Player.NULL, b.Victor());
+	}
+
+	@Test
+	public void NoWrapAroundWideBoards()
+	{
+		// A line that spans 64 bits or more of a one-word board can't be on it, however the shift wraps
+		BitBoard b = new BitBoard(31, 2, 3);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CROSS, new Vector2i(0, 1));
+		assertEquals(Player.NULL, b.Victor());
+
+		b = new BitBoard(63, 1, 2);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		assertEquals(Player.NULL, b.Victor());
+		b.Set(PieceType.CROSS, new Vector2i(1, 0));
+		assertEquals(Player.CROSS, b.Victor());
+
+		// And random games on wide, short boards still agree with the array board
+		Random rand = new Random(1001);
+		int[][] sizes = {{31, 2, 3}, {63, 1, 2}, {21, 2, 2}, {20, 3, 3}, {40, 2, 3}};
+
+		for (int[] size : sizes)
+			for (int game = 0; game < 25; game++)
+			{
+				TicTacToeBoard array = new TicTacToeBoard(size[0], size[1], size[2]);
+				BitBoard bits = new BitBoard(size[0], size[1], size[2]);
+				PieceType turn = PieceType.CROSS;
+
+				while (!array.IsFinished())
+				{
+					Vector2i pos = new Vector2i(rand.nextInt(size[0]), rand.nextInt(size[1]));
+					if (array.IsCellOccupied(pos))
+						continue;
+
+					array.Set(turn, pos);
+					bits.Set(turn, pos);
+					turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+
+					assertEquals(array.Victor(), bits.Victor());
+				}
+			}
+	}
+
+	@Test
+	public void WinLargeBoardMultipleWords()
+	{
+		BitBoard b = new BitBoard(15, 15, 5);
+		b.Set(PieceType.CROSS, new Vector2i(10, 1));
+		b.Set(PieceType.CROSS, new Vector2i(9, 2));
+		b.Set(PieceType.CROSS, new Vector2i(8, 3));
+		b.Set(PieceType.CROSS, new Vector2i(7, 4));
+		assertFalse(b.IsFinished());
+		b.Set(PieceType.CROSS, new Vector2i(6, 5));
+		assertEquals(Player.CROSS, b.Victor());
+		assertEquals(5, LINQ.Count(b.WinningSet(new Vector2i(8, 3))));
+	}
+
+	@Test
+	public void Stalemate()
+	{
+		BitBoard b = new BitBoard(2, 2, 3);
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		b.Set(PieceType.CROSS, new Vector2i(0, 1));
+		b.Set(PieceType.CROSS, new Vector2i(1, 0));
+		assertTrue(b.IsFinished());
+		assertEquals(Player.NEITHER, b.Victor());
+		assertNull(b.WinningSet());
+	}
+
+	@Test
+	public void DeadDraw()
+	{
+		BitBoard b = new BitBoard(3, 3, 3);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 0));
+		b.Set(PieceType.CROSS, new Vector2i(2, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		b.Set(PieceType.CROSS, new Vector2i(0, 1));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 1));
+		b.Set(PieceType.CROSS, new Vector2i(1, 2));
+		
+		// Only the left column and the bottom row are still open, both for CROSS
+		assertFalse(b.IsFinished());
+		assertEquals(2, b.Windows().Live(PieceType.CROSS));
+		assertEquals(0, b.Windows().Live(PieceType.CIRCLE));
+		assertFalse(b.Windows().IsDead(b.Cell(2, 2)));
+		
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 2));
+		assertTrue(b.Windows().IsDrawn());
+		assertTrue(b.Windows().IsDead(b.Cell(2, 2)));
+		assertTrue(b.IsFinished());
+		assertEquals(Player.NEITHER, b.Victor());
+		assertNull(b.WinningSet());
+		
+		assertTrue(b.Undo());
+		assertEquals(Player.NULL, b.Victor());
+		assertEquals(2, b.Windows().Live(PieceType.CROSS));
+	}
+
+	@Test
+	public void UndoRestoresEverything()
+	{
+		BitBoard b = new BitBoard(8, 8, 4);
+		b.Set(PieceType.CIRCLE, new Vector2i(7, 7));
+		for (int x = 0; x < 4; x++)
+			b.Set(PieceType.CROSS, new Vector2i(x, 7));
+		assertEquals(Player.CROSS, b.Victor());
+
+		assertTrue(b.Undo());
+		assertEquals(Player.NULL, b.Victor());
+		assertEquals(4, b.Count());
+		assertTrue(b.IsEmpty(b.Cell(3, 7)));
+
+		// Clones carry their history with them
+		ITicTacToeBoard copy = b.Clone();
+		for (int i = 0; i < 3; i++)
+			assertTrue(copy.Undo());
+		assertEquals(PieceType.CIRCLE, copy.Get(new Vector2i(7, 7)));
+		assertEquals(1, copy.Count());
+		assertTrue(copy.Undo());
+		assertFalse(copy.Undo());
+		assertEquals(4, b.Count());
+	}
+
+	@Test
+	public void CloneIsIndependent()
+	{
+		BitBoard b = new BitBoard(3, 3, 3);
+		b.Set(PieceType.CROSS, new Vector2i(1, 1));
+		ITicTacToeBoard copy = b.Clone();
+		copy.Set(PieceType.CIRCLE, new Vector2i(0, 0));
+		assertEquals(PieceType.NONE, b.Get(new Vector2i(0, 0)));
+		assertEquals(PieceType.CROSS, copy.Get(new Vector2i(1, 1)));
+		assertEquals(1, b.Count());
+		assertEquals(2, copy.Count());
+		assertEquals(2, LINQ.Count(copy.IndexSet(true)));
+	}
+
+	@Test
+	public void MatchesArrayBoard()
+	{
+		// Play the same random games on both implementations and make sure they always agree
+		Random rand = new Random(207);
+		int[][] sizes = {{3, 3, 3}, {4, 5, 3}, {7, 7, 4}, {8, 8, 5}, {15, 15, 5}};
+
+		for (int[] size : sizes)
+			for (int game = 0; game < 25; game++)
+			{
+				TicTacToeBoard array = new TicTacToeBoard(size[0], size[1], size[2]);
+				BitBoard bits = new BitBoard(size[0], size[1], size[2]);
+				PieceType turn = PieceType.CROSS;
+
+				while (!array.IsFinished())
+				{
+					Vector2i pos = new Vector2i(rand.nextInt(size[0]), rand.nextInt(size[1]));
+					if (array.IsCellOccupied(pos))
+						continue;
+
+					array.Set(turn, pos);
+					bits.Set(turn, pos);
+					turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+
+					assertEquals(array.Victor(), bits.Victor());
+					assertEquals(array.Count(), bits.Count());
+					assertEquals(LINQ.Count(array.IndexSet(true)), LINQ.Count(bits.IndexSet(true)));
+				}
+
+				assertTrue(bits.IsFinished());
+			}
+	}
+	
+	@Test
+	public void WindowCountsStayInStep()
+	{
+		// The incremental counts must always match counts built from scratch, through both moves and undos
+		Random rand = new Random(8);
+		BitBoard b = new BitBoard(7, 6, 4);
+		assertEquals(4 * 6 + 3 * 7 + 2 * 4 * 3, b.Windows().Windows());
+		
+		for (int game = 0; game < 20; game++)
+		{
+			b.Clear();
+			PieceType turn = PieceType.CROSS;
+			
+			while (!b.IsFinished())
+			{
+				int cell = rand.nextInt(b.Size());
+				if (!b.IsEmpty(cell))
+					continue;
+				
+				b.Set(turn, cell);
+				turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+				
+				if (rand.nextInt(4) == 0) {
+					b.Undo();
+					turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+				}
+				
+				BitBoard fresh = new BitBoard(new TicTacToeBoard(b.Width(), b.Height(), b.WinningLength()));
+				for (Vector2i pos : b.IndexSet(true))
+					fresh.Set(b.Get(pos), pos);
+				
+				assertEquals(fresh.Windows().Score(PieceType.CROSS), b.Windows().Score(PieceType.CROSS));
+				assertEquals(-b.Windows().Score(PieceType.CROSS), b.Windows().Score(PieceType.CIRCLE));
+				assertEquals(fresh.Windows().Live(PieceType.CROSS), b.Windows().Live(PieceType.CROSS));
+				assertEquals(fresh.Windows().Live(PieceType.CIRCLE), b.Windows().Live(PieceType.CIRCLE));
+				
+				for (int c = 0; c < b.Size(); c++)
+					assertEquals(fresh.Windows().IsDead(c), b.Windows().IsDead(c));
+			}
+		}
+	}
+	
+	@Test
+	public void PatternScoresStayInStep()
+	{
+		Random rand = new Random(23);
+		BitBoard b = new BitBoard(9, 8, 5);
+		
+		// An open three is worth more than a boxed in one, and a four more than either
+		BitBoard open = new BitBoard(9, 8, 5);
+		BitBoard closed = new BitBoard(9, 8, 5);
+		for (int x = 2; x < 5; x++) {
+			open.Set(PieceType.CROSS, new Vector2i(x, 4));
+			closed.Set(PieceType.CROSS, new Vector2i(x - 2, 4));
+		}
+		
+		closed.Set(PieceType.CIRCLE, new Vector2i(3, 4));
+		assertTrue(open.Patterns().Score(PieceType.CROSS) > closed.Patterns().Score(PieceType.CROSS));
+		
+		long three = open.Patterns().Score(PieceType.CROSS);
+		open.Set(PieceType.CROSS, new Vector2i(5, 4));
+		assertTrue(open.Patterns().Score(PieceType.CROSS) > 4 * three);
+		
+		// The incremental total must always match one built from scratch, whether the patterns were asked for before the moves or after
+		b.Patterns();
+		
+		for (int game = 0; game < 20; game++)
+		{
+			b.Clear();
+			PieceType turn = PieceType.CROSS;
+			
+			while (!b.IsFinished())
+			{
+				int cell = rand.nextInt(b.Size());
+				if (!b.IsEmpty(cell))
+					continue;
+				
+				b.Set(turn, cell);
+				turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+				
+				if (rand.nextInt(4) == 0) {
+					b.Undo();
+					turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+				}
+				
+				BitBoard fresh = new BitBoard(b.Width(), b.Height(), b.WinningLength());
+				for (Vector2i pos : b.IndexSet(true))
+					fresh.Set(b.Get(pos), pos);
+				
+				assertEquals(fresh.Patterns().Score(PieceType.CROSS), b.Patterns().Score(PieceType.CROSS));
+				assertEquals(-b.Patterns().Score(PieceType.CROSS), b.Patterns().Score(PieceType.CIRCLE));
+				assertEquals(b.Patterns().Score(PieceType.CROSS), new BitBoard(b).Patterns().Score(PieceType.CROSS));
+			}
+		}
+	}
+	
+	@Test
+	public void CandidatesStayInStep()
+	{
+		// Candidates must always be exactly the empty cells within 2 of a stone, through moves, undos, and copies
+		Random rand = new Random(9);
+		BitBoard b = new BitBoard(9, 8, 5);
+		CandidateSet candidates = b.Candidates(2);
+		assertEquals(0, candidates.Size());
+		
+		for (int game = 0; game < 10; game++)
+		{
+			b.Clear();
+			PieceType turn = PieceType.CROSS;
+			
+			while (!b.IsFinished())
+			{
+				int cell = rand.nextInt(b.Size());
+				if (!b.IsEmpty(cell))
+					continue;
+				
+				b.Set(turn, cell);
+				turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+				
+				if (rand.nextInt(4) == 0) {
+					b.Undo();
+					turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+				}
+				
+				CandidateSet copy = new BitBoard(b).Candidates(2);
+				int expected = 0;
+				
+				for (int c = 0; c < b.Size(); c++)
+				{
+					boolean near = false;
+					for (int d = 0; d < b.Size(); d++)
+						if (!b.IsEmpty(d) && Math.abs(b.X(c) - b.X(d)) <= 2 && Math.abs(b.Y(c) - b.Y(d)) <= 2)
+							near = true;
+					
+					boolean candidate = near && b.IsEmpty(c);
+					assertEquals(candidate, candidates.Contains(c));
+					assertEquals(candidate, copy.Contains(c));
+					
+					if (candidate)
+						expected++;
+				}
+				
+				assertEquals(expected, candidates.Size());
+			}
+		}
+	}
+	
+	@Test
+	public void CanonicalHashIsSymmetric()
+	{
+		// Turning or flipping a position must not change its canonical hash, on square boards and rectangular ones
+		Random rand = new Random(13);
+		
+		for (int[] shape : new int[][] {{6, 6}, {7, 5}})
+		{
+			BitBoard b = new BitBoard(shape[0], shape[1], 4);
+			
+			for (int moves = 0; moves < 12; moves++)
+			{
+				int cell = rand.nextInt(b.Size());
+				if (b.IsEmpty(cell))
+					b.Set(moves % 2 == 0 ? PieceType.CROSS : PieceType.CIRCLE, cell);
+				
+				SymmetricHashes symmetries = b.Symmetries();
+				assertEquals(shape[0] == shape[1] ? 8 : 4, symmetries.Transforms());
+				assertEquals(b.Hash(), symmetries.Hash(0));
+				
+				for (int t = 0; t < symmetries.Transforms(); t++)
+				{
+					BitBoard image = new BitBoard(shape[0], shape[1], 4);
+					for (int c = 0; c < b.Size(); c++)
+						if (!b.IsEmpty(c))
+							image.Set(b.Get(c), symmetries.Map(t, c));
+					
+					assertEquals(b.CanonicalHash(), image.CanonicalHash());
+					assertEquals(symmetries.Hash(t), image.Hash());
+				}
+			}
+			
+			// A lone corner stone on a square board can be reflected along its diagonal, so only the cells on one side of it and on it are distinct moves
+			if (shape[0] == shape[1]) {
+				b.Clear();
+				b.Set(PieceType.CROSS, 0);
+				int[] cells = new int[b.Size() - 1];
+				for (int c = 1; c < b.Size(); c++)
+					cells[c - 1] = c;
+				
+				assertEquals((b.Size() - shape[0]) / 2 + shape[0] - 1, b.Symmetries().Distinct(cells, cells.length));
+			}
+		}
+	}
+
+	@Test
+	public void WindowScannerMatchesCounts()
+	{
+		// Scanning the windows from scratch must agree with the counts kept as moves are made, on boards of one word and of several
+		Random rand = new Random(24);
+		int[][] shapes = {{3, 3, 3}, {7, 5, 4}, {15, 15, 5}, {19, 19, 5}, {9, 20, 6}};
+
+		for (int[] shape : shapes)
+			for (int game = 0; game < 5; game++)
+			{
+				BitBoard b = new BitBoard(shape[0], shape[1], shape[2]);
+				PieceType turn = PieceType.CROSS;
+
+				while (!b.IsFinished())
+				{
+					int cell;
+					do cell = rand.nextInt(b.Size()); while (!b.IsEmpty(cell));
+
+					b.Set(turn, cell);
+					turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+
+					for (PieceType piece : new PieceType[] {PieceType.CROSS, PieceType.CIRCLE}) {
+						assertEquals(b.Windows().Score(piece), b.Scanner().Score(piece));
+						assertEquals(b.Windows().Live(piece), b.Scanner().Live(piece));
+					}
+				}
+			}
+	}
+
+	@Test
+	public void ScannedWinsMatchLineSearch()
+	{
+		// Checking for wins with the scanner must find exactly the wins the line search does, wide and short boards included
+		Random rand = new Random(2024);
+		int[][] shapes = {{3, 3, 3}, {4, 4, 3}, {31, 2, 3}, {63, 1, 2}, {9, 9, 5}, {15, 15, 5}, {9, 20, 6}};
+
+		for (int[] shape : shapes)
+			for (int game = 0; game < 10; game++)
+			{
+				BitBoard lines = new BitBoard(shape[0], shape[1], shape[2]);
+				BitBoard scanned = new BitBoard(shape[0], shape[1], shape[2]);
+				TicTacToeBoard array = new TicTacToeBoard(shape[0], shape[1], shape[2]);
+				scanned.SetScannedWins(true);
+				PieceType turn = PieceType.CROSS;
+
+				while (!array.IsFinished())
+				{
+					int cell;
+					do cell = rand.nextInt(lines.Size()); while (!lines.IsEmpty(cell));
+
+					Vector2i pos = new Vector2i(cell % shape[0], cell / shape[0]);
+					lines.Set(turn, cell);
+					scanned.Set(turn, cell);
+					array.Set(turn, pos);
+					turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+
+					assertEquals(array.Victor(), lines.Victor());
+					assertEquals(lines.Victor(), scanned.Victor());
+
+					for (PieceType piece : new PieceType[] {PieceType.CROSS, PieceType.CIRCLE})
+						assertEquals(lines.Victor() == (piece == PieceType.CROSS ? Player.CROSS : Player.CIRCLE), scanned.Scanner().HasLine(piece));
+				}
+
+				// Copies check for wins the same way as the board they were made from
+				assertTrue(new BitBoard(scanned).ScannedWins());
+			}
+	}
+
+	@Test
+	public void VectorScannerMatchesWindowScanner()
+	{
+		// Boards only get vector scanners when the JVM was started with the Vector API, as the build starts it
+		assertEquals(WindowScanner.VECTORIZED, new BitBoard(3, 3, 3).Scanner() instanceof VectorWindowScanner);
+		assumeTrue(WindowScanner.VECTORIZED);
+
+		// Every count and every line must be the same as the plain scanner finds, on boards of one word, of several, and of a number that doesn't fill the last vector
+		Random rand = new Random(2025);
+		int[][] shapes = {{3, 3, 3}, {31, 2, 3}, {9, 9, 5}, {15, 15, 5}, {19, 19, 5}, {9, 20, 6}};
+
+		for (int[] shape : shapes)
+			for (int game = 0; game < 5; game++)
+			{
+				BitBoard b = new BitBoard(shape[0], shape[1], shape[2]);
+				WindowScanner plain = new WindowScanner(b);
+				WindowScanner vector = new VectorWindowScanner(b);
+				PieceType turn = PieceType.CROSS;
+
+				while (!b.IsFinished())
+				{
+					int cell;
+					do cell = rand.nextInt(b.Size()); while (!b.IsEmpty(cell));
+
+					b.Set(turn, cell);
+					turn = turn == PieceType.CROSS ? PieceType.CIRCLE : PieceType.CROSS;
+
+					for (PieceType piece : new PieceType[] {PieceType.CROSS, PieceType.CIRCLE}) {
+						assertEquals(plain.Score(piece), vector.Score(piece));
+						assertEquals(plain.Live(piece), vector.Live(piece));
+						assertEquals(plain.HasLine(piece), vector.HasLine(piece));
+					}
+				}
+			}
+	}
+
+	@Test
+	public void NeuralAccumulatorStaysInStep()
+	{
+		// The first layer must always be what it would be if it were worked out afresh, through moves, removals, undos, and copies
+		Random rand = new Random(25);
+		int width = 6, height = 5, hidden = 8, head = 4;
+		short[] features = new short[2 * width * height * hidden];
+		short[] windowFeatures = new short[6 * 4 * hidden];
+		short[] biases = new short[hidden];
+		short[] headWeights = new short[hidden * head];
+		int[] headBiases = new int[head];
+		float[] outputWeights = new float[head];
+
+		for (int i = 0; i < features.length; i++)
+			features[i] = (short)(rand.nextInt(201) - 100);
+
+		for (int i = 0; i < windowFeatures.length; i++)
+			windowFeatures[i] = (short)(rand.nextInt(101) - 50);
+
+		for (int i = 0; i < biases.length; i++)
+			biases[i] = (short)rand.nextInt(NeuralNetwork.QA);
+
+		for (int i = 0; i < headWeights.length; i++)
+			headWeights[i] = (short)(rand.nextInt(257) - 128);
+
+		for (int i = 0; i < head; i++) {
+			headBiases[i] = rand.nextInt(NeuralNetwork.QA * NeuralNetwork.QB);
+			outputWeights[i] = rand.nextFloat() - 0.5f;
+		}
+
+		NeuralNetwork network = new NeuralNetwork(width, height, 4, features, windowFeatures, biases, headWeights, headBiases, outputWeights, 0.25f);
+		BitBoard b = new BitBoard(width, height, 4);
+		NeuralAccumulator accumulator = b.Accumulator(network);
+		assertEquals(0.25f, accumulator.Score(PieceType.CROSS), 1e-6);
+		assertNull(new BitBoard(width, height, 3).Accumulator(network));
+
+		for (int step = 0; step < 400; step++)
+		{
+			int cell = rand.nextInt(b.Size());
+			int action = rand.nextInt(10);
+
+			if (action < 6)
+				b.Set(b.Count() % 2 == 0 ? PieceType.CROSS : PieceType.CIRCLE, cell);
+			else if (action < 8)
+				b.Undo();
+			else if (action < 9)
+				b.Remove(new Vector2i(b.X(cell), b.Y(cell)));
+			else
+				b = new BitBoard(b);
+
+			BitBoard fresh = new BitBoard(width, height, 4);
+			for (int c = 0; c < b.Size(); c++)
+				if (!b.IsEmpty(c))
+					fresh.Set(b.Get(c), c);
+
+			assertEquals(fresh.Accumulator(network).Score(PieceType.CROSS), b.Accumulator(network).Score(PieceType.CROSS), 0);
+			assertEquals(-b.Accumulator(network).Score(PieceType.CROSS), b.Accumulator(network).Score(PieceType.CIRCLE), 0);
+		}
+
+		assertTrue(b.Accumulator(network) == b.Accumulator(network));
+	}
+}
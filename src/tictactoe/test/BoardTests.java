@@ -265,6 +265,31 @@ public class BoardTests
 		assertTrue(b.IsFinished());
 	}
 	
+	@Test
+	public void IsFinishedDeadDraw()
+	{
+		// X O X
+		// X O O
+		// O X .
+		// Every line is blocked, so the last cell can't matter
+		TicTacToeBoard b = new TicTacToeBoard(3,3,3);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 0));
+		b.Set(PieceType.CROSS, new Vector2i(2, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		b.Set(PieceType.CROSS, new Vector2i(0, 1));
+		b.Set(PieceType.CIRCLE, new Vector2i(2, 1));
+		b.Set(PieceType.CROSS, new Vector2i(1, 2));
+		assertFalse(b.IsFinished());
+		
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 2));
+		assertTrue(b.IsFinished());
+		assertEquals(Player.NEITHER, b.Victor());
+		
+		assertTrue(b.Undo());
+		assertFalse(b.IsFinished());
+	}
+	
 	@Test
 	public void IsFinishedWinner()
 	{
@@ -328,4 +353,46 @@ public class BoardTests
 		TicTacToeBoard b = new TicTacToeBoard(3,3,3);
 		assertEquals(Player.NULL, b.Victor());
 	}
+	
+	@Test
+	public void UndoWin()
+	{
+		TicTacToeBoard b = new TicTacToeBoard(3,3,3);
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		b.Set(PieceType.CROSS, new Vector2i(1, 0));
+		b.Set(PieceType.CROSS, new Vector2i(2, 0));
+		assertEquals(Player.CROSS, b.Victor());
+		
+		assertTrue(b.Undo());
+		assertEquals(Player.NULL, b.Victor());
+		assertEquals(2, b.Count());
+		assertEquals(PieceType.NONE, b.Get(new Vector2i(2, 0)));
+		assertFalse(b.IsFinished());
+	}
+	
+	@Test
+	public void UndoRemoveAndStalemate()
+	{
+		TicTacToeBoard b = new TicTacToeBoard(2,2,3);
+		b.Set(PieceType.CIRCLE, new Vector2i(0, 0));
+		b.Set(PieceType.CIRCLE, new Vector2i(1, 1));
+		b.Set(PieceType.CROSS, new Vector2i(0, 1));
+		b.Remove(new Vector2i(0, 0));
+		b.Set(PieceType.CROSS, new Vector2i(1, 0));
+		b.Set(PieceType.CROSS, new Vector2i(0, 0));
+		assertEquals(Player.NEITHER, b.Victor());
+		
+		assertTrue(b.Undo());
+		assertTrue(b.Undo());
+		assertTrue(b.Undo());
+		assertEquals(PieceType.CIRCLE, b.Get(new Vector2i(0, 0)));
+		assertEquals(Player.NULL, b.Victor());
+		assertEquals(3, b.Count());
+		
+		assertTrue(b.Undo());
+		assertTrue(b.Undo());
+		assertTrue(b.Undo());
+		assertFalse(b.Undo());
+		assertEquals(0, b.Count());
+	}
 }